@@ -0,0 +1,94 @@
+package com.example.library.benchmark;
+
+import com.example.library.repository.BookRepository;
+import com.example.library.search.BookSearchIndex;
+import com.example.library.search.SearchDocument;
+import com.example.library.search.SearchHits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the latency of the in-memory book search index on a synthetic catalog of a few million books.
+ * Run with {@code ./gradlew jmh}, the size is the {@code size} parameter of JMH.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BookSearchIndexBenchmark {
+
+	private static final String[] WORDS = {
+			"history", "science", "java", "war", "peace", "garden", "ocean", "night", "city", "river",
+			"dragon", "kingdom", "secret", "journey", "winter", "summer", "empire", "shadow", "light", "storm"
+	};
+	private static final Pageable FIRST_PAGE = PageRequest.of(0, 20);
+
+	@Param("3000000")
+	private int size;
+
+	@Param({"java", "secret garden", "dragon kingdom night", "author17"})
+	private String query;
+
+	private BookSearchIndex index;
+
+	@Setup(Level.Trial)
+	public void setUp() throws InterruptedException {
+		// The catalog is generated on the fly, chunk by chunk, as the build threads load it.
+		BookRepository bookRepository = mock(BookRepository.class);
+		when(bookRepository.count()).thenReturn((long) size);
+		when(bookRepository.findMinId()).thenReturn(Optional.of(1L));
+		when(bookRepository.findMaxId()).thenReturn(Optional.of((long) size));
+		when(bookRepository.findSearchDocuments(anyLong(), anyLong())).thenAnswer(invocation -> LongStream
+				.rangeClosed(invocation.<Long>getArgument(0), invocation.<Long>getArgument(1))
+				.mapToObj(BookSearchIndexBenchmark::document)
+				.toList());
+
+		index = new BookSearchIndex(bookRepository, 50_000, 0);
+		index.startBuild();
+		while (!index.isReady()) {
+			Thread.sleep(10);
+		}
+		if (index.search(query, FIRST_PAGE).orElseThrow().total() == 0) {
+			throw new IllegalStateException("The benchmark query must match books: " + query);
+		}
+	}
+
+	@Benchmark
+	public Optional<SearchHits> search() {
+		return index.search(query, FIRST_PAGE);
+	}
+
+	/**
+	 * A book with two random words and a unique word in its title, derived from its id alone so the chunks can be
+	 * generated in any order.
+	 */
+	private static SearchDocument document(long id) {
+		long hash = id * 0x9E3779B97F4A7C15L;
+		return new SearchDocument(id,
+				WORDS[Math.floorMod(hash >>> 11, WORDS.length)] + " " + WORDS[Math.floorMod(hash >>> 37, WORDS.length)]
+						+ " " + Long.toHexString(id * 2654435761L),
+				"Author" + Math.floorMod(hash >>> 23, 100_000));
+	}
+}
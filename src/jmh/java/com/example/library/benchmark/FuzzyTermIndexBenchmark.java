@@ -0,0 +1,113 @@
+package com.example.library.benchmark;
+
+import com.example.library.entity.Book;
+import com.example.library.repository.BookRepository;
+import com.example.library.search.FuzzyTermIndex;
+import com.example.library.search.SearchDocument;
+import com.example.library.specification.BookFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the latency of the typo-tolerant expansion of a title filter, on a million books with one term each.
+ * Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FuzzyTermIndexBenchmark {
+
+	private static final int BOOKS = 1_000_000;
+	private static final int FILTERS = 1000;
+
+	/**
+	 * The number of letters changed in each filter.
+	 */
+	@Param({"1", "2"})
+	private int distance;
+
+	private FuzzyTermIndex index;
+	private BookFilter[] filters;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws InterruptedException {
+		BookRepository bookRepository = mock(BookRepository.class);
+		when(bookRepository.findMinId()).thenReturn(Optional.of(1L));
+		when(bookRepository.findMaxId()).thenReturn(Optional.of((long) BOOKS));
+		when(bookRepository.findSearchDocuments(anyLong(), anyLong())).thenAnswer(invocation -> LongStream
+				.rangeClosed(invocation.<Long>getArgument(0), invocation.<Long>getArgument(1))
+				.mapToObj(id -> new SearchDocument(id, term(id), "Author"))
+				.toList());
+
+		index = new FuzzyTermIndex(bookRepository, 32);
+		index.startBuild();
+		while (index.toSpecification(new BookFilter("author", null, true)).isEmpty()) {
+			Thread.sleep(10);
+		}
+
+		// Misspell existing terms by the distance.
+		Random random = new Random(42);
+		filters = new BookFilter[FILTERS];
+		for (int i = 0; i < FILTERS; i++) {
+			filters[i] = new BookFilter(misspell(term(1 + random.nextInt(BOOKS)), distance, random), null, true);
+			if (index.toSpecification(filters[i]).isEmpty()) {
+				throw new IllegalStateException("The benchmark filters must expand: " + filters[i]);
+			}
+		}
+	}
+
+	@Benchmark
+	public Optional<Specification<Book>> expand() {
+		next = next + 1 == FILTERS ? 0 : next + 1;
+		return index.toSpecification(filters[next]);
+	}
+
+	/**
+	 * A pronounceable term of 5 to 12 letters, like the names in a catalog, derived from the id of its book alone so
+	 * the chunks can be generated in any order.
+	 */
+	private static String term(long id) {
+		Random random = new Random(id);
+		String consonants = "bcdfghjklmnprstvwz";
+		String vowels = "aeiouy";
+		int length = 5 + random.nextInt(8);
+		StringBuilder term = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			String letters = i % 2 == 0 ? consonants : vowels;
+			term.append(letters.charAt(random.nextInt(letters.length())));
+		}
+		return term.toString();
+	}
+
+	private static String misspell(String term, int edits, Random random) {
+		StringBuilder misspelled = new StringBuilder(term);
+		for (int i = 0; i < edits; i++) {
+			misspelled.setCharAt(random.nextInt(misspelled.length()), (char) ('a' + random.nextInt(26)));
+		}
+		return misspelled.toString();
+	}
+}
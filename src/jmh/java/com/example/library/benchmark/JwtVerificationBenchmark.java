@@ -0,0 +1,85 @@
+package com.example.library.benchmark;
+
+import com.example.library.security.JwtTokenProvider;
+import com.example.library.security.UserPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of verifying a token seen for the first time with a token seen recently.
+ * Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtVerificationBenchmark {
+
+	private static final String SECRET = "a-benchmark-secret-that-is-long-enough-for-hmac-sha-256";
+	private static final int TOKENS = 100_000;
+
+	private String[] tokens;
+
+	/**
+	 * Keeps no token, so every verification parses the token and checks its HMAC.
+	 */
+	private JwtTokenProvider uncached;
+
+	/**
+	 * Keeps all the tokens, so every verification is a SHA-256 digest and a map lookup.
+	 */
+	private JwtTokenProvider cached;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		// Distinct users, so every token is distinct.
+		JwtTokenProvider issuer = new JwtTokenProvider(SECRET, 3600000, 0);
+		tokens = new String[TOKENS];
+		for (int i = 0; i < TOKENS; i++) {
+			UserPrincipal user = new UserPrincipal((long) i, "user-" + i, "{bcrypt}hash", 0, Set.of(new SimpleGrantedAuthority("ROLE_USER")));
+			tokens[i] = issuer.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+		}
+
+		uncached = new JwtTokenProvider(SECRET, 3600000, 0);
+		cached = new JwtTokenProvider(SECRET, 3600000, TOKENS);
+		for (String token : tokens) {
+			if (cached.parseToken(token).isEmpty()) {
+				throw new IllegalStateException("The benchmark tokens must be valid");
+			}
+		}
+	}
+
+	@Benchmark
+	public Optional<JwtTokenProvider.TokenClaims> cacheMiss() {
+		return uncached.parseToken(nextToken());
+	}
+
+	@Benchmark
+	public Optional<JwtTokenProvider.TokenClaims> cacheHit() {
+		return cached.parseToken(nextToken());
+	}
+
+	private String nextToken() {
+		next = next + 1 == TOKENS ? 0 : next + 1;
+		return tokens[next];
+	}
+}
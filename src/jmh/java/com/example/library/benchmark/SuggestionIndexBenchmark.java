@@ -0,0 +1,113 @@
+package com.example.library.benchmark;
+
+import com.example.library.dto.SuggestionDTO;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LocationRepository;
+import com.example.library.search.SuggestionIndex;
+import com.example.library.search.WeightedText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the latency percentiles of the title suggestions on a million books, as typed key by key.
+ * Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SuggestionIndexBenchmark {
+
+	private static final int BOOKS = 1_000_000;
+	private static final int PREFIXES = 100_000;
+	private static final int TOP_K = 10;
+
+	private SuggestionIndex index;
+	private String[] prefixes;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws InterruptedException {
+		BookRepository bookRepository = mock(BookRepository.class);
+		when(bookRepository.findMinId()).thenReturn(Optional.of(1L));
+		when(bookRepository.findMaxId()).thenReturn(Optional.of((long) BOOKS));
+		when(bookRepository.findWeightedTitles(anyLong(), anyLong())).thenAnswer(invocation -> LongStream
+				.rangeClosed(invocation.<Long>getArgument(0), invocation.<Long>getArgument(1))
+				.mapToObj(id -> new WeightedText(id, title(id), id % 100))
+				.toList());
+		LocationRepository locationRepository = mock(LocationRepository.class);
+		when(locationRepository.findWeightedNames(anyLong(), anyLong())).thenReturn(List.of());
+
+		index = new SuggestionIndex(bookRepository, locationRepository, TOP_K, 50_000, Duration.ofHours(1));
+		// Suggestions are empty until the trie is built, whether or not a title matches.
+		index.startBuild();
+		while (index.suggestBooks("a", TOP_K).isEmpty()) {
+			Thread.sleep(10);
+		}
+
+		// Type the first characters of existing titles.
+		Random random = new Random(42);
+		prefixes = new String[PREFIXES];
+		for (int i = 0; i < PREFIXES; i++) {
+			String title = title(1 + random.nextInt(BOOKS));
+			prefixes[i] = title.substring(0, 1 + random.nextInt(Math.min(8, title.length())));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		index.shutdown();
+	}
+
+	@Benchmark
+	public Optional<List<SuggestionDTO>> suggest() {
+		next = next + 1 == PREFIXES ? 0 : next + 1;
+		return index.suggestBooks(prefixes[next], TOP_K);
+	}
+
+	/**
+	 * Two to four pronounceable words, like the titles in a catalog, derived from the id of the book alone so the
+	 * chunks can be generated in any order.
+	 */
+	private static String title(long id) {
+		Random random = new Random(id);
+		String consonants = "bcdfghjklmnprstvwz";
+		String vowels = "aeiouy";
+		StringBuilder title = new StringBuilder();
+		int words = 2 + random.nextInt(3);
+		for (int w = 0; w < words; w++) {
+			if (w > 0) {
+				title.append(' ');
+			}
+			int length = 3 + random.nextInt(6);
+			for (int i = 0; i < length; i++) {
+				String letters = i % 2 == 0 ? consonants : vowels;
+				title.append(letters.charAt(random.nextInt(letters.length())));
+			}
+		}
+		return title.toString();
+	}
+}
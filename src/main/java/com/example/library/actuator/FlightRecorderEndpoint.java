@@ -0,0 +1,224 @@
+package com.example.library.actuator;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Starts and stops a Java Flight Recorder recording at {@code /actuator/jfr}, and streams back the {@code .jfr} file.
+ * <p>
+ * {@code POST} starts a recording, bounded in duration and size, {@code GET} tells its state, and {@code DELETE} stops
+ * it and returns the file. The recording contains the JVM events of the chosen settings and the library events, such
+ * as {@link com.example.library.metrics.BookSearchEvent}. Only one recording runs at a time.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+@ConditionalOnProperty(prefix = "app.metrics.jfr", name = "enabled", havingValue = "true")
+public class FlightRecorderEndpoint {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEndpoint.class);
+
+    private final Duration maxDuration;
+    private final DataSize maxSize;
+    private final String settings;
+
+    /**
+     * The current recording, running or stopped by its duration, null if there is none.
+     */
+    private Recording recording;
+
+    /**
+     * The file the current recording is written to when it stops.
+     */
+    private Path file;
+
+    /**
+     * Create a new FlightRecorderEndpoint.
+     *
+     * @param maxDuration the longest duration of a recording, and the duration of the recordings that don't tell
+     * @param maxSize     the largest size of a recording, and the size of the recordings that don't tell
+     * @param settings    the settings of the recordings that don't tell, default or profile
+     */
+    public FlightRecorderEndpoint(
+            @Value("${app.metrics.jfr.max-duration:10m}") Duration maxDuration,
+            @Value("${app.metrics.jfr.max-size:100MB}") DataSize maxSize,
+            @Value("${app.metrics.jfr.settings:profile}") String settings
+    ) {
+        this.maxDuration = maxDuration;
+        this.maxSize = maxSize;
+        this.settings = settings;
+    }
+
+    @ReadOperation
+    public synchronized RecordingStatus status() {
+        return RecordingStatus.of(this.recording);
+    }
+
+    /**
+     * Start a recording.
+     *
+     * @param duration how long to record, at most the maximum duration
+     * @param maxSize  the size above which the oldest events are dropped, at most the maximum size
+     * @param settings the name of the JFR settings, default or profile
+     * @return the state of the recording
+     */
+    @WriteOperation
+    public synchronized RecordingStatus start(@Nullable Duration duration, @Nullable DataSize maxSize, @Nullable String settings) throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new InvalidEndpointRequestException("Flight Recorder is not available in this JVM", "Flight Recorder is not available");
+        }
+        if (this.recording != null && this.recording.getState() == RecordingState.RUNNING) {
+            throw new InvalidEndpointRequestException("A recording is already running", "A recording is already running");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings != null ? settings : this.settings);
+        } catch (IOException | ParseException e) {
+            throw new InvalidEndpointRequestException("Unknown settings " + settings, "Unknown settings");
+        }
+        // Drop the previous recording, if it was never downloaded.
+        this.discard();
+
+        Path destination = Files.createTempFile("library-", ".jfr");
+        Recording started = new Recording(configuration);
+        started.setName("library");
+        started.setDuration(min(duration, this.maxDuration));
+        started.setMaxSize(Math.min(maxSize != null ? maxSize.toBytes() : Long.MAX_VALUE, this.maxSize.toBytes()));
+        started.setToDisk(true);
+        started.setDestination(destination);
+        started.start();
+        this.recording = started;
+        this.file = destination;
+        logger.info("Started flight recording {} for {}", destination, started.getDuration());
+        return RecordingStatus.of(started);
+    }
+
+    /**
+     * Stop the recording, if it is still running, and stream back its file.
+     *
+     * @return the recording, deleted once it is streamed, or null if there is none
+     */
+    @DeleteOperation(produces = "application/octet-stream")
+    public synchronized Resource stop() throws IOException {
+        if (this.recording == null) {
+            return null;
+        }
+        if (this.recording.getState() == RecordingState.RUNNING) {
+            // The data is written to the destination.
+            this.recording.stop();
+        }
+        this.recording.close();
+        Resource resource = new TemporaryFileSystemResource(this.file);
+        this.recording = null;
+        this.file = null;
+        return resource;
+    }
+
+    /**
+     * Drop the recording before the application context is closed.
+     */
+    @PreDestroy
+    public synchronized void shutdown() throws IOException {
+        this.discard();
+    }
+
+    private void discard() throws IOException {
+        if (this.recording != null) {
+            this.recording.close();
+            Files.deleteIfExists(this.file);
+            this.recording = null;
+            this.file = null;
+        }
+    }
+
+    private static Duration min(@Nullable Duration duration, Duration maxDuration) {
+        return duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+    }
+
+    /**
+     * The state of the recording.
+     *
+     * @param state     NEW, RUNNING, STOPPED or CLOSED, NONE if there is no recording
+     * @param startTime when it started, null if there is no recording
+     * @param duration  how long it records, null if there is no recording
+     * @param maxSize   the size above which the oldest events are dropped, in bytes
+     * @param size      the size recorded so far, in bytes
+     */
+    public record RecordingStatus(
+            @NonNull String state,
+            @Nullable Instant startTime,
+            @Nullable Duration duration,
+            long maxSize,
+            long size
+    ) {
+        static RecordingStatus of(@Nullable Recording recording) {
+            if (recording == null) {
+                return new RecordingStatus("NONE", null, null, 0, 0);
+            }
+            return new RecordingStatus(recording.getState().name(), recording.getStartTime(), recording.getDuration(),
+                    recording.getMaxSize(), recording.getSize());
+        }
+    }
+
+    /**
+     * A file deleted once it is streamed.
+     */
+    private static final class TemporaryFileSystemResource extends FileSystemResource {
+
+        private TemporaryFileSystemResource(Path path) {
+            super(path);
+        }
+
+        @Override
+        public @NonNull ReadableByteChannel readableChannel() throws IOException {
+            return Channels.newChannel(this.getInputStream());
+        }
+
+        @Override
+        public @NonNull InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(TemporaryFileSystemResource.this.getFilePath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            // Make the converters stream the file, so it is deleted once sent.
+            return false;
+        }
+    }
+}
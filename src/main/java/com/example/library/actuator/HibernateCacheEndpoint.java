@@ -0,0 +1,55 @@
+package com.example.library.actuator;
+
+import com.example.library.config.HibernateCacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the statistics of the Hibernate second-level cache regions at {@code /actuator/hibernatecache}.
+ */
+@Component
+@Endpoint(id = "hibernatecache")
+public class HibernateCacheEndpoint {
+
+    private final Statistics statistics;
+
+    public HibernateCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ReadOperation
+    public Map<String, RegionStatistics> regions() {
+        Map<String, RegionStatistics> regions = new LinkedHashMap<>();
+        for (String name : HibernateCacheConfig.REGIONS) {
+            CacheRegionStatistics region = this.statistics.getCacheRegionStatistics(name);
+            if (region != null) {
+                regions.put(name, RegionStatistics.of(region));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * The statistics of a region since startup.
+     *
+     * @param hits     the number of lookups answered by the region
+     * @param misses   the number of lookups that went to the database
+     * @param puts     the number of entries written to the region
+     * @param hitRatio the share of the lookups answered by the region, 0 if there was none
+     */
+    public record RegionStatistics(long hits, long misses, long puts, double hitRatio) {
+        static RegionStatistics of(CacheRegionStatistics region) {
+            long lookups = region.getHitCount() + region.getMissCount();
+            return new RegionStatistics(region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                    lookups == 0 ? 0 : (double) region.getHitCount() / lookups);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.library.actuator;
+
+import com.example.library.metrics.SlowQueryLog;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Exposes the last slow SQL statements and their plans at {@code /actuator/slowqueries}.
+ */
+@Component
+@Endpoint(id = "slowqueries")
+@ConditionalOnProperty(prefix = "app.metrics.slow-queries", name = "enabled", havingValue = "true")
+public class SlowQueryEndpoint {
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryEndpoint(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @ReadOperation
+    public List<SlowQueryLog.SlowQuery> slowQueries() {
+        return this.slowQueryLog.recent();
+    }
+
+    /**
+     * Forget the slow statements, for instance after adding an index.
+     */
+    @DeleteOperation
+    public void clear() {
+        this.slowQueryLog.clear();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.library.aspect;
+
+import com.example.library.metrics.MapperCallEvent;
+import jdk.jfr.EventType;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Emits a {@link MapperCallEvent} for each call of a mapper, while a flight recording is running.
+ * <p>
+ * Every mapper is proxied, so the aspect is only registered when {@code app.metrics.jfr.mapper-events} is set too.
+ * When no recording is running, the event is disabled and the call only pays for the proxy and the check.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(prefix = "app.metrics.jfr", name = {"enabled", "mapper-events"}, havingValue = "true")
+public class MapperEventAspect {
+    /**
+     * The type of the mapper call events, enabled while a flight recording is running.
+     */
+    private static final EventType MAPPER_CALL = EventType.getEventType(MapperCallEvent.class);
+
+    @Around("execution(* com.example.library.mapper..*.*(..))")
+    public Object recordMapperCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!MAPPER_CALL.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        MapperCallEvent event = new MapperCallEvent();
+        event.begin();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            event.complete(joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint.getSignature().getName());
+        }
+    }
+}
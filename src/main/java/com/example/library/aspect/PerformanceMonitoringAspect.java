@@ -4,6 +4,7 @@ import com.example.library.metrics.PerformanceMetrics;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
 @Aspect
@@ -18,14 +19,17 @@ public class PerformanceMonitoringAspect {
 
     @Around("execution(* com.example.library.controller.*.*(..))")
     public Object measureMethodExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
-        Object result = joinPoint.proceed();
-        long executionTime = System.currentTimeMillis() - startTime;
-
-        String className = joinPoint.getTarget().getClass().getSimpleName();
-        String methodName = joinPoint.getSignature().getName();
-        this.metrics.recordMethodExecutionTime(className, methodName, executionTime);
-
-        return result;
+        long startTime = System.nanoTime();
+        Throwable exception = null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e;
+            throw e;
+        } finally {
+            long executionTime = System.nanoTime() - startTime;
+            String className = joinPoint.getTarget().getClass().getSimpleName();
+            this.metrics.recordMethodExecutionTime(((MethodSignature) joinPoint.getSignature()).getMethod(), className, executionTime, exception);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.example.library.aspect;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a read method whose concurrent identical calls share a single execution.
+ * <p>
+ * Calls are identical when they have equal arguments, so the arguments must implement equals and hashCode. The
+ * callers share the returned object, which must not be modified.
+ *
+ * @see SingleFlightAspect
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleFlight {
+}
@@ -0,0 +1,125 @@
+package com.example.library.aspect;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Collapses the concurrent identical calls of the {@link SingleFlight} methods into one.
+ * <p>
+ * The first call runs the method and publishes its outcome through a {@link CompletableFuture}. The calls made with
+ * equal arguments before it returns wait for that future and get the same result, or the same exception, without
+ * running the method. The aspect runs before the transaction and cache advice. Calls made inside a transaction are
+ * never collapsed, as they must see the uncommitted changes of their own transaction.
+ * <p>
+ * The {@code library.single-flight.calls} counter counts the calls of each method, tagged {@code result=executed} or
+ * {@code result=collapsed}.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "app.single-flight", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SingleFlightAspect {
+    /**
+     * The calls being executed, by method and arguments.
+     */
+    private final Map<Call, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The counters of each method, registered on first use.
+     */
+    private final Map<Method, Counters> counters = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Create a new SingleFlightAspect.
+     *
+     * @param meterRegistry the registry of the call counters
+     */
+    public SingleFlightAspect(@NonNull MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Run a call, or wait for the identical call in flight.
+     *
+     * @param joinPoint the call
+     * @return the result of the call
+     * @throws Throwable the exception of the call
+     */
+    @Around("@annotation(com.example.library.aspect.SingleFlight)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Counters methodCounters = this.counters.computeIfAbsent(method, this::registerCounters);
+        Call call = new Call(method, Arrays.asList(joinPoint.getArgs()));
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> leader = this.inFlight.putIfAbsent(call, future);
+        if (leader != null) {
+            methodCounters.collapsed().increment();
+            return this.await(leader);
+        }
+
+        methodCounters.executed().increment();
+        try {
+            Object result = joinPoint.proceed();
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            // The next call starts a new flight, it may see changes committed since this one started.
+            this.inFlight.remove(call, future);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> leader) throws Throwable {
+        try {
+            return leader.get();
+        } catch (ExecutionException e) {
+            // Throw the exception of the method, checked exceptions included.
+            throw e.getCause();
+        }
+    }
+
+    private Counters registerCounters(Method method) {
+        String name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        return new Counters(this.registerCounter(name, "executed"), this.registerCounter(name, "collapsed"));
+    }
+
+    private Counter registerCounter(String method, String result) {
+        return Counter.builder("library.single-flight.calls")
+                .description("Calls of the single-flight methods, executed or collapsed into an identical call in flight")
+                .tag("method", method)
+                .tag("result", result)
+                .register(this.meterRegistry);
+    }
+
+    private record Call(Method method, List<Object> args) {
+    }
+
+    private record Counters(Counter executed, Counter collapsed) {
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.library.cache;
+
+import com.example.library.config.CacheConfig;
+import com.example.library.entity.Book;
+import com.example.library.entity.BookCopy;
+import com.example.library.entity.Location;
+import com.example.library.event.BookChangedEvent;
+import com.example.library.event.BooksImportedEvent;
+import com.example.library.event.LocationChangedEvent;
+import com.example.library.event.UserChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Propagates the changes of books and locations to the caches of the other nodes, through the database.
+ * <p>
+ * A change appends a row to {@code cache_invalidations} in the transaction that makes it, so the row commits if and
+ * only if the change does. Every node polls the rows appended by the others, evicts its cached copies and republishes
+ * the change locally, so the in-memory indexes and counts catch up too. Polling the table works the same on H2 and
+ * PostgreSQL and needs no extra infrastructure. The user changes are broadcast too, so the tokens they revoke are
+ * rejected by every node. A chunk of imported books appends one row for its id range, which the
+ * other nodes republish as a {@link BooksImportedEvent} of the books in that range.
+ * <p>
+ * Ids are assigned at insert but committed in any order, so a poll can see a row before a smaller id commits. Rows
+ * above a gap are remembered and the gap is polled again until it fills, or until {@code gap-timeout} tells that the
+ * missing ids were rolled back. The skipped ids are read once more after another {@code gap-timeout}, for the
+ * transactions that were only slow: a change committing later than that is missed, and its cached copies on the
+ * other nodes stay stale until they expire.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cache.invalidation", name = "enabled", havingValue = "true")
+public class CacheInvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    static final String BOOK = "book";
+    static final String LOCATION = "location";
+    static final String USER = "user";
+    static final String BOOK_IMPORT = "book-import";
+
+    private static final String INSERT =
+            "INSERT INTO cache_invalidations (entity, entity_id, last_entity_id, origin) VALUES (:entity, :entityId, :lastEntityId, :origin)";
+
+    private static final String SELECT_AFTER =
+            "SELECT id, entity, entity_id, last_entity_id, origin, created_at, CURRENT_TIMESTAMP AS polled_at FROM cache_invalidations " +
+                    "WHERE id > :cursor ORDER BY id FETCH FIRST :batchSize ROWS ONLY";
+
+    private static final String SELECT_IDS =
+            "SELECT id, entity, entity_id, last_entity_id, origin, created_at, CURRENT_TIMESTAMP AS polled_at FROM cache_invalidations " +
+                    "WHERE id IN (:ids) ORDER BY id";
+
+    /**
+     * The books of the id range of an import, which may also hold books created elsewhere.
+     */
+    private static final String SELECT_BOOK_IDS_BETWEEN =
+            "SELECT id FROM books WHERE id BETWEEN :firstId AND :lastId ORDER BY id";
+
+    private static final String SELECT_MAX_ID = "SELECT COALESCE(MAX(id), 0) FROM cache_invalidations";
+
+    private static final String DELETE_BEFORE = "DELETE FROM cache_invalidations WHERE created_at < :cutoff";
+
+    private final @NonNull NamedParameterJdbcTemplate jdbcTemplate;
+    private final @NonNull CacheManager cacheManager;
+    private final @NonNull org.hibernate.Cache secondLevelCache;
+    private final @NonNull ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The time between a change and its eviction on this node, measured with the database clock.
+     */
+    private final @NonNull Timer lag;
+
+    /**
+     * Identifies the rows appended by this node, which it skips.
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final Duration retention;
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * All the rows up to this id are applied, or were given up on. Guarded by this.
+     */
+    private long cursor = -1;
+
+    /**
+     * The rows above the cursor that are already applied. Guarded by this.
+     */
+    private final TreeSet<Long> appliedAboveCursor = new TreeSet<>();
+
+    /**
+     * When the first gap above the cursor was seen, 0 if there is none. Guarded by this.
+     */
+    private long gapSince;
+
+    /**
+     * The ids skipped by the timed out gaps, with when they were skipped, to read once more. Guarded by this.
+     */
+    private final LinkedHashMap<Long, Long> skippedIds = new LinkedHashMap<>();
+
+    /**
+     * When the old rows were last deleted. Guarded by this.
+     */
+    private long lastCleanup = System.nanoTime();
+
+    /**
+     * Create a new CacheInvalidationBus.
+     *
+     * @param jdbcTemplate         the JDBC template, bound to the transaction of the changes
+     * @param cacheManager         the cache manager of the entity caches
+     * @param entityManagerFactory the entity manager factory, whose second-level cache is evicted
+     * @param eventPublisher       the publisher of the local change events
+     * @param meterRegistry        the registry of the lag metric
+     * @param pollInterval         the time between two polls
+     * @param batchSize            the maximum number of rows read by a poll
+     * @param gapTimeout           how long a gap in the ids is polled again before it is skipped
+     * @param retention            how long the rows are kept
+     */
+    public CacheInvalidationBus(
+            @NonNull NamedParameterJdbcTemplate jdbcTemplate,
+            @NonNull CacheManager cacheManager,
+            @NonNull EntityManagerFactory entityManagerFactory,
+            @NonNull ApplicationEventPublisher eventPublisher,
+            @NonNull MeterRegistry meterRegistry,
+            @Value("${app.cache.invalidation.poll-interval:500ms}") Duration pollInterval,
+            @Value("${app.cache.invalidation.batch-size:1000}") int batchSize,
+            @Value("${app.cache.invalidation.gap-timeout:10s}") Duration gapTimeout,
+            @Value("${app.cache.invalidation.retention:1h}") Duration retention
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheManager = cacheManager;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.eventPublisher = eventPublisher;
+        this.lag = Timer.builder("library.cache.invalidation.lag")
+                .description("Time between a change on another node and the eviction of its cached copies on this node")
+                .register(meterRegistry);
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.retention = retention;
+    }
+
+    /**
+     * Start polling once the application is ready. The changes committed before are ignored, the caches are empty.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        synchronized (this) {
+            if (this.cursor < 0) {
+                this.cursor = Objects.requireNonNull(this.jdbcTemplate.queryForObject(SELECT_MAX_ID, new MapSqlParameterSource(), Long.class));
+            }
+        }
+        long intervalNanos = this.pollInterval.toNanos();
+        this.poller.scheduleWithFixedDelay(this::pollSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop polling before the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.poller.shutdownNow();
+    }
+
+    /**
+     * Append a book change to the table, in the transaction of the change.
+     * Changes republished from another node are not in a transaction, so they are not appended again.
+     *
+     * @param event the book change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onBookChanged(@NonNull BookChangedEvent event) {
+        this.append(BOOK, event.bookId());
+    }
+
+    /**
+     * Append the id range of an imported chunk to the table with one row, in the transaction of the chunk.
+     * Chunks republished from another node are not in a transaction, so they are not appended again.
+     *
+     * @param event the imported books
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onBooksImported(@NonNull BooksImportedEvent event) {
+        this.jdbcTemplate.update(INSERT, this.row(BOOK_IMPORT, event.firstId()).addValue("lastEntityId", event.lastId()));
+    }
+
+    /**
+     * Append a location change to the table, in the transaction of the change.
+     * Changes republished from another node are not in a transaction, so they are not appended again.
+     *
+     * @param event the location change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onLocationChanged(@NonNull LocationChangedEvent event) {
+        this.append(LOCATION, event.locationId());
+    }
+
+    /**
+     * Append a user change to the table, in the transaction of the change.
+     * The event is published by the entity listener while Hibernate flushes, which may be during the commit, after the
+     * before-commit listeners ran, so the row is appended right away. Changes republished from another node are not
+     * in a transaction, so they are not appended again.
+     *
+     * @param event the user change
+     */
+    @EventListener
+    public void onUserChanged(@NonNull UserChangedEvent event) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            this.append(USER, event.userId());
+        }
+    }
+
+    private void append(String entity, Long entityId) {
+        this.jdbcTemplate.update(INSERT, this.row(entity, entityId));
+    }
+
+    private MapSqlParameterSource row(String entity, Long entityId) {
+        return new MapSqlParameterSource()
+                .addValue("entity", entity)
+                .addValue("entityId", entityId)
+                .addValue("lastEntityId", null, Types.BIGINT)
+                .addValue("origin", this.origin);
+    }
+
+    private void pollSafely() {
+        try {
+            this.poll();
+        } catch (RuntimeException e) {
+            // Keep polling, the rows are read again from the cursor.
+            logger.warn("Failed to poll the cache invalidations", e);
+        }
+    }
+
+    /**
+     * Apply the rows appended by the other nodes since the last poll.
+     */
+    synchronized void poll() {
+        if (this.cursor < 0) {
+            return;
+        }
+        List<Invalidation> invalidations = this.jdbcTemplate.query(SELECT_AFTER,
+                new MapSqlParameterSource().addValue("cursor", this.cursor).addValue("batchSize", this.batchSize),
+                Invalidation::map);
+
+        for (Invalidation invalidation : invalidations) {
+            if (this.appliedAboveCursor.add(invalidation.id())) {
+                this.applyRemote(invalidation);
+            }
+        }
+        this.advanceCursor();
+        this.rescanSkippedIds();
+
+        if (!invalidations.isEmpty() && System.nanoTime() - this.lastCleanup > this.retention.toNanos()) {
+            // Any node may delete the old rows, the deletion is idempotent.
+            Timestamp polledAt = invalidations.get(0).polledAt();
+            this.jdbcTemplate.update(DELETE_BEFORE, new MapSqlParameterSource("cutoff",
+                    Timestamp.from(polledAt.toInstant().minus(this.retention))));
+            this.lastCleanup = System.nanoTime();
+        }
+    }
+
+    /**
+     * Move the cursor over the applied rows without gaps, and over the gaps that timed out.
+     */
+    private void advanceCursor() {
+        while (!this.appliedAboveCursor.isEmpty() && this.appliedAboveCursor.first() == this.cursor + 1) {
+            this.cursor = this.appliedAboveCursor.pollFirst();
+        }
+        if (this.appliedAboveCursor.isEmpty()) {
+            this.gapSince = 0;
+        } else if (this.gapSince == 0) {
+            this.gapSince = System.nanoTime();
+        } else if (System.nanoTime() - this.gapSince > this.gapTimeoutNanos) {
+            // The missing ids were rolled back, or their rows were deleted. Remember a batch of them, in case they
+            // were only slow to commit.
+            long skippedAt = System.nanoTime();
+            long first = this.appliedAboveCursor.first();
+            for (long id = Math.max(this.cursor + 1, first - this.batchSize); id < first; id++) {
+                this.skippedIds.put(id, skippedAt);
+            }
+            this.cursor = first - 1;
+            this.gapSince = 0;
+            this.advanceCursor();
+        }
+    }
+
+    /**
+     * Read the ids skipped a gap timeout ago once more, and apply the rows that committed since.
+     */
+    private void rescanSkippedIds() {
+        List<Long> ids = new ArrayList<>();
+        Iterator<Map.Entry<Long, Long>> iterator = this.skippedIds.entrySet().iterator();
+        while (iterator.hasNext() && ids.size() < this.batchSize) {
+            Map.Entry<Long, Long> skipped = iterator.next();
+            if (System.nanoTime() - skipped.getValue() <= this.gapTimeoutNanos) {
+                // The ids are in the order they were skipped.
+                break;
+            }
+            ids.add(skipped.getKey());
+            iterator.remove();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (Invalidation invalidation : this.jdbcTemplate.query(SELECT_IDS, new MapSqlParameterSource("ids", ids), Invalidation::map)) {
+            logger.warn("Applying the cache invalidation {} committed after its gap timed out", invalidation.id());
+            this.applyRemote(invalidation);
+        }
+    }
+
+    /**
+     * Apply a row unless this node appended it, and record its lag.
+     */
+    private void applyRemote(Invalidation invalidation) {
+        if (!this.origin.equals(invalidation.origin())) {
+            this.apply(invalidation);
+            this.lag.record(Duration.between(invalidation.createdAt().toInstant(), invalidation.polledAt().toInstant()));
+        }
+    }
+
+    /**
+     * Evict the cached copies of a changed entity and republish the change to the local listeners.
+     */
+    private void apply(Invalidation invalidation) {
+        if (BOOK.equals(invalidation.entity())) {
+            this.evict(CacheConfig.BOOKS, invalidation.entityId());
+            this.secondLevelCache.evictEntityData(Book.class, invalidation.entityId());
+            this.evictBookCopies();
+            this.eventPublisher.publishEvent(new BookChangedEvent(invalidation.entityId()));
+        } else if (USER.equals(invalidation.entity())) {
+            // The user details cache evicts the user, the other caches do not hold users.
+            this.eventPublisher.publishEvent(new UserChangedEvent(invalidation.entityId()));
+        } else if (BOOK_IMPORT.equals(invalidation.entity()) && invalidation.lastEntityId() != null) {
+            this.applyImport(invalidation.entityId(), invalidation.lastEntityId());
+        } else if (LOCATION.equals(invalidation.entity())) {
+            this.evict(CacheConfig.LOCATIONS, invalidation.entityId());
+            this.secondLevelCache.evictEntityData(Location.class, invalidation.entityId());
+            this.evictBookCopies();
+            this.eventPublisher.publishEvent(new LocationChangedEvent(invalidation.entityId()));
+        } else {
+            logger.warn("Ignoring the invalidation of an unknown entity: {}", invalidation.entity());
+        }
+    }
+
+    /**
+     * Evict the cached absence of the books of an imported id range and republish them to the local listeners, which
+     * index the other books of the range again.
+     */
+    private void applyImport(long firstId, long lastId) {
+        List<Long> bookIds = this.jdbcTemplate.queryForList(SELECT_BOOK_IDS_BETWEEN,
+                new MapSqlParameterSource().addValue("firstId", firstId).addValue("lastId", lastId), Long.class);
+        for (Long bookId : bookIds) {
+            this.evict(CacheConfig.BOOKS, bookId);
+            this.secondLevelCache.evictEntityData(Book.class, bookId);
+        }
+        this.secondLevelCache.evictDefaultQueryRegion();
+        if (!bookIds.isEmpty()) {
+            this.eventPublisher.publishEvent(new BooksImportedEvent(bookIds));
+        }
+    }
+
+    private void evict(String cacheName, Long id) {
+        org.springframework.cache.Cache cache = this.cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    /**
+     * Deleting a book or a location deletes its copies, which the cached collections and query results may hold.
+     */
+    private void evictBookCopies() {
+        this.secondLevelCache.evictEntityData(BookCopy.class);
+        this.secondLevelCache.evictCollectionData(Book.class.getName() + ".bookCopies");
+        this.secondLevelCache.evictCollectionData(Location.class.getName() + ".bookCopies");
+        this.secondLevelCache.evictDefaultQueryRegion();
+    }
+
+    private record Invalidation(long id, String entity, long entityId, Long lastEntityId, String origin, Timestamp createdAt, Timestamp polledAt) {
+        private static Invalidation map(ResultSet rs, int rowNum) throws SQLException {
+            return new Invalidation(rs.getLong("id"), rs.getString("entity"), rs.getLong("entity_id"), rs.getObject("last_entity_id", Long.class),
+                    rs.getString("origin"), rs.getTimestamp("created_at"), rs.getTimestamp("polled_at"));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.library.config;
+
+import com.example.library.dto.BookDTO;
+import com.example.library.dto.LocationDTO;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Configures the read-through caches of the single-entity reads.
+ * <p>
+ * The caches record their statistics, which Spring Boot binds to the MeterRegistry as the {@code cache.gets},
+ * {@code cache.puts}, {@code cache.evictions} and {@code cache.size} meters, tagged with the cache name.
+ * <p>
+ * The cached DTOs are mutable, so the caches store and hand out copies: a caller changing the DTO it got, e.g. to
+ * send it back as an update, does not change what the other callers get.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    /**
+     * The cache of the books, by id.
+     */
+    public static final String BOOKS = "books";
+
+    /**
+     * The cache of the locations, by id.
+     */
+    public static final String LOCATIONS = "locations";
+
+    /**
+     * Create the cache manager.
+     *
+     * @param maximumSize the maximum number of entries of each cache
+     * @param ttl         how long an entry is kept after being loaded
+     * @return the cache manager
+     */
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.entities.maximum-size:10000}") long maximumSize,
+            @Value("${app.cache.entities.ttl:10m}") Duration ttl
+    ) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected @NonNull Cache adaptCaffeineCache(@NonNull String name, @NonNull com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new CopyingCaffeineCache(name, cache, this.isAllowNullValues());
+            }
+        };
+        // Declaring the caches up front creates them at startup, so their meters are registered.
+        cacheManager.setCacheNames(List.of(BOOKS, LOCATIONS));
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        // Defer the evictions of a transaction until it commits, otherwise a read between the eviction and the
+        // commit would cache the old row again.
+        cacheManager.setTransactionAware(true);
+        return cacheManager;
+    }
+
+    /**
+     * Copy a cached value, if it is mutable.
+     *
+     * @param value the value, null for a missing entity
+     * @return a copy of the value
+     */
+    private static @Nullable Object copy(@Nullable Object value) {
+        if (value instanceof BookDTO book) {
+            return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getPublicationDate());
+        } else if (value instanceof LocationDTO location) {
+            return new LocationDTO(location.getId(), location.getName(), location.getAddress());
+        }
+        return value;
+    }
+
+    /**
+     * A Caffeine cache that copies the values on the way in and on the way out.
+     */
+    private static final class CopyingCaffeineCache extends CaffeineCache {
+        private CopyingCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache, boolean allowNullValues) {
+            super(name, cache, allowNullValues);
+        }
+
+        @Override
+        protected Object lookup(@NonNull Object key) {
+            return copy(super.lookup(key));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(@NonNull Object key, @NonNull Callable<T> valueLoader) {
+            // The loaded value is cached as is, the first caller gets a copy too.
+            return (T) copy(super.get(key, valueLoader));
+        }
+
+        @Override
+        public void put(@NonNull Object key, @Nullable Object value) {
+            super.put(key, copy(value));
+        }
+
+        @Override
+        public @Nullable ValueWrapper putIfAbsent(@NonNull Object key, @Nullable Object value) {
+            ValueWrapper existing = super.putIfAbsent(key, copy(value));
+            return existing == null ? null : new SimpleValueWrapper(copy(existing.get()));
+        }
+    }
+}
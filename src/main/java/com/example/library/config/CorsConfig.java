@@ -1,5 +1,6 @@
 package com.example.library.config;
 
+import com.example.library.controller.BookController;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -32,6 +33,8 @@ public class CorsConfig {
         config.setAllowedOrigins(this.allowedOrigins);
         config.setAllowedHeaders(this.allowedHeaders);
         config.setAllowedMethods(this.allowedMethods);
+        // Let browser clients read whether the total of a page is exact.
+        config.addExposedHeader(BookController.TOTAL_COUNT_EXACT_HEADER);
         source.registerCorsConfiguration("/**", config);
         return new CorsFilter(source);
     }
@@ -0,0 +1,81 @@
+package com.example.library.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Configures the Hibernate second-level cache on JCache, backed by Caffeine.
+ * <p>
+ * The regions are created here with the bounds of {@link HibernateCacheProperties}, and Hibernate fails to start if an
+ * entity or a collection uses a region that is not listed. Statistics are enabled, so the hit ratio of each region is
+ * exposed by the {@code hibernatecache} actuator endpoint.
+ */
+@Configuration
+@EnableConfigurationProperties(HibernateCacheProperties.class)
+public class HibernateCacheConfig {
+    /**
+     * The bounded regions: the entities, their collections and the query results.
+     */
+    public static final List<String> REGIONS = List.of(
+            "book",
+            "location",
+            "book-copy",
+            "book-copies-by-book",
+            "book-copies-by-location",
+            RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME
+    );
+
+    /**
+     * Create the regions and plug them into Hibernate.
+     *
+     * @param properties the bounds of the regions
+     * @return the customizer of the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(HibernateCacheProperties properties) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager();
+        for (String region : REGIONS) {
+            HibernateCacheProperties.Region bounds = properties.region(region);
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(bounds.maximumSize()));
+            configuration.setExpireAfterWrite(OptionalLong.of(bounds.ttl().toNanos()));
+            createIfAbsent(cacheManager, region, configuration);
+        }
+        // The update timestamps tell which cached query results are stale, they must never be evicted.
+        createIfAbsent(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    /**
+     * Create a region, unless another application context of the JVM already did.
+     */
+    private static void createIfAbsent(CacheManager cacheManager, String region, CaffeineConfiguration<Object, Object> configuration) {
+        if (cacheManager.getCache(region) == null) {
+            // Hibernate does not mutate its cache entries, so they don't need to be copied on every read.
+            configuration.setStoreByValue(false);
+            cacheManager.createCache(region, configuration);
+        }
+    }
+}
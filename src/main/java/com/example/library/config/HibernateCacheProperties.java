@@ -0,0 +1,40 @@
+package com.example.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The bounds of the Hibernate second-level cache regions, by region name.
+ *
+ * @param regions the bounds of the regions, the regions that are not listed use the default bounds
+ */
+@ConfigurationProperties(prefix = "app.cache.hibernate")
+public record HibernateCacheProperties(@DefaultValue Map<String, Region> regions) {
+    /**
+     * The bounds of a region that is not configured.
+     */
+    private static final Region DEFAULT_REGION = new Region(10_000, Duration.ofHours(1));
+
+    /**
+     * Get the bounds of a region.
+     *
+     * @param name the name of the region
+     * @return the configured bounds, or the default ones
+     */
+    public @NonNull Region region(@NonNull String name) {
+        return this.regions.getOrDefault(name, DEFAULT_REGION);
+    }
+
+    /**
+     * The bounds of a region.
+     *
+     * @param maximumSize the maximum number of entries
+     * @param ttl         how long an entry is kept after being written
+     */
+    public record Region(@DefaultValue("10000") long maximumSize, @DefaultValue("1h") Duration ttl) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.library.config;
+
+import com.example.library.metrics.LayerTimingInterceptor;
+import com.example.library.metrics.ServerTimingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Times the layers of the requests: each layer is advised with its configured pointcut, and a filter reports the time
+ * spent in each of them in a {@code Server-Timing} header and in the {@code library.request.layer.time} timers.
+ * The header tells how the application is built, so only the admins get it unless {@code headers} is set.
+ * <p>
+ * The pointcuts come from the configuration, so the advice is a programmatic advisor rather than an annotated aspect.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.metrics.layers", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(LayerTimingProperties.class)
+public class LayerTimingConfig {
+    /**
+     * Time the calls of the layers.
+     *
+     * @param properties the pointcuts of the layers
+     * @return the interceptor of the layer calls
+     */
+    @Bean
+    public LayerTimingInterceptor layerTimingInterceptor(LayerTimingProperties properties) {
+        return new LayerTimingInterceptor(properties.layerPointcuts());
+    }
+
+    /**
+     * Advise the methods of the layers. Ordered just inside the single-flight aspect, so the service time includes
+     * the transaction.
+     *
+     * @param interceptor the interceptor of the layer calls
+     * @return the advisor
+     */
+    @Bean
+    public Advisor layerTimingAdvisor(LayerTimingInterceptor interceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(interceptor.getPointcut(), interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+
+    /**
+     * Sample the requests and report their timings. Registered first, so the total includes the security filters.
+     *
+     * @param meterRegistry the registry of the layer timers
+     * @param interceptor   the interceptor of the layer calls
+     * @param properties    the sample rate and who gets the header
+     * @return the registration of the filter
+     */
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(
+            MeterRegistry meterRegistry,
+            LayerTimingInterceptor interceptor,
+            LayerTimingProperties properties
+    ) {
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(
+                new ServerTimingFilter(meterRegistry, interceptor.getLayerNames(), properties.sampleRate(), properties.headers()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
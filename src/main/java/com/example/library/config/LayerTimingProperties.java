@@ -0,0 +1,45 @@
+package com.example.library.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.lang.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The layers timed within each request, and the share of requests that are timed.
+ *
+ * @param sampleRate the share of the requests that are timed, from 0 to 1
+ * @param headers    whether every client gets the Server-Timing header, otherwise only the admins do
+ * @param pointcuts  the AspectJ pointcut of each layer, by layer name, the default layers if empty
+ */
+@ConfigurationProperties(prefix = "app.metrics.layers")
+public record LayerTimingProperties(
+        @DefaultValue("0.01") double sampleRate,
+        @DefaultValue("false") boolean headers,
+        @DefaultValue Map<String, String> pointcuts
+) {
+    /**
+     * The layers timed when none is configured.
+     */
+    private static final Map<String, String> DEFAULT_POINTCUTS = defaultPointcuts();
+
+    /**
+     * Get the pointcuts of the layers, in configuration order.
+     *
+     * @return the pointcut of each layer, by layer name
+     */
+    public @NonNull Map<String, String> layerPointcuts() {
+        return this.pointcuts.isEmpty() ? DEFAULT_POINTCUTS : this.pointcuts;
+    }
+
+    private static Map<String, String> defaultPointcuts() {
+        Map<String, String> pointcuts = new LinkedHashMap<>();
+        pointcuts.put("controller", "execution(* com.example.library.controller..*.*(..))");
+        pointcuts.put("service", "execution(* com.example.library.service..*.*(..))");
+        pointcuts.put("mapper", "execution(* com.example.library.mapper..*.*(..))");
+        pointcuts.put("repository", "execution(* org.springframework.data.repository.Repository+.*(..))");
+        return pointcuts;
+    }
+}
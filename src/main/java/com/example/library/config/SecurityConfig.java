@@ -1,8 +1,13 @@
 package com.example.library.config;
 
+import com.example.library.security.ApiKeyAuthenticationFilter;
 import com.example.library.security.JwtAuthenticationFilter;
 import com.example.library.security.JwtTokenProvider;
-import com.example.library.service.CustomUserDetailsService;
+import com.example.library.security.TimedPasswordEncoder;
+import com.example.library.security.UserDetailsCache;
+import com.example.library.service.ApiKeyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,17 +31,24 @@ import java.util.Map;
 @EnableMethodSecurity
 public class SecurityConfig {
 
-    private final CustomUserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
     private final JwtTokenProvider jwtTokenProvider;
+    private final ApiKeyService apiKeyService;
 
-    public SecurityConfig(CustomUserDetailsService userDetailsService, JwtTokenProvider jwtTokenProvider) {
-        this.userDetailsService = userDetailsService;
+    public SecurityConfig(UserDetailsCache userDetailsCache, JwtTokenProvider jwtTokenProvider, ApiKeyService apiKeyService) {
+        this.userDetailsCache = userDetailsCache;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.apiKeyService = apiKeyService;
     }
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(this.jwtTokenProvider, this.userDetailsService);
+        return new JwtAuthenticationFilter(this.jwtTokenProvider, this.userDetailsCache);
+    }
+
+    @Bean
+    public ApiKeyAuthenticationFilter apiKeyAuthenticationFilter() {
+        return new ApiKeyAuthenticationFilter(this.apiKeyService);
     }
 
     @Bean
@@ -46,10 +58,13 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
+                        // Scrapers may use an API key with the METRICS scope.
+                        .requestMatchers("/actuator/prometheus").hasAnyRole("ADMIN", "METRICS")
                         .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(this.jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(this.jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(this.apiKeyAuthenticationFilter(), JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -59,11 +74,19 @@ public class SecurityConfig {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    /**
+     * Create the password encoder. Raising the BCrypt strength rehashes the password of each user at their next
+     * successful login.
+     *
+     * @param meterRegistry the registry of the hash timers
+     * @param strength      the log2 number of BCrypt rounds of the new hashes
+     * @return the password encoder
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry, @Value("${app.auth.bcrypt.strength:10}") int strength) {
         String idForEncode = "bcrypt";
         Map<String, PasswordEncoder> encoders = new HashMap<>();
-        encoders.put(idForEncode, new BCryptPasswordEncoder());
-        return new DelegatingPasswordEncoder(idForEncode, encoders);
+        encoders.put(idForEncode, new BCryptPasswordEncoder(strength));
+        return new TimedPasswordEncoder(new DelegatingPasswordEncoder(idForEncode, encoders), meterRegistry);
     }
 }
\ No newline at end of file
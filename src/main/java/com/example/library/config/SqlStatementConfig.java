@@ -0,0 +1,89 @@
+package com.example.library.config;
+
+import com.example.library.metrics.InstrumentedDataSource;
+import com.example.library.metrics.SlowQueryLog;
+import com.example.library.metrics.SqlStatementFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Instruments the SQL statements: the data source is wrapped so its connections count the statements of each request,
+ * to spot the N+1 queries, and report the slow statements to the {@link SlowQueryLog}.
+ */
+@Configuration
+public class SqlStatementConfig {
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementConfig.class);
+
+    /**
+     * Wrap the data sources, before they are injected into JPA, Flyway or the JDBC templates. Nothing is wrapped when
+     * neither the statement counts nor the slow query log are enabled.
+     * Static, so the post-processor does not make this configuration initialize early.
+     *
+     * @param environment  the environment telling which instrumentation is enabled
+     * @param slowQueryLog the slow query log, resolved on the first connection as it uses the data source
+     * @return the post-processor of the data sources
+     */
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(Environment environment, ObjectProvider<SlowQueryLog> slowQueryLog) {
+        boolean countStatements = environment.getProperty("app.metrics.sql.enabled", Boolean.class, false);
+        boolean logSlowQueries = environment.getProperty("app.metrics.slow-queries.enabled", Boolean.class, false);
+        Supplier<SlowQueryLog> slowQueries = logSlowQueries ? SingletonSupplier.of(slowQueryLog::getObject) : () -> null;
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ((countStatements || logSlowQueries) && bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource(dataSource, slowQueries);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Count the statements of each request. Registered right after the Server-Timing filter, so the statements of the
+     * security filters are counted too.
+     * <p>
+     * A repeated statement only fails the request with the test profile: the response is often committed by then, so
+     * the client would get a truncated response rather than an error. With the other profiles it is logged.
+     *
+     * @param environment   the environment telling whether the test profile is active
+     * @param meterRegistry the registry of the statement metrics
+     * @param maxRepeats    the number of executions of the same SQL text in a request above which it is reported
+     * @param headers       whether the counts are returned in response headers
+     * @param failOnRepeat  whether a repeated statement fails the request instead of being logged, in the tests
+     * @return the registration of the filter
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.metrics.sql", name = "enabled", havingValue = "true")
+    public FilterRegistrationBean<SqlStatementFilter> sqlStatementFilter(
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${app.metrics.sql.max-repeats:10}") int maxRepeats,
+            @Value("${app.metrics.sql.headers:false}") boolean headers,
+            @Value("${app.metrics.sql.fail-on-repeat:false}") boolean failOnRepeat
+    ) {
+        boolean isTestProfileActive = Arrays.asList(environment.getActiveProfiles()).contains("test");
+        if (failOnRepeat && !isTestProfileActive) {
+            logger.warn("app.metrics.sql.fail-on-repeat is only honored with the test profile, the repeated statements are logged");
+        }
+        FilterRegistrationBean<SqlStatementFilter> registration = new FilterRegistrationBean<>(
+                new SqlStatementFilter(meterRegistry, maxRepeats, headers, failOnRepeat && isTestProfileActive));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.library.controller;
+
+import com.example.library.dto.ApiKeyDTO;
+import com.example.library.dto.ApiKeyRequestDTO;
+import com.example.library.service.ApiKeyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controller for the API keys of the machine-to-machine clients. Restricted to the administrators.
+ */
+@RestController
+@RequestMapping("/api/api-keys")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "API Key", description = "The API Key API")
+public class ApiKeyController {
+	/**
+	 * The ApiKeyService instance.
+	 */
+	private final ApiKeyService apiKeyService;
+
+	/**
+	 * Create a new ApiKeyController.
+	 *
+	 * @param apiKeyService the ApiKeyService instance
+	 */
+	public ApiKeyController(ApiKeyService apiKeyService) {
+		this.apiKeyService = apiKeyService;
+	}
+
+	/**
+	 * Create an API key. The key is only returned in this response.
+	 *
+	 * @param apiKeyRequest the name and scopes of the key
+	 * @return the created key
+	 */
+	@PostMapping
+	@Operation(summary = "Create an API key", description = "Create an API key for a machine-to-machine client, returned only once")
+	@ApiResponses({
+			@ApiResponse(responseCode = "200", description = "Successfully created the API key",
+					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiKeyDTO.class))),
+			@ApiResponse(responseCode = "400", description = "Invalid input",
+					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+	})
+	public ResponseEntity<ApiKeyDTO> createApiKey(
+			@Parameter(description = "Name and scopes of the API key", required = true) @NonNull
+			@Valid @RequestBody
+			ApiKeyRequestDTO apiKeyRequest
+	) {
+		// Create the key and return it with its secret.
+		return ResponseEntity.ok(this.apiKeyService.createKey(apiKeyRequest.getName(), apiKeyRequest.getScopes()));
+	}
+
+	/**
+	 * Revoke an API key.
+	 *
+	 * @param id the id of the key
+	 * @return no content
+	 */
+	@DeleteMapping("/{id}")
+	@Operation(summary = "Revoke an API key", description = "Revoke an API key, at once on this node and within the refresh interval on the others")
+	@ApiResponses({
+			@ApiResponse(responseCode = "204", description = "Successfully revoked the API key"),
+			@ApiResponse(responseCode = "404", description = "API key not found",
+					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+	})
+	public ResponseEntity<?> revokeApiKey(
+			@Parameter(description = "ID of the API key to revoke", required = true) @NonNull
+			@PathVariable Long id
+	) {
+		try {
+			// Revoke the key by its ID.
+			this.apiKeyService.revokeKey(id);
+			// Return a 204 No Content response.
+			return ResponseEntity.noContent().build();
+		} catch (ApiKeyService.ApiKeyNotFoundException e) {
+			// Return a 404 Not Found response.
+			return e.toResponseEntity();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.library.controller;
+
+import com.example.library.dto.LoginRequestDTO;
+import com.example.library.dto.TokenDTO;
+import com.example.library.lib.RepositoryException;
+import com.example.library.service.AuthService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Controller for the authentication.
+ */
+@RestController
+@RequestMapping("/api/auth")
+@Tag(name = "Auth", description = "The Authentication API")
+public class AuthController {
+	/**
+	 * The AuthService instance.
+	 */
+	private final AuthService authService;
+
+	/**
+	 * Create a new AuthController.
+	 *
+	 * @param authService the AuthService instance
+	 */
+	public AuthController(AuthService authService) {
+		this.authService = authService;
+	}
+
+	/**
+	 * Log in with a username and a password. The request thread is released while the password is verified.
+	 *
+	 * @param loginRequest the credentials
+	 * @return the access token
+	 */
+	@PostMapping("/login")
+	@Operation(summary = "Log in", description = "Verify the credentials of a user and issue an access token")
+	@ApiResponses({
+			@ApiResponse(responseCode = "200", description = "Successfully logged in",
+					content = @Content(mediaType = "application/json", schema = @Schema(implementation = TokenDTO.class))),
+			@ApiResponse(responseCode = "400", description = "Invalid input",
+					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+			@ApiResponse(responseCode = "401", description = "Invalid username or password",
+					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+			@ApiResponse(responseCode = "503", description = "Too many logins, retry later",
+					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+	})
+	public CompletableFuture<ResponseEntity<?>> login(
+			@Parameter(description = "Credentials of the user", required = true) @NonNull
+			@Valid @RequestBody
+			LoginRequestDTO loginRequest
+	) {
+		return this.authService.login(loginRequest.getUsername(), loginRequest.getPassword())
+				// Return the token.
+				.<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+				// Return the status of the RepositoryException, such as 401 or 503.
+				.exceptionally(e -> {
+					Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+					if (cause instanceof RepositoryException repositoryException) {
+						return repositoryException.toResponseEntity();
+					}
+					throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+				});
+	}
+}
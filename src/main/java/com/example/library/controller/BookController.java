@@ -1,10 +1,16 @@
 package com.example.library.controller;
 
 import com.example.library.dto.BookDTO;
-import com.example.library.entity.Book;
-import com.example.library.lib.SpecificationComposer;
+import com.example.library.dto.BookImportReportDTO;
+import com.example.library.dto.CountedPage;
+import com.example.library.dto.SuggestionDTO;
+import com.example.library.lib.CountMode;
+import com.example.library.lib.KeysetCursor;
+import com.example.library.lib.RepositoryException;
+import com.example.library.service.BookImportService;
 import com.example.library.service.BookService;
-import com.example.library.specification.BookSpecification;
+import com.example.library.specification.BookFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,20 +18,30 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import org.springdoc.core.annotations.ParameterObject;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 /**
  * Controller for the Book entity.
  */
@@ -33,18 +49,37 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/books")
 @Tag(name = "Book", description = "The Book API")
 public class BookController {
+    /**
+     * The response header telling whether the total of a page is exact ("true") or a lower bound ("false").
+     */
+    public static final String TOTAL_COUNT_EXACT_HEADER = "X-Total-Count-Exact";
+
     /**
      * The BookService instance.
      */
     private final BookService bookService;
 
+    /**
+     * The BookImportService instance.
+     */
+    private final BookImportService bookImportService;
+
+    /**
+     * The ObjectMapper writing the progress lines of the imports.
+     */
+    private final ObjectMapper objectMapper;
+
     /**
      * Create a new BookController.
      *
-     * @param bookService the BookService instance
+     * @param bookService       the BookService instance
+     * @param bookImportService the BookImportService instance
+     * @param objectMapper      the ObjectMapper instance
      */
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookImportService bookImportService, ObjectMapper objectMapper) {
         this.bookService = bookService;
+        this.bookImportService = bookImportService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -52,36 +87,91 @@ public class BookController {
      *
      * @param title    the title to filter by (case-insensitive, partial match, optional)
      * @param author   the author to filter by (case-insensitive, partial match, optional)
+     * @param fuzzy    whether to tolerate typos in the title and author, and match authors that sound the same (optional, default: false)
+     * @param q        the words to search for in the title or author, results are ranked by relevance (optional, the other filters are ignored)
+     * @param cursor   the cursor of the next page, switches to keyset pagination sorted by title when present (optional, empty for the first page)
+     * @param count    how the total is counted: EXACT, CAPPED or CACHED (optional, default: EXACT, ignored with a cursor)
      * @param pageable the Pageable information for pagination (optional, default page: 0, size: 20, sort: title, direction: ASC)
      * @return a paginated list of books
      */
     @GetMapping
-    @Operation(summary = "List all books", description = "Get a paginated list of all books in the library. Optional filtering by title and author.")
+    @Operation(summary = "List all books", description = "Get a paginated list of all books in the library. Optional filtering by title and author, or full-text search.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Successfully retrieved list of books",
-                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
-            @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = PagedModel.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input or cursor",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<Page<BookDTO>> getAllBooks(
+    public ResponseEntity<?> getAllBooks(
             @Parameter(description = "Filter books by title (case-insensitive, partial match)")
             @RequestParam(required = false) @Nullable
             String title,
             @Parameter(description = "Filter books by author (case-insensitive, partial match)")
             @RequestParam(required = false) @Nullable
             String author,
+            @Parameter(description = "Tolerate typos in the title and author, and match authors that sound the same")
+            @RequestParam(defaultValue = "false")
+            boolean fuzzy,
+            @Parameter(description = "Search the words in the title or author, ranked by relevance (the other filters and the sort are ignored)")
+            @RequestParam(required = false) @Nullable
+            String q,
+            @Parameter(description = "Cursor of the next page, enables keyset pagination sorted by title (empty for the first page)")
+            @RequestParam(required = false) @Nullable
+            String cursor,
+            @Parameter(description = "How the total is counted: EXACT, CAPPED (lower bound past a cap) or CACHED (recent count of the same filter)")
+            @RequestParam(defaultValue = "EXACT") @NonNull
+            CountMode count,
             @Parameter(description = "Pageable information for pagination") @ParameterObject
             @PageableDefault(size = 20, sort = "title", direction = Sort.Direction.ASC) @NotNull
             Pageable pageable
     ) {
-        // Create a specification for the title and author.
-        Specification<Book> bookSpecification = SpecificationComposer.and(
-                BookSpecification.titleLike(title),
-                BookSpecification.authorLike(author)
-        );
-
-        // Return a paginated list of books.
-        return ResponseEntity.ok(this.bookService.getBooks(bookSpecification, pageable));
+        // Return the books matching the search, best match first.
+        if (q != null) {
+            return ResponseEntity.ok(this.bookService.searchBooks(q, pageable));
+        }
+
+        // Create a filter for the title and author.
+        BookFilter bookFilter = new BookFilter(title, author, fuzzy);
+
+        // Return a paginated list of books, telling in a header whether the total is exact.
+        if (cursor == null) {
+            CountedPage<BookDTO> books = this.bookService.getBooks(bookFilter, pageable, count);
+            return ResponseEntity.ok()
+                    .header(TOTAL_COUNT_EXACT_HEADER, String.valueOf(books.isTotalExact()))
+                    .body(new PagedModel<>(books));
+        }
+        try {
+            // Return a keyset page of books, without counting them.
+            return ResponseEntity.ok(this.bookService.scrollBooks(bookFilter, cursor, pageable.getPageSize()));
+        } catch (KeysetCursor.InvalidCursorException e) {
+            // Return a 400 Bad Request response if the cursor is malformed.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Suggest the titles starting with a prefix, as typed in a search box.
+     *
+     * @param prefix the prefix of the title (case-insensitive)
+     * @param limit  the maximum number of suggestions (optional, default: 10, capped by the configured top-k)
+     * @return the suggested books, the ones with the most copies first
+     */
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest book titles", description = "Complete a prefix of a book title, the books with the most copies first")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the suggestions",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = SuggestionDTO.class)))
+    })
+    public ResponseEntity<List<SuggestionDTO>> suggestBooks(
+            @Parameter(description = "Prefix of the title (case-insensitive)", required = true) @NonNull
+            @RequestParam
+            String prefix,
+            @Parameter(description = "Maximum number of suggestions")
+            @RequestParam(defaultValue = "10")
+            int limit
+    ) {
+        // Return the completions of the prefix.
+        return ResponseEntity.ok(this.bookService.suggestBooks(prefix, limit));
     }
 
     /**
@@ -141,6 +231,81 @@ public class BookController {
         }
     }
 
+    /**
+     * Import a catalog of books, streamed as CSV (with a header) or NDJSON. The books whose ISBN already exists are
+     * skipped, and the invalid rows are reported without stopping the import.
+     * <p>
+     * A client accepting application/x-ndjson receives a report line after each committed chunk instead, with the
+     * counts so far and the rows listed since the previous line. The last line holds the final counts.
+     *
+     * @param contentType the content type of the request, text/csv or application/x-ndjson
+     * @param accept      the media types accepted by the client
+     * @param body        the stream of the books
+     * @param response    the response the progress lines are streamed to
+     * @return the report of the import, null once the progress lines are streamed
+     * @throws IOException if the request body can't be read
+     */
+    @PostMapping(value = "/import", consumes = {BookImportService.TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Import books", description = "Import a catalog of books streamed as CSV or NDJSON, skipping the existing ISBNs")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully imported the valid books",
+                    content = {
+                            @Content(mediaType = "application/json", schema = @Schema(implementation = BookImportReportDTO.class)),
+                            @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = BookImportReportDTO.class))
+                    }),
+            @ApiResponse(responseCode = "400", description = "Unreadable catalog",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> importBooks(
+            @Parameter(hidden = true) @NonNull
+            @RequestHeader(HttpHeaders.CONTENT_TYPE)
+            MediaType contentType,
+            @Parameter(hidden = true) @Nullable
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+            String accept,
+            @Parameter(hidden = true) @NonNull
+            InputStream body,
+            @Parameter(hidden = true) @NonNull
+            HttpServletResponse response
+    ) throws IOException {
+        // The consumes condition only lets the supported formats through.
+        BookImportService.Format format = BookImportService.Format.of(contentType);
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        try {
+            if (accept == null || MediaType.parseMediaTypes(accept).stream().noneMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype)) {
+                // Import the books and return the report.
+                return ResponseEntity.ok(this.bookImportService.importBooks(body, format, charset));
+            }
+            // Stream a report line after each chunk, an unreadable catalog is found before the first one.
+            this.bookImportService.importBooks(body, format, charset, progress -> this.writeLine(response, progress));
+            return null;
+        } catch (RepositoryException.BadRequest e) {
+            // Return a 400 Bad Request response if the catalog can't be read.
+            return e.toResponseEntity();
+        }
+    }
+
+    /**
+     * Write a line of an NDJSON response and send it to the client.
+     *
+     * @param response the response
+     * @param value    the value of the line
+     */
+    private void writeLine(@NonNull HttpServletResponse response, @NonNull Object value) {
+        try {
+            if (!response.isCommitted()) {
+                response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            }
+            ServletOutputStream output = response.getOutputStream();
+            output.write(this.objectMapper.writeValueAsBytes(value));
+            output.write('\n');
+            output.flush();
+        } catch (IOException e) {
+            // The client is gone, stop the import, the committed chunks stay imported.
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Update an existing book in the library.
      *
@@ -1,7 +1,9 @@
 package com.example.library.controller;
 
 import com.example.library.dto.BookWithQuantityDTO;
+import com.example.library.lib.KeysetCursor;
 import com.example.library.service.BookCopyService;
+import com.example.library.service.BookCopyWriteBuffer;
 import com.example.library.service.BookService;
 import com.example.library.service.LocationService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -18,9 +20,12 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Optional;
+
 /**
  * Controller for the Book Copy entity.
  */
@@ -33,19 +38,27 @@ public class BookCopyController {
 	 */
 	private final BookCopyService bookCopyService;
 
+	/**
+	 * The write-behind buffer for quantity updates, present only when enabled.
+	 */
+	private final Optional<BookCopyWriteBuffer> writeBuffer;
+
 	/**
 	 * Create a new BookCopiesController.
 	 *
 	 * @param bookCopyService the BookCopyService instance
+	 * @param writeBuffer     the BookCopyWriteBuffer instance, if enabled
 	 */
-	public BookCopyController(BookCopyService bookCopyService) {
+	public BookCopyController(BookCopyService bookCopyService, Optional<BookCopyWriteBuffer> writeBuffer) {
 		this.bookCopyService = bookCopyService;
+		this.writeBuffer = writeBuffer;
 	}
 
 	/**
 	 * Get a paginated list of all book copies at a location.
 	 *
 	 * @param locationId the ID of the location
+	 * @param cursor     the cursor of the next page, switches to keyset pagination sorted by title when present (optional, empty for the first page)
 	 * @param pageable   the Pageable information for pagination
 	 * @return a paginated list of book copies
 	 */
@@ -54,7 +67,7 @@ public class BookCopyController {
 	@ApiResponses({
 			@ApiResponse(responseCode = "200", description = "Successfully retrieved list of book copies",
 					content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
-			@ApiResponse(responseCode = "400", description = "Invalid input",
+			@ApiResponse(responseCode = "400", description = "Invalid input or cursor",
 					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
 			@ApiResponse(responseCode = "404", description = "Location not found",
 					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
@@ -62,16 +75,22 @@ public class BookCopyController {
 	public ResponseEntity<?> getBookCopies(
 			@Parameter(description = "ID of the location", required = true) @NonNull
 			@PathVariable Long locationId,
+			@Parameter(description = "Cursor of the next page, enables keyset pagination sorted by title (empty for the first page)")
+			@RequestParam(required = false) @Nullable String cursor,
 			@Parameter(description = "Pageable information for pagination") @ParameterObject
 			@PageableDefault(size = 20, direction = Sort.Direction.ASC) Pageable pageable
 	) {
 		try {
+			if (cursor != null) {
+				// Return a keyset page of book copies, without counting them.
+				return ResponseEntity.ok(this.bookCopyService.scrollBooksWithQuantitiesAtLocation(locationId, cursor, pageable.getPageSize()));
+			}
 			// Get a paginated list of all book copies at a location.
 			Page<BookWithQuantityDTO> bookCopies = this.bookCopyService.getBooksWithQuantitiesAtLocation(locationId, pageable);
 			// Return the paginated list of book copies.
 			return ResponseEntity.ok(bookCopies);
-		} catch (LocationService.LocationNotFoundException e) {
-			// Return a 404 Not Found response if the location is not found.
+		} catch (LocationService.LocationNotFoundException | KeysetCursor.InvalidCursorException e) {
+			// Return a 404 Not Found response if the location is not found, or a 400 Bad Request if the cursor is malformed.
 			return e.toResponseEntity();
 		}
 	}
@@ -106,8 +125,10 @@ public class BookCopyController {
 			@RequestParam Integer quantityChange
 	) {
 		try {
-			// Update the quantity of the book at the location.
-			Integer updatedQuantity = this.bookCopyService.updateBookCopyQuantity(locationId, bookId, quantityChange);
+			// Update the quantity of the book at the location, through the write-behind buffer when enabled.
+			Integer updatedQuantity = this.writeBuffer.isPresent()
+					? this.writeBuffer.get().updateBookCopyQuantity(locationId, bookId, quantityChange)
+					: this.bookCopyService.updateBookCopyQuantity(locationId, bookId, quantityChange);
 			// Return the updated quantity.
 			return ResponseEntity.ok(updatedQuantity);
 		} catch (BookCopyService.InsufficientCopiesException |
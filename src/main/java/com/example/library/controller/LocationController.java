@@ -1,6 +1,8 @@
 package com.example.library.controller;
 
 import com.example.library.dto.LocationDTO;
+import com.example.library.dto.SuggestionDTO;
+import com.example.library.lib.KeysetCursor;
 import com.example.library.service.LocationService;
 import com.example.library.specification.LocationSpecification;
 import io.swagger.v3.oas.annotations.Operation;
@@ -22,6 +24,8 @@ import org.springframework.lang.Nullable;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * Controller for the Location entity.
  */
@@ -47,6 +51,7 @@ public class LocationController {
 	 * Get a paginated list of all locations in the library. Optional filtering by name.
 	 *
 	 * @param name     the name to filter by (case-insensitive, partial match, optional)
+	 * @param cursor   the cursor of the next page, switches to keyset pagination sorted by name when present (optional, empty for the first page)
 	 * @param pageable the Pageable information for pagination (optional, default page: 0, size: 20, sort: name, direction: ASC)
 	 * @return a paginated list of locations
 	 */
@@ -55,19 +60,56 @@ public class LocationController {
 	@ApiResponses({
 			@ApiResponse(responseCode = "200", description = "Successfully retrieved list of locations",
 					content = @Content(mediaType = "application/json", schema = @Schema(implementation = Page.class))),
-			@ApiResponse(responseCode = "400", description = "Invalid input",
+			@ApiResponse(responseCode = "400", description = "Invalid input or cursor",
 					content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
 	})
-	public ResponseEntity<Page<LocationDTO>> getAllLocations(
+	public ResponseEntity<?> getAllLocations(
 			@Parameter(description = "Filter locations by name (case-insensitive, partial match)")
 			@RequestParam(required = false) @Nullable
 			String name,
+			@Parameter(description = "Cursor of the next page, enables keyset pagination sorted by name (empty for the first page)")
+			@RequestParam(required = false) @Nullable
+			String cursor,
 			@Parameter(description = "Pageable information for pagination") @ParameterObject
 			@PageableDefault(size = 20, sort = "name", direction = Sort.Direction.ASC) @NonNull
 			Pageable pageable
 	) {
 		// Return a paginated list of locations.
-		return ResponseEntity.ok(this.locationService.getLocations(LocationSpecification.nameLike(name), pageable));
+		if (cursor == null) {
+			return ResponseEntity.ok(this.locationService.getLocations(LocationSpecification.nameLike(name), pageable));
+		}
+		try {
+			// Return a keyset page of locations, without counting them.
+			return ResponseEntity.ok(this.locationService.scrollLocations(LocationSpecification.nameLike(name), cursor, pageable.getPageSize()));
+		} catch (KeysetCursor.InvalidCursorException e) {
+			// Return a 400 Bad Request response if the cursor is malformed.
+			return e.toResponseEntity();
+		}
+	}
+
+	/**
+	 * Suggest the location names starting with a prefix, as typed in a search box.
+	 *
+	 * @param prefix the prefix of the name (case-insensitive)
+	 * @param limit  the maximum number of suggestions (optional, default: 10, capped by the configured top-k)
+	 * @return the suggested locations, the ones holding the most copies first
+	 */
+	@GetMapping("/suggest")
+	@Operation(summary = "Suggest location names", description = "Complete a prefix of a location name, the locations holding the most copies first")
+	@ApiResponses({
+			@ApiResponse(responseCode = "200", description = "Successfully retrieved the suggestions",
+					content = @Content(mediaType = "application/json", schema = @Schema(implementation = SuggestionDTO.class)))
+	})
+	public ResponseEntity<List<SuggestionDTO>> suggestLocations(
+			@Parameter(description = "Prefix of the name (case-insensitive)", required = true) @NonNull
+			@RequestParam
+			String prefix,
+			@Parameter(description = "Maximum number of suggestions")
+			@RequestParam(defaultValue = "10")
+			int limit
+	) {
+		// Return the completions of the prefix.
+		return ResponseEntity.ok(this.locationService.suggestLocations(prefix, limit));
 	}
 
 	/**
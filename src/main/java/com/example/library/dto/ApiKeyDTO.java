@@ -0,0 +1,34 @@
+package com.example.library.dto;
+
+import lombok.*;
+
+import java.util.Set;
+
+/**
+ * A created API key, with its secret. The secret is only returned once, at creation.
+ */
+@Getter
+@AllArgsConstructor
+@ToString(exclude = "key")
+@EqualsAndHashCode
+public class ApiKeyDTO {
+    /**
+     * The id of the key, to revoke it.
+     */
+    private final Long id;
+
+    /**
+     * The name of the client.
+     */
+    private final String name;
+
+    /**
+     * The roles granted to the key, without the ROLE_ prefix.
+     */
+    private final Set<String> scopes;
+
+    /**
+     * The key, to send in the X-API-Key header of the requests.
+     */
+    private final String key;
+}
@@ -0,0 +1,30 @@
+package com.example.library.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import lombok.*;
+
+import java.util.Set;
+
+/**
+ * The request to create an API key.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class ApiKeyRequestDTO {
+    /**
+     * The name of the client.
+     */
+    @NotBlank
+    private String name;
+
+    /**
+     * The roles granted to the key, without the ROLE_ prefix.
+     */
+    @NotEmpty
+    private Set<@Pattern(regexp = "[A-Z_]+", message = "Scopes must be upper case roles") String> scopes;
+}
@@ -0,0 +1,73 @@
+package com.example.library.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk import of books.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class BookImportReportDTO {
+    /**
+     * The number of rows read, the CSV header excluded.
+     */
+    private final long received;
+
+    /**
+     * The number of books created.
+     */
+    private final long imported;
+
+    /**
+     * The number of rows skipped because a book with the same ISBN already exists, or appears earlier in the import.
+     */
+    private final long duplicates;
+
+    /**
+     * The number of rows rejected because they are malformed or invalid.
+     */
+    private final long rejected;
+
+    /**
+     * The number of chunks committed.
+     */
+    private final int chunks;
+
+    /**
+     * The duration of the import, in milliseconds.
+     */
+    private final long durationMs;
+
+    /**
+     * The rejected and duplicate rows, up to the configured maximum.
+     */
+    private final List<Reject> rejects;
+
+    /**
+     * A row that was not imported.
+     */
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    @EqualsAndHashCode
+    public static class Reject {
+        /**
+         * The line the row starts on, from 1.
+         */
+        private final long line;
+
+        /**
+         * The ISBN of the row, null if it has none.
+         */
+        private final String isbn;
+
+        /**
+         * Why the row was not imported.
+         */
+        private final List<String> errors;
+    }
+}
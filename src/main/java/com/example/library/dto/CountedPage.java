@@ -0,0 +1,86 @@
+package com.example.library.dto;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A page whose total may be a lower bound instead of an exact count.
+ *
+ * @param <T> the type of the content
+ */
+public class CountedPage<T> extends PageImpl<T> {
+    /**
+     * Whether the total number of elements is exact, false if it is a lower bound.
+     */
+    private final boolean totalExact;
+
+    /**
+     * Create a new CountedPage.
+     *
+     * @param content    the content of the page
+     * @param pageable   the pagination information
+     * @param total      the total number of elements, or a lower bound
+     * @param totalExact whether the total is exact
+     */
+    public CountedPage(@NonNull List<T> content, @NonNull Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    /**
+     * Create a page, running the count only when the total cannot be derived from the content.
+     * The total is known without counting on the last page and on a partial first page.
+     *
+     * @param content  the content of the page
+     * @param pageable the pagination information
+     * @param count    computes the total when needed
+     * @param <T>      the type of the content
+     * @return the page
+     */
+    public static <T> @NonNull CountedPage<T> of(@NonNull List<T> content, @NonNull Pageable pageable, @NonNull Supplier<Total> count) {
+        Total[] computed = new Total[1];
+        Page<T> page = PageableExecutionUtils.getPage(content, pageable, () -> (computed[0] = count.get()).count());
+        return new CountedPage<>(content, pageable, page.getTotalElements(), computed[0] == null || computed[0].exact());
+    }
+
+    /**
+     * Whether the total number of elements is exact.
+     *
+     * @return true if the total is exact, false if it is a lower bound
+     */
+    public boolean isTotalExact() {
+        return this.totalExact;
+    }
+
+    @Override
+    public @NonNull <U> CountedPage<U> map(@NonNull Function<? super T, ? extends U> converter) {
+        return new CountedPage<>(this.getContent().stream().<U>map(converter).toList(), this.getPageable(), this.getTotalElements(), this.totalExact);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && obj instanceof CountedPage<?> that && this.totalExact == that.totalExact;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), this.totalExact);
+    }
+
+    /**
+     * The result of a count.
+     *
+     * @param count the number of elements, or a lower bound
+     * @param exact whether the count is exact
+     */
+    public record Total(long count, boolean exact) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.library.dto;
+
+import com.example.library.lib.KeysetCursor;
+import lombok.*;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset (seek) pagination. Unlike a Spring Page it has no total count, only a cursor to the next page.
+ *
+ * @param <T> the type of the content
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class CursorPage<T> {
+    /**
+     * The content of the page.
+     */
+    private final List<T> content;
+
+    /**
+     * The requested size of the page.
+     */
+    private final int size;
+
+    /**
+     * The cursor to pass to get the next page, null if this is the last page.
+     */
+    private final String nextCursor;
+
+    /**
+     * Create a page from the rows of a seek query that fetched one row more than the page size.
+     * The extra row is only used to know whether there is a next page.
+     *
+     * @param rows       the rows, at most size + 1
+     * @param size       the size of the page
+     * @param positionOf extracts the keyset position of a row
+     * @param mapper     maps a row to the content type
+     * @param <E>        the type of the rows
+     * @param <T>        the type of the content
+     * @return the page
+     */
+    public static <E, T> @NonNull CursorPage<T> of(
+            @NonNull List<E> rows,
+            int size,
+            @NonNull Function<E, KeysetCursor> positionOf,
+            @NonNull Function<E, T> mapper
+    ) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? positionOf.apply(page.get(page.size() - 1)).encode() : null;
+        return new CursorPage<>(page.stream().map(mapper).toList(), size, nextCursor);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.library.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.*;
+
+/**
+ * The credentials of a login.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "password")
+public class LoginRequestDTO {
+    /**
+     * The username of the user.
+     */
+    @NotBlank
+    private String username;
+
+    /**
+     * The password of the user, in clear.
+     */
+    @NotBlank
+    private String password;
+}
@@ -0,0 +1,22 @@
+package com.example.library.dto;
+
+import lombok.*;
+
+/**
+ * A completion of a prefix typed in a search box.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class SuggestionDTO {
+    /**
+     * The id of the suggested entity.
+     */
+    private final Long id;
+
+    /**
+     * The suggested text.
+     */
+    private final String text;
+}
@@ -0,0 +1,27 @@
+package com.example.library.dto;
+
+import lombok.*;
+
+/**
+ * An access token issued by a login.
+ */
+@Getter
+@AllArgsConstructor
+@ToString(exclude = "accessToken")
+@EqualsAndHashCode
+public class TokenDTO {
+    /**
+     * The token, to send in the Authorization header of the requests.
+     */
+    private final String accessToken;
+
+    /**
+     * The scheme of the Authorization header, always "Bearer".
+     */
+    private final String tokenType;
+
+    /**
+     * The number of seconds before the token expires.
+     */
+    private final long expiresIn;
+}
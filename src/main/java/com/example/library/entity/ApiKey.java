@@ -0,0 +1,55 @@
+package com.example.library.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * An API key of a machine-to-machine client. The key itself is never stored, only its keyed digest.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString(exclude = "keyHash")
+@Entity
+@Table(name = "api_keys")
+public class ApiKey {
+    /**
+     * The unique identifier of the API key.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    /**
+     * The public prefix of the key, which identifies it.
+     */
+    @Column(nullable = false, unique = true, length = 16)
+    private String prefix;
+    /**
+     * The HMAC-SHA256 of the key, in hexadecimal.
+     */
+    @Column(name = "key_hash", nullable = false, length = 64)
+    private String keyHash;
+    /**
+     * The name of the client.
+     */
+    @Column(nullable = false)
+    private String name;
+    /**
+     * The roles granted to the key, comma-separated, without the ROLE_ prefix.
+     */
+    @Column(nullable = false)
+    private String scopes;
+    /**
+     * Whether the key is accepted, false once revoked.
+     */
+    @Column(nullable = false)
+    private boolean enabled;
+    /**
+     * When the key was created.
+     */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
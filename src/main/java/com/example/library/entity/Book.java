@@ -2,6 +2,8 @@ package com.example.library.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -18,6 +20,8 @@ import java.util.Set;
 @ToString
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 @Table(name = "books", indexes = {
         // Index to allow searching for books by title.
         @Index(name = "idx_book_title", columnList = "title"),
@@ -30,12 +34,16 @@ public class Book extends Auditable {
      * The locations where the book is available.
      */
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-copies-by-book")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private final Set<BookCopy> bookCopies = new HashSet<>();
     /**
-     * The unique identifier of the book.
+     * The unique identifier of the book. Allocated in blocks from the sequence, so that the inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     private Long id;
     /**
      * The title of the book.
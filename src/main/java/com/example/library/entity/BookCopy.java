@@ -2,6 +2,8 @@ package com.example.library.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.lang.NonNull;
 
 import java.io.Serializable;
@@ -15,7 +17,13 @@ import java.io.Serializable;
 @ToString
 @EqualsAndHashCode
 @Entity
-@Table(name = "book_copies")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-copy")
+@Table(name = "book_copies", indexes = {
+        // The primary key starts with the book, this index serves the lookups of the copies at a location. It
+        // includes the quantity, so the listings of a location can be answered from the index alone.
+        @Index(name = "idx_book_copy_location_book", columnList = "location_id, book_id, quantity")
+})
 public class BookCopy {
     /**
      * The unique identifier of the book copy.
@@ -29,6 +37,8 @@ public class BookCopy {
     @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("bookId")
     @JoinColumn(name = "book_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Book book;
 
     /**
@@ -37,6 +47,8 @@ public class BookCopy {
     @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("locationId")
     @JoinColumn(name = "location_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Location location;
 
     /**
@@ -2,6 +2,8 @@ package com.example.library.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -16,6 +18,8 @@ import java.util.Set;
 @ToString
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "location")
 @Table(name = "locations", indexes = {
         // Index to allow searching for books by title.
         @Index(name = "idx_location_name", columnList = "name"),
@@ -25,12 +29,16 @@ public class Location extends Auditable{
      * The book copies stored at the location.
      */
     @OneToMany(mappedBy = "location", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-copies-by-location")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private final Set<BookCopy> bookCopies = new HashSet<>();
     /**
-     * The unique identifier of the location.
+     * The unique identifier of the location. Allocated in blocks from the sequence, so that the inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "locations_seq")
+    @SequenceGenerator(name = "locations_seq", sequenceName = "locations_seq", allocationSize = 50)
     private Long id;
     /**
      * The name of the location.
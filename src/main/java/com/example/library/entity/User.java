@@ -12,10 +12,12 @@ import java.util.Set;
 @ToString
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@EntityListeners(UserChangeListener.class)
 @Table(name = "users")
 public class User extends Auditable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -28,4 +30,11 @@ public class User extends Auditable {
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "role")
     private Set<String> roles;
+
+    /**
+     * Incremented on every change, the roles included. Tokens issued before a change carry an older version and are
+     * rejected.
+     */
+    @Version
+    private Long version;
 }
\ No newline at end of file
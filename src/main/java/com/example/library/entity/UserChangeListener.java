@@ -0,0 +1,25 @@
+package com.example.library.entity;
+
+import com.example.library.event.UserChangedEvent;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Publishes a {@link UserChangedEvent} when a user is updated or deleted.
+ * A change of the roles increments the version of the user, so it is an update too.
+ * Hibernate creates the listener through the Spring bean container, which injects the publisher.
+ */
+public class UserChangeListener {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserChangeListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onChange(User user) {
+        this.eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
+    }
+}
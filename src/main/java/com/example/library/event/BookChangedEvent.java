@@ -0,0 +1,12 @@
+package com.example.library.event;
+
+import org.springframework.lang.NonNull;
+
+/**
+ * Published when a book is created, updated or deleted.
+ * Listeners that maintain derived data (counts, indexes) should handle it after the transaction commits.
+ *
+ * @param bookId the id of the changed book
+ */
+public record BookChangedEvent(@NonNull Long bookId) {
+}
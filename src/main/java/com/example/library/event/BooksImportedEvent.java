@@ -0,0 +1,33 @@
+package com.example.library.event;
+
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+
+/**
+ * Published when a chunk of books is created by a bulk import, instead of one {@link BookChangedEvent} per book.
+ * Listeners that maintain derived data should handle it after the transaction of the chunk commits, and may load the
+ * books of the chunk at once. A chunk republished from another node holds all the books of its id range, including
+ * the ones created elsewhere, which the listeners handle again.
+ *
+ * @param bookIds the ids of the created books, in ascending order
+ */
+public record BooksImportedEvent(@NonNull List<Long> bookIds) {
+    /**
+     * Get the lowest id of the chunk.
+     *
+     * @return the first id
+     */
+    public @NonNull Long firstId() {
+        return this.bookIds.get(0);
+    }
+
+    /**
+     * Get the highest id of the chunk.
+     *
+     * @return the last id
+     */
+    public @NonNull Long lastId() {
+        return this.bookIds.get(this.bookIds.size() - 1);
+    }
+}
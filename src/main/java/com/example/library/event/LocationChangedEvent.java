@@ -0,0 +1,12 @@
+package com.example.library.event;
+
+import org.springframework.lang.NonNull;
+
+/**
+ * Published when a location is created, updated or deleted.
+ * Listeners that maintain derived data (counts, indexes) should handle it after the transaction commits.
+ *
+ * @param locationId the id of the changed location
+ */
+public record LocationChangedEvent(@NonNull Long locationId) {
+}
@@ -0,0 +1,12 @@
+package com.example.library.event;
+
+import org.springframework.lang.NonNull;
+
+/**
+ * Published when a user, or their roles, are updated or deleted.
+ * Listeners that cache the user should handle it after the transaction commits.
+ *
+ * @param userId the id of the changed user
+ */
+public record UserChangedEvent(@NonNull Long userId) {
+}
@@ -0,0 +1,21 @@
+package com.example.library.lib;
+
+/**
+ * How the total number of elements of a paged query is computed.
+ */
+public enum CountMode {
+    /**
+     * Count all the matching rows, the total is always exact.
+     */
+    EXACT,
+
+    /**
+     * Count the matching rows up to a cap, the total is a lower bound when the cap is reached.
+     */
+    CAPPED,
+
+    /**
+     * Reuse a recent exact count of the same filter, counting only when it has expired or the data has changed.
+     */
+    CACHED
+}
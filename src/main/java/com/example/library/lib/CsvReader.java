@@ -0,0 +1,133 @@
+package com.example.library.lib;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV stream (RFC 4180) one at a time, without buffering the stream.
+ * <p>
+ * Fields are separated by commas and may be enclosed in double quotes, a quoted field may contain commas, line breaks
+ * and doubled quotes. Records end with LF or CRLF.
+ */
+public class CsvReader {
+    private final Reader reader;
+
+    /**
+     * The number of the line the next record starts on, from 1.
+     */
+    private long line = 1;
+
+    /**
+     * A character read ahead, -2 if none.
+     */
+    private int peeked = -2;
+
+    /**
+     * Create a new CsvReader. The reader should be buffered, it is read one character at a time.
+     *
+     * @param reader the CSV stream
+     */
+    public CsvReader(@NonNull Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Get the number of the line the next record starts on.
+     *
+     * @return the line number, from 1
+     */
+    public long getLine() {
+        return this.line;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return the fields of the record, null at the end of the stream
+     * @throws IOException           if the stream can't be read
+     * @throws MalformedCsvException if a quoted field is not closed
+     */
+    public @Nullable List<String> readRecord() throws IOException, MalformedCsvException {
+        int c = this.read();
+        if (c == -1) {
+            return null;
+        }
+        long startLine = this.line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new MalformedCsvException(startLine);
+                }
+                if (c == '"') {
+                    if (this.peek() == '"') {
+                        // An escaped quote.
+                        this.read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        this.line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                break;
+            } else if (c == '\r' && this.peek() == '\n') {
+                // The LF ends the record.
+            } else {
+                field.append((char) c);
+            }
+            c = this.read();
+        }
+        fields.add(field.toString());
+        if (c == '\n') {
+            this.line++;
+        }
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (this.peeked != -2) {
+            int c = this.peeked;
+            this.peeked = -2;
+            return c;
+        }
+        return this.reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (this.peeked == -2) {
+            this.peeked = this.reader.read();
+        }
+        return this.peeked;
+    }
+
+    /**
+     * Exception thrown when a quoted field is not closed before the end of the stream.
+     */
+    public static class MalformedCsvException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new MalformedCsvException.
+         *
+         * @param line the line the record starts on
+         */
+        public MalformedCsvException(long line) {
+            super("Unclosed quoted field in the CSV record starting on line " + line);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.library.lib;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position of a keyset (seek) pagination: the sort key of the last returned row and a unique tie-breaker.
+ * Clients receive it as an opaque, URL-safe string and send it back to fetch the next page.
+ *
+ * @param value      the sort key of the last returned row
+ * @param tieBreaker the unique key of the last returned row
+ */
+public record KeysetCursor(@NonNull String value, @NonNull String tieBreaker) {
+    /**
+     * Decode a cursor received from a client.
+     *
+     * @param cursor the encoded cursor, null or empty for the first page
+     * @return the decoded cursor, null for the first page
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public static @Nullable KeysetCursor decode(@Nullable String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // The value is length-prefixed, so it may contain any character.
+            int separator = decoded.indexOf(':');
+            int length = Integer.parseInt(decoded.substring(0, separator));
+            int valueEnd = separator + 1 + length;
+            return new KeysetCursor(decoded.substring(separator + 1, valueEnd), decoded.substring(valueEnd));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    /**
+     * Encode the cursor for a client.
+     *
+     * @return the opaque cursor
+     */
+    public @NonNull String encode() {
+        String raw = this.value.length() + ":" + this.value + this.tieBreaker;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the tie-breaker as a numeric id.
+     *
+     * @return the tie-breaker as a long
+     * @throws InvalidCursorException if the tie-breaker is not a number
+     */
+    public @NonNull Long tieBreakerAsLong() throws InvalidCursorException {
+        try {
+            return Long.valueOf(this.tieBreaker);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(this.encode());
+        }
+    }
+
+    /**
+     * Exception thrown when a client sends a malformed cursor.
+     */
+    public static class InvalidCursorException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidCursorException with the given cursor.
+         *
+         * @param cursor - the malformed cursor
+         */
+        public InvalidCursorException(@NonNull String cursor) {
+            super("Invalid cursor: " + cursor);
+        }
+    }
+}
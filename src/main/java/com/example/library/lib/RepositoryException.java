@@ -85,6 +85,34 @@ public class RepositoryException extends Exception {
         }
     }
 
+    /**
+     * Exception thrown when the credentials of a request are missing or invalid.
+     */
+    public static class Unauthorized extends RepositoryException {
+        /**
+         * Creates a new Unauthorized exception with the given message.
+         *
+         * @param message - the exception message
+         */
+        public Unauthorized(String message) {
+            super(message, HttpStatus.UNAUTHORIZED);
+        }
+    }
+
+    /**
+     * Exception thrown when the server is too busy to handle a request, which may be retried later.
+     */
+    public static class ServiceUnavailable extends RepositoryException {
+        /**
+         * Creates a new ServiceUnavailable exception with the given message.
+         *
+         * @param message - the exception message
+         */
+        public ServiceUnavailable(String message) {
+            super(message, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
     /**
      * Exception thrown when a resource is not found.
      */
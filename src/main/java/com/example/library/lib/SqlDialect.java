@@ -0,0 +1,50 @@
+package com.example.library.lib;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.lang.NonNull;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.Locale;
+
+/**
+ * The SQL dialects the application knows how to generate vendor-specific statements for.
+ */
+public enum SqlDialect {
+    POSTGRESQL,
+    H2,
+    OTHER;
+
+    /**
+     * Resolve the dialect of the database behind the given data source.
+     *
+     * @param dataSource the data source to inspect
+     * @return the dialect of the database, {@link #OTHER} if it is not recognized
+     */
+    public static @NonNull SqlDialect of(@NonNull DataSource dataSource) {
+        try {
+            String productName = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return fromProductName(productName);
+        } catch (MetaDataAccessException e) {
+            throw new SafeRuntimeException("Could not resolve the database dialect", e);
+        }
+    }
+
+    /**
+     * Resolve the dialect from a JDBC database product name.
+     *
+     * @param productName the database product name
+     * @return the dialect of the database, {@link #OTHER} if it is not recognized
+     */
+    public static @NonNull SqlDialect fromProductName(String productName) {
+        String name = productName == null ? "" : productName.toLowerCase(Locale.ROOT);
+        if (name.contains("postgresql")) {
+            return POSTGRESQL;
+        } else if (name.equals("h2")) {
+            return H2;
+        } else {
+            return OTHER;
+        }
+    }
+}
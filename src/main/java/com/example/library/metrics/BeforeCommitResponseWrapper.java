@@ -0,0 +1,71 @@
+package com.example.library.metrics;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Runs a callback once, just before the response may be committed, so it can still set headers.
+ * <p>
+ * The callback runs when the body starts being written, when the buffer is flushed, on an error or a redirect, or on
+ * {@link #beforeCommit()} at the end of the request if none of these happened.
+ */
+class BeforeCommitResponseWrapper extends HttpServletResponseWrapper {
+    private final Runnable callback;
+    private boolean called;
+
+    BeforeCommitResponseWrapper(@NonNull HttpServletResponse response, @NonNull Runnable callback) {
+        super(response);
+        this.callback = callback;
+    }
+
+    /**
+     * Run the callback, unless it already ran or the response is committed.
+     */
+    void beforeCommit() {
+        if (!this.called && !this.isCommitted()) {
+            this.called = true;
+            this.callback.run();
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        this.beforeCommit();
+        return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        this.beforeCommit();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        this.beforeCommit();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        this.beforeCommit();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        this.beforeCommit();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        this.beforeCommit();
+        super.sendRedirect(location);
+    }
+}
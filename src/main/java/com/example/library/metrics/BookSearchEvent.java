@@ -0,0 +1,73 @@
+package com.example.library.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+/**
+ * Flight Recorder event of a filtered listing or a full-text search of the books.
+ * <p>
+ * Only the shape of the filter is recorded, not the values searched for.
+ */
+@Name("com.example.library.BookSearch")
+@Label("Book Search")
+@Category({"Library", "Books"})
+@Description("A filtered listing or a full-text search of the books")
+@StackTrace(false)
+public class BookSearchEvent extends Event {
+
+    @Label("Kind")
+    @Description("filter for the listings, search for the full-text searches")
+    private String kind;
+
+    @Label("Filter")
+    @Description("The filtered fields, such as title+author, or the number of words searched for")
+    private String filter;
+
+    @Label("Source")
+    @Description("Where the books were found: database or index")
+    private String source;
+
+    @Label("Count Mode")
+    private String countMode;
+
+    @Label("Page")
+    private int page;
+
+    @Label("Page Size")
+    private int pageSize;
+
+    @Label("Rows")
+    @Description("The number of books returned")
+    private int rows;
+
+    /**
+     * End the search and commit the event if it is recorded.
+     *
+     * @param kind      filter or search
+     * @param filter    the shape of the filter
+     * @param source    where the books were found
+     * @param countMode how the total was counted, null for the searches
+     * @param page      the number of the page, from 0
+     * @param pageSize  the size of the page
+     * @param rows      the number of books returned
+     */
+    public void complete(@NonNull String kind, @NonNull String filter, @NonNull String source, @Nullable String countMode, int page, int pageSize, int rows) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.kind = kind;
+            this.filter = filter;
+            this.source = source;
+            this.countMode = countMode;
+            this.page = page;
+            this.pageSize = pageSize;
+            this.rows = rows;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.library.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Instruments the statements of the connections: counts the statements, rows and time of each request into its
+ * {@link RequestSqlStatements}, and reports the statements slower than the threshold to the {@link SlowQueryLog}.
+ * <p>
+ * The connections are wrapped, with their statements and result sets. When there is no request to count and no slow
+ * query log, as for the background tasks when the log is disabled, the connections are returned as is and cost nothing.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+    private static final ClassLoader CLASS_LOADER = InstrumentedDataSource.class.getClassLoader();
+
+    /**
+     * The slow query log, resolved lazily as it queries this data source.
+     */
+    private final Supplier<SlowQueryLog> slowQueryLog;
+
+    /**
+     * Create a new InstrumentedDataSource.
+     *
+     * @param targetDataSource the data source of the connections
+     * @param slowQueryLog     supplies the slow query log, or null if it is disabled
+     */
+    public InstrumentedDataSource(@NonNull DataSource targetDataSource, @NonNull Supplier<SlowQueryLog> slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public @NonNull Connection getConnection() throws SQLException {
+        return this.wrap(super.getConnection());
+    }
+
+    @Override
+    public @NonNull Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+        return this.wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        RequestSqlStatements statements = RequestSqlStatements.current();
+        SlowQueryLog slowQueries = this.slowQueryLog.get();
+        if (statements == null && slowQueries == null) {
+            return connection;
+        }
+        return proxy(Connection.class, new ConnectionHandler(connection, statements, slowQueries));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Call the wrapped object, rethrowing its exceptions as they are.
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Compare the proxies by identity, the wrapped object would not know the proxy.
+     */
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("equals") ? (Object) (proxy == args[0]) : (Object) System.identityHashCode(proxy);
+    }
+
+    private static boolean isIdentityMethod(Method method) {
+        return method.getDeclaringClass() == Object.class && !method.getName().equals("toString");
+    }
+
+    /**
+     * Wraps the statements created by the connection.
+     */
+    private record ConnectionHandler(
+            Connection connection,
+            @Nullable RequestSqlStatements statements,
+            @Nullable SlowQueryLog slowQueryLog
+    ) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            Object result = InstrumentedDataSource.invoke(this.connection, method, args);
+            return switch (method.getName()) {
+                // The statement is a Statement, a PreparedStatement or a CallableStatement, as declared.
+                case "createStatement" ->
+                        proxy(method.getReturnType(), new StatementHandler(result, this.statements, this.slowQueryLog, null));
+                case "prepareStatement", "prepareCall" ->
+                        proxy(method.getReturnType(), new StatementHandler(result, this.statements, this.slowQueryLog, (String) args[0]));
+                default -> result;
+            };
+        }
+    }
+
+    /**
+     * Times the executions of the statement, wraps its result sets, and tracks the types of its parameters for the
+     * slow query log.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Object statement;
+        private final @Nullable RequestSqlStatements statements;
+        private final @Nullable SlowQueryLog slowQueryLog;
+
+        /**
+         * The SQL text of a prepared statement, null for a plain statement.
+         */
+        private final @Nullable String sql;
+
+        /**
+         * The type of each bound parameter, by index from 0. Only tracked for the slow query log, null otherwise.
+         */
+        private final @Nullable List<String> parameterTypes;
+
+        StatementHandler(Object statement, @Nullable RequestSqlStatements statements, @Nullable SlowQueryLog slowQueryLog, @Nullable String sql) {
+            this.statement = statement;
+            this.statements = statements;
+            this.slowQueryLog = slowQueryLog;
+            this.sql = sql;
+            this.parameterTypes = slowQueryLog != null && sql != null ? new ArrayList<>() : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            String name = method.getName();
+            switch (name) {
+                case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch" -> {
+                    // A plain statement is given its SQL text on execution.
+                    String executedSql = this.sql != null || args == null || args.length == 0 ? this.sql : (String) args[0];
+                    long start = System.nanoTime();
+                    Object result;
+                    try {
+                        result = InstrumentedDataSource.invoke(this.statement, method, args);
+                    } finally {
+                        this.record(executedSql, System.nanoTime() - start);
+                    }
+                    return result instanceof ResultSet resultSet ? this.wrap(resultSet) : result;
+                }
+                case "getResultSet" -> {
+                    Object result = InstrumentedDataSource.invoke(this.statement, method, args);
+                    return result instanceof ResultSet resultSet ? this.wrap(resultSet) : result;
+                }
+                case "clearParameters" -> {
+                    if (this.parameterTypes != null) {
+                        this.parameterTypes.clear();
+                    }
+                    return InstrumentedDataSource.invoke(this.statement, method, args);
+                }
+                default -> {
+                    if (this.parameterTypes != null && isParameterSetter(method, args)) {
+                        this.setParameterType((Integer) args[0] - 1, parameterType(name, args));
+                    }
+                    return InstrumentedDataSource.invoke(this.statement, method, args);
+                }
+            }
+        }
+
+        /**
+         * Whether the method binds a parameter by index, such as {@code setLong(1, 42L)}.
+         */
+        private static boolean isParameterSetter(Method method, Object[] args) {
+            return method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && PreparedStatement.class.isAssignableFrom(method.getDeclaringClass());
+        }
+
+        /**
+         * The type of a bound parameter: the one of the setter, or the class of the value bound with {@code setObject}.
+         */
+        private static String parameterType(String setter, Object[] args) {
+            if (setter.equals("setNull") || setter.equals("setObject") && args[1] == null) {
+                return "NULL";
+            }
+            return setter.equals("setObject") ? args[1].getClass().getSimpleName() : setter.substring("set".length());
+        }
+
+        private void setParameterType(int index, String type) {
+            while (this.parameterTypes.size() <= index) {
+                this.parameterTypes.add(null);
+            }
+            this.parameterTypes.set(index, type);
+        }
+
+        private void record(@Nullable String executedSql, long nanos) {
+            if (this.statements != null) {
+                this.statements.recordStatement(executedSql, nanos);
+            }
+            if (this.slowQueryLog != null && executedSql != null && this.slowQueryLog.isSlow(nanos)) {
+                this.slowQueryLog.record(executedSql, this.parameterTypes != null ? this.parameterTypes : List.of(), nanos);
+            }
+        }
+
+        private ResultSet wrap(ResultSet resultSet) {
+            // Only the requests count the rows.
+            return this.statements == null ? resultSet : proxy(ResultSet.class, new ResultSetHandler(resultSet, this.statements));
+        }
+    }
+
+    /**
+     * Counts the rows read from the result set.
+     */
+    private record ResultSetHandler(ResultSet resultSet, RequestSqlStatements statements) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            Object result = InstrumentedDataSource.invoke(this.resultSet, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                this.statements.recordRow();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.library.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.springframework.lang.NonNull;
+
+/**
+ * Flight Recorder event of a change of the quantity of a book copy.
+ */
+@Name("com.example.library.InventoryUpdate")
+@Label("Inventory Update")
+@Category({"Library", "Inventory"})
+@Description("A change of the quantity of a book at a location")
+@StackTrace(false)
+public class InventoryUpdateEvent extends Event {
+
+    @Label("Book Id")
+    private long bookId;
+
+    @Label("Location Id")
+    private long locationId;
+
+    @Label("Delta")
+    @Description("The change in quantity, negative when copies are removed")
+    private int delta;
+
+    @Label("Lock Wait")
+    @Description("The time spent locking the book copy row, including the wait for concurrent changes")
+    @Timespan(Timespan.NANOSECONDS)
+    private long lockWait;
+
+    @Label("Write Behind")
+    @Description("Whether the change was applied by a flush of the write-behind buffer")
+    private boolean writeBehind;
+
+    @Label("Outcome")
+    @Description("updated, or the simple name of the exception refusing the change or failing the write-behind flush")
+    private String outcome;
+
+    /**
+     * End the update and commit the event if it is recorded.
+     *
+     * @param bookId        the id of the book
+     * @param locationId    the id of the location
+     * @param delta         the change in quantity
+     * @param lockWaitNanos the time spent locking the row
+     * @param writeBehind   whether the change was applied by the write-behind buffer
+     * @param outcome       updated, or the name of the exception
+     */
+    public void complete(long bookId, long locationId, int delta, long lockWaitNanos, boolean writeBehind, @NonNull String outcome) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.bookId = bookId;
+            this.locationId = locationId;
+            this.delta = delta;
+            this.lockWait = lockWaitNanos;
+            this.writeBehind = writeBehind;
+            this.outcome = outcome;
+            this.commit();
+        }
+    }
+}
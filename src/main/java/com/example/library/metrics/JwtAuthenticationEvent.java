@@ -0,0 +1,37 @@
+package com.example.library.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.lang.NonNull;
+
+/**
+ * Flight Recorder event of the authentication of a request by its bearer token.
+ */
+@Name("com.example.library.JwtAuthentication")
+@Label("JWT Authentication")
+@Category({"Library", "Security"})
+@Description("The verification of a bearer token and the lookup of its user")
+@StackTrace(false)
+public class JwtAuthenticationEvent extends Event {
+
+    @Label("Outcome")
+    @Description("authenticated, invalid-token, stale-user or error")
+    private String outcome;
+
+    /**
+     * End the authentication and commit the event if it is recorded.
+     *
+     * @param outcome the outcome of the authentication
+     */
+    public void complete(@NonNull String outcome) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.outcome = outcome;
+            this.commit();
+        }
+    }
+}
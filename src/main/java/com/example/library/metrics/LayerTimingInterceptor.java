@@ -0,0 +1,102 @@
+package com.example.library.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times the calls of the advised layers into the {@link RequestTimings} of the current request.
+ * <p>
+ * A method belongs to the first layer whose pointcut matches it, which is resolved once per method.
+ */
+public class LayerTimingInterceptor implements MethodInterceptor {
+    private final List<String> layerNames;
+    private final List<AspectJExpressionPointcut> layerPointcuts;
+
+    /**
+     * The layer of each advised method, resolved on its first call.
+     */
+    private final Map<Method, Integer> layers = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new LayerTimingInterceptor.
+     *
+     * @param pointcuts the AspectJ pointcut of each layer, by layer name, in priority order, at least one
+     * @throws IllegalArgumentException if there is no layer
+     */
+    public LayerTimingInterceptor(@NonNull Map<String, String> pointcuts) {
+        if (pointcuts.isEmpty()) {
+            throw new IllegalArgumentException("app.metrics.layers.pointcuts must define at least one layer");
+        }
+        this.layerNames = List.copyOf(pointcuts.keySet());
+        this.layerPointcuts = new ArrayList<>(pointcuts.size());
+        for (String expression : pointcuts.values()) {
+            AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+            pointcut.setExpression(expression);
+            this.layerPointcuts.add(pointcut);
+        }
+    }
+
+    /**
+     * Get the names of the layers, by index.
+     *
+     * @return the layer names
+     */
+    public @NonNull List<String> getLayerNames() {
+        return this.layerNames;
+    }
+
+    /**
+     * Get the methods of all the layers.
+     *
+     * @return the union of the layer pointcuts
+     */
+    public @NonNull Pointcut getPointcut() {
+        // AspectJExpressionPointcut is also a ClassFilter and a MethodMatcher, the casts pick the Pointcut overloads.
+        ComposablePointcut union = new ComposablePointcut((Pointcut) this.layerPointcuts.get(0));
+        for (int layer = 1; layer < this.layerPointcuts.size(); layer++) {
+            union.union((Pointcut) this.layerPointcuts.get(layer));
+        }
+        return union;
+    }
+
+    @Override
+    public @Nullable Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+        RequestTimings timings = RequestTimings.current();
+        if (timings == null) {
+            return invocation.proceed();
+        }
+        int layer = this.layers.computeIfAbsent(invocation.getMethod(), method -> this.resolveLayer(method, invocation.getThis()));
+        if (layer < 0) {
+            return invocation.proceed();
+        }
+        long start = timings.enter();
+        try {
+            return invocation.proceed();
+        } finally {
+            timings.exit(layer, start);
+        }
+    }
+
+    private int resolveLayer(Method method, @Nullable Object target) {
+        Class<?> targetClass = target != null ? AopUtils.getTargetClass(target) : method.getDeclaringClass();
+        for (int layer = 0; layer < this.layerPointcuts.size(); layer++) {
+            if (this.layerPointcuts.get(layer).matches(method, targetClass)) {
+                return layer;
+            }
+        }
+        // The proxy matched the method on another class of the hierarchy, it is not timed rather than misattributed.
+        return -1;
+    }
+}
@@ -25,6 +25,10 @@ public class LibraryMetrics {
         this.bookAddedCounter.increment();
     }
 
+    public void recordBooksAdded(long count) {
+        this.bookAddedCounter.increment(count);
+    }
+
     public void recordBookRemoved() {
         this.bookRemovedCounter.increment();
     }
@@ -0,0 +1,41 @@
+package com.example.library.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.lang.NonNull;
+
+/**
+ * Flight Recorder event of a call of a mapper between the entities and the DTOs.
+ */
+@Name("com.example.library.MapperCall")
+@Label("Mapper Call")
+@Category({"Library", "Mappers"})
+@Description("A call of a MapStruct mapper")
+@StackTrace(false)
+public class MapperCallEvent extends Event {
+
+    @Label("Mapper")
+    private String mapper;
+
+    @Label("Method")
+    private String method;
+
+    /**
+     * End the call and commit the event if it is recorded.
+     *
+     * @param mapper the simple name of the mapper
+     * @param method the name of the method
+     */
+    public void complete(@NonNull String mapper, @NonNull String method) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.mapper = mapper;
+            this.method = method;
+            this.commit();
+        }
+    }
+}
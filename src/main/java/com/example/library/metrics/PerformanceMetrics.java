@@ -2,24 +2,89 @@ package com.example.library.metrics;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Records the execution time of the controller methods, as the {@code library.method.execution.time} timer tagged
+ * with the class, the method, the outcome ({@code success} or {@code exception}) and the exception class.
+ * <p>
+ * The timers of a method are registered on its first call and reused, so recording a call does not look up the
+ * registry. They publish a percentile histogram and the configured SLO buckets, from which Prometheus computes the
+ * percentiles across instances.
+ */
 @Component
 public class PerformanceMetrics {
+    private static final String NO_EXCEPTION = "none";
+
     private final MeterRegistry meterRegistry;
+    private final boolean percentileHistogram;
+    private final Duration[] serviceLevelObjectives;
+
+    /**
+     * The timers of each method, by method.
+     */
+    private final Map<Method, MethodTimers> methodTimers = new ConcurrentHashMap<>();
 
-    public PerformanceMetrics(MeterRegistry meterRegistry) {
+    public PerformanceMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${app.metrics.method-timers.percentile-histogram:true}") boolean percentileHistogram,
+            @Value("${app.metrics.method-timers.slo:50ms,100ms,250ms,500ms,1s,2s}") Duration[] serviceLevelObjectives
+    ) {
         this.meterRegistry = meterRegistry;
+        this.percentileHistogram = percentileHistogram;
+        this.serviceLevelObjectives = serviceLevelObjectives;
+    }
+
+    /**
+     * Record the execution of a method.
+     *
+     * @param method        the method
+     * @param className     the simple name of the class the method was called on
+     * @param executionTime the execution time, in nanoseconds
+     * @param exception     the exception thrown by the method, null if it returned
+     */
+    public void recordMethodExecutionTime(Method method, String className, long executionTime, @Nullable Throwable exception) {
+        MethodTimers registered = this.methodTimers.get(method);
+        MethodTimers timers = registered != null ? registered
+                : this.methodTimers.computeIfAbsent(method, key -> new MethodTimers(className, key.getName()));
+        Timer timer = exception == null ? timers.success : timers.exceptions.computeIfAbsent(exception.getClass(),
+                type -> this.timer(timers.className, timers.methodName, "exception", type.getSimpleName()));
+        timer.record(executionTime, TimeUnit.NANOSECONDS);
     }
 
-    public void recordMethodExecutionTime(String className, String methodName, long executionTime) {
-        Timer.builder("library.method.execution.time")
+    private Timer timer(String className, String methodName, String outcome, String exception) {
+        return Timer.builder("library.method.execution.time")
                 .description("Execution time of methods")
                 .tag("class", className)
                 .tag("method", methodName)
-                .register(this.meterRegistry)
-                .record(executionTime, TimeUnit.MILLISECONDS);
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram(this.percentileHistogram)
+                .serviceLevelObjectives(this.serviceLevelObjectives)
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * The timers of a method, registered once.
+     */
+    private final class MethodTimers {
+        private final String className;
+        private final String methodName;
+        private final Timer success;
+        private final Map<Class<?>, Timer> exceptions = new ConcurrentHashMap<>();
+
+        private MethodTimers(String className, String methodName) {
+            this.className = className;
+            this.methodName = methodName;
+            this.success = PerformanceMetrics.this.timer(className, methodName, "success", NO_EXCEPTION);
+        }
     }
 }
@@ -0,0 +1,147 @@
+package com.example.library.metrics;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The SQL statements executed by the request of the current thread.
+ * <p>
+ * The statements are grouped by SQL text: the statements prepared by Hibernate and Spring Data use placeholders, so the
+ * same text is the same query with other parameters. A text executed more than {@code maxRepeats} times in one request
+ * is the sign of an N+1 query, such as a lazy collection loaded once per entity of a page.
+ */
+public final class RequestSqlStatements {
+    private static final ThreadLocal<RequestSqlStatements> CURRENT = new ThreadLocal<>();
+
+    private int maxRepeats;
+    private int statements;
+    private long rows;
+    private long nanos;
+
+    /**
+     * The number of executions of each SQL text.
+     */
+    private final Map<String, Integer> executions = new HashMap<>();
+
+    /**
+     * The SQL texts executed more than {@link #maxRepeats} times, with their number of executions.
+     */
+    private Map<String, Integer> repeated = Collections.emptyMap();
+
+    private RequestSqlStatements(int maxRepeats) {
+        this.maxRepeats = maxRepeats;
+    }
+
+    /**
+     * Start counting the statements of the request of the current thread.
+     *
+     * @param maxRepeats the number of executions of the same SQL text above which it is reported
+     * @return the statements of the request
+     */
+    public static @NonNull RequestSqlStatements start(int maxRepeats) {
+        RequestSqlStatements statements = new RequestSqlStatements(maxRepeats);
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    /**
+     * Get the statements of the request of the current thread.
+     *
+     * @return the statements, null outside a request
+     */
+    public static @Nullable RequestSqlStatements current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stop counting the statements of the request of the current thread.
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Stop reporting the statements repeated by the rest of the request, for the requests that repeat statements by
+     * design, such as a bulk import writing one batch per chunk.
+     */
+    public void allowRepeats() {
+        this.maxRepeats = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Record the execution of a statement.
+     *
+     * @param sql   the SQL text, null if unknown (a batch of plain statements)
+     * @param nanos the execution time
+     */
+    public void recordStatement(@Nullable String sql, long nanos) {
+        this.statements++;
+        this.nanos += nanos;
+        if (sql != null) {
+            int count = this.executions.merge(sql, 1, Integer::sum);
+            if (count > this.maxRepeats) {
+                if (this.repeated.isEmpty()) {
+                    this.repeated = new LinkedHashMap<>();
+                }
+                this.repeated.put(sql, count);
+            }
+        }
+    }
+
+    /**
+     * Record a row read from a result set.
+     */
+    public void recordRow() {
+        this.rows++;
+    }
+
+    /**
+     * Get the number of statements executed, a batch counting as one.
+     *
+     * @return the number of statements
+     */
+    public int getStatements() {
+        return this.statements;
+    }
+
+    /**
+     * Get the number of rows read.
+     *
+     * @return the number of rows
+     */
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Get the time spent executing the statements, reading the rows excluded.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * Get the SQL texts executed.
+     *
+     * @return the number of executions of each SQL text, in no particular order
+     */
+    public @NonNull Map<String, Integer> getExecutions() {
+        return Collections.unmodifiableMap(this.executions);
+    }
+
+    /**
+     * Get the SQL texts executed more than the allowed number of times.
+     *
+     * @return the number of executions of each repeated SQL text, in the order they went over the limit
+     */
+    public @NonNull Map<String, Integer> getRepeatedStatements() {
+        return this.repeated;
+    }
+}
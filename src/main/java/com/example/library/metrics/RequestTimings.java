@@ -0,0 +1,138 @@
+package com.example.library.metrics;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * The time spent in each layer by the request of the current thread.
+ * <p>
+ * Layers nest: the time of a call is attributed to its layer minus the time of the nested calls, so the layers add up
+ * to the time spent in the application code. Only the sampled requests have timings; the others pay a single
+ * ThreadLocal read per advised call.
+ */
+public final class RequestTimings {
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The deepest nesting that is timed, deeper calls are attributed to their caller.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private final long[] selfNanos;
+    private final int[] calls;
+
+    /**
+     * The time of the nested calls of each open call, index 0 being the request itself.
+     */
+    private final long[] nestedNanos = new long[MAX_DEPTH + 1];
+    private int depth;
+
+    private RequestTimings(int layers) {
+        this.selfNanos = new long[layers];
+        this.calls = new int[layers];
+    }
+
+    /**
+     * Start timing the request of the current thread.
+     *
+     * @param layers the number of layers
+     * @return the timings of the request
+     */
+    public static @NonNull RequestTimings start(int layers) {
+        RequestTimings timings = new RequestTimings(layers);
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /**
+     * Get the timings of the request of the current thread.
+     *
+     * @return the timings, null if the request is not sampled
+     */
+    public static @Nullable RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stop timing the request of the current thread.
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Enter a call.
+     *
+     * @return the start time of the call, to pass to {@link #exit}
+     */
+    public long enter() {
+        if (++this.depth <= MAX_DEPTH) {
+            this.nestedNanos[this.depth] = 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Exit a call.
+     *
+     * @param layer the index of the layer of the call
+     * @param start the start time returned by {@link #enter}
+     */
+    public void exit(int layer, long start) {
+        long elapsed = System.nanoTime() - start;
+        if (this.depth <= MAX_DEPTH) {
+            this.selfNanos[layer] += elapsed - this.nestedNanos[this.depth];
+            this.calls[layer]++;
+            this.nestedNanos[this.depth - 1] += elapsed;
+        }
+        this.depth--;
+    }
+
+    /**
+     * Get the time spent in a layer, nested calls excluded.
+     *
+     * @param layer the index of the layer
+     * @return the time in nanoseconds
+     */
+    public long selfNanos(int layer) {
+        return this.selfNanos[layer];
+    }
+
+    /**
+     * Get the number of calls of a layer.
+     *
+     * @param layer the index of the layer
+     * @return the number of calls
+     */
+    public int calls(int layer) {
+        return this.calls[layer];
+    }
+
+    /**
+     * Format the timings as the value of a {@code Server-Timing} header, in milliseconds.
+     *
+     * @param layerNames the names of the layers, by index
+     * @param totalNanos the time of the whole request so far
+     * @return the header value, one metric per called layer and the total
+     */
+    public @NonNull String toServerTiming(@NonNull List<String> layerNames, long totalNanos) {
+        StringBuilder header = new StringBuilder();
+        for (int layer = 0; layer < this.selfNanos.length; layer++) {
+            if (this.calls[layer] > 0) {
+                appendMetric(header, layerNames.get(layer), this.selfNanos[layer]);
+            }
+        }
+        appendMetric(header, "total", totalNanos);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        // Microsecond precision is enough and keeps the header short.
+        header.append(name).append(";dur=").append(nanos / 1000 / 1000.0);
+    }
+}
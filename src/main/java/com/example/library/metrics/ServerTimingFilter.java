@@ -0,0 +1,104 @@
+package com.example.library.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the layers of a sample of the requests, reports them in a {@value #SERVER_TIMING_HEADER} header and records
+ * them in the {@code library.request.layer.time} timers.
+ * <p>
+ * The header must be set before the response is committed, so it is set when the body starts being written and holds
+ * the time spent until then. The timers get the time of the whole request. An asynchronous request is only timed up
+ * to the end of its controller method.
+ * <p>
+ * Unless all the clients get the header, only the admins do: the header is set if the user authenticated when the body
+ * starts being written is an admin. A response committed without a body, once the security filters are done, gets no
+ * header.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+    /**
+     * The response header holding the layer timings, in milliseconds.
+     */
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    /**
+     * The authority of the users who get the header when not all the clients do.
+     */
+    private static final String ADMIN_AUTHORITY = "ROLE_ADMIN";
+
+    private final List<String> layerNames;
+    private final double sampleRate;
+    private final boolean headers;
+    private final Timer[] layerTimers;
+
+    /**
+     * Create a new ServerTimingFilter.
+     *
+     * @param meterRegistry the registry of the layer timers
+     * @param layerNames    the names of the layers, by index
+     * @param sampleRate    the share of the requests that are timed, from 0 to 1
+     * @param headers       whether every client gets the header, otherwise only the admins do
+     */
+    public ServerTimingFilter(@NonNull MeterRegistry meterRegistry, @NonNull List<String> layerNames, double sampleRate, boolean headers) {
+        this.layerNames = List.copyOf(layerNames);
+        this.sampleRate = sampleRate;
+        this.headers = headers;
+        this.layerTimers = new Timer[layerNames.size()];
+        for (int layer = 0; layer < this.layerTimers.length; layer++) {
+            this.layerTimers[layer] = Timer.builder("library.request.layer.time")
+                    .description("Time spent by a request in a layer, excluding the nested layers")
+                    .tag("layer", layerNames.get(layer))
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (this.sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= this.sampleRate) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        RequestTimings timings = RequestTimings.start(this.layerNames.size());
+        BeforeCommitResponseWrapper timedResponse = new BeforeCommitResponseWrapper(response, () -> {
+            if (this.headers || isAdmin()) {
+                response.setHeader(SERVER_TIMING_HEADER, timings.toServerTiming(this.layerNames, System.nanoTime() - start));
+            }
+        });
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            RequestTimings.stop();
+            timedResponse.beforeCommit();
+            for (int layer = 0; layer < this.layerTimers.length; layer++) {
+                if (timings.calls(layer) > 0) {
+                    this.layerTimers[layer].record(timings.selfNanos(layer), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    private static boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> ADMIN_AUTHORITY.equals(authority.getAuthority()));
+    }
+}
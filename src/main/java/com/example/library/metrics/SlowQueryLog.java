@@ -0,0 +1,376 @@
+package com.example.library.metrics;
+
+import com.example.library.lib.SqlDialect;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the last statements slower than a threshold, with the plan of each SQL text, so the full scans can be found in
+ * production without logging all the SQL.
+ * <p>
+ * The statements come from {@link InstrumentedDataSource}, so the queries of the repositories, the specifications and
+ * the JDBC templates are all covered. Recording one costs a few allocations on the thread that ran it; the plan is
+ * captured once per SQL text by a background {@code EXPLAIN}, on H2 and PostgreSQL.
+ * <p>
+ * The bind values are not kept, only their types, and the string literals of the SQL texts and of the plans are
+ * redacted. The numeric literals are kept, so a statement embedding a sensitive number in its text still shows it.
+ * <p>
+ * The plans of the statements with parameters need {@code EXPLAIN (GENERIC_PLAN)}, from PostgreSQL 16: on older
+ * servers only the statements without parameters are explained.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.metrics.slow-queries", name = "enabled", havingValue = "true")
+public class SlowQueryLog {
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    /**
+     * The package of the application, whose first frame on the stack is reported as the caller of a statement.
+     */
+    private static final String APPLICATION_PACKAGE = "com.example.library.";
+
+    /**
+     * The first PostgreSQL version supporting {@code EXPLAIN (GENERIC_PLAN)}.
+     */
+    private static final int GENERIC_PLAN_VERSION = 16;
+
+    /**
+     * What a string literal is replaced with in the SQL texts and the plans.
+     */
+    private static final String REDACTED_LITERAL = "'***'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long thresholdNanos;
+    private final boolean explain;
+
+    /**
+     * The last slow statements, in a ring: the next one overwrites the oldest.
+     */
+    private final AtomicReferenceArray<SlowQuery> entries;
+
+    /**
+     * The number of slow statements recorded since startup, the next one goes at this index modulo the capacity.
+     */
+    private final AtomicLong recorded = new AtomicLong();
+
+    /**
+     * The plan of each redacted SQL text, as long as it may still be in the ring.
+     */
+    private final Cache<String, String> plans;
+
+    /**
+     * The redacted SQL texts being explained.
+     */
+    private final Set<String> explaining = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor explainer;
+    private final Counter slowStatements;
+
+    /**
+     * The dialect of the database, resolved by the first EXPLAIN.
+     */
+    private volatile SqlDialect dialect;
+
+    /**
+     * The major version of the database, resolved with the dialect.
+     */
+    private volatile int databaseVersion;
+
+    /**
+     * Create a new SlowQueryLog.
+     *
+     * @param dataSource    the data source the plans are queried from
+     * @param meterRegistry the registry of the slow statement counter
+     * @param threshold     the duration above which a statement is recorded
+     * @param capacity      the number of slow statements kept
+     * @param explain       whether the plan of each slow SQL text is captured
+     */
+    public SlowQueryLog(
+            @NonNull DataSource dataSource,
+            @NonNull MeterRegistry meterRegistry,
+            @Value("${app.metrics.slow-queries.threshold:200ms}") Duration threshold,
+            @Value("${app.metrics.slow-queries.capacity:100}") int capacity,
+            @Value("${app.metrics.slow-queries.explain:true}") boolean explain
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.thresholdNanos = threshold.toNanos();
+        this.explain = explain;
+        this.entries = new AtomicReferenceArray<>(capacity);
+        this.plans = Caffeine.newBuilder().maximumSize(capacity).build();
+        // One thread is enough: a SQL text is only explained once, and the plans past the queue capacity are dropped.
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), runnable -> {
+            Thread thread = new Thread(runnable, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slowStatements = Counter.builder("library.sql.slow")
+                .description("SQL statements slower than the slow query threshold")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stop the background EXPLAINs before the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.explainer.shutdownNow();
+    }
+
+    /**
+     * Whether a statement is slow enough to be recorded.
+     *
+     * @param nanos the execution time of the statement
+     * @return true if it should be recorded
+     */
+    public boolean isSlow(long nanos) {
+        return nanos >= this.thresholdNanos;
+    }
+
+    /**
+     * Record a slow statement, and capture the plan of its SQL text in the background if it is not known yet.
+     *
+     * @param sql            the SQL text
+     * @param parameterTypes the types of the bound parameters, by index from 0
+     * @param nanos          the execution time
+     */
+    public void record(@NonNull String sql, @NonNull List<String> parameterTypes, long nanos) {
+        if (isExplain(sql)) {
+            // The plans are not plans of the application queries.
+            return;
+        }
+        this.slowStatements.increment();
+        String redacted = redactLiterals(sql);
+        int parameterCount = parameterTypes.size();
+        SlowQuery slowQuery = new SlowQuery(Instant.now(), redacted, Collections.unmodifiableList(new ArrayList<>(parameterTypes)),
+                nanos / 1000 / 1000.0, caller(), null);
+        this.entries.set((int) (this.recorded.getAndIncrement() % this.entries.length()), slowQuery);
+
+        if (this.explain && isExplainable(sql) && this.plans.getIfPresent(redacted) == null && this.explaining.add(redacted)) {
+            try {
+                this.explainer.execute(() -> {
+                    try {
+                        this.plans.put(redacted, redactLiterals(this.explain(sql, parameterCount)));
+                    } catch (RuntimeException e) {
+                        logger.warn("Failed to explain the slow statement {}", redacted, e);
+                        // The message of the driver may quote the values of the statement.
+                        this.plans.put(redacted, "EXPLAIN failed with " + e.getClass().getSimpleName() + ", see the application log");
+                    } finally {
+                        this.explaining.remove(redacted);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Too many plans to capture, or shutting down: the next slow execution tries again.
+                this.explaining.remove(redacted);
+            }
+        }
+    }
+
+    /**
+     * Get the slow statements kept, with the plans captured so far.
+     *
+     * @return the slow statements, the most recent first
+     */
+    public @NonNull List<SlowQuery> recent() {
+        long last = this.recorded.get() - 1;
+        List<SlowQuery> recent = new ArrayList<>();
+        for (long index = last; index >= 0 && index > last - this.entries.length(); index--) {
+            SlowQuery slowQuery = this.entries.get((int) (index % this.entries.length()));
+            if (slowQuery != null) {
+                recent.add(slowQuery.withPlan(this.plans.getIfPresent(slowQuery.sql())));
+            }
+        }
+        return recent;
+    }
+
+    /**
+     * Forget the slow statements kept and their plans.
+     */
+    public void clear() {
+        for (int index = 0; index < this.entries.length(); index++) {
+            this.entries.set(index, null);
+        }
+        this.plans.invalidateAll();
+    }
+
+    /**
+     * Find the first frame of the application on the stack, skipping the instrumentation and the Spring proxies.
+     */
+    private static @Nullable String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE))
+                .filter(frame -> !frame.getClassName().startsWith(SlowQueryLog.class.getPackageName() + "."))
+                .filter(frame -> !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) + "." + frame.getMethodName())
+                .orElse(null));
+    }
+
+    private static boolean isExplain(String sql) {
+        return sql.stripLeading().regionMatches(true, 0, "explain", 0, "explain".length());
+    }
+
+    /**
+     * Only the queries and the DML have a plan, EXPLAIN does not run them.
+     */
+    private static boolean isExplainable(String sql) {
+        String keyword = sql.stripLeading().split("\\s", 2)[0].toLowerCase(Locale.ROOT);
+        return switch (keyword) {
+            case "select", "with", "insert", "update", "delete", "merge" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Capture the plan of a SQL text, without its bind values.
+     */
+    private String explain(String sql, int parameterCount) {
+        if (this.dialect == null) {
+            this.databaseVersion = databaseVersion(this.jdbcTemplate.getDataSource());
+            this.dialect = SqlDialect.of(this.jdbcTemplate.getDataSource());
+        }
+        return switch (this.dialect) {
+            // H2 plans a statement whose parameters are all null like any other.
+            case H2 -> this.jdbcTemplate.query("EXPLAIN " + sql, SlowQueryLog::bindNulls, SlowQueryLog::joinRows);
+            // The generic plan does not depend on the bind values, the older servers can only plan complete statements.
+            case POSTGRESQL -> {
+                if (this.databaseVersion >= GENERIC_PLAN_VERSION) {
+                    yield this.jdbcTemplate.query("EXPLAIN (GENERIC_PLAN) " + numberPlaceholders(sql), SlowQueryLog::joinRows);
+                } else if (parameterCount == 0) {
+                    yield this.jdbcTemplate.query("EXPLAIN " + sql, SlowQueryLog::joinRows);
+                } else {
+                    yield "EXPLAIN of a statement with parameters needs PostgreSQL " + GENERIC_PLAN_VERSION + " or later";
+                }
+            }
+            case OTHER -> "EXPLAIN is not supported on this database";
+        };
+    }
+
+    private static int databaseVersion(DataSource dataSource) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseMajorVersion);
+        } catch (MetaDataAccessException e) {
+            // Only the complete statements are explained.
+            return 0;
+        }
+    }
+
+    /**
+     * Replace the string literals with {@value #REDACTED_LITERAL}, a doubled quote being part of its literal.
+     */
+    static @NonNull String redactLiterals(@NonNull String sql) {
+        if (sql.indexOf('\'') < 0) {
+            return sql;
+        }
+        StringBuilder redacted = new StringBuilder(sql.length());
+        boolean inLiteral = false;
+        for (int index = 0; index < sql.length(); index++) {
+            char c = sql.charAt(index);
+            if (c == '\'' && inLiteral && index + 1 < sql.length() && sql.charAt(index + 1) == '\'') {
+                // An escaped quote, still in the literal.
+                index++;
+            } else if (c == '\'') {
+                if (!inLiteral) {
+                    redacted.append(REDACTED_LITERAL);
+                }
+                inLiteral = !inLiteral;
+            } else if (!inLiteral) {
+                redacted.append(c);
+            }
+        }
+        return redacted.toString();
+    }
+
+    /**
+     * Replace the JDBC placeholders with the numbered ones of PostgreSQL, outside the string literals.
+     */
+    static @NonNull String numberPlaceholders(@NonNull String sql) {
+        StringBuilder numbered = new StringBuilder(sql.length() + 8);
+        boolean inLiteral = false;
+        int placeholder = 0;
+        for (int index = 0; index < sql.length(); index++) {
+            char c = sql.charAt(index);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            }
+            if (c == '?' && !inLiteral) {
+                numbered.append('$').append(++placeholder);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    private static void bindNulls(PreparedStatement statement) throws SQLException {
+        int parameters = statement.getParameterMetaData().getParameterCount();
+        for (int index = 1; index <= parameters; index++) {
+            statement.setObject(index, null);
+        }
+    }
+
+    private static String joinRows(ResultSet resultSet) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        while (resultSet.next()) {
+            if (!plan.isEmpty()) {
+                plan.append('\n');
+            }
+            plan.append(resultSet.getString(1));
+        }
+        return plan.toString();
+    }
+
+    /**
+     * A statement slower than the threshold.
+     *
+     * @param time           when it completed
+     * @param sql            the SQL text, with placeholders for the bind values and redacted string literals
+     * @param parameterTypes the types of the bound parameters, by index from 0
+     * @param durationMs     the execution time, in milliseconds
+     * @param caller         the first method of the application on the stack, such as a service or a repository
+     * @param plan           the plan of the SQL text, with redacted string literals, null until it is captured
+     */
+    public record SlowQuery(
+            @NonNull Instant time,
+            @NonNull String sql,
+            @NonNull List<String> parameterTypes,
+            double durationMs,
+            @Nullable String caller,
+            @Nullable String plan
+    ) {
+        SlowQuery withPlan(@Nullable String plan) {
+            return new SlowQuery(this.time, this.sql, this.parameterTypes, this.durationMs, this.caller, plan);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.library.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements of each request, records them in the {@code library.request.sql.*} metrics by URI pattern,
+ * and reports the SQL texts repeated more than {@code max-repeats} times in one request.
+ * <p>
+ * A repeated statement is logged, or fails the request when {@code fail-on-repeat} is set, in the tests only: the
+ * exception is thrown once the chain is done, when the response may already be committed. The counts
+ * may also be returned in the {@value #STATEMENT_COUNT_HEADER}, {@value #ROW_COUNT_HEADER} and {@value #TIME_HEADER}
+ * headers, which hold the statements executed until the body started being written.
+ */
+public class SqlStatementFilter extends OncePerRequestFilter {
+    /**
+     * The response header holding the number of statements executed.
+     */
+    public static final String STATEMENT_COUNT_HEADER = "X-SQL-Statement-Count";
+
+    /**
+     * The response header holding the number of rows read.
+     */
+    public static final String ROW_COUNT_HEADER = "X-SQL-Row-Count";
+
+    /**
+     * The response header holding the time spent executing the statements, in milliseconds.
+     */
+    public static final String TIME_HEADER = "X-SQL-Time";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxRepeats;
+    private final boolean headers;
+    private final boolean failOnRepeat;
+
+    /**
+     * The metrics of each URI pattern, registered on its first request.
+     */
+    private final Map<String, UriMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new SqlStatementFilter.
+     *
+     * @param meterRegistry the registry of the statement metrics
+     * @param maxRepeats    the number of executions of the same SQL text in a request above which it is reported
+     * @param headers       whether the counts are returned in response headers
+     * @param failOnRepeat  whether a repeated statement fails the request instead of being logged
+     */
+    public SqlStatementFilter(@NonNull MeterRegistry meterRegistry, int maxRepeats, boolean headers, boolean failOnRepeat) {
+        this.meterRegistry = meterRegistry;
+        this.maxRepeats = maxRepeats;
+        this.headers = headers;
+        this.failOnRepeat = failOnRepeat;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RequestSqlStatements statements = RequestSqlStatements.start(this.maxRepeats);
+        BeforeCommitResponseWrapper countedResponse = this.headers
+                ? new BeforeCommitResponseWrapper(response, () -> setHeaders(response, statements))
+                : null;
+        try {
+            filterChain.doFilter(request, countedResponse != null ? countedResponse : response);
+        } finally {
+            RequestSqlStatements.stop();
+            if (countedResponse != null) {
+                countedResponse.beforeCommit();
+            }
+            this.record(request, statements);
+        }
+
+        for (Map.Entry<String, Integer> repeated : statements.getRepeatedStatements().entrySet()) {
+            String message = "SQL statement executed " + repeated.getValue() + " times by " + request.getMethod() + " "
+                    + request.getRequestURI() + ", maybe an N+1 query: " + repeated.getKey();
+            if (this.failOnRepeat) {
+                throw new RepeatedStatementException(message);
+            }
+            this.logger.warn(message);
+        }
+    }
+
+    private static void setHeaders(HttpServletResponse response, RequestSqlStatements statements) {
+        response.setHeader(STATEMENT_COUNT_HEADER, String.valueOf(statements.getStatements()));
+        response.setHeader(ROW_COUNT_HEADER, String.valueOf(statements.getRows()));
+        response.setHeader(TIME_HEADER, String.valueOf(statements.getNanos() / 1000 / 1000.0));
+    }
+
+    private void record(HttpServletRequest request, RequestSqlStatements statements) {
+        // The URI pattern is only known once a handler is mapped, the other requests share one set of metrics.
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern instanceof String ? (String) pattern : "UNKNOWN";
+        UriMeters uriMeters = this.meters.computeIfAbsent(uri, this::registerMeters);
+        uriMeters.statements().record(statements.getStatements());
+        uriMeters.rows().record(statements.getRows());
+        uriMeters.time().record(statements.getNanos(), TimeUnit.NANOSECONDS);
+        if (!statements.getRepeatedStatements().isEmpty()) {
+            uriMeters.repeated().increment();
+        }
+    }
+
+    private UriMeters registerMeters(String uri) {
+        return new UriMeters(
+                DistributionSummary.builder("library.request.sql.statements")
+                        .description("SQL statements executed by a request")
+                        .baseUnit("statements")
+                        .tag("uri", uri)
+                        .register(this.meterRegistry),
+                DistributionSummary.builder("library.request.sql.rows")
+                        .description("Rows read by the SQL statements of a request")
+                        .baseUnit("rows")
+                        .tag("uri", uri)
+                        .register(this.meterRegistry),
+                Timer.builder("library.request.sql.time")
+                        .description("Time spent executing the SQL statements of a request")
+                        .tag("uri", uri)
+                        .register(this.meterRegistry),
+                Counter.builder("library.request.sql.repeated")
+                        .description("Requests that executed the same SQL statement more times than allowed")
+                        .tag("uri", uri)
+                        .register(this.meterRegistry)
+        );
+    }
+
+    private record UriMeters(DistributionSummary statements, DistributionSummary rows, Timer time, Counter repeated) {
+    }
+
+    /**
+     * Thrown when a request executes the same SQL statement more times than allowed and {@code fail-on-repeat} is set.
+     */
+    public static class RepeatedStatementException extends IllegalStateException {
+        public RepeatedStatementException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.library.repository;
+
+import com.example.library.entity.ApiKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the ApiKey entity.
+ */
+@Repository
+public interface ApiKeyRepository extends JpaRepository<ApiKey, Long> {
+	/**
+	 * Find the keys that are not revoked.
+	 *
+	 * @return the enabled keys
+	 */
+	List<ApiKey> findByEnabledTrue();
+}
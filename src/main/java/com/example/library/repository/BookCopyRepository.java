@@ -3,19 +3,26 @@ package com.example.library.repository;
 import com.example.library.dto.BookWithQuantityDTO;
 import com.example.library.entity.BookCopy;
 import jakarta.annotation.Nullable;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository for the BookCopy entity.
  */
 @Repository
-public interface BookCopyRepository extends JpaRepository<BookCopy, BookCopy.BookCopyId>, JpaSpecificationExecutor<BookCopy> {
+public interface BookCopyRepository extends JpaRepository<BookCopy, BookCopy.BookCopyId>, JpaSpecificationExecutor<BookCopy>, BookCopyRepositoryCustom {
 	/**
 	 * Find the quantity of a book at a location.
 	 *
@@ -25,8 +32,33 @@ public interface BookCopyRepository extends JpaRepository<BookCopy, BookCopy.Boo
 	 */
 	BookCopy getByLocationIdAndBookId(@Param("locationId") Long locationId, @Param("bookId") Long bookId);
 
+	/**
+	 * Find the quantity of a book at a location without loading the entity.
+	 *
+	 * @param locationId the id of the location
+	 * @param bookId     the id of the book
+	 * @return an optional with the quantity if the book is stocked at the location, empty otherwise
+	 */
+	@Query("SELECT bc.quantity FROM BookCopy bc WHERE bc.id.locationId = :locationId AND bc.id.bookId = :bookId")
+	Optional<Integer> findQuantity(@Param("locationId") Long locationId, @Param("bookId") Long bookId);
+
+	/**
+	 * Atomically change the quantity of a book at a location, unless the change would make it negative.
+	 * The guard is evaluated by the database on the locked row, so concurrent changes can't be lost.
+	 *
+	 * @param locationId     the id of the location
+	 * @param bookId         the id of the book
+	 * @param quantityChange the change in quantity (positive to add, negative to remove)
+	 * @return the number of updated rows, 0 if the book is not stocked at the location or the change was refused
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE BookCopy bc SET bc.quantity = bc.quantity + :quantityChange " +
+			"WHERE bc.id.locationId = :locationId AND bc.id.bookId = :bookId AND bc.quantity + :quantityChange >= 0")
+	int addQuantity(@Param("locationId") Long locationId, @Param("bookId") Long bookId, @Param("quantityChange") int quantityChange);
+
 	/**
 	 * Find the books with quantities at a location.
+	 * The page and its count are kept in the query cache until the books or book copies tables change.
 	 *
 	 * @param locationId the id of the location
 	 * @param pageable   the pageable object
@@ -34,5 +66,33 @@ public interface BookCopyRepository extends JpaRepository<BookCopy, BookCopy.Boo
 	 */
 	@Query("SELECT new com.example.library.dto.BookWithQuantityDTO(b.title, b.author, b.isbn, bc.quantity) " +
 			"FROM BookCopy bc JOIN bc.book b WHERE bc.id.locationId = :locationId")
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 	Page<BookWithQuantityDTO> findBooksWithQuantitiesByLocationId(@Param("locationId") Long locationId, Pageable pageable);
+
+	/**
+	 * Find the first books with quantities at a location, sorted by title and then by ISBN.
+	 * Returning a list instead of a page skips the count query.
+	 *
+	 * @param locationId the id of the location
+	 * @param pageable   the pageable object, only its size is used
+	 * @return the first books with quantities at the location
+	 */
+	@Query("SELECT new com.example.library.dto.BookWithQuantityDTO(b.title, b.author, b.isbn, bc.quantity) " +
+			"FROM BookCopy bc JOIN bc.book b WHERE bc.id.locationId = :locationId ORDER BY b.title, b.isbn")
+	List<BookWithQuantityDTO> findFirstBooksWithQuantitiesByLocationId(@Param("locationId") Long locationId, Pageable pageable);
+
+	/**
+	 * Find the books with quantities at a location sorted after the given position, by title and then by ISBN.
+	 * Returning a list instead of a page skips the count query.
+	 *
+	 * @param locationId the id of the location
+	 * @param title      the title of the last returned book
+	 * @param isbn       the ISBN of the last returned book
+	 * @param pageable   the pageable object, only its size is used
+	 * @return the books with quantities at the location after the given position
+	 */
+	@Query("SELECT new com.example.library.dto.BookWithQuantityDTO(b.title, b.author, b.isbn, bc.quantity) " +
+			"FROM BookCopy bc JOIN bc.book b WHERE bc.id.locationId = :locationId " +
+			"AND (b.title > :title OR (b.title = :title AND b.isbn > :isbn)) ORDER BY b.title, b.isbn")
+	List<BookWithQuantityDTO> findBooksWithQuantitiesByLocationIdAfter(@Param("locationId") Long locationId, @Param("title") String title, @Param("isbn") String isbn, Pageable pageable);
 }
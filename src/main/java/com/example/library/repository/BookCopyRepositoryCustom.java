@@ -0,0 +1,20 @@
+package com.example.library.repository;
+
+import org.springframework.lang.NonNull;
+
+/**
+ * Atomic quantity operations for the BookCopy entity that can't be expressed as derived or JPQL queries.
+ */
+public interface BookCopyRepositoryCustom {
+	/**
+	 * Insert the first stock of a book at a location, unless a row for the pair already exists.
+	 * The row is only inserted when both the book and the location exist, so a missing parent is reported through
+	 * the affected-row count instead of a foreign key violation that would abort the surrounding transaction.
+	 *
+	 * @param locationId the id of the location
+	 * @param bookId     the id of the book
+	 * @param quantity   the initial quantity
+	 * @return the number of inserted rows, 0 if the row already exists or the book or location is missing
+	 */
+	int insertQuantityIfAbsent(@NonNull Long locationId, @NonNull Long bookId, int quantity);
+}
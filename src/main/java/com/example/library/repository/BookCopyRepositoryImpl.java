@@ -0,0 +1,80 @@
+package com.example.library.repository;
+
+import com.example.library.entity.BookCopy;
+import com.example.library.lib.SqlDialect;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.lang.NonNull;
+
+import javax.sql.DataSource;
+
+/**
+ * Implementation of the {@link BookCopyRepositoryCustom} fragment.
+ */
+class BookCopyRepositoryImpl implements BookCopyRepositoryCustom {
+	/**
+	 * PostgreSQL resolves concurrent first inserts of the same pair with ON CONFLICT.
+	 */
+	private static final String POSTGRESQL_INSERT_IF_ABSENT =
+			"INSERT INTO book_copies (book_id, location_id, quantity) " +
+					"SELECT b.id, l.id, :quantity FROM books b CROSS JOIN locations l " +
+					"WHERE b.id = :bookId AND l.id = :locationId " +
+					"ON CONFLICT (book_id, location_id) DO NOTHING";
+
+	/**
+	 * H2 has no ON CONFLICT clause outside of its PostgreSQL compatibility mode, the standard MERGE is used instead.
+	 */
+	private static final String H2_INSERT_IF_ABSENT =
+			"MERGE INTO book_copies bc USING (" +
+					"SELECT b.id AS book_id, l.id AS location_id FROM books b CROSS JOIN locations l " +
+					"WHERE b.id = :bookId AND l.id = :locationId) src " +
+					"ON (bc.book_id = src.book_id AND bc.location_id = src.location_id) " +
+					"WHEN NOT MATCHED THEN INSERT (book_id, location_id, quantity) " +
+					"VALUES (src.book_id, src.location_id, :quantity)";
+
+	/**
+	 * Portable fallback for other databases.
+	 */
+	private static final String GENERIC_INSERT_IF_ABSENT =
+			"INSERT INTO book_copies (book_id, location_id, quantity) " +
+					"SELECT b.id, l.id, :quantity FROM books b CROSS JOIN locations l " +
+					"WHERE b.id = :bookId AND l.id = :locationId AND NOT EXISTS (" +
+					"SELECT 1 FROM book_copies bc WHERE bc.book_id = :bookId AND bc.location_id = :locationId)";
+
+	/**
+	 * The entity manager bound to the current transaction.
+	 */
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * The insert-if-absent statement for the database in use.
+	 */
+	private final String insertIfAbsentSql;
+
+	/**
+	 * Create a new BookCopyRepositoryImpl.
+	 *
+	 * @param dataSource the data source, used to resolve the database dialect
+	 */
+	public BookCopyRepositoryImpl(@NonNull DataSource dataSource) {
+		this.insertIfAbsentSql = switch (SqlDialect.of(dataSource)) {
+			case POSTGRESQL -> POSTGRESQL_INSERT_IF_ABSENT;
+			case H2 -> H2_INSERT_IF_ABSENT;
+			case OTHER -> GENERIC_INSERT_IF_ABSENT;
+		};
+	}
+
+	@Override
+	public int insertQuantityIfAbsent(@NonNull Long locationId, @NonNull Long bookId, int quantity) {
+		return this.entityManager.createNativeQuery(this.insertIfAbsentSql)
+				// Only invalidate the cached book copies, Hibernate can't tell which tables a native statement writes.
+				.unwrap(NativeQuery.class)
+				.addSynchronizedEntityClass(BookCopy.class)
+				.setParameter("locationId", locationId)
+				.setParameter("bookId", bookId)
+				.setParameter("quantity", quantity)
+				.executeUpdate();
+	}
+}
@@ -1,22 +1,68 @@
 package com.example.library.repository;
 
 import com.example.library.entity.Book;
+import com.example.library.search.SearchDocument;
+import com.example.library.search.WeightedText;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository for the Book entity.
  */
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>, BookRepositoryCustom {
 	/**
 	 * Find a book by its ISBN.
+	 * The result is kept in the query cache until the books table changes.
 	 *
 	 * @param isbn the ISBN of the book
 	 * @return an optional with the book if found, empty otherwise
 	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 	Optional<Book> findByIsbn(String isbn);
+
+	/**
+	 * Find the searchable fields of the books in a range of ids.
+	 *
+	 * @param fromId the first id of the range
+	 * @param toId   the last id of the range
+	 * @return the searchable fields of the books in the range
+	 */
+	@Query("SELECT new com.example.library.search.SearchDocument(b.id, b.title, b.author) FROM Book b WHERE b.id BETWEEN :fromId AND :toId")
+	List<SearchDocument> findSearchDocuments(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+	/**
+	 * Find the titles of the books in a range of ids, weighted by their number of copies in all the locations.
+	 *
+	 * @param fromId the first id of the range
+	 * @param toId   the last id of the range
+	 * @return the weighted titles of the books in the range
+	 */
+	@Query("SELECT new com.example.library.search.WeightedText(b.id, b.title, COALESCE(SUM(bc.quantity), 0L)) FROM Book b LEFT JOIN b.bookCopies bc WHERE b.id BETWEEN :fromId AND :toId GROUP BY b.id, b.title")
+	List<WeightedText> findWeightedTitles(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+	/**
+	 * Find the smallest id of the books.
+	 *
+	 * @return the smallest id, empty if there are no books
+	 */
+	@Query("SELECT MIN(b.id) FROM Book b")
+	Optional<Long> findMinId();
+
+	/**
+	 * Find the largest id of the books.
+	 *
+	 * @return the largest id, empty if there are no books
+	 */
+	@Query("SELECT MAX(b.id) FROM Book b")
+	Optional<Long> findMaxId();
 }
\ No newline at end of file
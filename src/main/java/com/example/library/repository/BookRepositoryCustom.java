@@ -0,0 +1,34 @@
+package com.example.library.repository;
+
+import com.example.library.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Custom queries for the Book entity, used to page without the count query of {@code findAll(Specification, Pageable)}.
+ */
+public interface BookRepositoryCustom {
+	/**
+	 * Find the books of a page, without counting them.
+	 *
+	 * @param specification the specification to filter the books
+	 * @param pageable      the pagination information
+	 * @return the books of the page
+	 */
+	@NonNull
+	List<Book> findPageContent(@Nullable Specification<Book> specification, @NonNull Pageable pageable);
+
+	/**
+	 * Count the books matching a specification, stopping at the given limit.
+	 * The database reads at most {@code limit} rows instead of all the matching ones, and only returns their count.
+	 *
+	 * @param specification the specification to filter the books
+	 * @param limit         the maximum count
+	 * @return the number of matching books, at most {@code limit}
+	 */
+	long countUpTo(@Nullable Specification<Book> specification, int limit);
+}
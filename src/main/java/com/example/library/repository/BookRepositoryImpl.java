@@ -0,0 +1,78 @@
+package com.example.library.repository;
+
+import com.example.library.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaCriteriaQuery;
+import org.hibernate.query.criteria.JpaDerivedRoot;
+import org.hibernate.query.criteria.JpaSubQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Implementation of the {@link BookRepositoryCustom} fragment.
+ */
+class BookRepositoryImpl implements BookRepositoryCustom {
+	/**
+	 * The entity manager bound to the current transaction.
+	 */
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public @NonNull List<Book> findPageContent(@Nullable Specification<Book> specification, @NonNull Pageable pageable) {
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<Book> query = cb.createQuery(Book.class);
+		Root<Book> root = query.from(Book.class);
+		this.applySpecification(specification, root, query, cb);
+		query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+		TypedQuery<Book> typedQuery = this.entityManager.createQuery(query);
+		if (pageable.isPaged()) {
+			typedQuery.setFirstResult(Math.toIntExact(pageable.getOffset()));
+			typedQuery.setMaxResults(pageable.getPageSize());
+		}
+		return typedQuery.getResultList();
+	}
+
+	@Override
+	public long countUpTo(@Nullable Specification<Book> specification, int limit) {
+		// select count(*) from (select b.id from Book b where ... limit :limit): the scan stops after the limit is
+		// reached, and only the count leaves the database.
+		HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) this.entityManager.getCriteriaBuilder();
+		JpaCriteriaQuery<Long> query = cb.createQuery(Long.class);
+		JpaSubQuery<Tuple> ids = query.subquery(Tuple.class);
+		Root<Book> root = ids.from(Book.class);
+		ids.multiselect(root.get("id").alias("id"));
+		Predicate predicate = specification == null ? null : specification.toPredicate(root, query, cb);
+		if (predicate != null) {
+			ids.where(predicate);
+		}
+		ids.fetch(limit);
+		JpaDerivedRoot<Tuple> matches = query.from(ids);
+		query.select(cb.count(matches.get("id")));
+		return this.entityManager.createQuery(query).getSingleResult();
+	}
+
+	private void applySpecification(@Nullable Specification<Book> specification, Root<Book> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+		if (specification == null) {
+			return;
+		}
+		Predicate predicate = specification.toPredicate(root, query, cb);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+	}
+}
@@ -1,13 +1,27 @@
 package com.example.library.repository;
 
 import com.example.library.entity.Location;
+import com.example.library.search.WeightedText;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Repository for the Book entity.
  */
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long>, JpaSpecificationExecutor<Location> {
+	/**
+	 * Find the names of the locations in a range of ids, weighted by the number of book copies they hold.
+	 *
+	 * @param fromId the first id of the range
+	 * @param toId   the last id of the range
+	 * @return the weighted names of the locations in the range
+	 */
+	@Query("SELECT new com.example.library.search.WeightedText(l.id, l.name, COALESCE(SUM(bc.quantity), 0L)) FROM Location l LEFT JOIN l.bookCopies bc WHERE l.id BETWEEN :fromId AND :toId GROUP BY l.id, l.name")
+	List<WeightedText> findWeightedNames(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
\ No newline at end of file
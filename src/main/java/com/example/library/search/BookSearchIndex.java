@@ -0,0 +1,254 @@
+package com.example.library.search;
+
+import com.example.library.event.BookChangedEvent;
+import com.example.library.event.BooksImportedEvent;
+import com.example.library.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text search over the title and author of the books.
+ * <p>
+ * The index is built after startup from the database, in parallel chunks of ids, and kept current with the
+ * {@link BookChangedEvent}s committed afterwards. Until it is built, searches return empty and callers fall back to
+ * the database.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.search.index", name = "enabled", havingValue = "true")
+public class BookSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    /**
+     * Deleted documents are compacted away once there are this many, and at least a quarter of the live ones.
+     */
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+    private final BookRepository bookRepository;
+
+    /**
+     * The number of ids loaded and indexed by each build task.
+     */
+    private final int buildChunkSize;
+
+    /**
+     * The number of threads building the index.
+     */
+    private final int buildThreads;
+
+    /**
+     * Guards the index: searches share it, updates are exclusive.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Serializes the updates, so a book is reloaded and reindexed in the order its changes committed.
+     */
+    private final Object updateMonitor = new Object();
+
+    /**
+     * The books changed while the index was being built, guarded by the update monitor.
+     */
+    private final Set<Long> pendingChanges = new HashSet<>();
+
+    /**
+     * The index, null until built. Assigned under the update monitor.
+     */
+    private volatile InvertedIndex index;
+
+    /**
+     * Create a new BookSearchIndex.
+     *
+     * @param bookRepository the BookRepository instance
+     * @param buildChunkSize the number of ids loaded and indexed by each build task
+     * @param buildThreads   the number of threads building the index, 0 for one per processor
+     */
+    public BookSearchIndex(
+            BookRepository bookRepository,
+            @Value("${app.search.index.build-chunk-size:50000}") int buildChunkSize,
+            @Value("${app.search.index.build-threads:0}") int buildThreads
+    ) {
+        this.bookRepository = bookRepository;
+        this.buildChunkSize = buildChunkSize;
+        this.buildThreads = buildThreads > 0 ? buildThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Build the index in the background once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBuild() {
+        Thread thread = new Thread(this::build, "book-search-index-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Whether the index is built and answers searches.
+     *
+     * @return true if the index is ready
+     */
+    public boolean isReady() {
+        return this.index != null;
+    }
+
+    /**
+     * Find the books whose title or author contain all the terms of a query, best match first.
+     *
+     * @param query    the query
+     * @param pageable the page of results to return, its sort is ignored
+     * @return the ids of the books of the page and the number of matches, empty if the index is not built yet
+     */
+    public @NonNull Optional<SearchHits> search(@NonNull String query, @NonNull Pageable pageable) {
+        InvertedIndex current = this.index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        List<String> terms = Tokenizer.tokenize(query);
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        this.lock.readLock().lock();
+        try {
+            return Optional.of(current.search(terms, offset, limit));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reindex a book once its change is committed.
+     *
+     * @param event the book change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(@NonNull BookChangedEvent event) {
+        synchronized (this.updateMonitor) {
+            if (this.index == null) {
+                // The build may have read the book before the change, replay it once the build is done.
+                this.pendingChanges.add(event.bookId());
+                return;
+            }
+            this.reindex(event.bookId());
+        }
+    }
+
+    /**
+     * Index a chunk of imported books once it is committed, loading them with one query.
+     *
+     * @param event the imported books
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(@NonNull BooksImportedEvent event) {
+        synchronized (this.updateMonitor) {
+            if (this.index == null) {
+                this.pendingChanges.addAll(event.bookIds());
+                return;
+            }
+            Set<Long> bookIds = new HashSet<>(event.bookIds());
+            List<SearchDocument> documents = this.bookRepository.findSearchDocuments(event.firstId(), event.lastId()).stream()
+                    .filter(document -> bookIds.contains(document.id()))
+                    .toList();
+            this.lock.writeLock().lock();
+            try {
+                bookIds.forEach(this.index::remove);
+                documents.forEach(this.index::add);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Build the index from the database and publish it.
+     */
+    void build() {
+        long start = System.nanoTime();
+        InvertedIndex built;
+        try {
+            built = this.loadIndex();
+        } catch (Exception e) {
+            // Searches keep falling back to the database.
+            logger.error("Failed to build the book search index", e);
+            return;
+        }
+        synchronized (this.updateMonitor) {
+            this.index = built;
+            // Replay the changes committed during the build.
+            this.pendingChanges.forEach(this::reindex);
+            this.pendingChanges.clear();
+        }
+        logger.info("Built the book search index in {} ms: {} books, {} terms, {} bytes of postings",
+                (System.nanoTime() - start) / 1_000_000, built.documentCount(), built.termCount(), built.postingsSizeInBytes());
+    }
+
+    /**
+     * Load all the books, indexing the chunks of ids in parallel and appending them in id order.
+     */
+    private InvertedIndex loadIndex() throws Exception {
+        InvertedIndex built = new InvertedIndex(Math.toIntExact(this.bookRepository.count()));
+        Optional<Long> minId = this.bookRepository.findMinId();
+        Optional<Long> maxId = this.bookRepository.findMaxId();
+        if (minId.isEmpty() || maxId.isEmpty()) {
+            return built;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(this.buildThreads);
+        try {
+            List<Future<InvertedIndex>> segments = new ArrayList<>();
+            for (long from = minId.get(); from <= maxId.get(); from += this.buildChunkSize) {
+                long to = Math.min(maxId.get(), from + this.buildChunkSize - 1);
+                long chunkStart = from;
+                segments.add(executor.submit(() -> this.loadSegment(chunkStart, to)));
+            }
+            for (Future<InvertedIndex> segment : segments) {
+                built.addAll(segment.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        built.trim();
+        return built;
+    }
+
+    private InvertedIndex loadSegment(long fromId, long toId) {
+        List<SearchDocument> documents = this.bookRepository.findSearchDocuments(fromId, toId);
+        InvertedIndex segment = new InvertedIndex(documents.size());
+        documents.forEach(segment::add);
+        return segment;
+    }
+
+    /**
+     * Replace the indexed version of a book with the committed one. Called under the update monitor.
+     */
+    private void reindex(Long bookId) {
+        // Load the book before locking, so searches are only blocked by the in-memory update.
+        List<SearchDocument> documents = this.bookRepository.findSearchDocuments(bookId, bookId);
+        this.lock.writeLock().lock();
+        try {
+            this.index.remove(bookId);
+            documents.forEach(this.index::add);
+            if (this.index.deletedCount() >= Math.max(MIN_DELETED_TO_COMPACT, this.index.documentCount() / 4)) {
+                this.index.compact();
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+}
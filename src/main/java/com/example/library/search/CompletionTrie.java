@@ -0,0 +1,350 @@
+package com.example.library.search;
+
+import org.springframework.lang.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A compressed trie of texts, answering prefix completions with the heaviest texts first.
+ * <p>
+ * Each edge holds a whole run of characters, so there are at most two nodes per text. A node whose subtree has more
+ * than k texts stores its top-k completions, so a completion is a walk down the prefix and a copy of at most k
+ * entries. Smaller subtrees are collected on demand instead, which keeps most of the nodes free of a top-k array.
+ * Adding or removing a text only recomputes the nodes on its path.
+ * <p>
+ * The trie is not thread-safe.
+ */
+final class CompletionTrie {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    /**
+     * Heaviest first, then alphabetically, then by id so the order is total.
+     */
+    private static final Comparator<Entry> BY_WEIGHT = Comparator.comparingLong(Entry::weight).reversed()
+            .thenComparing(Entry::text)
+            .thenComparingLong(Entry::id);
+
+    private final int k;
+    private final Node root = new Node("");
+    private final Map<Long, Entry> entriesById = new HashMap<>();
+
+    /**
+     * Create a new empty trie.
+     *
+     * @param k the maximum number of completions returned for a prefix
+     */
+    CompletionTrie(int k) {
+        this.k = k;
+    }
+
+    /**
+     * Add a text, replacing the previous text with the same id.
+     *
+     * @param id     the id of the text
+     * @param text   the text
+     * @param weight the weight of the text, heavier texts are completed first
+     */
+    void put(long id, @NonNull String text, long weight) {
+        this.remove(id);
+        this.update(this.insert(new Entry(id, text, weight)));
+    }
+
+    /**
+     * Add many texts at once, computing the top-k of each node only once at the end.
+     * The ids must not be in the trie already.
+     *
+     * @param entries the texts to add
+     */
+    void putAll(@NonNull Iterable<Entry> entries) {
+        for (Entry entry : entries) {
+            this.insert(entry);
+        }
+        this.updateAll(this.root);
+    }
+
+    /**
+     * Insert an entry without updating the top-k.
+     *
+     * @return the path of the nodes to update, from the root
+     */
+    private List<Node> insert(Entry entry) {
+        this.entriesById.put(entry.id, entry);
+
+        String key = normalize(entry.text);
+        List<Node> path = new ArrayList<>();
+        Node node = this.root;
+        path.add(node);
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                // No edge starts with the next character: add a leaf with the rest of the key.
+                Node leaf = new Node(key.substring(position));
+                node.insertChild(-index - 1, leaf);
+                node = leaf;
+                path.add(node);
+                position = key.length();
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.label, key, position);
+            if (common < child.label.length()) {
+                // The key leaves the edge midway: split it.
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                middle.size = child.size;
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            position += common;
+        }
+        node.entries = append(node.entries, entry);
+        return path;
+    }
+
+    /**
+     * Remove a text.
+     *
+     * @param id the id of the text
+     * @return true if the text was in the trie
+     */
+    boolean remove(long id) {
+        Entry entry = this.entriesById.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        String key = normalize(entry.text);
+        List<Node> path = new ArrayList<>();
+        Node node = this.root;
+        path.add(node);
+        int position = 0;
+        while (position < key.length()) {
+            node = node.children[node.childIndex(key.charAt(position))];
+            path.add(node);
+            position += node.label.length();
+        }
+        node.entries = Arrays.stream(node.entries).filter(e -> e.id != id).toArray(Entry[]::new);
+
+        // Keep the trie compressed: drop empty leaves and merge pass-through nodes into their only child.
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            Node parent = path.get(i - 1);
+            if (current.entries.length == 0 && current.children.length == 0) {
+                parent.removeChild(current);
+                path.remove(i);
+            } else if (current.entries.length == 0 && current.children.length == 1) {
+                Node only = current.children[0];
+                only.label = current.label + only.label;
+                parent.children[parent.childIndex(only.label.charAt(0))] = only;
+                path.remove(i);
+            } else {
+                break;
+            }
+        }
+        this.update(path);
+        return true;
+    }
+
+    /**
+     * Complete a prefix.
+     *
+     * @param prefix the prefix, compared ignoring case
+     * @param limit  the maximum number of completions, at most k
+     * @return the ids and texts starting with the prefix, heaviest first
+     */
+    @NonNull
+    List<Entry> complete(@NonNull String prefix, int limit) {
+        String key = normalize(prefix);
+        Node node = this.root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                return List.of();
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.label, key, position);
+            // The prefix must either cover the whole edge or end inside it.
+            if (common < child.label.length() && position + common < key.length()) {
+                return List.of();
+            }
+            node = child;
+            position += common;
+        }
+        List<Entry> top = Arrays.asList(this.top(node));
+        return top.size() > limit ? top.subList(0, limit) : top;
+    }
+
+    /**
+     * Get the number of texts.
+     *
+     * @return the number of texts
+     */
+    int size() {
+        return this.entriesById.size();
+    }
+
+    /**
+     * Recompute the sizes and top-k of the nodes of a path, from the deepest one up.
+     */
+    private void update(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            int size = node.entries.length;
+            for (Node child : node.children) {
+                size += child.size;
+            }
+            node.size = size;
+            node.top = size > this.k ? this.merge(node) : null;
+        }
+    }
+
+    /**
+     * Recompute the sizes and top-k of all the nodes of a subtree, children first.
+     */
+    private void updateAll(Node node) {
+        int size = node.entries.length;
+        for (Node child : node.children) {
+            this.updateAll(child);
+            size += child.size;
+        }
+        node.size = size;
+        node.top = size > this.k ? this.merge(node) : null;
+    }
+
+    /**
+     * Get the top-k entries of a subtree, stored or collected.
+     */
+    private Entry[] top(Node node) {
+        if (node.top != null) {
+            return node.top;
+        }
+        List<Entry> entries = new ArrayList<>(node.size);
+        collect(node, entries);
+        entries.sort(BY_WEIGHT);
+        return entries.toArray(Entry[]::new);
+    }
+
+    /**
+     * Merge the entries of a node with the top-k of its children.
+     */
+    private Entry[] merge(Node node) {
+        List<Entry> candidates = new ArrayList<>(Arrays.asList(node.entries));
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(this.top(child)));
+        }
+        candidates.sort(BY_WEIGHT);
+        return candidates.subList(0, Math.min(this.k, candidates.size())).toArray(Entry[]::new);
+    }
+
+    private static void collect(Node node, List<Entry> entries) {
+        entries.addAll(Arrays.asList(node.entries));
+        for (Node child : node.children) {
+            collect(child, entries);
+        }
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Entry[] append(Entry[] entries, Entry entry) {
+        Entry[] appended = Arrays.copyOf(entries, entries.length + 1);
+        appended[entries.length] = entry;
+        return appended;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A text of the trie.
+     *
+     * @param id     the id of the text
+     * @param text   the text, as given
+     * @param weight the weight of the text
+     */
+    record Entry(long id, @NonNull String text, long weight) {
+    }
+
+    private static final class Node {
+        /**
+         * The characters of the edge from the parent.
+         */
+        private String label;
+
+        /**
+         * The children, sorted by the first character of their label.
+         */
+        private Node[] children = NO_CHILDREN;
+
+        /**
+         * The texts ending at this node, several texts can be equal.
+         */
+        private Entry[] entries = NO_ENTRIES;
+
+        /**
+         * The top-k entries of the subtree, null if the subtree has at most k entries.
+         */
+        private Entry[] top;
+
+        /**
+         * The number of entries in the subtree.
+         */
+        private int size;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Find the child whose label starts with a character.
+         *
+         * @return the index of the child, or (-insertion point - 1) if there is none
+         */
+        private int childIndex(char first) {
+            int low = 0;
+            int high = this.children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = this.children[middle].label.charAt(0);
+                if (label < first) {
+                    low = middle + 1;
+                } else if (label > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void insertChild(int index, Node child) {
+            Node[] inserted = new Node[this.children.length + 1];
+            System.arraycopy(this.children, 0, inserted, 0, index);
+            inserted[index] = child;
+            System.arraycopy(this.children, index, inserted, index + 1, this.children.length - index);
+            this.children = inserted;
+        }
+
+        private void removeChild(Node child) {
+            this.children = Arrays.stream(this.children).filter(c -> c != child).toArray(Node[]::new);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.library.search;
+
+import com.example.library.entity.Book;
+import com.example.library.event.BookChangedEvent;
+import com.example.library.event.BooksImportedEvent;
+import com.example.library.lib.SpecificationComposer;
+import com.example.library.repository.BookRepository;
+import com.example.library.specification.BookFilter;
+import com.example.library.specification.BookSpecification;
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Typo-tolerant lookup of the terms of the book titles and authors.
+ * <p>
+ * Each word of a fuzzy filter is expanded to the known terms within a small edit distance and, for authors, to the
+ * terms that sound the same (Double Metaphone). The expanded terms then feed a regular specification, so the books
+ * are still found by the database and its indexes. The terms have no diacritics but the columns do, so each term is
+ * looked for with the spellings it was indexed from too.
+ * <p>
+ * Terms are only ever added: a term whose last book is gone expands to a query that matches nothing.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.search.fuzzy", name = "enabled", havingValue = "true")
+public class FuzzyTermIndex {
+    private static final Logger logger = LoggerFactory.getLogger(FuzzyTermIndex.class);
+
+    /**
+     * The number of ids loaded at once while building the index.
+     */
+    private static final int BUILD_CHUNK_SIZE = 50_000;
+
+    private final BookRepository bookRepository;
+
+    /**
+     * The maximum number of terms a word of the filter expands to.
+     */
+    private final int maxCandidates;
+
+    private final DoubleMetaphone doubleMetaphone = new DoubleMetaphone();
+
+    /**
+     * Guards the terms: lookups share them, additions are exclusive.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The distinct terms of the titles and authors.
+     */
+    private final TermTrie terms = new TermTrie();
+
+    /**
+     * The distinct terms of the authors, by Double Metaphone code.
+     */
+    private final Map<String, Set<String>> authorTermsByCode = new HashMap<>();
+
+    /**
+     * The lower case spellings of the terms written with diacritics, by term.
+     */
+    private final Map<String, Set<String>> spellingsByTerm = new HashMap<>();
+
+    /**
+     * Whether all the books are indexed.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Create a new FuzzyTermIndex.
+     *
+     * @param bookRepository the BookRepository instance
+     * @param maxCandidates  the maximum number of terms a word of the filter expands to
+     */
+    public FuzzyTermIndex(BookRepository bookRepository, @Value("${app.search.fuzzy.max-candidates:32}") int maxCandidates) {
+        this.bookRepository = bookRepository;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Build the index in the background once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBuild() {
+        Thread thread = new Thread(this::build, "fuzzy-term-index-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Create a specification matching the books of a filter, tolerating typos in its words.
+     *
+     * @param bookFilter the filter
+     * @return the specification, empty if the index is not built yet or the filter matches all books
+     */
+    public @NonNull Optional<Specification<Book>> toSpecification(@NonNull BookFilter bookFilter) {
+        if (!this.ready) {
+            return Optional.empty();
+        }
+        this.lock.readLock().lock();
+        try {
+            return Optional.ofNullable(SpecificationComposer.and(
+                    this.expand(bookFilter.title(), false, BookSpecification::titleLike, BookSpecification::titleLikeAny),
+                    this.expand(bookFilter.author(), true, BookSpecification::authorLike, BookSpecification::authorLikeAny)
+            ));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the known terms close to a word: itself, the terms within its edit distance, and the terms that sound the
+     * same if phonetic matching is enabled.
+     *
+     * @param word     the word, as returned by the {@link Tokenizer}
+     * @param phonetic whether to add the terms that sound the same
+     * @return the candidate terms, best first
+     */
+    @NonNull
+    Set<String> candidates(@NonNull String word, boolean phonetic) {
+        Set<String> candidates = new LinkedHashSet<>();
+        candidates.add(word);
+        for (TermTrie.Match match : this.terms.search(word, maxDistance(word), this.maxCandidates)) {
+            candidates.add(match.term());
+        }
+        if (phonetic) {
+            // Sorted, so the truncation to the maximum is deterministic.
+            Set<String> soundAlike = new TreeSet<>();
+            for (String code : this.codes(word)) {
+                soundAlike.addAll(this.authorTermsByCode.getOrDefault(code, Set.of()));
+            }
+            candidates.addAll(soundAlike);
+        }
+        return candidates.stream().limit(this.maxCandidates).collect(LinkedHashSet::new, Set::add, Set::addAll);
+    }
+
+    /**
+     * Get the lower case spellings to look for in the database for a word of a filter: the word as typed and, for
+     * each candidate term of the word, the term and the spellings it was indexed from.
+     *
+     * @param word     the word, as returned by {@link Tokenizer#words(String)}
+     * @param phonetic whether to add the terms that sound the same
+     * @return the spellings, best first
+     */
+    @NonNull
+    Set<String> spellings(@NonNull String word, boolean phonetic) {
+        Set<String> spellings = new LinkedHashSet<>();
+        spellings.add(word);
+        for (String term : Tokenizer.tokenize(word)) {
+            for (String candidate : this.candidates(term, phonetic)) {
+                spellings.add(candidate);
+                spellings.addAll(this.spellingsByTerm.getOrDefault(candidate, Set.of()));
+            }
+        }
+        return spellings;
+    }
+
+    /**
+     * Index the new terms of a book once its change is committed.
+     *
+     * @param event the book change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(@NonNull BookChangedEvent event) {
+        this.addAll(this.bookRepository.findSearchDocuments(event.bookId(), event.bookId()));
+    }
+
+    /**
+     * Index the terms of a chunk of imported books once it is committed, with one query. The other books of the id
+     * range are indexed again, which adds no term.
+     *
+     * @param event the imported books
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(@NonNull BooksImportedEvent event) {
+        this.addAll(this.bookRepository.findSearchDocuments(event.firstId(), event.lastId()));
+    }
+
+    /**
+     * Load the terms of all the books, then start answering lookups.
+     */
+    void build() {
+        long start = System.nanoTime();
+        try {
+            Optional<Long> minId = this.bookRepository.findMinId();
+            Optional<Long> maxId = this.bookRepository.findMaxId();
+            if (minId.isPresent() && maxId.isPresent()) {
+                for (long from = minId.get(); from <= maxId.get(); from += BUILD_CHUNK_SIZE) {
+                    this.addAll(this.bookRepository.findSearchDocuments(from, Math.min(maxId.get(), from + BUILD_CHUNK_SIZE - 1)));
+                }
+            }
+        } catch (Exception e) {
+            // Fuzzy filters keep falling back to exact matching.
+            logger.error("Failed to build the fuzzy term index", e);
+            return;
+        }
+        this.ready = true;
+        logger.info("Built the fuzzy term index in {} ms: {} terms, {} phonetic codes",
+                (System.nanoTime() - start) / 1_000_000, this.terms.termCount(), this.authorTermsByCode.size());
+    }
+
+    private void addAll(@NonNull List<SearchDocument> documents) {
+        this.lock.writeLock().lock();
+        try {
+            for (SearchDocument document : documents) {
+                this.addWords(document.title(), false);
+                this.addWords(document.author(), true);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index the terms of a text, with their spellings. Called under the write lock.
+     */
+    private void addWords(String text, boolean phonetic) {
+        for (String word : Tokenizer.words(text)) {
+            for (String term : Tokenizer.tokenize(word)) {
+                this.terms.add(term);
+                if (!term.equals(word)) {
+                    this.spellingsByTerm.computeIfAbsent(term, key -> new LinkedHashSet<>()).add(word);
+                }
+                if (phonetic) {
+                    for (String code : this.codes(term)) {
+                        this.authorTermsByCode.computeIfAbsent(code, key -> new LinkedHashSet<>()).add(term);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Expand each word of a filter field to the spellings of its candidate terms, all the words must match.
+     */
+    private @Nullable Specification<Book> expand(
+            @Nullable String text,
+            boolean phonetic,
+            Function<String, BookSpecification> exact,
+            Function<Collection<String>, BookSpecification> anyOf
+    ) {
+        if (text == null) {
+            return null;
+        }
+        List<String> words = Tokenizer.words(text);
+        if (words.isEmpty()) {
+            // Nothing to correct, e.g. only punctuation.
+            return exact.apply(text);
+        }
+        Specification<Book> specification = null;
+        for (String word : words) {
+            specification = SpecificationComposer.and(specification, anyOf.apply(this.spellings(word, phonetic)));
+        }
+        return specification;
+    }
+
+    /**
+     * Get the primary and alternate Double Metaphone codes of a term.
+     */
+    private Set<String> codes(String term) {
+        Set<String> codes = new LinkedHashSet<>();
+        // Codes of very short terms match too many unrelated names.
+        if (term.length() < 3 || !Character.isLetter(term.charAt(0))) {
+            return codes;
+        }
+        String primary = this.doubleMetaphone.doubleMetaphone(term);
+        String alternate = this.doubleMetaphone.doubleMetaphone(term, true);
+        if (primary != null && !primary.isEmpty()) {
+            codes.add(primary);
+        }
+        if (alternate != null && !alternate.isEmpty()) {
+            codes.add(alternate);
+        }
+        return codes;
+    }
+
+    /**
+     * The number of typos tolerated in a word: none in very short words, where any edit changes the meaning.
+     */
+    private static int maxDistance(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        } else if (word.length() <= 5) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+}
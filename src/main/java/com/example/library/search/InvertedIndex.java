@@ -0,0 +1,325 @@
+package com.example.library.search;
+
+import org.springframework.lang.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * An append-only inverted index over the terms of the books, ranked with BM25.
+ * <p>
+ * Each indexed version of a book gets a new ordinal, so the posting lists are only ever appended to: an update
+ * deletes the old ordinal and adds a new one. Deleted ordinals are skipped by the searches until {@link #compact()}
+ * drops them from the posting lists and renumbers the live documents.
+ * <p>
+ * The index is not thread-safe, {@link BookSearchIndex} guards it with a read-write lock.
+ */
+final class InvertedIndex {
+    /**
+     * BM25 term frequency saturation.
+     */
+    private static final double K1 = 1.2;
+
+    /**
+     * BM25 document length normalization.
+     */
+    private static final double B = 0.75;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final LongIntMap ordinalsByBookId;
+    private final BitSet deleted = new BitSet();
+    private long[] bookIds;
+    private int[] lengths;
+    private int size;
+    private int deletedCount;
+    private long liveLength;
+
+    /**
+     * Create a new empty index.
+     *
+     * @param expectedSize the expected number of documents
+     */
+    InvertedIndex(int expectedSize) {
+        this.ordinalsByBookId = new LongIntMap(expectedSize);
+        this.bookIds = new long[Math.max(16, expectedSize)];
+        this.lengths = new int[this.bookIds.length];
+    }
+
+    /**
+     * Index a document. The book must not be in the index already.
+     *
+     * @param document the document to index
+     */
+    void add(@NonNull SearchDocument document) {
+        List<String> terms = document.terms();
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+
+        int ordinal = this.size;
+        this.ensureCapacity(ordinal + 1);
+        this.bookIds[ordinal] = document.id();
+        this.lengths[ordinal] = terms.size();
+        this.size++;
+        for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+            this.postings.computeIfAbsent(frequency.getKey(), term -> new PostingList()).add(ordinal, frequency.getValue());
+        }
+        this.ordinalsByBookId.put(document.id(), ordinal);
+        this.liveLength += terms.size();
+    }
+
+    /**
+     * Append all the documents of another index, built separately.
+     * The books of the other index must not be in this index, and the other index must have no deletions.
+     *
+     * @param segment the index to append
+     */
+    void addAll(@NonNull InvertedIndex segment) {
+        if (segment.deletedCount > 0) {
+            throw new IllegalArgumentException("Cannot append an index with deletions");
+        }
+        int base = this.size;
+        this.ensureCapacity(base + segment.size);
+        System.arraycopy(segment.bookIds, 0, this.bookIds, base, segment.size);
+        System.arraycopy(segment.lengths, 0, this.lengths, base, segment.size);
+        this.size += segment.size;
+        for (Map.Entry<String, PostingList> posting : segment.postings.entrySet()) {
+            this.postings.computeIfAbsent(posting.getKey(), term -> new PostingList()).addAll(posting.getValue(), base);
+        }
+        for (int ordinal = 0; ordinal < segment.size; ordinal++) {
+            this.ordinalsByBookId.put(segment.bookIds[ordinal], base + ordinal);
+        }
+        this.liveLength += segment.liveLength;
+    }
+
+    /**
+     * Remove a book from the index.
+     *
+     * @param bookId the id of the book
+     * @return true if the book was in the index
+     */
+    boolean remove(long bookId) {
+        int ordinal = this.ordinalsByBookId.remove(bookId);
+        if (ordinal < 0) {
+            return false;
+        }
+        this.deleted.set(ordinal);
+        this.deletedCount++;
+        this.liveLength -= this.lengths[ordinal];
+        return true;
+    }
+
+    /**
+     * Rewrite the posting lists without the deleted documents, renumbering the live ones.
+     * The live documents keep their relative order, so equal scores still rank by indexing order.
+     */
+    void compact() {
+        // Map each live ordinal to its position among the live documents.
+        int live = this.size - this.deletedCount;
+        int[] newOrdinals = new int[this.size];
+        long[] liveBookIds = new long[Math.max(16, live)];
+        int[] liveLengths = new int[liveBookIds.length];
+        int next = 0;
+        for (int ordinal = 0; ordinal < this.size; ordinal++) {
+            if (this.deleted.get(ordinal)) {
+                newOrdinals[ordinal] = -1;
+            } else {
+                newOrdinals[ordinal] = next;
+                liveBookIds[next] = this.bookIds[ordinal];
+                liveLengths[next] = this.lengths[ordinal];
+                next++;
+            }
+        }
+
+        Iterator<Map.Entry<String, PostingList>> iterator = this.postings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, PostingList> entry = iterator.next();
+            PostingList compacted = new PostingList();
+            PostingList.Cursor cursor = entry.getValue().cursor();
+            for (int ordinal = cursor.next(); ordinal != -1; ordinal = cursor.next()) {
+                if (newOrdinals[ordinal] != -1) {
+                    compacted.add(newOrdinals[ordinal], cursor.frequency());
+                }
+            }
+            if (compacted.documentCount() == 0) {
+                iterator.remove();
+            } else {
+                compacted.trim();
+                entry.setValue(compacted);
+            }
+        }
+        for (int ordinal = 0; ordinal < live; ordinal++) {
+            this.ordinalsByBookId.put(liveBookIds[ordinal], ordinal);
+        }
+
+        this.bookIds = liveBookIds;
+        this.lengths = liveLengths;
+        this.size = live;
+        this.deleted.clear();
+        this.deletedCount = 0;
+    }
+
+    /**
+     * Release the unused capacity of the posting lists, once the bulk of the documents is indexed.
+     */
+    void trim() {
+        this.postings.values().forEach(PostingList::trim);
+    }
+
+    /**
+     * Find the books containing all the terms, ranked by BM25 score.
+     *
+     * @param terms  the terms to search for
+     * @param offset the number of top books to skip
+     * @param limit  the maximum number of books to return
+     * @return the ids of the books of the requested page and the total number of matching books
+     */
+    @NonNull
+    SearchHits search(@NonNull List<String> terms, long offset, int limit) {
+        // Collect the posting lists, from the rarest term to the most common one.
+        List<PostingList> lists = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(terms)) {
+            PostingList list = this.postings.get(term);
+            if (list == null) {
+                return SearchHits.EMPTY;
+            }
+            lists.add(list);
+        }
+        if (lists.isEmpty()) {
+            return SearchHits.EMPTY;
+        }
+        lists.sort(Comparator.comparingInt(PostingList::documentCount));
+
+        int documentCount = this.documentCount();
+        double averageLength = documentCount == 0 ? 1 : (double) this.liveLength / documentCount;
+
+        // The rarest term gives the candidates.
+        PostingList rarest = lists.get(0);
+        int[] ordinals = new int[rarest.documentCount()];
+        float[] scores = new float[rarest.documentCount()];
+        int count = 0;
+        double idf = idf(rarest.documentCount(), documentCount);
+        PostingList.Cursor cursor = rarest.cursor();
+        for (int ordinal = cursor.next(); ordinal != -1; ordinal = cursor.next()) {
+            if (!this.deleted.get(ordinal)) {
+                ordinals[count] = ordinal;
+                scores[count] = (float) this.score(idf, cursor.frequency(), ordinal, averageLength);
+                count++;
+            }
+        }
+
+        // Intersect the candidates with the other terms, adding up the scores.
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            PostingList list = lists.get(i);
+            idf = idf(list.documentCount(), documentCount);
+            cursor = list.cursor();
+            int kept = 0;
+            for (int candidate = 0; candidate < count; candidate++) {
+                int ordinal = cursor.advance(ordinals[candidate]);
+                if (ordinal == -1) {
+                    break;
+                }
+                if (ordinal == ordinals[candidate]) {
+                    ordinals[kept] = ordinal;
+                    scores[kept] = scores[candidate] + (float) this.score(idf, cursor.frequency(), ordinal, averageLength);
+                    kept++;
+                }
+            }
+            count = kept;
+        }
+
+        return new SearchHits(this.topBookIds(ordinals, scores, count, offset, limit), count);
+    }
+
+    /**
+     * Get the number of documents, excluding the deleted ones.
+     *
+     * @return the number of documents
+     */
+    int documentCount() {
+        return this.size - this.deletedCount;
+    }
+
+    /**
+     * Get the number of deleted documents still in the posting lists.
+     *
+     * @return the number of deleted documents
+     */
+    int deletedCount() {
+        return this.deletedCount;
+    }
+
+    /**
+     * Get the number of distinct terms.
+     *
+     * @return the number of terms
+     */
+    int termCount() {
+        return this.postings.size();
+    }
+
+    /**
+     * Get the memory used by the posting lists.
+     *
+     * @return the size of the encoded posting lists, in bytes
+     */
+    long postingsSizeInBytes() {
+        long bytes = 0;
+        for (PostingList list : this.postings.values()) {
+            bytes += list.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Select the page of the best candidates, by decreasing score and then by indexing order.
+     */
+    private List<Long> topBookIds(int[] ordinals, float[] scores, int count, long offset, int limit) {
+        if (offset >= count) {
+            return List.of();
+        }
+        int wanted = (int) Math.min(count, offset + limit);
+        // Keep the best candidates in a heap whose head is the worst of them.
+        Comparator<Integer> better = Comparator.<Integer>comparingDouble(i -> scores[i]).thenComparing(i -> -ordinals[i]);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(wanted + 1, better);
+        for (int i = 0; i < count; i++) {
+            heap.add(i);
+            if (heap.size() > wanted) {
+                heap.poll();
+            }
+        }
+        long[] ranked = new long[wanted];
+        for (int rank = wanted - 1; rank >= 0; rank--) {
+            ranked[rank] = this.bookIds[ordinals[heap.poll()]];
+        }
+        return Arrays.stream(ranked, (int) offset, wanted).boxed().toList();
+    }
+
+    private double score(double idf, int frequency, int ordinal, double averageLength) {
+        double normalization = K1 * (1 - B + B * this.lengths[ordinal] / averageLength);
+        return idf * frequency * (K1 + 1) / (frequency + normalization);
+    }
+
+    private static double idf(int documentFrequency, int documentCount) {
+        // The posting lists may still count deleted documents.
+        int frequency = Math.min(documentFrequency, documentCount);
+        return Math.log(1 + (documentCount - frequency + 0.5) / (frequency + 0.5));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.bookIds.length) {
+            int newCapacity = Math.max(capacity, this.bookIds.length + (this.bookIds.length >> 1));
+            this.bookIds = Arrays.copyOf(this.bookIds, newCapacity);
+            this.lengths = Arrays.copyOf(this.lengths, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.library.search;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from long keys to non-negative int values, without boxing.
+ * Maps the ids of the books to their ordinals in a few bytes per entry, where a HashMap would take about sixty.
+ */
+final class LongIntMap {
+    private static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Create a new map.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.values, MISSING);
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key the key
+     * @return the value, -1 if the key is absent
+     */
+    int get(long key) {
+        int mask = this.keys.length - 1;
+        for (int slot = hash(key) & mask; this.values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (this.keys[slot] == key) {
+                return this.values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Set the value of a key.
+     *
+     * @param key   the key
+     * @param value the value, not negative
+     */
+    void put(long key, int value) {
+        if ((this.size + 1) * 2 > this.keys.length) {
+            this.resize(this.keys.length * 2);
+        }
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (this.values[slot] != MISSING && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (this.values[slot] == MISSING) {
+            this.size++;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key the key
+     * @return the removed value, -1 if the key was absent
+     */
+    int remove(long key) {
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+        while (this.values[slot] != MISSING && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        int removed = this.values[slot];
+        if (removed == MISSING) {
+            return MISSING;
+        }
+        this.values[slot] = MISSING;
+        this.size--;
+        // Re-insert the following entries of the cluster, so lookups do not stop at the hole.
+        for (int next = (slot + 1) & mask; this.values[next] != MISSING; next = (next + 1) & mask) {
+            long movedKey = this.keys[next];
+            int movedValue = this.values[next];
+            this.values[next] = MISSING;
+            this.size--;
+            this.put(movedKey, movedValue);
+        }
+        return removed;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        return this.size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.values, MISSING);
+        this.size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                this.put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
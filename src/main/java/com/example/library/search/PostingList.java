@@ -0,0 +1,169 @@
+package com.example.library.search;
+
+import java.util.Arrays;
+
+/**
+ * The documents containing a term, with the number of occurrences in each.
+ * <p>
+ * Entries are appended in increasing ordinal order and stored as variable-length integers: the gap from the previous
+ * ordinal, then the term frequency. Most gaps and frequencies fit in a single byte.
+ */
+final class PostingList {
+    private byte[] data = new byte[8];
+    private int length;
+    private int lastOrdinal = -1;
+    private int documentCount;
+
+    /**
+     * Append a document.
+     *
+     * @param ordinal   the ordinal of the document, greater than all the appended ones
+     * @param frequency the number of occurrences of the term in the document
+     */
+    void add(int ordinal, int frequency) {
+        if (ordinal <= this.lastOrdinal) {
+            throw new IllegalArgumentException("Ordinal " + ordinal + " is not after " + this.lastOrdinal);
+        }
+        this.writeVarInt(ordinal - this.lastOrdinal);
+        this.writeVarInt(frequency);
+        this.lastOrdinal = ordinal;
+        this.documentCount++;
+    }
+
+    /**
+     * Append all the documents of another list, shifting their ordinals.
+     * Only the first gap is re-encoded, the rest of the data is copied as is.
+     *
+     * @param other the list to append
+     * @param base  the value added to the ordinals of the other list
+     */
+    void addAll(PostingList other, int base) {
+        if (other.documentCount == 0) {
+            return;
+        }
+        // The first gap of the other list is relative to -1.
+        int[] position = {0};
+        int firstOrdinal = readVarInt(other.data, position) - 1 + base;
+        if (firstOrdinal <= this.lastOrdinal) {
+            throw new IllegalArgumentException("Ordinal " + firstOrdinal + " is not after " + this.lastOrdinal);
+        }
+        this.writeVarInt(firstOrdinal - this.lastOrdinal);
+        int remaining = other.length - position[0];
+        this.ensureCapacity(remaining);
+        System.arraycopy(other.data, position[0], this.data, this.length, remaining);
+        this.length += remaining;
+        this.lastOrdinal = other.lastOrdinal + base;
+        this.documentCount += other.documentCount;
+    }
+
+    /**
+     * Get the number of documents in the list, including the deleted ones.
+     *
+     * @return the number of documents
+     */
+    int documentCount() {
+        return this.documentCount;
+    }
+
+    /**
+     * Get the number of bytes used by the entries.
+     *
+     * @return the size of the encoded entries
+     */
+    int sizeInBytes() {
+        return this.length;
+    }
+
+    /**
+     * Start reading the list from the beginning.
+     *
+     * @return a cursor before the first document
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Release the unused capacity once the list is built.
+     */
+    void trim() {
+        if (this.data.length > this.length) {
+            this.data = Arrays.copyOf(this.data, this.length);
+        }
+    }
+
+    private void writeVarInt(int value) {
+        this.ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            this.data[this.length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.data[this.length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (this.length + extra > this.data.length) {
+            this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.length + extra));
+        }
+    }
+
+    private static int readVarInt(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Reads the documents of the list in increasing ordinal order.
+     * The list must not be modified while a cursor is in use.
+     */
+    final class Cursor {
+        private final int[] position = {0};
+        private final int end = PostingList.this.length;
+        private int ordinal = -1;
+        private int frequency;
+
+        /**
+         * Move to the next document.
+         *
+         * @return the ordinal of the next document, -1 if there are no more documents
+         */
+        int next() {
+            if (this.position[0] >= this.end) {
+                return this.ordinal = -1;
+            }
+            this.ordinal += readVarInt(PostingList.this.data, this.position);
+            this.frequency = readVarInt(PostingList.this.data, this.position);
+            return this.ordinal;
+        }
+
+        /**
+         * Move to the first document whose ordinal is at least the target.
+         *
+         * @param target the ordinal to reach
+         * @return the ordinal of the document, -1 if there are no more documents
+         */
+        int advance(int target) {
+            int current = this.ordinal;
+            while (current < target && (current = this.next()) != -1) {
+                // Keep decoding until the target is reached.
+            }
+            return current;
+        }
+
+        /**
+         * Get the number of occurrences of the term in the current document.
+         *
+         * @return the term frequency
+         */
+        int frequency() {
+            return this.frequency;
+        }
+    }
+}
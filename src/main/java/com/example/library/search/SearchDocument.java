@@ -0,0 +1,26 @@
+package com.example.library.search;
+
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+
+/**
+ * The searchable fields of a book.
+ *
+ * @param id     the id of the book
+ * @param title  the title of the book
+ * @param author the author of the book
+ */
+public record SearchDocument(@NonNull Long id, @NonNull String title, @NonNull String author) {
+    /**
+     * Get the terms of the document.
+     *
+     * @return the terms of the title followed by the terms of the author
+     */
+    @NonNull
+    List<String> terms() {
+        List<String> terms = Tokenizer.tokenize(this.title);
+        terms.addAll(Tokenizer.tokenize(this.author));
+        return terms;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.library.search;
+
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+
+/**
+ * The result of a search of the index.
+ *
+ * @param bookIds the ids of the books of the requested page, best match first
+ * @param total   the total number of matching books
+ */
+public record SearchHits(@NonNull List<Long> bookIds, long total) {
+    /**
+     * A search without matches.
+     */
+    static final SearchHits EMPTY = new SearchHits(List.of(), 0);
+}
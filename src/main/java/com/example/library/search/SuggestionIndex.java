@@ -0,0 +1,320 @@
+package com.example.library.search;
+
+import com.example.library.dto.SuggestionDTO;
+import com.example.library.event.BookChangedEvent;
+import com.example.library.event.BooksImportedEvent;
+import com.example.library.event.LocationChangedEvent;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LocationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * In-memory prefix completion of the book titles and location names, heaviest first.
+ * <p>
+ * A book weighs its number of copies in all the locations, a location the number of copies it holds. The tries are
+ * built after startup and kept current with the {@link BookChangedEvent}s and {@link LocationChangedEvent}s committed
+ * afterwards. Copy counts change on every loan, so the weights are only refreshed by a periodic rebuild. Until a trie
+ * is built, completions return empty and callers fall back to the database.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.search.suggest", name = "enabled", havingValue = "true")
+public class SuggestionIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionIndex.class);
+
+    private final BookRepository bookRepository;
+
+    /**
+     * The number of ids loaded by each query of a rebuild.
+     */
+    private final int buildChunkSize;
+
+    /**
+     * The time between the end of a rebuild and the start of the next one.
+     */
+    private final Duration rebuildInterval;
+
+    private final Completions books;
+    private final Completions locations;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggestion-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Create a new SuggestionIndex.
+     *
+     * @param bookRepository     the BookRepository instance
+     * @param locationRepository the LocationRepository instance
+     * @param topK               the maximum number of suggestions per prefix
+     * @param buildChunkSize     the number of ids loaded by each query of a rebuild
+     * @param rebuildInterval    the time between two rebuilds, which refresh the weights
+     */
+    public SuggestionIndex(
+            BookRepository bookRepository,
+            LocationRepository locationRepository,
+            @Value("${app.search.suggest.top-k:10}") int topK,
+            @Value("${app.search.suggest.build-chunk-size:50000}") int buildChunkSize,
+            @Value("${app.search.suggest.rebuild-interval:10m}") Duration rebuildInterval
+    ) {
+        this.bookRepository = bookRepository;
+        this.buildChunkSize = buildChunkSize;
+        this.rebuildInterval = rebuildInterval;
+        this.books = new Completions("book", topK, this::loadBooks, id -> bookRepository.findWeightedTitles(id, id));
+        this.locations = new Completions("location", topK,
+                () -> locationRepository.findWeightedNames(Long.MIN_VALUE, Long.MAX_VALUE),
+                id -> locationRepository.findWeightedNames(id, id));
+    }
+
+    /**
+     * Build the tries in the background once the application is ready, then rebuild them periodically.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBuild() {
+        this.scheduler.scheduleWithFixedDelay(this::rebuild, 0, this.rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the rebuilds before the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Complete a prefix of a book title.
+     *
+     * @param prefix the prefix, compared ignoring case
+     * @param limit  the maximum number of suggestions, at most top-k
+     * @return the books with the most copies whose title starts with the prefix, empty if the trie is not built yet
+     */
+    public @NonNull Optional<List<SuggestionDTO>> suggestBooks(@NonNull String prefix, int limit) {
+        return this.books.complete(prefix, limit);
+    }
+
+    /**
+     * Complete a prefix of a location name.
+     *
+     * @param prefix the prefix, compared ignoring case
+     * @param limit  the maximum number of suggestions, at most top-k
+     * @return the locations with the most copies whose name starts with the prefix, empty if the trie is not built yet
+     */
+    public @NonNull Optional<List<SuggestionDTO>> suggestLocations(@NonNull String prefix, int limit) {
+        return this.locations.complete(prefix, limit);
+    }
+
+    /**
+     * Update the title of a book once its change is committed.
+     *
+     * @param event the book change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(@NonNull BookChangedEvent event) {
+        this.books.refresh(event.bookId());
+    }
+
+    /**
+     * Add the titles of a chunk of imported books once it is committed, loading them with one query.
+     *
+     * @param event the imported books
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(@NonNull BooksImportedEvent event) {
+        Set<Long> bookIds = new HashSet<>(event.bookIds());
+        this.books.refreshAll(event.bookIds(), () -> this.bookRepository.findWeightedTitles(event.firstId(), event.lastId()).stream()
+                .filter(title -> bookIds.contains(title.id()))
+                .toList());
+    }
+
+    /**
+     * Update the name of a location once its change is committed.
+     *
+     * @param event the location change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLocationChanged(@NonNull LocationChangedEvent event) {
+        this.locations.refresh(event.locationId());
+    }
+
+    private void rebuild() {
+        try {
+            this.books.rebuild();
+            this.locations.rebuild();
+        } catch (Exception e) {
+            // Keep serving the previous tries, the next rebuild tries again.
+            logger.error("Failed to rebuild the suggestion index", e);
+        }
+    }
+
+    /**
+     * Load the titles of all the books, in chunks of ids.
+     */
+    private List<WeightedText> loadBooks() {
+        List<WeightedText> titles = new ArrayList<>();
+        Optional<Long> minId = this.bookRepository.findMinId();
+        Optional<Long> maxId = this.bookRepository.findMaxId();
+        if (minId.isEmpty() || maxId.isEmpty()) {
+            return titles;
+        }
+        for (long from = minId.get(); from <= maxId.get(); from += this.buildChunkSize) {
+            titles.addAll(this.bookRepository.findWeightedTitles(from, Math.min(maxId.get(), from + this.buildChunkSize - 1)));
+        }
+        return titles;
+    }
+
+    /**
+     * The trie of one kind of entity, rebuilt offline and swapped in.
+     */
+    private static final class Completions {
+        private final String name;
+        private final int topK;
+        private final Supplier<List<WeightedText>> loadAll;
+        private final LongFunction<List<WeightedText>> loadOne;
+
+        /**
+         * Guards the trie: completions share it, updates are exclusive.
+         */
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * Serializes the updates, so an entity is reloaded in the order its changes committed.
+         */
+        private final Object updateMonitor = new Object();
+
+        /**
+         * The entities changed during a rebuild, null when there is none. Guarded by the update monitor.
+         */
+        private Set<Long> pendingChanges;
+
+        /**
+         * The trie, null until built. Assigned under the update monitor.
+         */
+        private volatile CompletionTrie trie;
+
+        private Completions(String name, int topK, Supplier<List<WeightedText>> loadAll, LongFunction<List<WeightedText>> loadOne) {
+            this.name = name;
+            this.topK = topK;
+            this.loadAll = loadAll;
+            this.loadOne = loadOne;
+        }
+
+        private Optional<List<SuggestionDTO>> complete(String prefix, int limit) {
+            CompletionTrie current = this.trie;
+            if (current == null) {
+                return Optional.empty();
+            }
+            this.lock.readLock().lock();
+            try {
+                return Optional.of(current.complete(prefix, Math.min(limit, this.topK)).stream()
+                        .map(entry -> new SuggestionDTO(entry.id(), entry.text()))
+                        .toList());
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        }
+
+        private void refresh(Long id) {
+            synchronized (this.updateMonitor) {
+                if (this.pendingChanges != null) {
+                    // The rebuild may have read the entity before the change, replay it on the new trie.
+                    this.pendingChanges.add(id);
+                }
+                if (this.trie != null) {
+                    this.reload(this.trie, id);
+                }
+            }
+        }
+
+        /**
+         * Index the texts of several entities, loaded together.
+         */
+        private void refreshAll(List<Long> ids, Supplier<List<WeightedText>> load) {
+            synchronized (this.updateMonitor) {
+                if (this.pendingChanges != null) {
+                    this.pendingChanges.addAll(ids);
+                }
+                CompletionTrie current = this.trie;
+                if (current == null) {
+                    return;
+                }
+                List<WeightedText> texts = load.get();
+                this.lock.writeLock().lock();
+                try {
+                    texts.forEach(text -> current.put(text.id(), text.text(), text.weight()));
+                } finally {
+                    this.lock.writeLock().unlock();
+                }
+            }
+        }
+
+        private void rebuild() {
+            long start = System.nanoTime();
+            synchronized (this.updateMonitor) {
+                this.pendingChanges = new HashSet<>();
+            }
+            CompletionTrie built = new CompletionTrie(this.topK);
+            try {
+                built.putAll(this.loadAll.get().stream()
+                        .map(text -> new CompletionTrie.Entry(text.id(), text.text(), text.weight()))
+                        .toList());
+            } catch (RuntimeException e) {
+                synchronized (this.updateMonitor) {
+                    this.pendingChanges = null;
+                }
+                throw e;
+            }
+            synchronized (this.updateMonitor) {
+                // Replay the changes committed during the rebuild before publishing the trie.
+                this.pendingChanges.forEach(id -> this.reload(built, id));
+                this.pendingChanges = null;
+                this.trie = built;
+            }
+            logger.info("Built the {} suggestion index in {} ms: {} texts",
+                    this.name, (System.nanoTime() - start) / 1_000_000, built.size());
+        }
+
+        /**
+         * Replace the indexed text of an entity with the committed one. Called under the update monitor.
+         */
+        private void reload(CompletionTrie target, Long id) {
+            // Load the entity before locking, so completions are only blocked by the in-memory update.
+            List<WeightedText> texts = this.loadOne.apply(id);
+            this.lock.writeLock().lock();
+            try {
+                if (texts.isEmpty()) {
+                    target.remove(id);
+                } else {
+                    WeightedText text = texts.get(0);
+                    target.put(text.id(), text.text(), text.weight());
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.library.search;
+
+import org.springframework.lang.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A trie of distinct terms, searched for the terms within an edit distance of a query.
+ * <p>
+ * The search walks the trie computing one row of the edit distance matrix per character, which is equivalent to
+ * running a Levenshtein automaton over the trie: a subtree is skipped as soon as no cell of its row is within the
+ * maximum distance, so only a small fraction of the terms is ever visited. The distance is the optimal string
+ * alignment distance, which counts the transposition of two adjacent characters as a single edit.
+ * <p>
+ * The nodes are stored in parallel arrays, with the children of a node as a linked list of siblings.
+ * The trie is not thread-safe.
+ */
+final class TermTrie {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private char[] labels;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private boolean[] terminals;
+    private int nodeCount;
+    private int termCount;
+    private int maxDepth;
+
+    /**
+     * Create a new empty trie.
+     */
+    TermTrie() {
+        this.labels = new char[1024];
+        this.firstChildren = new int[1024];
+        this.nextSiblings = new int[1024];
+        this.terminals = new boolean[1024];
+        this.nodeCount = 1;
+        this.firstChildren[ROOT] = NONE;
+        this.nextSiblings[ROOT] = NONE;
+    }
+
+    /**
+     * Add a term, if not already present.
+     *
+     * @param term the term to add
+     * @return true if the term was added
+     */
+    boolean add(@NonNull String term) {
+        int node = ROOT;
+        for (int i = 0; i < term.length(); i++) {
+            node = this.childOrCreate(node, term.charAt(i));
+        }
+        if (this.terminals[node]) {
+            return false;
+        }
+        this.terminals[node] = true;
+        this.termCount++;
+        this.maxDepth = Math.max(this.maxDepth, term.length());
+        return true;
+    }
+
+    /**
+     * Get the number of distinct terms.
+     *
+     * @return the number of terms
+     */
+    int termCount() {
+        return this.termCount;
+    }
+
+    /**
+     * Find the terms within an edit distance of a query, closest first.
+     *
+     * @param query       the term to search for
+     * @param maxDistance the maximum edit distance
+     * @param limit       the maximum number of terms to return
+     * @return the matching terms, by increasing distance and then alphabetically
+     */
+    @NonNull
+    List<Match> search(@NonNull String query, int maxDistance, int limit) {
+        char[] target = query.toCharArray();
+        // One row per depth, reused across the walk: the rows of the current path are all that is needed.
+        int[][] rows = new int[this.maxDepth + 2][target.length + 1];
+        for (int i = 0; i <= target.length; i++) {
+            rows[0][i] = i;
+        }
+        List<Match> matches = new ArrayList<>();
+        char[] path = new char[this.maxDepth + 1];
+        for (int child = this.firstChildren[ROOT]; child != NONE; child = this.nextSiblings[child]) {
+            this.search(child, 1, target, maxDistance, rows, path, matches);
+        }
+        matches.sort(Comparator.comparingInt(Match::distance).thenComparing(Match::term));
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    private void search(int node, int depth, char[] target, int maxDistance, int[][] rows, char[] path, List<Match> matches) {
+        char label = this.labels[node];
+        path[depth - 1] = label;
+        int[] previous = rows[depth - 1];
+        int[] row = rows[depth];
+        row[0] = depth;
+        int rowMinimum = row[0];
+        for (int i = 1; i <= target.length; i++) {
+            int cost = target[i - 1] == label ? 0 : 1;
+            int distance = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+            // Adjacent transposition.
+            if (depth > 1 && i > 1 && target[i - 1] == path[depth - 2] && target[i - 2] == label) {
+                distance = Math.min(distance, rows[depth - 2][i - 2] + 1);
+            }
+            row[i] = distance;
+            rowMinimum = Math.min(rowMinimum, distance);
+        }
+        if (this.terminals[node] && row[target.length] <= maxDistance) {
+            matches.add(new Match(new String(path, 0, depth), row[target.length]));
+        }
+        // No term of the subtree can get closer than the closest cell of the row.
+        if (rowMinimum <= maxDistance) {
+            for (int child = this.firstChildren[node]; child != NONE; child = this.nextSiblings[child]) {
+                this.search(child, depth + 1, target, maxDistance, rows, path, matches);
+            }
+        }
+    }
+
+    private int childOrCreate(int node, char label) {
+        for (int child = this.firstChildren[node]; child != NONE; child = this.nextSiblings[child]) {
+            if (this.labels[child] == label) {
+                return child;
+            }
+        }
+        if (this.nodeCount == this.labels.length) {
+            int capacity = this.labels.length * 2;
+            this.labels = Arrays.copyOf(this.labels, capacity);
+            this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+            this.nextSiblings = Arrays.copyOf(this.nextSiblings, capacity);
+            this.terminals = Arrays.copyOf(this.terminals, capacity);
+        }
+        int child = this.nodeCount++;
+        this.labels[child] = label;
+        this.firstChildren[child] = NONE;
+        this.nextSiblings[child] = this.firstChildren[node];
+        this.firstChildren[node] = child;
+        return child;
+    }
+
+    /**
+     * A term within the maximum distance of the query.
+     *
+     * @param term     the term
+     * @param distance the edit distance from the query
+     */
+    record Match(@NonNull String term, int distance) {
+    }
+}
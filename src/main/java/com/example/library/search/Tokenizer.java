@@ -0,0 +1,79 @@
+package com.example.library.search;
+
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into the terms of the search index.
+ * Terms are lower case, without diacritics, and made of letters and digits only.
+ */
+public final class Tokenizer {
+    /**
+     * Combining marks left by the decomposition of accented letters.
+     */
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Anything that is not a letter or a digit separates two terms.
+     */
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    /**
+     * The separators of the words as written, which keep their combining marks.
+     */
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{M}\\p{Nd}]+");
+
+    /**
+     * Longer terms are truncated, they are almost always noise.
+     */
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Split a text into terms, in order of appearance and with repetitions.
+     *
+     * @param text the text to split
+     * @return the terms of the text
+     */
+    public static @NonNull List<String> tokenize(@Nullable String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("");
+        for (String term : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!term.isEmpty()) {
+                terms.add(term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Split a text into its lower case words as written, with their diacritics: the spellings the terms of
+     * {@link #tokenize(String)} come from, which the database can still match.
+     *
+     * @param text the text to split
+     * @return the words of the text, in order of appearance and with repetitions
+     */
+    static @NonNull List<String> words(@Nullable String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+        for (String word : WORD_SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.library.search;
+
+import org.springframework.lang.NonNull;
+
+/**
+ * A text to complete, with its weight. Loaded by the repositories as a projection.
+ *
+ * @param id     the id of the entity
+ * @param text   the text to complete
+ * @param weight the weight of the text, heavier texts are suggested first
+ */
+public record WeightedText(@NonNull Long id, @NonNull String text, @NonNull Long weight) {
+}
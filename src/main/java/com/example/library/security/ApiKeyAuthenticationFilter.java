@@ -0,0 +1,68 @@
+package com.example.library.security;
+
+import com.example.library.service.ApiKeyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Authenticates the machine-to-machine clients by the API key of the {@value #API_KEY_HEADER} header.
+ * <p>
+ * A request carrying both an API key and an {@code Authorization} header is rejected with a 400: neither credential
+ * silently wins over the other.
+ */
+public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
+    /**
+     * The request header holding the API key.
+     */
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    private final ApiKeyService apiKeyService;
+
+    public ApiKeyAuthenticationFilter(ApiKeyService apiKeyService) {
+        this.apiKeyService = apiKeyService;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        String key = request.getHeader(API_KEY_HEADER);
+        if (StringUtils.hasText(key) && StringUtils.hasText(request.getHeader(HttpHeaders.AUTHORIZATION))) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Send either an " + API_KEY_HEADER + " header or an Authorization header, not both");
+            return;
+        }
+
+        try {
+            if (StringUtils.hasText(key)) {
+                Optional<ApiKeyService.AuthenticatedKey> apiKey = this.apiKeyService.authenticate(key);
+
+                if (apiKey.isPresent()) {
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            "api-key:" + apiKey.get().name(), null, apiKey.get().authorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
+            }
+        } catch (Exception ex) {
+            this.logger.error("Could not set API key authentication in security context", ex);
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
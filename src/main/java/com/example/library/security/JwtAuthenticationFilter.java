@@ -1,28 +1,30 @@
 package com.example.library.security;
 
-import com.example.library.service.CustomUserDetailsService;
+import com.example.library.metrics.JwtAuthenticationEvent;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
-    private final CustomUserDetailsService customUserDetailsService;
+    private final UserDetailsCache userDetailsCache;
 
-    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, CustomUserDetailsService customUserDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, UserDetailsCache userDetailsCache) {
         this.tokenProvider = tokenProvider;
-        this.customUserDetailsService = customUserDetailsService;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
@@ -34,21 +36,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = this.getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && this.tokenProvider.validateToken(jwt)) {
-                String username = this.tokenProvider.getUsernameFromJWT(jwt);
+            if (StringUtils.hasText(jwt)) {
+                this.authenticate(request, jwt);
+            }
+        } catch (Exception ex) {
+            this.logger.error("Could not set user authentication in security context", ex);
+        }
+
+        filterChain.doFilter(request, response);
+    }
 
-                UserDetails userDetails = this.customUserDetailsService.loadUserByUsername(username);
+    private void authenticate(HttpServletRequest request, String jwt) {
+        JwtAuthenticationEvent event = new JwtAuthenticationEvent();
+        event.begin();
+        String outcome = "error";
+        try {
+            // Verify the token once, the user is looked up in the cache and must not have changed since.
+            Optional<JwtTokenProvider.TokenClaims> claims = this.tokenProvider.parseToken(jwt);
+            Optional<UserPrincipal> userPrincipal = claims.flatMap(
+                    tokenClaims -> this.userDetailsCache.get(tokenClaims.username(), tokenClaims.version()));
+
+            if (claims.isEmpty()) {
+                outcome = "invalid-token";
+            } else if (userPrincipal.isEmpty()) {
+                // The user was deleted or changed since the token was issued.
+                outcome = "stale-user";
+            } else {
+                // The roles of the token are current, as the version matches.
+                List<SimpleGrantedAuthority> authorities = claims.get().authorities().stream()
+                        .map(SimpleGrantedAuthority::new)
+                        .toList();
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
+                        userPrincipal.get(), null, authorities);
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+                outcome = "authenticated";
             }
-        } catch (Exception ex) {
-            this.logger.error("Could not set user authentication in security context", ex);
+        } finally {
+            event.complete(outcome);
         }
-
-        filterChain.doFilter(request, response);
     }
 
     private String getJwtFromRequest(HttpServletRequest request) {
@@ -58,4 +85,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return null;
     }
-}
\ No newline at end of file
+}
@@ -1,50 +1,148 @@
 package com.example.library.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
+    /**
+     * The claim holding the authorities of the user.
+     */
+    static final String ROLES_CLAIM = "roles";
+
+    /**
+     * The claim holding the version of the user when the token was issued.
+     */
+    static final String VERSION_CLAIM = "ver";
 
     private final SecretKey key;
     private final long jwtExpirationInMs;
 
+    /**
+     * The parser of the tokens, thread-safe and reused across requests.
+     */
+    private final JwtParser parser;
+
+    /**
+     * The claims of the tokens verified recently, by SHA-256 digest of the token. Clients reuse a token until it
+     * expires, so repeated requests skip the parsing and the HMAC. An entry expires with its token.
+     */
+    private final Cache<String, TokenClaims> verifiedTokens;
+
     public JwtTokenProvider(@Value("${app.jwt.secret}") String jwtSecret,
-                            @Value("${app.jwt.expiration}") long jwtExpirationInMs) {
+                            @Value("${app.jwt.expiration}") long jwtExpirationInMs,
+                            @Value("${app.jwt.token-cache.maximum-size:10000}") long tokenCacheSize) {
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
         this.jwtExpirationInMs = jwtExpirationInMs;
+        this.parser = Jwts.parser().verifyWith(this.key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheSize)
+                .expireAfter(new Expiry<String, TokenClaims>() {
+                    @Override
+                    public long expireAfterCreate(String digest, TokenClaims claims, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), claims.expiration()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, TokenClaims claims, long currentTime, long currentDuration) {
+                        return this.expireAfterCreate(digest, claims, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, TokenClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     public String generateToken(Authentication authentication) {
-        UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + this.jwtExpirationInMs);
 
-        return Jwts.builder().subject(userPrincipal.getUsername()).issuedAt(new Date()).expiration(expiryDate)
+        return Jwts.builder().subject(userPrincipal.getUsername()).issuedAt(now).expiration(expiryDate)
+                .claim(ROLES_CLAIM, userPrincipal.getAuthorities().stream().map(GrantedAuthority::getAuthority).sorted().toList())
+                .claim(VERSION_CLAIM, userPrincipal.getVersion())
                 .signWith(this.key)
                 .compact();
     }
 
-    public String getUsernameFromJWT(String token) {
-        Claims claims = Jwts.parser().verifyWith(this.key)
-                .build().parseSignedClaims(token).getPayload();
-
-        return claims.getSubject();
+    /**
+     * Verify a token and read its claims. A token seen recently is not parsed nor verified again.
+     *
+     * @param token the token
+     * @return the claims, empty if the token is invalid, expired or issued without a version
+     */
+    public @NonNull Optional<TokenClaims> parseToken(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        String digest = digest(token);
+        TokenClaims cached = this.verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // Only valid tokens are cached, invalid ones cannot evict them.
+        Optional<TokenClaims> claims = this.verifyToken(token);
+        claims.ifPresent(verified -> this.verifiedTokens.put(digest, verified));
+        return claims;
     }
 
-    public boolean validateToken(String authToken) {
+    private Optional<TokenClaims> verifyToken(String token) {
         try {
-            Jwts.parser().verifyWith(this.key).build().parseSignedClaims(authToken);
-            return true;
+            Claims claims = this.parser.parseSignedClaims(token).getPayload();
+            Long version = claims.get(VERSION_CLAIM, Long.class);
+            if (version == null || claims.getExpiration() == null) {
+                return Optional.empty();
+            }
+            List<?> roles = claims.get(ROLES_CLAIM, List.class);
+            Set<String> authorities = roles == null ? Set.of() : roles.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet());
+            return Optional.of(new TokenClaims(claims.getSubject(), authorities, version, claims.getExpiration().toInstant()));
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return Optional.empty();
         }
     }
-}
\ No newline at end of file
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform implements SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The verified claims of a token.
+     *
+     * @param username    the username of the user
+     * @param authorities the authorities of the user when the token was issued
+     * @param version     the version of the user when the token was issued
+     * @param expiration  when the token expires
+     */
+    public record TokenClaims(@NonNull String username, @NonNull Set<String> authorities, long version, @NonNull Instant expiration) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.library.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.lang.NonNull;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Records the time spent hashing passwords, as the {@code library.auth.password.hash} timer tagged with the
+ * operation: {@code encode} or {@code matches}.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    /**
+     * Create a new TimedPasswordEncoder.
+     *
+     * @param delegate      the encoder doing the work
+     * @param meterRegistry the registry of the timers
+     */
+    public TimedPasswordEncoder(@NonNull PasswordEncoder delegate, @NonNull MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.encodeTimer = this.timer(meterRegistry, "encode");
+        this.matchesTimer = this.timer(meterRegistry, "matches");
+    }
+
+    private Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("library.auth.password.hash")
+                .description("Time spent hashing passwords")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.encodeTimer.record(() -> this.delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return Boolean.TRUE.equals(this.matchesTimer.record(() -> this.delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+}
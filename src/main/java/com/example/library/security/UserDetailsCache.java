@@ -0,0 +1,92 @@
+package com.example.library.security;
+
+import com.example.library.event.UserChangedEvent;
+import com.example.library.service.CustomUserDetailsService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Caches the users authenticated by their tokens, so authenticated requests do not query the database.
+ * <p>
+ * A token is accepted only if it carries the current version of its user. Every change of a user or of their roles
+ * increments the version and evicts the user, so the tokens issued before the change are rejected. The other nodes
+ * evict the user when the {@link com.example.library.cache.CacheInvalidationBus} is enabled; without it, they accept
+ * the revoked tokens until the TTL expires. The TTL also bounds how long a change made outside the application goes
+ * unnoticed.
+ */
+@Component
+public class UserDetailsCache {
+    private final CustomUserDetailsService userDetailsService;
+
+    /**
+     * The users, by username.
+     */
+    private final Cache<String, UserPrincipal> users;
+
+    /**
+     * Create a new UserDetailsCache.
+     *
+     * @param userDetailsService the service loading the users
+     * @param maximumSize        the maximum number of cached users
+     * @param ttl                how long a user is cached, unless it changes
+     */
+    public UserDetailsCache(
+            CustomUserDetailsService userDetailsService,
+            @Value("${app.jwt.user-cache.maximum-size:10000}") long maximumSize,
+            @Value("${app.jwt.user-cache.ttl:5m}") Duration ttl
+    ) {
+        this.userDetailsService = userDetailsService;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Get the user of a token.
+     *
+     * @param username the username of the token
+     * @param version  the version of the user when the token was issued
+     * @return the user, empty if it does not exist or changed since the token was issued
+     */
+    public @NonNull Optional<UserPrincipal> get(@NonNull String username, long version) {
+        UserPrincipal user = this.load(username);
+        if (user != null && user.getVersion() < version) {
+            // The token is newer than the cached user, which changed on another node.
+            this.users.invalidate(username);
+            user = this.load(username);
+        }
+        return user != null && user.getVersion() == version ? Optional.of(user) : Optional.empty();
+    }
+
+    /**
+     * Evict a user once its change is committed.
+     *
+     * @param event the user change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(@NonNull UserChangedEvent event) {
+        // The cache is keyed by username, which may have changed too.
+        this.users.asMap().values().removeIf(user -> user.getId().equals(event.userId()));
+    }
+
+    private UserPrincipal load(String username) {
+        // Concurrent misses of the same user wait for the first one to load it.
+        return this.users.get(username, key -> {
+            try {
+                return this.userDetailsService.loadUserByUsername(key);
+            } catch (UsernameNotFoundException e) {
+                // Not cached, so a user created later is found.
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.library.security;
+
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * An authenticated user, with the id and version of its row.
+ */
+public class UserPrincipal extends User {
+    /**
+     * The id of the user.
+     */
+    private final Long id;
+
+    /**
+     * The version of the user, incremented on every change of the user or of their roles.
+     */
+    private final long version;
+
+    /**
+     * Create a new UserPrincipal.
+     *
+     * @param id          the id of the user
+     * @param username    the username
+     * @param password    the encoded password
+     * @param version     the version of the user
+     * @param authorities the authorities granted by the roles of the user
+     */
+    public UserPrincipal(@NonNull Long id, @NonNull String username, @NonNull String password, long version,
+                         @NonNull Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+        this.version = version;
+    }
+
+    public @NonNull Long getId() {
+        return this.id;
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.library.service;
+
+import com.example.library.dto.ApiKeyDTO;
+import com.example.library.entity.ApiKey;
+import com.example.library.lib.RepositoryException;
+import com.example.library.repository.ApiKeyRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Service for the API keys of the machine-to-machine clients.
+ * <p>
+ * A key reads {@code lib_<prefix>_<secret>}. Only the HMAC-SHA256 of the key, under a server-side pepper, is stored:
+ * unlike a password, a key is random and long, so a fast keyed digest is as safe as a slow hash and costs microseconds
+ * per request. The enabled keys are held in memory by prefix and reloaded periodically, so authenticating a request
+ * needs no database access. Revocations made on another node apply at the next reload.
+ */
+@Service
+public class ApiKeyService {
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyService.class);
+
+    private static final String KEY_PREFIX = "lib_";
+    private static final int PREFIX_BYTES = 6;
+    private static final int SECRET_BYTES = 32;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final @NonNull ApiKeyRepository apiKeyRepository;
+    private final @NonNull SecretKeySpec pepper;
+    private final @NonNull Duration refreshInterval;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The enabled keys, by prefix. Replaced as a whole by each reload.
+     */
+    private volatile Map<String, CachedKey> keys = Map.of();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "api-key-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Create a new ApiKeyService.
+     *
+     * @param apiKeyRepository the ApiKeyRepository instance
+     * @param pepper           the secret key of the digests, distinct from the JWT secret, changing it invalidates all
+     *                         the keys
+     * @param refreshInterval  the time between two reloads of the keys
+     */
+    public ApiKeyService(
+            @NonNull ApiKeyRepository apiKeyRepository,
+            @Value("${app.api-keys.pepper}") String pepper,
+            @Value("${app.api-keys.refresh-interval:30s}") Duration refreshInterval
+    ) {
+        if (!StringUtils.hasText(pepper)) {
+            throw new IllegalArgumentException("app.api-keys.pepper must be set to a secret of its own");
+        }
+        this.apiKeyRepository = apiKeyRepository;
+        this.pepper = new SecretKeySpec(pepper.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Load the keys once the application is ready, then reload them periodically.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRefresh() {
+        long intervalMillis = this.refreshInterval.toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::refreshSafely, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the reloads before the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Reload the enabled keys from the database.
+     */
+    public void refresh() {
+        this.keys = this.apiKeyRepository.findByEnabledTrue().stream()
+                .collect(Collectors.toUnmodifiableMap(ApiKey::getPrefix, CachedKey::of));
+    }
+
+    private void refreshSafely() {
+        try {
+            this.refresh();
+        } catch (RuntimeException e) {
+            // Keep the previous keys, the next reload tries again.
+            logger.error("Failed to reload the API keys", e);
+        }
+    }
+
+    /**
+     * Authenticate a key, from memory.
+     *
+     * @param key the key sent by the client
+     * @return the name and authorities of the key, empty if the key is unknown, revoked or malformed
+     */
+    public @NonNull Optional<AuthenticatedKey> authenticate(@NonNull String key) {
+        String prefix = prefixOf(key);
+        CachedKey cached = prefix == null ? null : this.keys.get(prefix);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        // Compare in constant time, so the timing does not leak how much of the digest matches.
+        if (!MessageDigest.isEqual(this.digest(key), cached.hash())) {
+            return Optional.empty();
+        }
+        return Optional.of(new AuthenticatedKey(cached.id(), cached.name(), cached.authorities()));
+    }
+
+    /**
+     * Create a key. The key is only returned here, it cannot be recovered later.
+     *
+     * @param name   the name of the client
+     * @param scopes the roles granted to the key, without the ROLE_ prefix
+     * @return the created key, with its secret
+     */
+    @Transactional
+    public @NonNull ApiKeyDTO createKey(@NonNull String name, @NonNull Set<String> scopes) {
+        String prefix = this.randomToken(PREFIX_BYTES);
+        String key = KEY_PREFIX + prefix + "_" + this.randomToken(SECRET_BYTES);
+        ApiKey apiKey = this.apiKeyRepository.save(new ApiKey(null, prefix, HexFormat.of().formatHex(this.digest(key)),
+                name, String.join(",", scopes), true, LocalDateTime.now()));
+        this.refreshAfterCommit();
+        return new ApiKeyDTO(apiKey.getId(), name, scopes, key);
+    }
+
+    /**
+     * Revoke a key, at once on this node and at the next reload on the others.
+     *
+     * @param id the id of the key
+     * @throws ApiKeyNotFoundException if the key is not found
+     */
+    @Transactional
+    public void revokeKey(@NonNull Long id) throws ApiKeyNotFoundException {
+        ApiKey apiKey = this.apiKeyRepository.findById(id).orElseThrow(() -> new ApiKeyNotFoundException(id));
+        apiKey.setEnabled(false);
+        this.refreshAfterCommit();
+    }
+
+    private void refreshAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ApiKeyService.this.refreshSafely();
+            }
+        });
+    }
+
+    private byte[] digest(String key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(this.pepper);
+            return mac.doFinal(key.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            // Every Java platform implements HmacSHA256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String randomToken(int bytes) {
+        byte[] token = new byte[bytes];
+        this.random.nextBytes(token);
+        // URL-safe and without '_', so the prefix ends at the second '_'.
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token).replace('_', '.');
+    }
+
+    private static String prefixOf(String key) {
+        if (!key.startsWith(KEY_PREFIX)) {
+            return null;
+        }
+        int end = key.indexOf('_', KEY_PREFIX.length());
+        return end < 0 ? null : key.substring(KEY_PREFIX.length(), end);
+    }
+
+    /**
+     * An authenticated API key.
+     *
+     * @param id          the id of the key
+     * @param name        the name of the client
+     * @param authorities the authorities granted by the scopes of the key
+     */
+    public record AuthenticatedKey(@NonNull Long id, @NonNull String name, @NonNull Set<GrantedAuthority> authorities) {
+    }
+
+    /**
+     * An enabled key, held in memory.
+     */
+    private record CachedKey(Long id, String name, byte[] hash, Set<GrantedAuthority> authorities) {
+        private static CachedKey of(ApiKey apiKey) {
+            List<String> scopes = Arrays.stream(apiKey.getScopes().split(","))
+                    .map(String::trim)
+                    .filter(scope -> !scope.isEmpty())
+                    .toList();
+            return new CachedKey(apiKey.getId(), apiKey.getName(), HexFormat.of().parseHex(apiKey.getKeyHash()),
+                    CustomUserDetailsService.toAuthorities(scopes));
+        }
+    }
+
+    /**
+     * Exception thrown when an API key is not found.
+     */
+    public static class ApiKeyNotFoundException extends RepositoryException.NotFound {
+        /**
+         * Creates a new ApiKeyNotFoundException with the given id.
+         *
+         * @param id - the id of the API key
+         */
+        public ApiKeyNotFoundException(@NotNull Long id) {
+            super("API key not found with id: " + id);
+        }
+    }
+}
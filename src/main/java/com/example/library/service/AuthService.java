@@ -0,0 +1,121 @@
+package com.example.library.service;
+
+import com.example.library.dto.TokenDTO;
+import com.example.library.lib.RepositoryException;
+import com.example.library.security.JwtTokenProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service issuing the access tokens.
+ * <p>
+ * Verifying a password is deliberately slow, so the logins run on a dedicated, bounded pool instead of the request
+ * threads. When the pool and its queue are full, logins are rejected at once with a 503 and the request threads stay
+ * available to the rest of the API. The {@code library.auth.login.queue} gauge tracks the logins waiting for a thread,
+ * {@code library.auth.login.rejected} the logins rejected.
+ */
+@Service
+public class AuthService {
+    private final @NonNull AuthenticationManager authenticationManager;
+    private final @NonNull JwtTokenProvider tokenProvider;
+
+    /**
+     * The number of seconds a token is valid.
+     */
+    private final long expiresInSeconds;
+
+    private final ThreadPoolExecutor loginExecutor;
+    private final Counter rejectedLogins;
+
+    /**
+     * Create a new AuthService.
+     *
+     * @param authenticationManager the manager verifying the credentials
+     * @param tokenProvider         the provider issuing the tokens
+     * @param meterRegistry         the registry of the login metrics
+     * @param jwtExpirationInMs     the validity of a token, in milliseconds
+     * @param threads               the number of threads verifying passwords
+     * @param queueCapacity         the number of logins that may wait for a thread
+     */
+    public AuthService(
+            @NonNull AuthenticationManager authenticationManager,
+            @NonNull JwtTokenProvider tokenProvider,
+            @NonNull MeterRegistry meterRegistry,
+            @Value("${app.jwt.expiration}") long jwtExpirationInMs,
+            @Value("${app.auth.login.threads:2}") int threads,
+            @Value("${app.auth.login.queue-capacity:100}") int queueCapacity
+    ) {
+        this.authenticationManager = authenticationManager;
+        this.tokenProvider = tokenProvider;
+        this.expiresInSeconds = TimeUnit.MILLISECONDS.toSeconds(jwtExpirationInMs);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.loginExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "login-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("library.auth.login.queue", this.loginExecutor, executor -> executor.getQueue().size())
+                .description("Logins waiting for a password verification thread")
+                .register(meterRegistry);
+        Gauge.builder("library.auth.login.active", this.loginExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Logins verifying a password")
+                .register(meterRegistry);
+        this.rejectedLogins = Counter.builder("library.auth.login.rejected")
+                .description("Logins rejected because the password verification queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stop the password verifications before the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.loginExecutor.shutdownNow();
+    }
+
+    /**
+     * Verify the credentials of a user and issue a token, on the login pool.
+     *
+     * @param username the username
+     * @param password the password, in clear
+     * @return the token, or completed with {@link RepositoryException.Unauthorized} if the credentials are invalid, or
+     * with {@link RepositoryException.ServiceUnavailable} if too many logins are pending
+     */
+    public @NonNull CompletableFuture<TokenDTO> login(@NonNull String username, @NonNull String password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> this.authenticate(username, password), this.loginExecutor);
+        } catch (RejectedExecutionException e) {
+            this.rejectedLogins.increment();
+            return CompletableFuture.failedFuture(new RepositoryException.ServiceUnavailable("Too many logins, retry later"));
+        }
+    }
+
+    private TokenDTO authenticate(String username, String password) {
+        Authentication authentication;
+        try {
+            // Rehashes the password if its hash is weaker than the configured strength.
+            authentication = this.authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+        } catch (AuthenticationException e) {
+            throw new CompletionException(new RepositoryException.Unauthorized("Invalid username or password"));
+        }
+        return new TokenDTO(this.tokenProvider.generateToken(authentication), "Bearer", this.expiresInSeconds);
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.library.service;
 
+import com.example.library.aspect.SingleFlight;
 import com.example.library.dto.BookWithQuantityDTO;
-import com.example.library.entity.Book;
+import com.example.library.dto.CursorPage;
 import com.example.library.entity.BookCopy;
-import com.example.library.entity.Location;
+import com.example.library.lib.KeysetCursor;
 import com.example.library.lib.RepositoryException;
+import com.example.library.metrics.InventoryUpdateEvent;
 import com.example.library.metrics.LibraryMetrics;
 import com.example.library.repository.BookCopyRepository;
 import com.example.library.repository.BookRepository;
@@ -13,12 +15,16 @@ import jakarta.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Service implementation for the Book entity.
@@ -69,11 +75,15 @@ public class BookCopyService {
     /**
      * Update the quantity of a book at a location.
      * Positive values add copies, negative values remove copies.
+     * <p>
+     * The change is applied with a single conditional update, so concurrent changes to the same book copy are never
+     * lost. The first stock of a book at a location is created with an insert-if-absent statement. The location and
+     * the book are only looked up when the change is refused, to report the reason.
      *
      * @param locationId     the id of the location
      * @param bookId         the id of the book
      * @param quantityChange the change in quantity (positive to add, negative to remove)
-     * @return the updated location DTO
+     * @return the updated quantity
      * @throws LocationService.LocationNotFoundException if the location is not found
      * @throws BookService.BookNotFoundException         if the book is not found
      * @throws InsufficientCopiesException               if there are not enough copies to remove
@@ -81,45 +91,74 @@ public class BookCopyService {
     @NonNull
     @Transactional
     public Integer updateBookCopyQuantity(@NonNull Long locationId, @NonNull Long bookId, @NonNull Integer quantityChange) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException, InsufficientCopiesException {
-        Optional<BookCopy> optionalBookCopy = this.bookCopyRepository.findById(new BookCopy.BookCopyId(locationId, bookId));
-        // Check if the book copy exists.
-        if (optionalBookCopy.isEmpty()) {
-            // Find the location by its ID.
-            Location location = this.locationRepository.findById(locationId)
-                    // Throw an exception if the location is not found.
-                    .orElseThrow(() -> new LocationService.LocationNotFoundException(locationId));
-
-            // Check if the book exists.
-            Book book = this.bookRepository.findById(bookId)
-                    // Throw an exception if the book is not found.
-                    .orElseThrow(() -> new BookService.BookNotFoundException(bookId));
-
-            // Create a new book copy.
-            BookCopy bookCopy = new BookCopy(book, location, 0);
-            optionalBookCopy = Optional.of(bookCopy);
-        }
-        // Get the book copy.
-        BookCopy bookCopy = optionalBookCopy.get();
-        // Check if the quantity is negative.
-        if (bookCopy.getQuantity() + quantityChange < 0) {
-            // If the quantity is negative, throw an exception.
-            throw new InsufficientCopiesException(locationId, bookId, bookCopy.getQuantity(), -quantityChange);
-        }
-
         logger.info("Updating book copy quantity at location {} for book {} by {}", locationId, bookId, quantityChange);
-        // Update the metrics.
-        if (quantityChange > 0) {
-            this.metrics.recordBookAdded();
-        } else {
-            this.metrics.recordBookRemoved();
+        InventoryUpdateEvent event = new InventoryUpdateEvent();
+        event.begin();
+        long lockWaitNanos = 0;
+        String outcome = "updated";
+        try {
+            // Apply the change to the existing book copy, the update is refused if the quantity would become negative.
+            // The conditional update locks the row, waiting for the concurrent changes of the same book copy.
+            long lockStart = System.nanoTime();
+            int updated = this.bookCopyRepository.addQuantity(locationId, bookId, quantityChange);
+            lockWaitNanos = System.nanoTime() - lockStart;
+            if (updated == 0) {
+                // Removing copies can't create a book copy, find out why the update was refused.
+                if (quantityChange < 0) {
+                    throw this.quantityChangeRefused(locationId, bookId, quantityChange);
+                }
+                // Create the first stock of the book at the location.
+                if (this.bookCopyRepository.insertQuantityIfAbsent(locationId, bookId, quantityChange) == 0
+                        // A concurrent request may have created the book copy in the meantime, retry the update once.
+                        && this.bookCopyRepository.addQuantity(locationId, bookId, quantityChange) == 0) {
+                    throw this.quantityChangeRefused(locationId, bookId, quantityChange);
+                }
+            }
+
+            // Update the metrics.
+            if (quantityChange > 0) {
+                this.metrics.recordBookAdded();
+            } else {
+                this.metrics.recordBookRemoved();
+            }
+
+            // Return the updated quantity, the row is locked by this transaction until it commits.
+            return this.bookCopyRepository.findQuantity(locationId, bookId).orElseThrow();
+        } catch (RepositoryException | RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.complete(bookId, locationId, quantityChange, lockWaitNanos, false, outcome);
         }
+    }
 
-        // Update the quantity of the book at the location.
-        bookCopy.setQuantity(bookCopy.getQuantity() + quantityChange);
-        // Save the updated location.
-        BookCopy savedBookCopy = this.bookCopyRepository.save(bookCopy);
-        // Return the updated quantity.
-        return savedBookCopy.getQuantity();
+    /**
+     * Find out why a quantity change was refused.
+     * This is only called on the failure path, the successful path never reads the location or the book.
+     *
+     * @param locationId     the id of the location
+     * @param bookId         the id of the book
+     * @param quantityChange the refused change in quantity
+     * @return the exception to throw if there are not enough copies to remove
+     * @throws LocationService.LocationNotFoundException if the location is not found
+     * @throws BookService.BookNotFoundException         if the book is not found
+     */
+    private @NonNull InsufficientCopiesException quantityChangeRefused(@NonNull Long locationId, @NonNull Long bookId, @NonNull Integer quantityChange) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException {
+        // The book copy exists, so there are not enough copies to remove.
+        Optional<Integer> quantity = this.bookCopyRepository.findQuantity(locationId, bookId);
+        if (quantity.isPresent()) {
+            return new InsufficientCopiesException(locationId, bookId, quantity.get(), -quantityChange);
+        }
+        // Check if the location exists.
+        if (this.locationRepository.findById(locationId).isEmpty()) {
+            throw new LocationService.LocationNotFoundException(locationId);
+        }
+        // Check if the book exists.
+        if (this.bookRepository.findById(bookId).isEmpty()) {
+            throw new BookService.BookNotFoundException(bookId);
+        }
+        // The book is not stocked at the location.
+        return new InsufficientCopiesException(locationId, bookId, 0, -quantityChange);
     }
 
     /**
@@ -134,18 +173,18 @@ public class BookCopyService {
     @NonNull
     @Transactional(readOnly = true)
     public Integer getBookCopyQuantity(@NonNull Long locationId, @NonNull Long bookId) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException {
-        // Check if the location exists.
-        if (!this.locationRepository.existsById(locationId)) {
+        // Check if the location exists. Lookups by id are answered by the second-level cache, counts are not.
+        if (this.locationRepository.findById(locationId).isEmpty()) {
             // Throw an exception if the location is not found.
             throw new LocationService.LocationNotFoundException(locationId);
         }
         // Check if the book exists.
-        if (!this.bookRepository.existsById(bookId)) {
+        if (this.bookRepository.findById(bookId).isEmpty()) {
             // Throw an exception if the book is not found.
             throw new BookService.BookNotFoundException(bookId);
         }
         // Find the quantity of the book at the location.
-        return this.bookCopyRepository.getByLocationIdAndBookId(locationId, bookId).getQuantity();
+        return this.bookCopyRepository.findById(new BookCopy.BookCopyId(bookId, locationId)).orElseThrow().getQuantity();
     }
 
     /**
@@ -157,16 +196,45 @@ public class BookCopyService {
      * @throws LocationService.LocationNotFoundException if the location is not found
      */
     @NonNull
+    @SingleFlight
     @Transactional(readOnly = true)
     public Page<BookWithQuantityDTO> getBooksWithQuantitiesAtLocation(@NonNull Long locationId, Pageable pageable) throws LocationService.LocationNotFoundException {
         // Check if the location exists.
-        if (!this.locationRepository.existsById(locationId)) {
+        if (this.locationRepository.findById(locationId).isEmpty()) {
             throw new LocationService.LocationNotFoundException(locationId);
         }
         // Find the books with quantities at the location.
         return this.bookCopyRepository.findBooksWithQuantitiesByLocationId(locationId, pageable);
     }
 
+    /**
+     * Get a page of the books at a location using keyset pagination, sorted by title and then by ISBN.
+     * No count query is run, and deep pages are as fast as the first one.
+     *
+     * @param locationId the id of the location
+     * @param cursor     the cursor returned with the previous page, null or empty for the first page
+     * @param size       the size of the page
+     * @return a page of books with quantities at the location
+     * @throws LocationService.LocationNotFoundException if the location is not found
+     * @throws KeysetCursor.InvalidCursorException       if the cursor is malformed
+     */
+    @NonNull
+    @Transactional(readOnly = true)
+    public CursorPage<BookWithQuantityDTO> scrollBooksWithQuantitiesAtLocation(@NonNull Long locationId, @Nullable String cursor, int size) throws LocationService.LocationNotFoundException, KeysetCursor.InvalidCursorException {
+        // Check if the location exists.
+        if (this.locationRepository.findById(locationId).isEmpty()) {
+            throw new LocationService.LocationNotFoundException(locationId);
+        }
+        // Fetch one more book than requested to know whether there is a next page.
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Pageable limit = PageRequest.ofSize(size + 1);
+        List<BookWithQuantityDTO> books = position == null
+                ? this.bookCopyRepository.findFirstBooksWithQuantitiesByLocationId(locationId, limit)
+                // Seek after the last returned book.
+                : this.bookCopyRepository.findBooksWithQuantitiesByLocationIdAfter(locationId, position.value(), position.tieBreaker(), limit);
+        return CursorPage.of(books, size, book -> new KeysetCursor(book.getTitle(), book.getIsbn()), Function.identity());
+    }
+
     /**
      * Exception thrown when there are not enough copies of a book to remove.
      */
@@ -0,0 +1,456 @@
+package com.example.library.service;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.BookCopy;
+import com.example.library.entity.Location;
+import com.example.library.lib.RepositoryException;
+import com.example.library.lib.SafeRuntimeException;
+import com.example.library.metrics.InventoryUpdateEvent;
+import com.example.library.metrics.LibraryMetrics;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jdk.jfr.EventType;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer for book copy quantity changes.
+ * <p>
+ * Changes are collected in memory and applied by a single flusher thread, in one transaction and one JDBC batch per
+ * flush. A flush happens every {@code app.inventory.write-behind.flush-interval}, or as soon as
+ * {@code app.inventory.write-behind.max-batch-size} changes are pending. Each change keeps its own outcome: the caller
+ * gets the quantity after its change, or the same exception the regular {@link BookCopyService} path would throw,
+ * once the flush that contains it has committed. A caller waits at most
+ * {@code app.inventory.write-behind.completion-timeout}, its change may still be applied by a later flush.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.inventory.write-behind", name = "enabled", havingValue = "true")
+public class BookCopyWriteBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(BookCopyWriteBuffer.class);
+
+    /**
+     * The type of the inventory update events, enabled while a flight recording is running.
+     */
+    private static final EventType INVENTORY_UPDATE = EventType.getEventType(InventoryUpdateEvent.class);
+
+    /**
+     * Locks the book copies of a flush, the keys are bound as a list of (book_id, location_id) rows.
+     */
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT book_id, location_id, quantity FROM book_copies WHERE (book_id, location_id) IN (:keys) FOR UPDATE";
+
+    private static final String SELECT_BOOK_IDS = "SELECT id FROM books WHERE id IN (:ids)";
+
+    private static final String SELECT_LOCATION_IDS = "SELECT id FROM locations WHERE id IN (:ids)";
+
+    private static final String UPDATE_QUANTITY =
+            "UPDATE book_copies SET quantity = :quantity WHERE book_id = :bookId AND location_id = :locationId";
+
+    private static final String INSERT_QUANTITY =
+            "INSERT INTO book_copies (book_id, location_id, quantity) VALUES (:bookId, :locationId, :quantity)";
+
+    private final @NonNull NamedParameterJdbcTemplate jdbcTemplate;
+    private final @NonNull TransactionTemplate transactionTemplate;
+    private final @NonNull BookCopyService bookCopyService;
+    private final @NonNull LibraryMetrics metrics;
+    private final @NonNull Cache secondLevelCache;
+    private final int maxBatchSize;
+    private final long completionTimeoutNanos;
+
+    /**
+     * The pending changes, in arrival order.
+     */
+    private final Queue<PendingChange> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /**
+     * Whether an early flush is queued and has not started draining yet, so a burst of changes only queues one.
+     */
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    /**
+     * The single thread that applies the changes, so flushes never overlap.
+     */
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Guards {@link #accepting}, so no change can be enqueued after the final drain on shutdown.
+     */
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+    private boolean accepting = true;
+
+    /**
+     * Create a new BookCopyWriteBuffer.
+     *
+     * @param jdbcTemplate         the JDBC template used for the batched statements
+     * @param transactionManager   the transaction manager, each flush runs in its own transaction
+     * @param bookCopyService      the regular path, used when a flush fails and after shutdown
+     * @param metrics              the library metrics
+     * @param entityManagerFactory the entity manager factory, whose second-level cache is evicted after each flush
+     * @param flushInterval        the maximum time a change waits before it is flushed
+     * @param maxBatchSize         the number of pending changes that triggers an immediate flush
+     * @param completionTimeout    the maximum time a caller waits for the flush of its change
+     */
+    public BookCopyWriteBuffer(
+            @NonNull NamedParameterJdbcTemplate jdbcTemplate,
+            @NonNull PlatformTransactionManager transactionManager,
+            @NonNull BookCopyService bookCopyService,
+            @NonNull LibraryMetrics metrics,
+            @NonNull EntityManagerFactory entityManagerFactory,
+            @Value("${app.inventory.write-behind.flush-interval:5ms}") Duration flushInterval,
+            @Value("${app.inventory.write-behind.max-batch-size:256}") int maxBatchSize,
+            @Value("${app.inventory.write-behind.completion-timeout:10s}") Duration completionTimeout
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookCopyService = bookCopyService;
+        this.metrics = metrics;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.maxBatchSize = maxBatchSize;
+        this.completionTimeoutNanos = completionTimeout.toNanos();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "book-copy-write-buffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = flushInterval.toNanos();
+        this.flusher.scheduleWithFixedDelay(this::flush, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Update the quantity of a book at a location through the buffer, waiting until the change is committed.
+     * Positive values add copies, negative values remove copies.
+     *
+     * @param locationId     the id of the location
+     * @param bookId         the id of the book
+     * @param quantityChange the change in quantity (positive to add, negative to remove)
+     * @return the quantity right after this change
+     * @throws LocationService.LocationNotFoundException       if the location is not found
+     * @throws BookService.BookNotFoundException               if the book is not found
+     * @throws BookCopyService.InsufficientCopiesException     if there are not enough copies to remove
+     * @throws SafeRuntimeException                            if the change is not flushed within the completion timeout
+     */
+    public @NonNull Integer updateBookCopyQuantity(@NonNull Long locationId, @NonNull Long bookId, @NonNull Integer quantityChange) throws LocationService.LocationNotFoundException, BookService.BookNotFoundException, BookCopyService.InsufficientCopiesException {
+        CompletableFuture<Integer> result = this.submit(locationId, bookId, quantityChange);
+        // The buffer is shutting down, use the regular path.
+        if (result == null) {
+            return this.bookCopyService.updateBookCopyQuantity(locationId, bookId, quantityChange);
+        }
+
+        try {
+            return result.get(this.completionTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SafeRuntimeException("Interrupted while waiting for the quantity update", e);
+        } catch (TimeoutException e) {
+            // The change stays pending, the outcome of its flush is no longer reported to anyone.
+            logger.warn("Timed out while waiting for the quantity update of book {} at location {}", bookId, locationId);
+            throw new SafeRuntimeException("Timed out while waiting for the quantity update", e);
+        } catch (ExecutionException e) {
+            // Rethrow the same exceptions as the regular path.
+            Throwable cause = e.getCause();
+            if (cause instanceof LocationService.LocationNotFoundException locationNotFound) {
+                throw locationNotFound;
+            } else if (cause instanceof BookService.BookNotFoundException bookNotFound) {
+                throw bookNotFound;
+            } else if (cause instanceof BookCopyService.InsufficientCopiesException insufficientCopies) {
+                throw insufficientCopies;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else {
+                throw new SafeRuntimeException("Could not update the quantity", cause);
+            }
+        }
+    }
+
+    /**
+     * Enqueue a change.
+     *
+     * @return the future completed once the change is committed, null if the buffer no longer accepts changes
+     */
+    private @Nullable CompletableFuture<Integer> submit(@NonNull Long locationId, @NonNull Long bookId, int quantityChange) {
+        this.shutdownLock.readLock().lock();
+        try {
+            if (!this.accepting) {
+                return null;
+            }
+            PendingChange change = new PendingChange(new BookCopy.BookCopyId(bookId, locationId), quantityChange, new CompletableFuture<>());
+            this.pending.add(change);
+            // Flush right away once a full batch is pending. Concurrent changes may push the count past the batch size.
+            if (this.pendingCount.incrementAndGet() >= this.maxBatchSize && this.flushQueued.compareAndSet(false, true)) {
+                this.flusher.execute(this::flush);
+            }
+            return change.result();
+        } finally {
+            this.shutdownLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drain the buffer, one batch at a time. Only ever runs on the flusher thread.
+     */
+    private void flush() {
+        // The changes enqueued from now on are drained by this flush or may queue the next one.
+        this.flushQueued.set(false);
+        List<PendingChange> batch = List.of();
+        try {
+            while (!this.pending.isEmpty()) {
+                batch = new ArrayList<>(Math.min(this.pendingCount.get(), this.maxBatchSize));
+                PendingChange change;
+                while (batch.size() < this.maxBatchSize && (change = this.pending.poll()) != null) {
+                    batch.add(change);
+                }
+                this.pendingCount.addAndGet(-batch.size());
+                this.flushBatch(batch);
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled flush.
+            logger.error("Unexpected error while flushing book copy changes", e);
+            // Fail the callers of the batch that were not completed yet, the completed ones are left untouched.
+            for (PendingChange change : batch) {
+                change.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Apply a batch of changes in a single transaction, then complete the callers.
+     *
+     * @param batch the changes, in arrival order
+     */
+    private void flushBatch(@NonNull List<PendingChange> batch) {
+        // One event per change, they all lasted as long as the flush and waited for the same locks. None is created
+        // when no recording is running.
+        List<InventoryUpdateEvent> events = INVENTORY_UPDATE.isEnabled()
+                ? batch.stream().map(change -> new InventoryUpdateEvent()).toList()
+                : List.of();
+        events.forEach(InventoryUpdateEvent::begin);
+        AppliedBatch applied;
+        try {
+            applied = Objects.requireNonNull(this.transactionTemplate.execute(status -> this.apply(batch)));
+        } catch (RuntimeException e) {
+            // The group commit failed (e.g. a concurrent first insert of the same book copy), apply each change on
+            // its own so a single conflicting change can't fail the others. The events of the flush report the
+            // failure, each change then gets the event of the regular path.
+            logger.warn("Group commit of {} book copy changes failed, applying them one by one", batch.size(), e);
+            for (int index = 0; index < events.size(); index++) {
+                PendingChange change = batch.get(index);
+                events.get(index).complete(change.id().getBookId(), change.id().getLocationId(), change.quantityChange(),
+                        0, true, e.getClass().getSimpleName());
+            }
+            batch.forEach(this::applyIndividually);
+            return;
+        }
+
+        // The batch bypassed Hibernate, drop what the second-level cache holds about the book copies.
+        this.evictCachedBookCopies();
+
+        // The transaction is committed, report the outcome to each caller.
+        for (int index = 0; index < batch.size(); index++) {
+            PendingChange change = batch.get(index);
+            Object outcome = applied.outcomes().get(change);
+            if (!events.isEmpty()) {
+                events.get(index).complete(change.id().getBookId(), change.id().getLocationId(), change.quantityChange(),
+                        applied.lockWaitNanos(), true, outcome instanceof Integer ? "updated" : outcome.getClass().getSimpleName());
+            }
+            if (outcome instanceof Integer quantity) {
+                this.recordMetrics(change.quantityChange());
+                change.result().complete(quantity);
+            } else {
+                change.result().completeExceptionally((Throwable) outcome);
+            }
+        }
+    }
+
+    /**
+     * Apply the changes of a batch within the current transaction.
+     *
+     * @param batch the changes, in arrival order
+     * @return the outcome of each change, either the quantity after the change or the exception to report, and the
+     * time spent locking the book copies
+     */
+    private @NonNull AppliedBatch apply(@NonNull List<PendingChange> batch) {
+        // Group the changes by book copy, keeping the arrival order within each group. Sorting the keys gives
+        // concurrent flushes on other nodes a consistent lock order.
+        Map<BookCopy.BookCopyId, List<PendingChange>> changesById = new TreeMap<>(
+                Comparator.comparing(BookCopy.BookCopyId::getLocationId).thenComparing(BookCopy.BookCopyId::getBookId));
+        for (PendingChange change : batch) {
+            changesById.computeIfAbsent(change.id(), id -> new ArrayList<>()).add(change);
+        }
+
+        // Lock and read the current quantities.
+        Map<BookCopy.BookCopyId, Integer> quantities = new HashMap<>();
+        List<Object[]> keys = changesById.keySet().stream()
+                .map(id -> new Object[]{id.getBookId(), id.getLocationId()})
+                .toList();
+        long lockStart = System.nanoTime();
+        this.jdbcTemplate.query(SELECT_FOR_UPDATE, new MapSqlParameterSource("keys", keys), rs -> {
+            quantities.put(new BookCopy.BookCopyId(rs.getLong("book_id"), rs.getLong("location_id")), rs.getInt("quantity"));
+        });
+        long lockWaitNanos = System.nanoTime() - lockStart;
+
+        // Only look up the books and locations of the book copies that don't exist yet.
+        Set<Long> existingBooks = new HashSet<>();
+        Set<Long> existingLocations = new HashSet<>();
+        List<BookCopy.BookCopyId> missing = changesById.keySet().stream().filter(id -> !quantities.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            existingBooks.addAll(this.jdbcTemplate.queryForList(SELECT_BOOK_IDS,
+                    new MapSqlParameterSource("ids", missing.stream().map(BookCopy.BookCopyId::getBookId).distinct().toList()), Long.class));
+            existingLocations.addAll(this.jdbcTemplate.queryForList(SELECT_LOCATION_IDS,
+                    new MapSqlParameterSource("ids", missing.stream().map(BookCopy.BookCopyId::getLocationId).distinct().toList()), Long.class));
+        }
+
+        // Replay the changes of each book copy in arrival order, with the same rules as the regular path.
+        Map<PendingChange, Object> outcomes = new IdentityHashMap<>();
+        List<MapSqlParameterSource> updates = new ArrayList<>();
+        List<MapSqlParameterSource> inserts = new ArrayList<>();
+        changesById.forEach((id, changes) -> {
+            Integer quantity = quantities.get(id);
+            boolean exists = quantity != null;
+            boolean changed = false;
+            for (PendingChange change : changes) {
+                if (quantity == null) {
+                    if (!existingLocations.contains(id.getLocationId())) {
+                        outcomes.put(change, new LocationService.LocationNotFoundException(id.getLocationId()));
+                    } else if (!existingBooks.contains(id.getBookId())) {
+                        outcomes.put(change, new BookService.BookNotFoundException(id.getBookId()));
+                    } else if (change.quantityChange() < 0) {
+                        outcomes.put(change, new BookCopyService.InsufficientCopiesException(id.getLocationId(), id.getBookId(), 0, -change.quantityChange()));
+                    } else {
+                        quantity = change.quantityChange();
+                        changed = true;
+                        outcomes.put(change, quantity);
+                    }
+                } else if (quantity + change.quantityChange() < 0) {
+                    outcomes.put(change, new BookCopyService.InsufficientCopiesException(id.getLocationId(), id.getBookId(), quantity, -change.quantityChange()));
+                } else {
+                    quantity += change.quantityChange();
+                    changed = true;
+                    outcomes.put(change, quantity);
+                }
+            }
+
+            if (changed) {
+                MapSqlParameterSource row = new MapSqlParameterSource()
+                        .addValue("bookId", id.getBookId())
+                        .addValue("locationId", id.getLocationId())
+                        .addValue("quantity", quantity);
+                (exists ? updates : inserts).add(row);
+            }
+        });
+
+        // Write all the book copies with one batch per statement.
+        if (!updates.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(UPDATE_QUANTITY, updates.toArray(MapSqlParameterSource[]::new));
+        }
+        if (!inserts.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(INSERT_QUANTITY, inserts.toArray(MapSqlParameterSource[]::new));
+        }
+        return new AppliedBatch(outcomes, lockWaitNanos);
+    }
+
+    /**
+     * Evict the cached book copies, the collections of book copies and the cached query results.
+     */
+    private void evictCachedBookCopies() {
+        this.secondLevelCache.evictEntityData(BookCopy.class);
+        this.secondLevelCache.evictCollectionData(Book.class.getName() + ".bookCopies");
+        this.secondLevelCache.evictCollectionData(Location.class.getName() + ".bookCopies");
+        this.secondLevelCache.evictDefaultQueryRegion();
+    }
+
+    /**
+     * Apply a single change through the regular path.
+     *
+     * @param change the change to apply
+     */
+    private void applyIndividually(@NonNull PendingChange change) {
+        try {
+            BookCopy.BookCopyId id = change.id();
+            change.result().complete(this.bookCopyService.updateBookCopyQuantity(id.getLocationId(), id.getBookId(), change.quantityChange()));
+        } catch (RepositoryException | RuntimeException e) {
+            change.result().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Update the metrics for a committed change.
+     *
+     * @param quantityChange the change in quantity
+     */
+    private void recordMetrics(int quantityChange) {
+        if (quantityChange > 0) {
+            this.metrics.recordBookAdded();
+        } else {
+            this.metrics.recordBookRemoved();
+        }
+    }
+
+    /**
+     * Get the number of changes waiting to be flushed.
+     *
+     * @return the number of pending changes
+     */
+    int getPendingCount() {
+        return this.pendingCount.get();
+    }
+
+    /**
+     * Stop accepting changes and drain the buffer before the application context is closed.
+     *
+     * @throws InterruptedException if interrupted while waiting for the final flush
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        this.shutdownLock.writeLock().lock();
+        try {
+            this.accepting = false;
+        } finally {
+            this.shutdownLock.writeLock().unlock();
+        }
+        // Delayed tasks are still executed after shutdown, periodic ones are cancelled.
+        this.flusher.execute(this::flush);
+        this.flusher.shutdown();
+        if (!this.flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.error("Timed out while draining {} book copy changes", this.pendingCount.get());
+        }
+    }
+
+    /**
+     * A change waiting to be flushed.
+     *
+     * @param id             the id of the book copy
+     * @param quantityChange the change in quantity
+     * @param result         completed with the outcome of the change
+     */
+    private record PendingChange(BookCopy.BookCopyId id, int quantityChange, CompletableFuture<Integer> result) {
+    }
+
+    /**
+     * The outcome of the changes of a batch.
+     *
+     * @param outcomes      the quantity after each change, or the exception to report
+     * @param lockWaitNanos the time spent locking the book copies of the batch
+     */
+    private record AppliedBatch(Map<PendingChange, Object> outcomes, long lockWaitNanos) {
+    }
+}
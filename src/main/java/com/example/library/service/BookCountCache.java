@@ -0,0 +1,112 @@
+package com.example.library.service;
+
+import com.example.library.event.BookChangedEvent;
+import com.example.library.event.BooksImportedEvent;
+import com.example.library.specification.BookFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the number of books matching a filter.
+ * <p>
+ * Every committed book change bumps a generation counter, and a count is only reused if no change committed since it
+ * was computed. The TTL bounds the staleness of changes the application does not see, such as other instances.
+ * The filters come from the clients, so the number of cached counts is bounded too.
+ */
+@Component
+public class BookCountCache {
+    /**
+     * The cached counts, by filter. An entry expires once it can no longer be reused.
+     */
+    private final Cache<BookFilter, Entry> entries;
+
+    /**
+     * The number of book changes committed so far.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a new BookCountCache.
+     *
+     * @param maximumSize the maximum number of cached counts
+     * @param ttl         how long a count is reused
+     */
+    public BookCountCache(
+            @Value("${app.pagination.count-cache.maximum-size:1000}") long maximumSize,
+            @Value("${app.pagination.count-cache.ttl:30s}") Duration ttl
+    ) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Get the current generation, to read before computing a count that will be stored with {@link #put}.
+     *
+     * @return the current generation
+     */
+    public long generation() {
+        return this.generation.get();
+    }
+
+    /**
+     * Get the cached count of a filter.
+     *
+     * @param filter the filter
+     * @return the count if cached, not expired and no book changed since, empty otherwise
+     */
+    public @NonNull OptionalLong get(@NonNull BookFilter filter) {
+        Entry entry = this.entries.getIfPresent(filter);
+        if (entry == null || entry.generation != this.generation.get()) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(entry.count);
+    }
+
+    /**
+     * Store the count of a filter.
+     *
+     * @param filter     the filter
+     * @param count      the number of matching books
+     * @param generation the generation read before the count was computed
+     */
+    public void put(@NonNull BookFilter filter, long count, long generation) {
+        // A count that raced with a commit is stored with the old generation, so it is never reused.
+        this.entries.put(filter, new Entry(count, generation));
+    }
+
+    /**
+     * Invalidate all the counts once a book change is committed.
+     *
+     * @param event the book change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(@NonNull BookChangedEvent event) {
+        this.generation.incrementAndGet();
+        // Drop the entries that can no longer be reused.
+        this.entries.invalidateAll();
+    }
+
+    /**
+     * Invalidate all the counts once a chunk of imported books is committed.
+     *
+     * @param event the imported books
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(@NonNull BooksImportedEvent event) {
+        this.generation.incrementAndGet();
+        this.entries.invalidateAll();
+    }
+
+    private record Entry(long count, long generation) {
+    }
+}
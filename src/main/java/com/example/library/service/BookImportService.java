@@ -0,0 +1,633 @@
+package com.example.library.service;
+
+import com.example.library.config.CacheConfig;
+import com.example.library.dto.BookDTO;
+import com.example.library.dto.BookImportReportDTO;
+import com.example.library.entity.Book;
+import com.example.library.event.BooksImportedEvent;
+import com.example.library.lib.CsvReader;
+import com.example.library.lib.RepositoryException;
+import com.example.library.metrics.LibraryMetrics;
+import com.example.library.metrics.RequestSqlStatements;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Service importing catalogs of books in bulk, from CSV or NDJSON streams.
+ * <p>
+ * The stream is parsed incrementally, one chunk of {@code app.import.chunk-size} rows at a time, so the body is never
+ * buffered. Each chunk is validated in parallel with the {@link BookDTO} constraints, while the previous chunk is
+ * written. A chunk is written in its own transaction: the ISBNs that already exist are looked up with one query, and
+ * the new books are inserted with one JDBC batch, with ids taken from the pool of the {@link Book} entities. Since
+ * each chunk commits before the next one is checked, an ISBN repeated anywhere in the import is only created once.
+ * The listeners of the derived data receive one {@link BooksImportedEvent} per chunk, and the caller may follow the
+ * progress of the import after each chunk.
+ */
+@Service
+public class BookImportService {
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    /**
+     * The media type of the CSV imports.
+     */
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final String SELECT_EXISTING_ISBNS = "SELECT isbn FROM books WHERE isbn IN (:isbns)";
+
+    private static final String INSERT_BOOK =
+            "INSERT INTO books (id, title, author, isbn, publication_date) VALUES (:id, :title, :author, :isbn, :publicationDate)";
+
+    /**
+     * The number of times a chunk is written again when a concurrent request created one of its ISBNs.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * The smallest number of rows validated by a task, smaller slices cost more to schedule than to validate.
+     */
+    private static final int MIN_VALIDATION_SLICE = 128;
+
+    /**
+     * The largest chunk size: the ISBNs of a chunk are looked up with one query, and PostgreSQL binds at most 32767
+     * parameters per statement.
+     */
+    static final int MAX_CHUNK_SIZE = Short.MAX_VALUE;
+
+    private final @NonNull NamedParameterJdbcTemplate jdbcTemplate;
+    private final @NonNull TransactionTemplate transactionTemplate;
+    private final @NonNull Validator validator;
+    private final @NonNull ObjectReader bookReader;
+    private final @NonNull ApplicationEventPublisher eventPublisher;
+    private final @NonNull LibraryMetrics metrics;
+    private final @NonNull EntityManagerFactory entityManagerFactory;
+    private final @NonNull IdentifierGenerator bookIdGenerator;
+    private final @NonNull org.hibernate.Cache secondLevelCache;
+    private final @Nullable Cache bookCache;
+    private final int chunkSize;
+    private final int maxRejects;
+    private final int validationThreads;
+    private final ExecutorService validationExecutor;
+
+    /**
+     * Create a new BookImportService.
+     *
+     * @param jdbcTemplate         the JDBC template of the batches
+     * @param transactionManager   the transaction manager, each chunk is committed on its own
+     * @param validator            the validator of the BookDTO constraints
+     * @param objectMapper         the object mapper of the NDJSON rows
+     * @param eventPublisher       the publisher of the imported chunks
+     * @param metrics              the library metrics
+     * @param entityManagerFactory the entity manager factory, allocating the ids and whose cached query results are
+     *                             evicted after each chunk
+     * @param cacheManager         the cache manager of the books cached by id
+     * @param chunkSize            the number of rows validated and written together, from 1 to {@value #MAX_CHUNK_SIZE}
+     * @param maxRejects           the maximum number of rejected rows listed in the report
+     * @param validationThreads    the number of threads validating the rows, 0 for one per processor
+     * @throws IllegalArgumentException if the chunk size is out of range
+     */
+    public BookImportService(
+            @NonNull NamedParameterJdbcTemplate jdbcTemplate,
+            @NonNull PlatformTransactionManager transactionManager,
+            @NonNull Validator validator,
+            @NonNull ObjectMapper objectMapper,
+            @NonNull ApplicationEventPublisher eventPublisher,
+            @NonNull LibraryMetrics metrics,
+            @NonNull EntityManagerFactory entityManagerFactory,
+            @NonNull CacheManager cacheManager,
+            @Value("${app.import.chunk-size:1000}") int chunkSize,
+            @Value("${app.import.max-rejects:1000}") int maxRejects,
+            @Value("${app.import.validation-threads:0}") int validationThreads
+    ) {
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("app.import.chunk-size must be between 1 and " + MAX_CHUNK_SIZE + ", was " + chunkSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.bookReader = objectMapper.readerFor(BookDTO.class);
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.entityManagerFactory = entityManagerFactory;
+        this.bookIdGenerator = (IdentifierGenerator) sessionFactory.getMappingMetamodel().getEntityDescriptor(Book.class).getGenerator();
+        this.secondLevelCache = sessionFactory.getCache();
+        this.bookCache = cacheManager.getCache(CacheConfig.BOOKS);
+        this.chunkSize = chunkSize;
+        this.maxRejects = maxRejects;
+        this.validationThreads = validationThreads > 0 ? validationThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.validationExecutor = new ThreadPoolExecutor(this.validationThreads, this.validationThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "book-import-validation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stop the validation threads before the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.validationExecutor.shutdownNow();
+    }
+
+    /**
+     * Import the books of a stream. The valid rows are created, the rows whose ISBN already exists are skipped, and
+     * the invalid rows are rejected. The chunks committed before a failure stay imported.
+     * <p>
+     * A CSV stream starts with a header naming the columns: title, author, isbn and publication_date (or
+     * publicationDate), in any order. An NDJSON stream holds one book object per line, as accepted by
+     * {@code POST /api/books}.
+     *
+     * @param body    the stream of the rows
+     * @param format  the format of the stream
+     * @param charset the charset of the stream
+     * @return the report of the import
+     * @throws IOException            if the stream can't be read
+     * @throws InvalidImportException if the CSV header is missing a column, or a quoted field is not closed
+     */
+    public @NonNull BookImportReportDTO importBooks(@NonNull InputStream body, @NonNull Format format, @NonNull Charset charset) throws IOException, RepositoryException.BadRequest {
+        return this.importBooks(body, format, charset, progress -> {
+        });
+    }
+
+    /**
+     * Import the books of a stream, reporting the progress after each chunk. See
+     * {@link #importBooks(InputStream, Format, Charset)}.
+     * <p>
+     * Each progress report holds the counts so far and the rows listed since the previous report, so every listed row
+     * is reported once. The last report holds the final counts.
+     *
+     * @param body       the stream of the rows
+     * @param format     the format of the stream
+     * @param charset    the charset of the stream
+     * @param onProgress receives the progress after each chunk, then the final counts
+     * @return the report of the import, listing all the rows
+     * @throws IOException            if the stream can't be read
+     * @throws InvalidImportException if the CSV header is missing a column, or a quoted field is not closed
+     */
+    public @NonNull BookImportReportDTO importBooks(
+            @NonNull InputStream body,
+            @NonNull Format format,
+            @NonNull Charset charset,
+            @NonNull Consumer<BookImportReportDTO> onProgress
+    ) throws IOException, RepositoryException.BadRequest {
+        long start = System.nanoTime();
+        // Each chunk runs the same statements, these are not N+1 queries.
+        RequestSqlStatements statements = RequestSqlStatements.current();
+        if (statements != null) {
+            statements.allowRepeats();
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, charset), 64 * 1024);
+        RowSource rows = format == Format.CSV ? new CsvRows(new CsvReader(reader)) : new NdjsonRows(reader, this.bookReader);
+        Progress progress = new Progress(this.maxRejects);
+
+        // Validate each chunk while the previous one is written.
+        CompletableFuture<List<Row>> pending = null;
+        while (true) {
+            List<Row> chunk = this.readChunk(rows, progress);
+            CompletableFuture<List<Row>> validated = chunk.isEmpty() ? null : this.validate(chunk);
+            if (pending != null) {
+                this.write(pending.join(), progress);
+                onProgress.accept(progress.reportSinceLast((System.nanoTime() - start) / 1_000_000));
+            }
+            if (validated == null) {
+                break;
+            }
+            pending = validated;
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Imported {} books in {} ms: {} rows, {} duplicates, {} rejected",
+                progress.imported, durationMs, progress.received, progress.duplicates, progress.rejected);
+        onProgress.accept(progress.reportSinceLast(durationMs));
+        return progress.report(durationMs, progress.rejects);
+    }
+
+    /**
+     * Read the next chunk of rows, rejecting the rows that can't be parsed.
+     */
+    private @NonNull List<Row> readChunk(@NonNull RowSource rows, @NonNull Progress progress) throws IOException, RepositoryException.BadRequest {
+        List<Row> chunk = new ArrayList<>(this.chunkSize);
+        Row row;
+        while (chunk.size() < this.chunkSize && (row = rows.next()) != null) {
+            progress.received++;
+            if (row.errors.isEmpty()) {
+                chunk.add(row);
+            } else {
+                progress.reject(row);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Validate the rows of a chunk on the validation threads.
+     *
+     * @return the chunk, once all its rows are validated
+     */
+    private @NonNull CompletableFuture<List<Row>> validate(@NonNull List<Row> chunk) {
+        int sliceSize = Math.max(MIN_VALIDATION_SLICE, (chunk.size() + this.validationThreads - 1) / this.validationThreads);
+        List<CompletableFuture<Void>> slices = new ArrayList<>();
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<Row> slice = chunk.subList(from, Math.min(chunk.size(), from + sliceSize));
+            slices.add(CompletableFuture.runAsync(() -> slice.forEach(this::validate), this.validationExecutor));
+        }
+        return CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new)).thenApply(done -> chunk);
+    }
+
+    private void validate(@NonNull Row row) {
+        for (ConstraintViolation<BookDTO> violation : this.validator.validate(row.book)) {
+            row.errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+    }
+
+    /**
+     * Write the valid rows of a chunk in one transaction, skipping the ISBNs that already exist.
+     */
+    private void write(@NonNull List<Row> chunk, @NonNull Progress progress) {
+        // Keep the first row of each ISBN.
+        Map<String, Row> rowsByIsbn = new LinkedHashMap<>();
+        for (Row row : chunk) {
+            if (!row.errors.isEmpty()) {
+                progress.reject(row);
+                continue;
+            }
+            Row first = rowsByIsbn.putIfAbsent(row.book.getIsbn(), row);
+            if (first != null) {
+                row.errors.add("Duplicate ISBN, first on line " + first.line);
+                progress.duplicate(row);
+            }
+        }
+        if (rowsByIsbn.isEmpty()) {
+            return;
+        }
+
+        Chunk written = null;
+        for (int attempt = 1; written == null; attempt++) {
+            try {
+                written = Objects.requireNonNull(this.transactionTemplate.execute(status -> this.insert(rowsByIsbn)));
+            } catch (DuplicateKeyException e) {
+                // A concurrent request created one of the ISBNs after they were checked, check them again.
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Book import chunk conflicted with a concurrent insert, retrying", e);
+            }
+        }
+
+        for (String isbn : written.existingIsbns()) {
+            Row row = rowsByIsbn.get(isbn);
+            row.errors.add("Book already exists with ISBN: " + isbn);
+            progress.duplicate(row);
+        }
+        progress.imported += written.bookIds().size();
+        progress.chunks++;
+        this.metrics.recordBooksAdded(written.bookIds().size());
+
+        // The batch bypassed Hibernate and the book cache, which may hold the absence of the new ids.
+        this.secondLevelCache.evictDefaultQueryRegion();
+        if (this.bookCache != null) {
+            written.bookIds().forEach(this.bookCache::evict);
+        }
+        logger.debug("Imported a chunk of {} books, {} rows read so far", written.bookIds().size(), progress.received);
+    }
+
+    /**
+     * Insert the books whose ISBN doesn't exist yet, within the current transaction.
+     */
+    private @NonNull Chunk insert(@NonNull Map<String, Row> rowsByIsbn) {
+        Set<String> existingIsbns = new HashSet<>(this.jdbcTemplate.queryForList(SELECT_EXISTING_ISBNS,
+                new MapSqlParameterSource("isbns", rowsByIsbn.keySet()), String.class));
+
+        List<BookDTO> books = rowsByIsbn.values().stream()
+                .map(row -> row.book)
+                .filter(book -> !existingIsbns.contains(book.getIsbn()))
+                .toList();
+        if (books.isEmpty()) {
+            return new Chunk(existingIsbns, List.of());
+        }
+
+        // The ids are known before the batch, which doesn't have to return the generated keys.
+        List<Long> bookIds = this.allocateBookIds(books.size());
+        MapSqlParameterSource[] inserts = new MapSqlParameterSource[books.size()];
+        for (int index = 0; index < books.size(); index++) {
+            BookDTO book = books.get(index);
+            inserts[index] = new MapSqlParameterSource()
+                    .addValue("id", bookIds.get(index))
+                    .addValue("title", book.getTitle())
+                    .addValue("author", book.getAuthor())
+                    .addValue("isbn", book.getIsbn())
+                    .addValue("publicationDate", book.getPublicationDate());
+        }
+        this.jdbcTemplate.batchUpdate(INSERT_BOOK, inserts);
+
+        // Notify the listeners once the chunk commits.
+        this.eventPublisher.publishEvent(new BooksImportedEvent(bookIds));
+        return new Chunk(existingIsbns, bookIds);
+    }
+
+    /**
+     * Allocate the ids of new books from the same pool as the {@link Book} entities, within the current transaction.
+     * The sequence is only queried once per block of ids.
+     *
+     * @return the ids, in ascending order
+     */
+    private @NonNull List<Long> allocateBookIds(int count) {
+        SharedSessionContractImplementor session = Objects.requireNonNull(
+                EntityManagerFactoryUtils.getTransactionalEntityManager(this.entityManagerFactory)).unwrap(SharedSessionContractImplementor.class);
+        List<Long> ids = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            ids.add(((Number) this.bookIdGenerator.generate(session, null)).longValue());
+        }
+        return ids;
+    }
+
+    /**
+     * The format of an import.
+     */
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        /**
+         * Get the format of a content type.
+         *
+         * @param contentType the content type of the request
+         * @return the format, null if the content type is not supported
+         */
+        public static @Nullable Format of(@NonNull MediaType contentType) {
+            if (contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE))) {
+                return CSV;
+            }
+            if (contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return NDJSON;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Exception thrown when an import can't be read at all.
+     */
+    public static class InvalidImportException extends RepositoryException.BadRequest {
+        /**
+         * Creates a new InvalidImportException.
+         *
+         * @param message the reason
+         */
+        public InvalidImportException(@NonNull String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A row of an import, with the errors found so far.
+     */
+    private static final class Row {
+        private final long line;
+        private final @Nullable BookDTO book;
+        private final List<String> errors = new ArrayList<>(0);
+
+        private Row(long line, @Nullable BookDTO book) {
+            this.line = line;
+            this.book = book;
+        }
+
+        private static Row rejected(long line, @NonNull String error) {
+            Row row = new Row(line, null);
+            row.errors.add(error);
+            return row;
+        }
+    }
+
+    /**
+     * The rows of a stream, parsed one at a time.
+     */
+    private interface RowSource {
+        /**
+         * Read the next row.
+         *
+         * @return the row, null at the end of the stream
+         */
+        @Nullable Row next() throws IOException, RepositoryException.BadRequest;
+    }
+
+    /**
+     * The rows of a CSV stream, whose header names the columns.
+     */
+    private static final class CsvRows implements RowSource {
+        private final CsvReader reader;
+        private int title = -1;
+        private int author = -1;
+        private int isbn = -1;
+        private int publicationDate = -1;
+        private int columns;
+
+        private CsvRows(CsvReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public @Nullable Row next() throws IOException, RepositoryException.BadRequest {
+            if (this.title < 0) {
+                this.readHeader();
+            }
+            List<String> fields;
+            long line;
+            do {
+                line = this.reader.getLine();
+                fields = this.reader.readRecord();
+            } while (fields != null && isBlank(fields));
+            if (fields == null) {
+                return null;
+            }
+            if (fields.size() < this.columns) {
+                return Row.rejected(line, "Expected " + this.columns + " fields, found " + fields.size());
+            }
+            LocalDate date = null;
+            String dateField = fields.get(this.publicationDate).strip();
+            if (!dateField.isEmpty()) {
+                try {
+                    date = LocalDate.parse(dateField);
+                } catch (DateTimeParseException e) {
+                    return Row.rejected(line, "publicationDate: Invalid date " + dateField + ", expected yyyy-MM-dd");
+                }
+            }
+            return new Row(line, new BookDTO(null, emptyToNull(fields.get(this.title)), emptyToNull(fields.get(this.author)),
+                    emptyToNull(fields.get(this.isbn).strip()), date));
+        }
+
+        private void readHeader() throws IOException, RepositoryException.BadRequest {
+            List<String> header = this.reader.readRecord();
+            if (header == null) {
+                throw new InvalidImportException("Missing CSV header");
+            }
+            this.columns = header.size();
+            for (int index = 0; index < header.size(); index++) {
+                switch (header.get(index).strip().toLowerCase(Locale.ROOT).replace("_", "")) {
+                    case "title" -> this.title = index;
+                    case "author" -> this.author = index;
+                    case "isbn" -> this.isbn = index;
+                    case "publicationdate" -> this.publicationDate = index;
+                    default -> {
+                        // The other columns, such as an id, are ignored.
+                    }
+                }
+            }
+            if (this.title < 0 || this.author < 0 || this.isbn < 0 || this.publicationDate < 0) {
+                throw new InvalidImportException("The CSV header must name the title, author, isbn and publication_date columns");
+            }
+        }
+
+        private static boolean isBlank(List<String> fields) {
+            return fields.size() == 1 && fields.get(0).isBlank();
+        }
+
+        private static @Nullable String emptyToNull(String field) {
+            return field.isEmpty() ? null : field;
+        }
+    }
+
+    /**
+     * The rows of an NDJSON stream, one JSON object per line.
+     */
+    private static final class NdjsonRows implements RowSource {
+        private final BufferedReader reader;
+        private final ObjectReader bookReader;
+        private long line;
+
+        private NdjsonRows(BufferedReader reader, ObjectReader bookReader) {
+            this.reader = reader;
+            this.bookReader = bookReader;
+        }
+
+        @Override
+        public @Nullable Row next() throws IOException {
+            String text;
+            do {
+                text = this.reader.readLine();
+                this.line++;
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+            try {
+                BookDTO book = this.bookReader.readValue(text);
+                if (book == null) {
+                    return Row.rejected(this.line, "Expected a JSON object");
+                }
+                book.setId(null);
+                return new Row(this.line, book);
+            } catch (JsonProcessingException e) {
+                return Row.rejected(this.line, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * The counts of an import, and the first rejected rows.
+     */
+    private static final class Progress {
+        private final int maxRejects;
+        private final List<BookImportReportDTO.Reject> rejects = new ArrayList<>();
+        private long received;
+        private long imported;
+        private long duplicates;
+        private long rejected;
+        private int chunks;
+
+        /**
+         * The number of listed rows already reported.
+         */
+        private int reportedRejects;
+
+        private Progress(int maxRejects) {
+            this.maxRejects = maxRejects;
+        }
+
+        private BookImportReportDTO report(long durationMs, List<BookImportReportDTO.Reject> rejects) {
+            return new BookImportReportDTO(this.received, this.imported, this.duplicates, this.rejected, this.chunks, durationMs, rejects);
+        }
+
+        private BookImportReportDTO reportSinceLast(long durationMs) {
+            List<BookImportReportDTO.Reject> rejects = List.copyOf(this.rejects.subList(this.reportedRejects, this.rejects.size()));
+            this.reportedRejects = this.rejects.size();
+            return this.report(durationMs, rejects);
+        }
+
+        private void reject(Row row) {
+            this.rejected++;
+            this.list(row);
+        }
+
+        private void duplicate(Row row) {
+            this.duplicates++;
+            this.list(row);
+        }
+
+        private void list(Row row) {
+            if (this.rejects.size() < this.maxRejects) {
+                this.rejects.add(new BookImportReportDTO.Reject(row.line, row.book != null ? row.book.getIsbn() : null, List.copyOf(row.errors)));
+            }
+        }
+    }
+
+    /**
+     * The outcome of the transaction of a chunk.
+     *
+     * @param existingIsbns the ISBNs that already existed
+     * @param bookIds       the ids of the created books, in ascending order
+     */
+    private record Chunk(Set<String> existingIsbns, List<Long> bookIds) {
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.library.service;
+
+import com.example.library.dto.BookDTO;
+import com.example.library.dto.CountedPage;
+import com.example.library.event.BookChangedEvent;
+import com.example.library.event.BooksImportedEvent;
+import com.example.library.lib.CountMode;
+import com.example.library.specification.BookFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches the first pages of the book listings, with stale-while-revalidate.
+ * <p>
+ * Every committed book change bumps a catalog generation. A page is fresh while no change committed since it was
+ * loaded and its TTL has not elapsed. A stale page is still served, at most {@code max-stale} after it was loaded, and
+ * a single background reload per page replaces it. Concurrent misses of the same page load it only once, so a burst
+ * of identical listings runs the queries once.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cache.book-pages", name = "enabled", havingValue = "true")
+public class BookPageCache {
+    private static final Logger logger = LoggerFactory.getLogger(BookPageCache.class);
+
+    /**
+     * The cached pages. An entry expires once it is too stale to be served.
+     */
+    private final Cache<Key, Entry> entries;
+
+    /**
+     * The pages being reloaded in the background.
+     */
+    private final Set<Key> reloading = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The number of book changes committed so far.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * How long a page is fresh.
+     */
+    private final long ttlNanos;
+
+    /**
+     * The number of pages of a listing that are cached, from the first one.
+     */
+    private final int maxPages;
+
+    private final ExecutorService reloader;
+
+    private final Counter freshHits;
+    private final Counter staleHits;
+    private final Counter misses;
+
+    /**
+     * Create a new BookPageCache.
+     *
+     * @param meterRegistry  the registry of the lookup metrics
+     * @param maximumSize    the maximum number of cached pages
+     * @param ttl            how long a page is fresh, unless a book changes
+     * @param maxStale       how long after it was loaded a stale page is still served
+     * @param maxPages       the number of pages of a listing that are cached, from the first one
+     * @param reloadThreads  the number of threads reloading the stale pages
+     */
+    public BookPageCache(
+            @NonNull MeterRegistry meterRegistry,
+            @Value("${app.cache.book-pages.maximum-size:1000}") long maximumSize,
+            @Value("${app.cache.book-pages.ttl:30s}") Duration ttl,
+            @Value("${app.cache.book-pages.max-stale:5m}") Duration maxStale,
+            @Value("${app.cache.book-pages.max-pages:1}") int maxPages,
+            @Value("${app.cache.book-pages.reload-threads:2}") int reloadThreads
+    ) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxStale)
+                .build();
+        this.ttlNanos = ttl.toNanos();
+        this.maxPages = maxPages;
+        this.reloader = Executors.newFixedThreadPool(reloadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "book-page-cache-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.freshHits = this.lookupCounter(meterRegistry, "fresh");
+        this.staleHits = this.lookupCounter(meterRegistry, "stale");
+        this.misses = this.lookupCounter(meterRegistry, "miss");
+    }
+
+    private Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("library.book-pages.lookups")
+                .description("Lookups of the cached book listings, by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stop the background reloads before the application context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.reloader.shutdownNow();
+    }
+
+    /**
+     * Whether the pages of a listing are cached. Only the first pages are requested often enough to be worth it.
+     *
+     * @param pageable the pagination information
+     * @return true if the page is cached
+     */
+    public boolean isCached(@NonNull Pageable pageable) {
+        return pageable.isPaged() && pageable.getPageNumber() < this.maxPages;
+    }
+
+    /**
+     * Get a page, loading it if it is not cached and reloading it in the background if it is stale.
+     *
+     * @param key    the normalized listing
+     * @param loader loads the page from the database
+     * @return the page, possibly stale
+     */
+    public @NonNull CountedPage<BookDTO> get(@NonNull Key key, @NonNull Supplier<CountedPage<BookDTO>> loader) {
+        Entry entry = this.entries.getIfPresent(key);
+        if (entry == null) {
+            this.misses.increment();
+            // Concurrent misses of the same key wait for the first one to load the page.
+            return this.entries.get(key, k -> this.load(loader)).page();
+        }
+        if (entry.generation() == this.generation.get() && System.nanoTime() - entry.loadedAt() <= this.ttlNanos) {
+            this.freshHits.increment();
+            return entry.page();
+        }
+        this.staleHits.increment();
+        this.reloadInBackground(key, loader);
+        return entry.page();
+    }
+
+    /**
+     * Mark all the pages stale once a book change is committed.
+     *
+     * @param event the book change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(@NonNull BookChangedEvent event) {
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Mark all the pages stale once a chunk of imported books is committed.
+     *
+     * @param event the imported books
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(@NonNull BooksImportedEvent event) {
+        this.generation.incrementAndGet();
+    }
+
+    private void reloadInBackground(Key key, Supplier<CountedPage<BookDTO>> loader) {
+        if (!this.reloading.add(key)) {
+            // Another request is already reloading the page.
+            return;
+        }
+        try {
+            this.reloader.execute(() -> {
+                try {
+                    this.entries.put(key, this.load(loader));
+                } catch (RuntimeException e) {
+                    // Keep serving the stale page until it expires, the next request tries again.
+                    logger.warn("Failed to reload the book page {}", key, e);
+                } finally {
+                    this.reloading.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down.
+            this.reloading.remove(key);
+        }
+    }
+
+    private Entry load(Supplier<CountedPage<BookDTO>> loader) {
+        // Read the generation first, so a change committed during the load leaves the page stale.
+        long loadedGeneration = this.generation.get();
+        long loadedAt = System.nanoTime();
+        return new Entry(loader.get(), loadedGeneration, loadedAt);
+    }
+
+    /**
+     * A listing of books: equal keys return the same page.
+     *
+     * @param filter    the normalized filter of the books
+     * @param pageable  the pagination information
+     * @param countMode how the total is counted
+     */
+    public record Key(@NonNull BookFilter filter, @NonNull Pageable pageable, @NonNull CountMode countMode) {
+    }
+
+    private record Entry(CountedPage<BookDTO> page, long generation, long loadedAt) {
+    }
+}
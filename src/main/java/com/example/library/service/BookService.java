@@ -1,23 +1,54 @@
 package com.example.library.service;
 
+import com.example.library.aspect.SingleFlight;
+import com.example.library.config.CacheConfig;
 import com.example.library.dto.BookDTO;
+import com.example.library.dto.CountedPage;
+import com.example.library.dto.CursorPage;
+import com.example.library.dto.SuggestionDTO;
 import com.example.library.entity.Book;
+import com.example.library.event.BookChangedEvent;
+import com.example.library.lib.CountMode;
+import com.example.library.lib.KeysetCursor;
 import com.example.library.lib.RepositoryException;
+import com.example.library.lib.SpecificationComposer;
 import com.example.library.mapper.BookMapper;
+import com.example.library.metrics.BookSearchEvent;
 import com.example.library.repository.BookRepository;
+import com.example.library.search.BookSearchIndex;
+import com.example.library.search.FuzzyTermIndex;
+import com.example.library.search.SearchHits;
+import com.example.library.search.SuggestionIndex;
+import com.example.library.search.Tokenizer;
+import com.example.library.specification.BookFilter;
+import com.example.library.specification.BookSpecification;
 import jakarta.validation.constraints.NotNull;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service implementation for the Book entity.
@@ -28,18 +59,64 @@ public class BookService {
 
     private final @NonNull BookRepository bookRepository;
     private final @NonNull BookMapper bookMapper;
+    private final @NonNull BookCountCache bookCountCache;
+    private final @NonNull ApplicationEventPublisher eventPublisher;
+    private final @NonNull Optional<BookSearchIndex> bookSearchIndex;
+    private final @NonNull Optional<FuzzyTermIndex> fuzzyTermIndex;
+    private final @NonNull Optional<SuggestionIndex> suggestionIndex;
+    private final @NonNull Optional<BookPageCache> bookPageCache;
 
-    public BookService(@NonNull BookRepository bookRepository, @NonNull BookMapper bookMapper) {
+    /**
+     * Runs the listings in a read-only transaction, also when the page cache reloads them in the background.
+     */
+    private final @NonNull TransactionTemplate readOnlyTransaction;
+
+    /**
+     * The maximum number of books counted with {@link CountMode#CAPPED}.
+     */
+    private final int countCap;
+
+    /**
+     * The maximum number of suggestions for a prefix.
+     */
+    private final int suggestLimit;
+
+    public BookService(
+            @NonNull BookRepository bookRepository,
+            @NonNull BookMapper bookMapper,
+            @NonNull BookCountCache bookCountCache,
+            @NonNull ApplicationEventPublisher eventPublisher,
+            @NonNull Optional<BookSearchIndex> bookSearchIndex,
+            @NonNull Optional<FuzzyTermIndex> fuzzyTermIndex,
+            @NonNull Optional<SuggestionIndex> suggestionIndex,
+            @NonNull Optional<BookPageCache> bookPageCache,
+            @NonNull PlatformTransactionManager transactionManager,
+            @Value("${app.pagination.count-cap:1000}") int countCap,
+            @Value("${app.search.suggest.top-k:10}") int suggestLimit
+    ) {
         this.bookRepository = bookRepository;
         this.bookMapper = bookMapper;
+        this.bookCountCache = bookCountCache;
+        this.eventPublisher = eventPublisher;
+        this.bookSearchIndex = bookSearchIndex;
+        this.fuzzyTermIndex = fuzzyTermIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.bookPageCache = bookPageCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.countCap = countCap;
+        this.suggestLimit = suggestLimit;
     }
 
     /**
      * Get a single book by its id.
+     * The book is cached until it changes or expires, and concurrent misses of the same id load it only once.
      *
      * @param id the id of the book
      * @return an optional with the book if found, empty otherwise
      */
+    @SingleFlight
+    @Cacheable(cacheNames = CacheConfig.BOOKS, sync = true)
     public @NonNull Optional<BookDTO> getBookById(@NonNull Long id) {
         // Find the book by its ID and map it to a DTO.
         return this.bookRepository.findById(id).map(this.bookMapper::toDto);
@@ -57,6 +134,202 @@ public class BookService {
         return this.bookRepository.findAll(bookSpecification, pageable).map(this.bookMapper::toDto);
     }
 
+    /**
+     * Get a page of books matching a filter, choosing how the total is counted.
+     * The count is skipped when the total can be derived from the page, as on the last page. When the page cache is
+     * enabled, the first pages may be served up to {@code app.cache.book-pages.max-stale} after a book changed.
+     *
+     * @param bookFilter the filter of the books
+     * @param pageable   the pagination information
+     * @param countMode  how the total number of books is counted
+     * @return a page of books, telling whether the total is exact or a lower bound
+     */
+    @SingleFlight
+    public @NonNull CountedPage<BookDTO> getBooks(@NonNull BookFilter bookFilter, @NonNull Pageable pageable, @NonNull CountMode countMode) {
+        if (this.bookPageCache.isPresent() && this.bookPageCache.get().isCached(pageable)) {
+            // Cache hits do not open a transaction.
+            return this.bookPageCache.get().get(new BookPageCache.Key(bookFilter, pageable, countMode),
+                    () -> this.findBooks(bookFilter, pageable, countMode));
+        }
+        return this.findBooks(bookFilter, pageable, countMode);
+    }
+
+    /**
+     * Find a page of books matching a filter, in a read-only transaction.
+     */
+    private @NonNull CountedPage<BookDTO> findBooks(@NonNull BookFilter bookFilter, @NonNull Pageable pageable, @NonNull CountMode countMode) {
+        BookSearchEvent event = new BookSearchEvent();
+        event.begin();
+        CountedPage<BookDTO> page = Objects.requireNonNull(this.readOnlyTransaction.execute(status -> {
+            Specification<Book> bookSpecification = this.toSpecification(bookFilter);
+            if (countMode == CountMode.EXACT) {
+                // Let the repository run the content and count queries.
+                Page<Book> books = this.bookRepository.findAll(Specification.where(bookSpecification), pageable);
+                return new CountedPage<>(books.getContent(), pageable, books.getTotalElements(), true).map(this.bookMapper::toDto);
+            }
+            // Find the books of the page without counting them.
+            List<Book> books = this.bookRepository.findPageContent(bookSpecification, pageable);
+            return CountedPage.of(books, pageable, () -> countMode == CountMode.CAPPED
+                    ? this.countBooksCapped(bookSpecification, pageable)
+                    : this.countBooksCached(bookFilter, bookSpecification)
+            ).map(this.bookMapper::toDto);
+        }));
+        event.complete("filter", filterShape(bookFilter), "database", countMode.name(),
+                page.getNumber(), page.getSize(), page.getNumberOfElements());
+        return page;
+    }
+
+    /**
+     * Describe the fields a filter constrains, without their values.
+     */
+    private static @NonNull String filterShape(@NonNull BookFilter bookFilter) {
+        StringBuilder shape = new StringBuilder();
+        if (bookFilter.title() != null) {
+            shape.append("title");
+        }
+        if (bookFilter.author() != null) {
+            shape.append(shape.isEmpty() ? "" : "+").append("author");
+        }
+        if (shape.isEmpty()) {
+            shape.append("none");
+        }
+        return bookFilter.fuzzy() ? shape.append(" (fuzzy)").toString() : shape.toString();
+    }
+
+    /**
+     * Create the specification of a filter. Fuzzy filters are matched exactly while the fuzzy index is disabled or
+     * still building.
+     */
+    private @Nullable Specification<Book> toSpecification(@NonNull BookFilter bookFilter) {
+        if (bookFilter.fuzzy()) {
+            Optional<Specification<Book>> fuzzySpecification = this.fuzzyTermIndex.flatMap(index -> index.toSpecification(bookFilter));
+            if (fuzzySpecification.isPresent()) {
+                return fuzzySpecification.get();
+            }
+        }
+        return bookFilter.toSpecification();
+    }
+
+    /**
+     * Count the books up to the cap, or up to the end of the requested page if it is beyond the cap.
+     * Counting one more book than the bound tells whether the bound is exceeded.
+     */
+    private CountedPage.Total countBooksCapped(@Nullable Specification<Book> bookSpecification, @NonNull Pageable pageable) {
+        long bound = Math.max(this.countCap, pageable.isPaged() ? pageable.getOffset() + pageable.getPageSize() : 0);
+        int limit = Math.toIntExact(Math.min(bound + 1, Integer.MAX_VALUE));
+        long count = this.bookRepository.countUpTo(bookSpecification, limit);
+        return new CountedPage.Total(count, count < limit);
+    }
+
+    /**
+     * Count the books, reusing a cached count if no book changed since it was computed.
+     */
+    private CountedPage.Total countBooksCached(@NonNull BookFilter bookFilter, @Nullable Specification<Book> bookSpecification) {
+        OptionalLong cached = this.bookCountCache.get(bookFilter);
+        if (cached.isPresent()) {
+            return new CountedPage.Total(cached.getAsLong(), true);
+        }
+        // Read the generation first, so a change committed during the count invalidates it.
+        long generation = this.bookCountCache.generation();
+        long count = this.bookRepository.count(Specification.where(bookSpecification));
+        this.bookCountCache.put(bookFilter, count, generation);
+        return new CountedPage.Total(count, true);
+    }
+
+    /**
+     * Search the books whose title or author contain all the words of a query.
+     * The in-memory search index ranks the books by relevance and only the books of the page are loaded. While the
+     * index is disabled or still building, the database is searched instead and the books are sorted by the pageable.
+     *
+     * @param query    the words to search for
+     * @param pageable the pagination information
+     * @return a page of matching books
+     */
+    @Transactional(readOnly = true)
+    public @NonNull Page<BookDTO> searchBooks(@NonNull String query, @NonNull Pageable pageable) {
+        List<String> terms = Tokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        BookSearchEvent event = new BookSearchEvent();
+        event.begin();
+        Optional<SearchHits> hits = this.bookSearchIndex.flatMap(index -> index.search(query, pageable));
+        if (hits.isEmpty()) {
+            // Match every word in the title or the author.
+            Specification<Book> bookSpecification = null;
+            for (String term : terms) {
+                bookSpecification = SpecificationComposer.and(bookSpecification, SpecificationComposer.or(
+                        BookSpecification.titleLike(term),
+                        BookSpecification.authorLike(term)
+                ));
+            }
+            Page<BookDTO> page = this.getBooks(bookSpecification, pageable);
+            event.complete("search", terms.size() + " words", "database", null,
+                    page.getNumber(), page.getSize(), page.getNumberOfElements());
+            return page;
+        }
+        // Load the books of the page and keep the order of the index.
+        Map<Long, Book> books = this.bookRepository.findAllById(hits.get().bookIds()).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<BookDTO> content = hits.get().bookIds().stream()
+                .map(books::get)
+                // Skip the books deleted since the search.
+                .filter(Objects::nonNull)
+                .map(this.bookMapper::toDto)
+                .toList();
+        Page<BookDTO> page = new PageImpl<>(content, pageable, hits.get().total());
+        event.complete("search", terms.size() + " words", "index", null,
+                page.getNumber(), page.getSize(), page.getNumberOfElements());
+        return page;
+    }
+
+    /**
+     * Suggest the titles starting with a prefix, as typed in a search box.
+     * The in-memory suggestion index returns the books with the most copies first. While the index is disabled or
+     * still building, the database is searched instead and the books are sorted by title.
+     *
+     * @param prefix the prefix of the title, compared ignoring case
+     * @param limit  the maximum number of suggestions, capped by the configured top-k
+     * @return the suggested books
+     */
+    @Transactional(readOnly = true)
+    public @NonNull List<SuggestionDTO> suggestBooks(@NonNull String prefix, int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, this.suggestLimit));
+        return this.suggestionIndex.flatMap(index -> index.suggestBooks(prefix, boundedLimit))
+                .orElseGet(() -> this.bookRepository.findBy(BookSpecification.titleStartsWith(prefix),
+                                query -> query.sortBy(Sort.by("title", "id")).limit(boundedLimit).all())
+                        .stream()
+                        .map(book -> new SuggestionDTO(book.getId(), book.getTitle()))
+                        .toList());
+    }
+
+    /**
+     * Get a page of books using keyset pagination, sorted by title and then by id.
+     * No count query is run, and deep pages are as fast as the first one.
+     * Fuzzy filters are expanded again for each page, so a page may match books whose terms were indexed since the
+     * previous one.
+     *
+     * @param bookFilter the filter of the books
+     * @param cursor     the cursor returned with the previous page, null or empty for the first page
+     * @param size       the size of the page
+     * @return a page of books
+     * @throws KeysetCursor.InvalidCursorException if the cursor is malformed
+     */
+    public @NonNull CursorPage<BookDTO> scrollBooks(@NonNull BookFilter bookFilter, @Nullable String cursor, int size) throws KeysetCursor.InvalidCursorException {
+        // Seek after the last returned book.
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Specification<Book> bookSpecification = this.toSpecification(bookFilter);
+        Specification<Book> specification = position == null ? bookSpecification : SpecificationComposer.and(
+                bookSpecification,
+                BookSpecification.titleAfter(position.value(), position.tieBreakerAsLong())
+        );
+        // Fetch one more book than requested to know whether there is a next page.
+        List<Book> books = this.bookRepository.findBy(Specification.where(specification),
+                query -> query.sortBy(Sort.by("title", "id")).limit(size + 1).all());
+        // Map the books to DTOs.
+        return CursorPage.of(books, size, book -> new KeysetCursor(book.getTitle(), book.getId().toString()), this.bookMapper::toDto);
+    }
+
     /**
      * Create a new book in the library.
      *
@@ -65,6 +338,7 @@ public class BookService {
      * @throws BookAlreadyExistsException if the book already exists
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#result.id")
     public @NonNull BookDTO createBook(@NonNull BookDTO bookDTO) throws BookAlreadyExistsException {
         // Check if the book already exists.
         if (this.bookRepository.findByIsbn(bookDTO.getIsbn()).isPresent()) {
@@ -78,6 +352,8 @@ public class BookService {
         Book book = this.bookMapper.toEntity(bookDTO);
         // Save the book.
         Book savedBook = this.bookRepository.save(book);
+        // Notify the listeners once the transaction commits.
+        this.eventPublisher.publishEvent(new BookChangedEvent(savedBook.getId()));
         // Map the entity back to a DTO and return it.
         return this.bookMapper.toDto(savedBook);
     }
@@ -91,11 +367,14 @@ public class BookService {
      * @throws BookNotFoundException if the book is not found
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#id")
     public @NonNull BookDTO updateBook(@NonNull Long id, @NonNull BookDTO bookDTO) throws BookNotFoundException {
         // Fetch the existing book entity
         Book book = this.bookRepository.findById(id).orElseThrow(() -> new BookNotFoundException(id));
         // Update the book entity using the mapper
         this.bookMapper.updateBook(bookDTO, book);
+        // Notify the listeners once the transaction commits.
+        this.eventPublisher.publishEvent(new BookChangedEvent(id));
         // Convert the updated entity back to DTO and return
         return this.bookMapper.toDto(book);
     }
@@ -107,6 +386,7 @@ public class BookService {
      * @throws BookNotFoundException if the book is not found
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#id")
     public void deleteBook(@NonNull Long id) throws BookNotFoundException {
         // Check if the book exists.
         if (!this.bookRepository.existsById(id)) {
@@ -115,6 +395,8 @@ public class BookService {
         }
         // Delete the book by its ID.
         this.bookRepository.deleteById(id);
+        // Notify the listeners once the transaction commits.
+        this.eventPublisher.publishEvent(new BookChangedEvent(id));
     }
 
     /**
@@ -2,16 +2,22 @@ package com.example.library.service;
 
 import com.example.library.entity.User;
 import com.example.library.repository.UserRepository;
+import com.example.library.security.UserPrincipal;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -20,29 +26,57 @@ public class CustomUserDetailsService implements UserDetailsService {
     }
 
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    public UserPrincipal loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = this.userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                user.getRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                        .collect(Collectors.toSet())
-        );
+        return this.toPrincipal(user);
     }
 
-    public UserDetails loadUserById(Long id) {
+    public UserPrincipal loadUserById(Long id) {
         User user = this.userRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
 
-        return new org.springframework.security.core.userdetails.User(
+        return this.toPrincipal(user);
+    }
+
+    /**
+     * Store the new hash of a password, after a successful login with a hash weaker than the configured one.
+     *
+     * @param userDetails the authenticated user
+     * @param newPassword the new hash of the password
+     * @return the user with the new hash and version
+     */
+    @Override
+    @Transactional
+    public UserPrincipal updatePassword(UserDetails userDetails, String newPassword) {
+        User user = this.userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+
+        // Flush to get the incremented version, which the token of this login carries.
+        return this.toPrincipal(this.userRepository.saveAndFlush(user));
+    }
+
+    private UserPrincipal toPrincipal(User user) {
+        return new UserPrincipal(
+                user.getId(),
                 user.getUsername(),
                 user.getPassword(),
-                user.getRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                        .collect(Collectors.toSet())
+                user.getVersion() == null ? 0 : user.getVersion(),
+                toAuthorities(user.getRoles())
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Map roles onto the authorities checked by the security rules.
+     *
+     * @param roles the roles, without the ROLE_ prefix
+     * @return the authorities
+     */
+    public static Set<GrantedAuthority> toAuthorities(Collection<String> roles) {
+        return roles.stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .collect(Collectors.toSet());
+    }
+}
@@ -1,20 +1,34 @@
 package com.example.library.service;
 
+import com.example.library.config.CacheConfig;
+import com.example.library.dto.CursorPage;
 import com.example.library.dto.LocationDTO;
+import com.example.library.dto.SuggestionDTO;
 import com.example.library.entity.Location;
+import com.example.library.event.LocationChangedEvent;
+import com.example.library.lib.KeysetCursor;
 import com.example.library.lib.RepositoryException;
+import com.example.library.lib.SpecificationComposer;
 import com.example.library.mapper.LocationMapper;
 import com.example.library.repository.LocationRepository;
+import com.example.library.search.SuggestionIndex;
+import com.example.library.specification.LocationSpecification;
 import jakarta.validation.constraints.NotNull;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -32,23 +46,52 @@ public class LocationService {
      */
     private final @NonNull LocationMapper locationMapper;
 
+    /**
+     * The publisher of the location change events.
+     */
+    private final @NonNull ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The in-memory suggestion index, absent if disabled.
+     */
+    private final @NonNull Optional<SuggestionIndex> suggestionIndex;
+
+    /**
+     * The maximum number of suggestions for a prefix.
+     */
+    private final int suggestLimit;
+
     /**
      * Create a new LocationServiceImpl.
      *
      * @param locationRepository the repository for the Location entity
      * @param modelMapper        the ModelMapper instance
+     * @param eventPublisher     the publisher of the location change events
+     * @param suggestionIndex    the in-memory suggestion index, absent if disabled
+     * @param suggestLimit       the maximum number of suggestions for a prefix
      */
-    public LocationService(@NonNull LocationRepository locationRepository,@NonNull LocationMapper locationMapper) {
+    public LocationService(
+            @NonNull LocationRepository locationRepository,
+            @NonNull LocationMapper locationMapper,
+            @NonNull ApplicationEventPublisher eventPublisher,
+            @NonNull Optional<SuggestionIndex> suggestionIndex,
+            @Value("${app.search.suggest.top-k:10}") int suggestLimit
+    ) {
         this.locationRepository = locationRepository;
         this.locationMapper = locationMapper;
+        this.eventPublisher = eventPublisher;
+        this.suggestionIndex = suggestionIndex;
+        this.suggestLimit = suggestLimit;
     }
 
     /**
      * Get a single location by its id.
+     * The location is cached until it changes or expires, and concurrent misses of the same id load it only once.
      *
      * @param id the id of the location
      * @return an optional with the location if found, empty otherwise
      */
+    @Cacheable(cacheNames = CacheConfig.LOCATIONS, sync = true)
     public @NonNull Optional<LocationDTO> getLocationById(@NonNull Long id) {
         // Find the location by its ID and map it to a DTO.
         return this.locationRepository.findById(id).map(this.locationMapper::toDto);
@@ -66,6 +109,50 @@ public class LocationService {
         return this.locationRepository.findAll(locationSpecification, pageable).map(this.locationMapper::toDto);
     }
 
+    /**
+     * Get a page of locations using keyset pagination, sorted by name and then by id.
+     * No count query is run, and deep pages are as fast as the first one.
+     *
+     * @param locationSpecification the specification to filter the locations
+     * @param cursor                the cursor returned with the previous page, null or empty for the first page
+     * @param size                  the size of the page
+     * @return a page of locations
+     * @throws KeysetCursor.InvalidCursorException if the cursor is malformed
+     */
+    public @NonNull CursorPage<LocationDTO> scrollLocations(@Nullable Specification<Location> locationSpecification, @Nullable String cursor, int size) throws KeysetCursor.InvalidCursorException {
+        // Seek after the last returned location.
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        Specification<Location> specification = position == null ? locationSpecification : SpecificationComposer.and(
+                locationSpecification,
+                LocationSpecification.nameAfter(position.value(), position.tieBreakerAsLong())
+        );
+        // Fetch one more location than requested to know whether there is a next page.
+        List<Location> locations = this.locationRepository.findBy(Specification.where(specification),
+                query -> query.sortBy(Sort.by("name", "id")).limit(size + 1).all());
+        // Map the locations to DTOs.
+        return CursorPage.of(locations, size, location -> new KeysetCursor(location.getName(), location.getId().toString()), this.locationMapper::toDto);
+    }
+
+    /**
+     * Suggest the location names starting with a prefix, as typed in a search box.
+     * The in-memory suggestion index returns the locations holding the most copies first. While the index is disabled
+     * or still building, the database is searched instead and the locations are sorted by name.
+     *
+     * @param prefix the prefix of the name, compared ignoring case
+     * @param limit  the maximum number of suggestions, capped by the configured top-k
+     * @return the suggested locations
+     */
+    @Transactional(readOnly = true)
+    public @NonNull List<SuggestionDTO> suggestLocations(@NonNull String prefix, int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, this.suggestLimit));
+        return this.suggestionIndex.flatMap(index -> index.suggestLocations(prefix, boundedLimit))
+                .orElseGet(() -> this.locationRepository.findBy(LocationSpecification.nameStartsWith(prefix),
+                                query -> query.sortBy(Sort.by("name", "id")).limit(boundedLimit).all())
+                        .stream()
+                        .map(location -> new SuggestionDTO(location.getId(), location.getName()))
+                        .toList());
+    }
+
     /**
      * Create a new location in the library.
      *
@@ -73,6 +160,7 @@ public class LocationService {
      * @return the created location
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.LOCATIONS, key = "#result.id")
     public @NonNull LocationDTO createLocation(@NonNull LocationDTO locationDTO) {
         // Ensure the ID is not set
         locationDTO.setId(null);
@@ -80,6 +168,8 @@ public class LocationService {
         Location location = this.locationMapper.toEntity(locationDTO);
         // Save the location.
         Location savedLocation = this.locationRepository.save(location);
+        // Notify the listeners once the transaction commits.
+        this.eventPublisher.publishEvent(new LocationChangedEvent(savedLocation.getId()));
         // Map the entity back to a DTO and return it.
         return this.locationMapper.toDto(savedLocation);
     }
@@ -93,11 +183,14 @@ public class LocationService {
      * @throws LocationNotFoundException if the location is not found
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.LOCATIONS, key = "#id")
     public @NonNull LocationDTO updateLocation(@NonNull Long id, @NonNull LocationDTO locationDTO) throws LocationNotFoundException {
         // Find the location by its ID.
         Location location = this.locationRepository.findById(id).orElseThrow(() -> new LocationNotFoundException(id));
         // Map the DTO to the entity.
         this.locationMapper.updateLocation(locationDTO, location);
+        // Notify the listeners once the transaction commits.
+        this.eventPublisher.publishEvent(new LocationChangedEvent(id));
         // Save the updated location.
         return this.locationMapper.toDto(location);
     }
@@ -109,6 +202,7 @@ public class LocationService {
      * @throws LocationNotFoundException if the location is not found
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.LOCATIONS, key = "#id")
     public void deleteLocation(@NonNull Long id) throws LocationNotFoundException {
         // Check if the location exists.
         if (!this.locationRepository.existsById(id)) {
@@ -117,6 +211,8 @@ public class LocationService {
         }
         // Delete the location by its ID.
         this.locationRepository.deleteById(id);
+        // Notify the listeners once the transaction commits.
+        this.eventPublisher.publishEvent(new LocationChangedEvent(id));
     }
 
     /**
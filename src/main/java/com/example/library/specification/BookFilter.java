@@ -0,0 +1,52 @@
+package com.example.library.specification;
+
+import com.example.library.entity.Book;
+import com.example.library.lib.SpecificationComposer;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+import java.util.Locale;
+
+/**
+ * The filter of a book search. Equal filters match the same books, so it can be used as a cache key.
+ *
+ * @param title  the title to search for, lower case, null to match any title
+ * @param author the author to search for, lower case, null to match any author
+ * @param fuzzy  whether to tolerate typos in the title and author
+ */
+public record BookFilter(@Nullable String title, @Nullable String author, boolean fuzzy) {
+	/**
+	 * Create a new BookFilter, normalizing the search terms.
+	 * The matching is case-insensitive and an empty term matches everything, so both are folded away.
+	 */
+	public BookFilter {
+		title = normalize(title);
+		author = normalize(author);
+	}
+
+	/**
+	 * Create a new exact BookFilter.
+	 *
+	 * @param title  the title to search for, null to match any title
+	 * @param author the author to search for, null to match any author
+	 */
+	public BookFilter(@Nullable String title, @Nullable String author) {
+		this(title, author, false);
+	}
+
+	/**
+	 * Create a specification that matches the books of this filter, exactly.
+	 *
+	 * @return the specification, null if the filter matches all books
+	 */
+	public @Nullable Specification<Book> toSpecification() {
+		return SpecificationComposer.and(
+				BookSpecification.titleLike(this.title),
+				BookSpecification.authorLike(this.author)
+		);
+	}
+
+	private static @Nullable String normalize(@Nullable String term) {
+		return term == null || term.isEmpty() ? null : term.toLowerCase(Locale.ROOT);
+	}
+}
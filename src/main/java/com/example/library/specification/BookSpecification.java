@@ -1,9 +1,13 @@
 package com.example.library.specification;
 
 import com.example.library.entity.Book;
+import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
+import java.util.Collection;
+
 /**
  * Defines specifications for querying books.
  */
@@ -18,7 +22,7 @@ public interface BookSpecification extends Specification<Book> {
 		if (title == null) {
 			return null;
 		} else {
-			return (root, query, cb) -> cb.like(cb.lower(root.get("title")), "%" + title.toLowerCase() + "%");
+			return (root, query, cb) -> cb.like(cb.lower(root.get("title")), LikePattern.contains(title), LikePattern.ESCAPE);
 		}
 	}
 
@@ -32,7 +36,65 @@ public interface BookSpecification extends Specification<Book> {
 		if (author == null) {
 			return null;
 		} else {
-			return (root, query, cb) -> cb.like(cb.lower(root.get("author")), "%" + author.toLowerCase() + "%");
+			return (root, query, cb) -> cb.like(cb.lower(root.get("author")), LikePattern.contains(author), LikePattern.ESCAPE);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Create a specification that matches books with a title starting with the given string, ignoring case.
+	 *
+	 * @param prefix the prefix to search for
+	 * @return a specification that matches books with a title starting with the given string
+	 */
+	static @NonNull BookSpecification titleStartsWith(@NonNull String prefix) {
+		return (root, query, cb) -> cb.like(cb.lower(root.get("title")), LikePattern.startsWith(prefix), LikePattern.ESCAPE);
+	}
+
+	/**
+	 * Create a specification that matches books with a title containing any of the given strings.
+	 *
+	 * @param titles the titles to search for
+	 * @return a specification that matches books with a title containing any of the given strings, null if there are none
+	 */
+	static @Nullable BookSpecification titleLikeAny(@NonNull Collection<String> titles) {
+		return likeAny("title", titles);
+	}
+
+	/**
+	 * Create a specification that matches books with an author containing any of the given strings.
+	 *
+	 * @param authors the authors to search for
+	 * @return a specification that matches books with an author containing any of the given strings, null if there are none
+	 */
+	static @Nullable BookSpecification authorLikeAny(@NonNull Collection<String> authors) {
+		return likeAny("author", authors);
+	}
+
+	private static @Nullable BookSpecification likeAny(@NonNull String attribute, @NonNull Collection<String> values) {
+		if (values.isEmpty()) {
+			return null;
+		}
+		return (root, query, cb) -> cb.or(values.stream()
+				.map(value -> cb.like(cb.lower(root.get(attribute)), LikePattern.contains(value), LikePattern.ESCAPE))
+				.toArray(Predicate[]::new));
+	}
+
+	/**
+	 * Create a specification that matches the books sorted after the given position, by title and then by id.
+	 * Used for keyset pagination: the redundant lower bound lets any database seek the title index, which an OR of
+	 * ranges alone does not.
+	 *
+	 * @param title the title of the last returned book
+	 * @param id    the id of the last returned book
+	 * @return a specification that matches the books after the given position
+	 */
+	static @NonNull BookSpecification titleAfter(@NonNull String title, @NonNull Long id) {
+		return (root, query, cb) -> cb.and(
+				cb.greaterThanOrEqualTo(root.<String>get("title"), title),
+				cb.or(
+						cb.greaterThan(root.<String>get("title"), title),
+						cb.and(cb.equal(root.get("title"), title), cb.greaterThan(root.<Long>get("id"), id))
+				)
+		);
+	}
+}
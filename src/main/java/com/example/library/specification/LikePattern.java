@@ -0,0 +1,53 @@
+package com.example.library.specification;
+
+import org.springframework.lang.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Builds the patterns of the case-insensitive substring searches.
+ * <p>
+ * The searches compare {@code lower(column)} with the pattern, which is the expression indexed by the trigram
+ * indexes on PostgreSQL, so the column side must not be wrapped in any other function.
+ */
+final class LikePattern {
+	/**
+	 * The escape character of the patterns, declared explicitly since the default differs between databases.
+	 */
+	static final char ESCAPE = '\\';
+
+	private LikePattern() {
+	}
+
+	/**
+	 * Create a pattern that matches the values containing the given term, ignoring case.
+	 * Wildcards in the term are matched literally.
+	 *
+	 * @param term the term to search for
+	 * @return the lower-case pattern
+	 */
+	static @NonNull String contains(@NonNull String term) {
+		return escape(new StringBuilder(term.length() + 2).append('%'), term).append('%').toString();
+	}
+
+	/**
+	 * Create a pattern that matches the values starting with the given prefix, ignoring case.
+	 * Wildcards in the prefix are matched literally.
+	 *
+	 * @param prefix the prefix to search for
+	 * @return the lower-case pattern
+	 */
+	static @NonNull String startsWith(@NonNull String prefix) {
+		return escape(new StringBuilder(prefix.length() + 1), prefix).append('%').toString();
+	}
+
+	private static StringBuilder escape(StringBuilder pattern, String term) {
+		for (char c : term.toLowerCase(Locale.ROOT).toCharArray()) {
+			if (c == '%' || c == '_' || c == ESCAPE) {
+				pattern.append(ESCAPE);
+			}
+			pattern.append(c);
+		}
+		return pattern;
+	}
+}
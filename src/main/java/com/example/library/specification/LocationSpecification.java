@@ -2,6 +2,7 @@ package com.example.library.specification;
 
 import com.example.library.entity.Location;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
 /**
@@ -18,7 +19,36 @@ public interface LocationSpecification extends Specification<Location> {
 		if (name == null) {
 			return null;
 		} else {
-			return (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase() + "%");
+			return (root, query, cb) -> cb.like(cb.lower(root.get("name")), LikePattern.contains(name), LikePattern.ESCAPE);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Create a specification that matches locations with a name starting with the given string, ignoring case.
+	 *
+	 * @param prefix the prefix to search for
+	 * @return a specification that matches locations with a name starting with the given string
+	 */
+	static @NonNull LocationSpecification nameStartsWith(@NonNull String prefix) {
+		return (root, query, cb) -> cb.like(cb.lower(root.get("name")), LikePattern.startsWith(prefix), LikePattern.ESCAPE);
+	}
+
+	/**
+	 * Create a specification that matches the locations sorted after the given position, by name and then by id.
+	 * Used for keyset pagination: the redundant lower bound lets any database seek the name index, which an OR of
+	 * ranges alone does not.
+	 *
+	 * @param name the name of the last returned location
+	 * @param id   the id of the last returned location
+	 * @return a specification that matches the locations after the given position
+	 */
+	static @NonNull LocationSpecification nameAfter(@NonNull String name, @NonNull Long id) {
+		return (root, query, cb) -> cb.and(
+				cb.greaterThanOrEqualTo(root.<String>get("name"), name),
+				cb.or(
+						cb.greaterThan(root.<String>get("name"), name),
+						cb.and(cb.equal(root.get("name"), name), cb.greaterThan(root.<Long>get("id"), id))
+				)
+		);
+	}
+}
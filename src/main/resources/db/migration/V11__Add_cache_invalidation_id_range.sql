@@ -0,0 +1,2 @@
+-- A chunk of imported books appends a single row for its whole id range, from entity_id to last_entity_id.
+ALTER TABLE cache_invalidations ADD COLUMN last_entity_id BIGINT;
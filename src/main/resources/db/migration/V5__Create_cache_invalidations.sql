@@ -0,0 +1,10 @@
+-- Every committed change of a cached entity appends a row, the other nodes tail the table to evict their copies.
+CREATE TABLE cache_invalidations (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entity VARCHAR(64) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    origin VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_cache_invalidations_created_at ON cache_invalidations (created_at);
@@ -0,0 +1,2 @@
+-- Incremented on every change of a user or of their roles, tokens carry it to be revoked by the change.
+ALTER TABLE users ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
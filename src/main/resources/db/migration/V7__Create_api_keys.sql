@@ -0,0 +1,11 @@
+-- API keys of the machine-to-machine clients. Only a keyed digest of each key is stored, looked up by its prefix.
+CREATE TABLE api_keys (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    prefix VARCHAR(16) NOT NULL,
+    key_hash VARCHAR(64) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    scopes VARCHAR(255) NOT NULL,
+    enabled BOOLEAN DEFAULT TRUE NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    CONSTRAINT uc_api_keys_prefix UNIQUE (prefix)
+);
@@ -0,0 +1,3 @@
+-- The primary key of book_copies is (book_id, location_id), it can't serve the lookups by location.
+-- This location-first index covers the listings of a location: the join to books only needs book_id and quantity.
+CREATE INDEX idx_book_copy_location_book ON book_copies (location_id, book_id, quantity);
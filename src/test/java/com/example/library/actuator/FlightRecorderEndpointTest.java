@@ -0,0 +1,89 @@
+package com.example.library.actuator;
+
+import com.example.library.metrics.BookSearchEvent;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("FlightRecorderEndpoint Tests")
+class FlightRecorderEndpointTest {
+
+	private FlightRecorderEndpoint endpoint;
+
+	@BeforeEach
+	void setUp() {
+		endpoint = new FlightRecorderEndpoint(Duration.ofMinutes(1), DataSize.ofMegabytes(10), "default");
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		endpoint.shutdown();
+	}
+
+	@Test
+	@DisplayName("should record the library events and stream back the recording")
+	void shouldRecordLibraryEvents() throws Exception {
+		FlightRecorderEndpoint.RecordingStatus status = endpoint.start(null, null, null);
+		assertThat(status.state()).isEqualTo("RUNNING");
+
+		BookSearchEvent event = new BookSearchEvent();
+		event.begin();
+		event.complete("filter", "title", "database", "CAPPED", 0, 20, 3);
+
+		Resource resource = endpoint.stop();
+		Path copy = Files.createTempFile("library-test-", ".jfr");
+		try {
+			try (InputStream inputStream = resource.getInputStream()) {
+				Files.copy(inputStream, copy, StandardCopyOption.REPLACE_EXISTING);
+			}
+			List<RecordedEvent> events = RecordingFile.readAllEvents(copy).stream()
+					.filter(recorded -> recorded.getEventType().getName().equals("com.example.library.BookSearch"))
+					.toList();
+			assertThat(events).hasSize(1);
+			assertThat(events.get(0).getString("filter")).isEqualTo("title");
+			assertThat(events.get(0).getInt("rows")).isEqualTo(3);
+		} finally {
+			Files.deleteIfExists(copy);
+		}
+		assertThat(endpoint.status().state()).isEqualTo("NONE");
+	}
+
+	@Test
+	@DisplayName("should bound the duration and size of a recording")
+	void shouldBoundRecording() throws Exception {
+		FlightRecorderEndpoint.RecordingStatus status = endpoint.start(Duration.ofHours(1), DataSize.ofGigabytes(1), null);
+
+		assertThat(status.duration()).isEqualTo(Duration.ofMinutes(1));
+		assertThat(status.maxSize()).isEqualTo(DataSize.ofMegabytes(10).toBytes());
+	}
+
+	@Test
+	@DisplayName("should refuse a second recording while one is running")
+	void shouldRefuseConcurrentRecording() throws Exception {
+		endpoint.start(null, null, null);
+
+		assertThatThrownBy(() -> endpoint.start(null, null, null)).isInstanceOf(InvalidEndpointRequestException.class);
+	}
+
+	@Test
+	@DisplayName("should return nothing when there is no recording")
+	void shouldReturnNothingWithoutRecording() throws Exception {
+		assertThat(endpoint.stop()).isNull();
+	}
+}
@@ -0,0 +1,124 @@
+package com.example.library.aspect;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("SingleFlightAspect Tests")
+class SingleFlightAspectTest {
+
+	private static final int CALLERS = 8;
+
+	private MeterRegistry meterRegistry;
+	private SlowService target;
+	private SlowService proxy;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		target = new SlowService();
+		AspectJProxyFactory factory = new AspectJProxyFactory(target);
+		factory.setProxyTargetClass(true);
+		factory.addAspect(new SingleFlightAspect(meterRegistry));
+		proxy = factory.getProxy();
+	}
+
+	@Test
+	@DisplayName("should run concurrent identical calls once")
+	void shouldCollapseIdenticalCalls() throws Exception {
+		List<Future<String>> futures = callConcurrently(() -> proxy.load(1L));
+		target.release.countDown();
+
+		for (Future<String> future : futures) {
+			assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo("value-1");
+		}
+		assertThat(target.executions).hasValue(1);
+		assertThat(calls("executed")).isEqualTo(1);
+		assertThat(calls("collapsed")).isEqualTo(CALLERS - 1);
+	}
+
+	@Test
+	@DisplayName("should run calls with different arguments separately")
+	void shouldNotCollapseDifferentCalls() {
+		target.release.countDown();
+
+		assertThat(proxy.load(1L)).isEqualTo("value-1");
+		assertThat(proxy.load(2L)).isEqualTo("value-2");
+		assertThat(target.executions).hasValue(2);
+	}
+
+	@Test
+	@DisplayName("should share the exception of the call")
+	void shouldShareException() throws Exception {
+		List<Future<String>> futures = callConcurrently(() -> proxy.load(-1L));
+		target.release.countDown();
+
+		for (Future<String> future : futures) {
+			assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+					.isInstanceOf(ExecutionException.class)
+					.hasCauseInstanceOf(IllegalArgumentException.class);
+		}
+		assertThat(target.executions).hasValue(1);
+	}
+
+	/**
+	 * Start the calls, and wait until the first one runs and the others wait for it.
+	 */
+	private List<Future<String>> callConcurrently(Callable<String> call) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		List<Future<String>> futures = new ArrayList<>();
+		futures.add(executor.submit(call));
+		assertThat(target.started.await(5, TimeUnit.SECONDS)).isTrue();
+		for (int i = 1; i < CALLERS; i++) {
+			futures.add(executor.submit(call));
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (calls("collapsed") < CALLERS - 1 && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		executor.shutdown();
+		return futures;
+	}
+
+	private double calls(String result) {
+		return meterRegistry.get("library.single-flight.calls").tag("result", result).counter().count();
+	}
+
+	static class SlowService {
+		final AtomicInteger executions = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@SingleFlight
+		public String load(Long id) {
+			executions.incrementAndGet();
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (id < 0) {
+				throw new IllegalArgumentException("Negative id: " + id);
+			}
+			return "value-" + id;
+		}
+	}
+}
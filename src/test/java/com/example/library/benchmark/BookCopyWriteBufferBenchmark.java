@@ -0,0 +1,133 @@
+package com.example.library.benchmark;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.BookCopy;
+import com.example.library.entity.Location;
+import com.example.library.repository.BookCopyRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LocationRepository;
+import com.example.library.service.BookCopyService;
+import com.example.library.service.BookCopyWriteBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput of the per-request transaction path with the write-behind buffer.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "app.inventory.write-behind.enabled=true")
+@Tag("benchmark")
+@DisplayName("BookCopy Write Buffer Benchmark")
+class BookCopyWriteBufferBenchmark {
+
+	private static final int THREADS = 32;
+	private static final int BOOKS = 16;
+	private static final int UPDATES_PER_THREAD = 500;
+
+	@Autowired
+	private BookCopyService bookCopyService;
+
+	@Autowired
+	private BookCopyWriteBuffer writeBuffer;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private LocationRepository locationRepository;
+
+	@Autowired
+	private BookCopyRepository bookCopyRepository;
+
+	private final List<Book> books = new ArrayList<>();
+	private Location location;
+
+	@BeforeEach
+	void setUp() {
+		location = locationRepository.save(new Location(null, "Benchmark Location", "Benchmark Address"));
+		for (int i = 0; i < BOOKS; i++) {
+			Book book = bookRepository.save(new Book(null, "Benchmark Book " + i, "Author", String.format("%010d", i), LocalDate.of(2000, 1, 1)));
+			bookCopyRepository.save(new BookCopy(book, location, 0));
+			books.add(book);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		bookCopyRepository.deleteAll();
+		bookRepository.deleteAll();
+		locationRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("per-request transactions vs write-behind buffer")
+	void compareThroughput() throws Exception {
+		// Warm up both paths.
+		run((bookId) -> bookCopyService.updateBookCopyQuantity(location.getId(), bookId, 1), 50);
+		run((bookId) -> writeBuffer.updateBookCopyQuantity(location.getId(), bookId, 1), 50);
+
+		double perRequest = run((bookId) -> bookCopyService.updateBookCopyQuantity(location.getId(), bookId, 1), UPDATES_PER_THREAD);
+		double buffered = run((bookId) -> writeBuffer.updateBookCopyQuantity(location.getId(), bookId, 1), UPDATES_PER_THREAD);
+
+		System.out.printf("per-request transaction: %,.0f updates/s%n", perRequest);
+		System.out.printf("write-behind buffer:     %,.0f updates/s (%.1fx)%n", buffered, buffered / perRequest);
+
+		// No update may be lost on either path.
+		int expected = 2 * THREADS * (50 + UPDATES_PER_THREAD) / BOOKS;
+		for (Book book : books) {
+			assertThat(bookCopyService.getBookCopyQuantity(location.getId(), book.getId())).isEqualTo(expected);
+		}
+	}
+
+	/**
+	 * Run the updates on all threads, spreading them evenly over the books.
+	 *
+	 * @return the throughput in updates per second
+	 */
+	private double run(Update update, int updatesPerThread) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < updatesPerThread; i++) {
+						update.apply(books.get((thread + i) % BOOKS).getId());
+					}
+					return null;
+				}));
+			}
+			long startTime = System.nanoTime();
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			long elapsed = System.nanoTime() - startTime;
+			return THREADS * updatesPerThread / (elapsed / 1e9);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@FunctionalInterface
+	private interface Update {
+		void apply(Long bookId) throws Exception;
+	}
+}
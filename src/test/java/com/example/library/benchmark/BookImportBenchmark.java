@@ -0,0 +1,73 @@
+package com.example.library.benchmark;
+
+import com.example.library.dto.BookDTO;
+import com.example.library.dto.BookImportReportDTO;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.BookImportService;
+import com.example.library.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput of creating the books one at a time with the streamed bulk import.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest
+@Tag("benchmark")
+@DisplayName("Book Import Benchmark")
+class BookImportBenchmark {
+
+	private static final int CREATED_BOOKS = 2_000;
+	private static final int IMPORTED_BOOKS = 100_000;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@AfterEach
+	void tearDown() {
+		bookRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("one book per request vs streamed import")
+	void compareThroughput() throws Exception {
+		long startTime = System.nanoTime();
+		for (int i = 0; i < CREATED_BOOKS; i++) {
+			bookService.createBook(new BookDTO(null, "Created Book " + i, "Author", String.format("1%012d", i), LocalDate.of(2000, 1, 1)));
+		}
+		double created = CREATED_BOOKS / ((System.nanoTime() - startTime) / 1e9);
+
+		StringBuilder csv = new StringBuilder("title,author,isbn,publication_date\n");
+		for (int i = 0; i < IMPORTED_BOOKS; i++) {
+			csv.append("Imported Book ").append(i).append(",Author ").append(i % 1000)
+					.append(',').append(String.format("2%012d", i)).append(",2000-01-01\n");
+		}
+		byte[] body = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+		startTime = System.nanoTime();
+		BookImportReportDTO report = bookImportService.importBooks(new ByteArrayInputStream(body), BookImportService.Format.CSV, StandardCharsets.UTF_8);
+		double imported = IMPORTED_BOOKS / ((System.nanoTime() - startTime) / 1e9);
+
+		System.out.printf("one book per request: %,.0f books/s%n", created);
+		System.out.printf("streamed import:      %,.0f books/s (%.1fx, %d chunks)%n", imported, imported / created, report.getChunks());
+
+		assertThat(report.getImported()).isEqualTo(IMPORTED_BOOKS);
+		assertThat(bookRepository.count()).isEqualTo(CREATED_BOOKS + IMPORTED_BOOKS);
+	}
+}
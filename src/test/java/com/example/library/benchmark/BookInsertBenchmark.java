@@ -0,0 +1,86 @@
+package com.example.library.benchmark;
+
+import com.example.library.entity.Book;
+import com.example.library.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput of persisting books one statement at a time, as the IDENTITY ids forced (Hibernate had to
+ * execute each insert to learn its id), with the JDBC batches enabled by the pooled sequence ids.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest
+@Tag("benchmark")
+@DisplayName("Book Insert Benchmark")
+class BookInsertBenchmark {
+
+	private static final int BOOKS = 100_000;
+	private static final int WARM_UP_BOOKS = 5_000;
+	private static final int BOOKS_PER_TRANSACTION = 1_000;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@AfterEach
+	void tearDown() {
+		bookRepository.deleteAllInBatch();
+	}
+
+	@Test
+	@DisplayName("one insert per statement vs JDBC batches")
+	void compareThroughput() {
+		// Warm up both paths.
+		insert("1", 1, WARM_UP_BOOKS);
+		insert("2", null, WARM_UP_BOOKS);
+
+		double rowByRow = insert("3", 1, BOOKS);
+		double batched = insert("4", null, BOOKS);
+
+		System.out.printf("one insert per statement: %,.0f books/s%n", rowByRow);
+		System.out.printf("JDBC batches:             %,.0f books/s (%.1fx)%n", batched, batched / rowByRow);
+
+		assertThat(bookRepository.count()).isEqualTo(2L * (WARM_UP_BOOKS + BOOKS));
+	}
+
+	/**
+	 * Persist the books, a transaction at a time.
+	 *
+	 * @param isbnPrefix    the first digit of the ISBNs, unique to each run
+	 * @param jdbcBatchSize the JDBC batch size of the sessions, null for the configured one
+	 * @return the throughput in books per second
+	 */
+	private double insert(String isbnPrefix, Integer jdbcBatchSize, int count) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		long startTime = System.nanoTime();
+		for (int from = 0; from < count; from += BOOKS_PER_TRANSACTION) {
+			int first = from;
+			transactionTemplate.executeWithoutResult(status -> {
+				entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+				for (int i = first; i < Math.min(count, first + BOOKS_PER_TRANSACTION); i++) {
+					entityManager.persist(new Book(null, "Benchmark Book " + i, "Author " + (i % 1000),
+							isbnPrefix + String.format("%012d", i), LocalDate.of(2000, 1, 1)));
+				}
+			});
+		}
+		return count / ((System.nanoTime() - startTime) / 1e9);
+	}
+}
@@ -0,0 +1,109 @@
+package com.example.library.benchmark;
+
+import com.example.library.dto.BookDTO;
+import com.example.library.dto.CountedPage;
+import com.example.library.lib.CountMode;
+import com.example.library.lib.SqlDialect;
+import com.example.library.service.BookService;
+import com.example.library.specification.BookFilter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the latency of substring searches on growing catalogs, served by the trigram indexes.
+ * Runs against the PostgreSQL database of the dev profile, with {@code ./gradlew benchmark}.
+ * The catalog sizes can be changed with {@code -Dbenchmark.search.sizes=100000,1000000}.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Trigram Search Benchmark")
+class TrigramSearchBenchmark {
+
+	private static final String ISBN_PREFIX = "BENCH-";
+	private static final int ITERATIONS = 20;
+	private static final List<BookFilter> FILTERS = List.of(
+			new BookFilter("a1f", null),
+			new BookFilter(null, "author 4242"),
+			new BookFilter("e5", "author 1")
+	);
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@BeforeAll
+	void setUp() {
+		assumeTrue(SqlDialect.of(dataSource) == SqlDialect.POSTGRESQL, "The benchmark needs the trigram indexes of PostgreSQL");
+	}
+
+	@AfterAll
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%'");
+	}
+
+	@Test
+	@DisplayName("search latency at growing catalog sizes")
+	void searchLatency() {
+		long[] sizes = Arrays.stream(System.getProperty("benchmark.search.sizes", "100000,1000000,5000000").split(","))
+				.mapToLong(Long::parseLong)
+				.toArray();
+		long seeded = 0;
+		for (long size : sizes) {
+			seed(seeded + 1, size);
+			seeded = size;
+
+			for (BookFilter filter : FILTERS) {
+				// Warm up the caches and the plan.
+				search(filter);
+				long start = System.nanoTime();
+				CountedPage<BookDTO> page = null;
+				for (int i = 0; i < ITERATIONS; i++) {
+					page = search(filter);
+				}
+				double millis = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+				System.out.printf("%,10d books  %-30s %8.2f ms/search  (%s%,d matches)%n",
+						size, filter, millis, page.isTotalExact() ? "" : ">= ", page.getTotalElements());
+				assertThat(page.getContent()).isNotEmpty();
+			}
+		}
+	}
+
+	private CountedPage<BookDTO> search(BookFilter filter) {
+		return bookService.getBooks(filter, PageRequest.of(0, 20), CountMode.CAPPED);
+	}
+
+	/**
+	 * Insert the books with the given ordinals, with pseudo-random titles, and refresh the planner statistics.
+	 */
+	private void seed(long from, long to) {
+		jdbcTemplate.update("""
+				INSERT INTO books (title, author, isbn, publication_date)
+				SELECT 'Book ' || md5(i::text), 'Author ' || (i % 50000), ? || lpad(i::text, 12, '0'), DATE '2000-01-01' + (i % 8000)::int
+				FROM generate_series(?::bigint, ?::bigint) AS i
+				""", ISBN_PREFIX, from, to);
+		jdbcTemplate.execute("ANALYZE books");
+	}
+}
@@ -0,0 +1,221 @@
+package com.example.library.cache;
+
+import com.example.library.dto.BookDTO;
+import com.example.library.entity.Book;
+import com.example.library.event.BooksImportedEvent;
+import com.example.library.event.UserChangedEvent;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"app.cache.invalidation.enabled=true",
+		// Only the explicit polls of the tests.
+		"app.cache.invalidation.poll-interval=1h"
+})
+@RecordApplicationEvents
+@Tag("integration")
+@DisplayName("Cache Invalidation Bus Tests")
+class CacheInvalidationBusTest {
+
+	private static final Duration GAP_TIMEOUT = Duration.ofMillis(200);
+
+	@Autowired
+	private CacheInvalidationBus invalidationBus;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private ApplicationEvents applicationEvents;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Book testBook;
+
+	@BeforeEach
+	void setUp() {
+		testBook = bookRepository.save(new Book(null, "Cached Book", "Test Author", "1234567890", LocalDate.of(2000, 1, 1)));
+	}
+
+	@AfterEach
+	void tearDown() {
+		bookRepository.deleteAll();
+		jdbcTemplate.update("DELETE FROM cache_invalidations");
+	}
+
+	@Test
+	@DisplayName("should evict an entry changed on another node")
+	void shouldEvictEntryChangedOnAnotherNode() {
+		assertThat(bookService.getBookById(testBook.getId())).map(BookDTO::getTitle).contains("Cached Book");
+
+		// Another node changes the book and appends its invalidation.
+		jdbcTemplate.update("UPDATE books SET title = ? WHERE id = ?", "Changed On Another Node", testBook.getId());
+		jdbcTemplate.update("INSERT INTO cache_invalidations (entity, entity_id, origin) VALUES (?, ?, ?)",
+				CacheInvalidationBus.BOOK, testBook.getId(), "other-node");
+		assertThat(bookService.getBookById(testBook.getId())).map(BookDTO::getTitle).contains("Cached Book");
+
+		long lagCount = meterRegistry.get("library.cache.invalidation.lag").timer().count();
+		invalidationBus.poll();
+
+		assertThat(bookService.getBookById(testBook.getId())).map(BookDTO::getTitle).contains("Changed On Another Node");
+		assertThat(meterRegistry.get("library.cache.invalidation.lag").timer().count()).isEqualTo(lagCount + 1);
+	}
+
+	@Test
+	@DisplayName("should append the changes made through the services")
+	void shouldAppendLocalChanges() throws Exception {
+		BookDTO update = bookService.getBookById(testBook.getId()).orElseThrow();
+		update.setTitle("Changed Locally");
+		bookService.updateBook(testBook.getId(), update);
+
+		Integer rows = jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM cache_invalidations WHERE entity = ? AND entity_id = ?",
+				Integer.class, CacheInvalidationBus.BOOK, testBook.getId());
+		assertThat(rows).isEqualTo(1);
+
+		// This node skips its own rows, its caches were evicted by the change itself.
+		long lagCount = meterRegistry.get("library.cache.invalidation.lag").timer().count();
+		invalidationBus.poll();
+		assertThat(meterRegistry.get("library.cache.invalidation.lag").timer().count()).isEqualTo(lagCount);
+	}
+
+	@Test
+	@DisplayName("should republish a chunk imported on another node from its single row")
+	void shouldRepublishImportedChunk() {
+		// Another node imports a chunk of two books and appends the range of their ids.
+		Book first = bookRepository.save(new Book(null, "First Imported Book", "Test Author", "9780000000001", LocalDate.of(2000, 1, 1)));
+		Book last = bookRepository.save(new Book(null, "Last Imported Book", "Test Author", "9780000000002", LocalDate.of(2000, 1, 1)));
+		jdbcTemplate.update("INSERT INTO cache_invalidations (entity, entity_id, last_entity_id, origin) VALUES (?, ?, ?, ?)",
+				CacheInvalidationBus.BOOK_IMPORT, first.getId(), last.getId(), "other-node");
+
+		invalidationBus.poll();
+
+		assertThat(applicationEvents.stream(BooksImportedEvent.class))
+				.extracting(BooksImportedEvent::bookIds)
+				.containsExactly(List.of(first.getId(), last.getId()));
+	}
+
+	@Test
+	@DisplayName("should append one row per imported chunk")
+	void shouldAppendOneRowPerImportedChunk() {
+		Book first = bookRepository.save(new Book(null, "First Imported Book", "Test Author", "9780000000001", LocalDate.of(2000, 1, 1)));
+		Book last = bookRepository.save(new Book(null, "Last Imported Book", "Test Author", "9780000000002", LocalDate.of(2000, 1, 1)));
+		invalidationBus.onBooksImported(new BooksImportedEvent(List.of(first.getId(), last.getId())));
+
+		assertThat(jdbcTemplate.query("SELECT entity_id, last_entity_id FROM cache_invalidations WHERE entity = ?",
+				(rs, rowNum) -> List.of(rs.getLong("entity_id"), rs.getLong("last_entity_id")), CacheInvalidationBus.BOOK_IMPORT))
+				.containsExactly(List.of(first.getId(), last.getId()));
+	}
+
+	@Test
+	@DisplayName("should broadcast the user changes, once")
+	void shouldBroadcastUserChanges() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> eventPublisher.publishEvent(new UserChangedEvent(42L)));
+		// Republished changes are not in a transaction.
+		eventPublisher.publishEvent(new UserChangedEvent(43L));
+
+		assertThat(jdbcTemplate.queryForList("SELECT entity_id FROM cache_invalidations WHERE entity = ?", Long.class,
+				CacheInvalidationBus.USER)).containsExactly(42L);
+
+		// Another node changes a user.
+		jdbcTemplate.update("INSERT INTO cache_invalidations (entity, entity_id, origin) VALUES (?, ?, ?)",
+				CacheInvalidationBus.USER, 44L, "other-node");
+		invalidationBus.poll();
+
+		assertThat(applicationEvents.stream(UserChangedEvent.class)).extracting(UserChangedEvent::userId).containsExactly(42L, 43L, 44L);
+	}
+
+	@Test
+	@DisplayName("should wait for the gaps in the ids, then skip them and read them once more")
+	void shouldHandleGaps() throws Exception {
+		CacheInvalidationBus bus = new CacheInvalidationBus(namedParameterJdbcTemplate, cacheManager, entityManagerFactory,
+				eventPublisher, meterRegistry, Duration.ofHours(1), 1000, GAP_TIMEOUT, Duration.ofHours(1));
+		try {
+			bus.start();
+			long base = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cache_invalidations", Long.class);
+			Timer lag = meterRegistry.get("library.cache.invalidation.lag").timer();
+			long applied = lag.count();
+
+			// The row after the gap is applied, and the gap once it fills.
+			insertInvalidation(base + 2);
+			bus.poll();
+			assertThat(lag.count()).isEqualTo(applied + 1);
+			insertInvalidation(base + 1);
+			bus.poll();
+			assertThat(lag.count()).isEqualTo(applied + 2);
+
+			// The gap times out and is skipped, then its row commits.
+			insertInvalidation(base + 4);
+			bus.poll();
+			Thread.sleep(GAP_TIMEOUT.toMillis() * 2);
+			bus.poll();
+			insertInvalidation(base + 3);
+			bus.poll();
+			assertThat(lag.count()).isEqualTo(applied + 3);
+
+			// The skipped id is read once more after another gap timeout, and only once.
+			Thread.sleep(GAP_TIMEOUT.toMillis() * 2);
+			bus.poll();
+			assertThat(lag.count()).isEqualTo(applied + 4);
+			Thread.sleep(GAP_TIMEOUT.toMillis() * 2);
+			bus.poll();
+			assertThat(lag.count()).isEqualTo(applied + 4);
+		} finally {
+			bus.shutdown();
+		}
+	}
+
+	/**
+	 * Append the invalidation of another node with a given id, as if its transaction committed now.
+	 */
+	private void insertInvalidation(long id) {
+		jdbcTemplate.update("INSERT INTO cache_invalidations (id, entity, entity_id, origin) VALUES (?, ?, ?, ?)",
+				id, CacheInvalidationBus.BOOK, testBook.getId(), "other-node");
+	}
+}
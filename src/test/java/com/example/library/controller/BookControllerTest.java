@@ -1,6 +1,10 @@
 package com.example.library.controller;
 
 import com.example.library.dto.BookDTO;
+import com.example.library.dto.CountedPage;
+import com.example.library.lib.CountMode;
+import com.example.library.service.BookImportService;
+import com.example.library.specification.BookFilter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -9,8 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -35,6 +38,9 @@ class BookControllerTest {
 	@MockBean
 	private BookService bookService;
 
+	@MockBean
+	private BookImportService bookImportService;
+
 	@Autowired
 	private ObjectMapper objectMapper;
 
@@ -52,22 +58,22 @@ class BookControllerTest {
 		@Test
 		@DisplayName("should return all books")
 		void shouldReturnAllBooks() throws Exception {
-			Page<BookDTO> bookPage = new PageImpl<>(Collections.singletonList(testBookDTO));
-			when(bookService.getBooks(any(), any(Pageable.class))).thenReturn(bookPage);
+			CountedPage<BookDTO> bookPage = new CountedPage<>(Collections.singletonList(testBookDTO), Pageable.unpaged(), 1, true);
+			when(bookService.getBooks(any(BookFilter.class), any(Pageable.class), eq(CountMode.EXACT))).thenReturn(bookPage);
 
 			mockMvc.perform(get("/api/books"))
 					.andExpect(status().isOk())
 					.andExpect(content().contentType(MediaType.APPLICATION_JSON))
 					.andExpect(jsonPath("$.content[0].title").value("Test Book"));
 
-			verify(bookService).getBooks(any(), any(Pageable.class));
+			verify(bookService).getBooks(any(BookFilter.class), any(Pageable.class), eq(CountMode.EXACT));
 		}
 
 		@Test
 		@DisplayName("should filter books by title and author")
 		void shouldFilterBooksByTitleAndAuthor() throws Exception {
-			Page<BookDTO> bookPage = new PageImpl<>(Collections.singletonList(testBookDTO));
-			when(bookService.getBooks(any(), any(Pageable.class))).thenReturn(bookPage);
+			CountedPage<BookDTO> bookPage = new CountedPage<>(Collections.singletonList(testBookDTO), Pageable.unpaged(), 1, true);
+			when(bookService.getBooks(any(BookFilter.class), any(Pageable.class), eq(CountMode.EXACT))).thenReturn(bookPage);
 
 			mockMvc.perform(get("/api/books")
 							.param("title", "Test")
@@ -76,7 +82,20 @@ class BookControllerTest {
 					.andExpect(content().contentType(MediaType.APPLICATION_JSON))
 					.andExpect(jsonPath("$.content[0].title").value("Test Book"));
 
-			verify(bookService).getBooks(any(), any(Pageable.class));
+			verify(bookService).getBooks(eq(new BookFilter("Test", "Author")), any(Pageable.class), eq(CountMode.EXACT));
+		}
+
+		@Test
+		@DisplayName("should tell when the total is a lower bound")
+		void shouldReturnCappedTotal() throws Exception {
+			CountedPage<BookDTO> bookPage = new CountedPage<>(Collections.singletonList(testBookDTO), PageRequest.of(0, 1), 1001, false);
+			when(bookService.getBooks(any(BookFilter.class), any(Pageable.class), eq(CountMode.CAPPED))).thenReturn(bookPage);
+
+			mockMvc.perform(get("/api/books")
+							.param("count", "CAPPED"))
+					.andExpect(status().isOk())
+					.andExpect(header().string(BookController.TOTAL_COUNT_EXACT_HEADER, "false"))
+					.andExpect(jsonPath("$.page.totalElements").value(1001));
 		}
 	}
 
@@ -0,0 +1,128 @@
+package com.example.library.integration;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.BookCopy;
+import com.example.library.entity.Location;
+import com.example.library.repository.BookCopyRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LocationRepository;
+import com.example.library.service.BookCopyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Tag("integration")
+@DisplayName("BookCopy Concurrency Tests")
+public class BookCopyConcurrencyTest {
+
+	private static final int THREADS = 64;
+	private static final int UPDATES_PER_THREAD = 20;
+
+	@Autowired
+	private BookCopyService bookCopyService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private LocationRepository locationRepository;
+
+	@Autowired
+	private BookCopyRepository bookCopyRepository;
+
+	private Book testBook;
+	private Location testLocation;
+
+	@BeforeEach
+	void setUp() {
+		testBook = bookRepository.save(new Book(null, "Concurrent Book", "Test Author", "1234567890", LocalDate.now()));
+		testLocation = locationRepository.save(new Location(null, "Concurrent Location", "Test Address"));
+	}
+
+	@AfterEach
+	void tearDown() {
+		bookCopyRepository.deleteAll();
+		bookRepository.deleteAll();
+		locationRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("should not lose updates when many threads add copies of the same book")
+	void shouldNotLoseConcurrentAdditions() throws Exception {
+		bookCopyRepository.save(new BookCopy(testBook, testLocation, 0));
+
+		runConcurrently(() -> {
+			for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+				bookCopyService.updateBookCopyQuantity(testLocation.getId(), testBook.getId(), 1);
+			}
+			return null;
+		});
+
+		assertThat(bookCopyService.getBookCopyQuantity(testLocation.getId(), testBook.getId()))
+				.isEqualTo(THREADS * UPDATES_PER_THREAD);
+	}
+
+	@Test
+	@DisplayName("should never remove more copies than available")
+	void shouldNeverRemoveMoreCopiesThanAvailable() throws Exception {
+		int available = THREADS / 2;
+		bookCopyRepository.save(new BookCopy(testBook, testLocation, available));
+		AtomicInteger removed = new AtomicInteger();
+		AtomicInteger refused = new AtomicInteger();
+
+		runConcurrently(() -> {
+			try {
+				bookCopyService.updateBookCopyQuantity(testLocation.getId(), testBook.getId(), -1);
+				removed.incrementAndGet();
+			} catch (BookCopyService.InsufficientCopiesException e) {
+				refused.incrementAndGet();
+			}
+			return null;
+		});
+
+		assertThat(removed.get()).isEqualTo(available);
+		assertThat(refused.get()).isEqualTo(THREADS - available);
+		assertThat(bookCopyService.getBookCopyQuantity(testLocation.getId(), testBook.getId())).isZero();
+	}
+
+	/**
+	 * Run the task on all threads at the same time and rethrow the first failure.
+	 */
+	private void runConcurrently(Callable<?> task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return task.call();
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -6,6 +6,7 @@ import com.example.library.entity.Location;
 import com.example.library.repository.BookCopyRepository;
 import com.example.library.repository.BookRepository;
 import com.example.library.repository.LocationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
@@ -15,7 +16,9 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Base64;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
@@ -38,6 +41,9 @@ public class BookCopyIntegrationTest {
 	@Autowired
 	private BookCopyRepository bookCopyRepository;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	private Book testBook;
 	private Location testLocation;
 
@@ -64,19 +70,66 @@ public class BookCopyIntegrationTest {
 	void testGetBookCopies() throws Exception {
 		mockMvc.perform(get("/api/locations/" + testLocation.getId() + "/book-copies"))
 				.andExpect(status().isOk())
+				// The location, the page and its count, whatever the number of copies.
+				.andExpect(QueryBudget.atMost(3))
 				.andExpect(jsonPath("$.content[0].title").value("Test Book"))
 				.andExpect(jsonPath("$.content[0].quantity").value(5));
 	}
 
+	@Test
+	void testScrollBookCopiesWithCursor() throws Exception {
+		bookCopyRepository.save(new BookCopy(bookRepository.save(new Book(null, "Another Book", "Test Author", "1111111111", LocalDate.now())), testLocation, 1));
+		bookCopyRepository.save(new BookCopy(bookRepository.save(new Book(null, "Second Book", "Test Author", "2222222222", LocalDate.now())), testLocation, 2));
+		String url = "/api/locations/" + testLocation.getId() + "/book-copies";
+
+		String firstPage = mockMvc.perform(get(url).param("cursor", "").param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].title").value("Another Book"))
+				.andExpect(jsonPath("$.content[0].quantity").value(1))
+				.andExpect(jsonPath("$.nextCursor").isNotEmpty())
+				.andReturn().getResponse().getContentAsString();
+
+		String nextPage = mockMvc.perform(get(url).param("cursor", nextCursor(firstPage)).param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].title").value("Second Book"))
+				.andExpect(jsonPath("$.nextCursor").isNotEmpty())
+				.andReturn().getResponse().getContentAsString();
+
+		mockMvc.perform(get(url).param("cursor", nextCursor(nextPage)).param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].title").value("Test Book"))
+				.andExpect(jsonPath("$.content[0].quantity").value(5))
+				.andExpect(jsonPath("$.nextCursor").doesNotExist());
+	}
+
+	@Test
+	void testScrollBookCopiesWithInvalidCursor() throws Exception {
+		String url = "/api/locations/" + testLocation.getId() + "/book-copies";
+		mockMvc.perform(get(url).param("cursor", "not-a-cursor"))
+				.andExpect(status().isBadRequest());
+
+		// A cursor whose length prefix was changed, so the title runs past its end.
+		String tampered = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString("99:Test Book1234567890".getBytes(StandardCharsets.UTF_8));
+		mockMvc.perform(get(url).param("cursor", tampered))
+				.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	void testUpdateBookCopyQuantity() throws Exception {
 		mockMvc.perform(put("/api/locations/" + testLocation.getId() + "/book-copies/" + testBook.getId())
 						.param("quantityChange", "3"))
 				.andExpect(status().isOk())
+				// The relative update and the new quantity.
+				.andExpect(QueryBudget.atMost(2))
 				.andExpect(content().string("8")); // 5 + 3 = 8
 
 		mockMvc.perform(get("/api/locations/" + testLocation.getId() + "/book-copies"))
 				.andExpect(status().isOk())
 				.andExpect(jsonPath("$.content[0].quantity").value(8));
 	}
-}
\ No newline at end of file
+
+	private String nextCursor(String body) throws Exception {
+		return objectMapper.readTree(body).get("nextCursor").asText();
+	}
+}
@@ -51,13 +51,39 @@ public class BookIntegrationTest {
 	void testGetAllBooks() throws Exception {
 		mockMvc.perform(get("/api/books"))
 				.andExpect(status().isOk())
+				// The page and its count.
+				.andExpect(QueryBudget.atMost(2))
 				.andExpect(jsonPath("$.content[0].title").value("Integration Test Book"));
 	}
 
+	@Test
+	void testScrollBooksWithCursor() throws Exception {
+		bookRepository.save(new Book(null, "Another Test Book", "Test Author", "0987654321", LocalDate.now()));
+
+		String body = mockMvc.perform(get("/api/books").param("cursor", "").param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].title").value("Another Test Book"))
+				.andExpect(jsonPath("$.nextCursor").isNotEmpty())
+				.andReturn().getResponse().getContentAsString();
+		String nextCursor = objectMapper.readTree(body).get("nextCursor").asText();
+
+		mockMvc.perform(get("/api/books").param("cursor", nextCursor).param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].title").value("Integration Test Book"))
+				.andExpect(jsonPath("$.nextCursor").doesNotExist());
+	}
+
+	@Test
+	void testScrollBooksWithInvalidCursor() throws Exception {
+		mockMvc.perform(get("/api/books").param("cursor", "not-a-cursor"))
+				.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	void testGetBookById() throws Exception {
 		mockMvc.perform(get("/api/books/" + testBook.getId()))
 				.andExpect(status().isOk())
+				.andExpect(QueryBudget.atMost(1))
 				.andExpect(jsonPath("$.title").value("Integration Test Book"));
 	}
 
@@ -69,6 +95,7 @@ public class BookIntegrationTest {
 						.contentType(MediaType.APPLICATION_JSON)
 						.content(objectMapper.writeValueAsString(newBook)))
 				.andExpect(status().isOk())
+				.andExpect(QueryBudget.atMost(3))
 				.andExpect(jsonPath("$.title").value("New Book"));
 	}
 
@@ -80,13 +107,16 @@ public class BookIntegrationTest {
 						.contentType(MediaType.APPLICATION_JSON)
 						.content(objectMapper.writeValueAsString(updatedBook)))
 				.andExpect(status().isOk())
+				.andExpect(QueryBudget.atMost(3))
 				.andExpect(jsonPath("$.title").value("Updated Book"));
 	}
 
 	@Test
 	void testDeleteBook() throws Exception {
 		mockMvc.perform(delete("/api/books/" + testBook.getId()))
-				.andExpect(status().isNoContent());
+				.andExpect(status().isNoContent())
+				// The book, its copies and the deletion.
+				.andExpect(QueryBudget.atMost(4));
 
 		mockMvc.perform(get("/api/books/" + testBook.getId()))
 				.andExpect(status().isNotFound());
@@ -0,0 +1,99 @@
+package com.example.library.integration;
+
+import com.example.library.config.CacheConfig;
+import com.example.library.dto.BookDTO;
+import com.example.library.entity.Book;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.BookService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Tag("integration")
+@DisplayName("Entity Cache Tests")
+public class EntityCacheTest {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Book testBook;
+
+	@BeforeEach
+	void setUp() {
+		testBook = bookRepository.save(new Book(null, "Cached Book", "Test Author", "1234567890", LocalDate.of(2000, 1, 1)));
+	}
+
+	@AfterEach
+	void tearDown() {
+		bookRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("should serve repeated reads from the cache")
+	void shouldServeRepeatedReadsFromCache() {
+		double hits = cacheGets("hit");
+		assertThat(bookService.getBookById(testBook.getId())).map(BookDTO::getTitle).contains("Cached Book");
+
+		// A change made behind the service is not seen until the entry is evicted.
+		testBook.setTitle("Changed Behind The Service");
+		bookRepository.save(testBook);
+
+		assertThat(bookService.getBookById(testBook.getId())).map(BookDTO::getTitle).contains("Cached Book");
+		assertThat(cacheGets("hit")).isEqualTo(hits + 1);
+	}
+
+	@Test
+	@DisplayName("should not share the cached books with the callers")
+	void shouldCopyCachedBooks() {
+		BookDTO loaded = bookService.getBookById(testBook.getId()).orElseThrow();
+		loaded.setTitle("Changed By The First Caller");
+		BookDTO cached = bookService.getBookById(testBook.getId()).orElseThrow();
+		cached.setTitle("Changed By The Second Caller");
+
+		assertThat(bookService.getBookById(testBook.getId())).map(BookDTO::getTitle).contains("Cached Book");
+	}
+
+	@Test
+	@DisplayName("should evict a book once its update is committed")
+	void shouldEvictUpdatedBook() throws Exception {
+		bookService.getBookById(testBook.getId());
+
+		bookService.updateBook(testBook.getId(), new BookDTO(testBook.getId(), "Updated Book", "Test Author", testBook.getIsbn(), LocalDate.of(2000, 1, 1)));
+
+		assertThat(bookService.getBookById(testBook.getId())).map(BookDTO::getTitle).contains("Updated Book");
+	}
+
+	@Test
+	@DisplayName("should evict a book once its deletion is committed")
+	void shouldEvictDeletedBook() throws Exception {
+		bookService.getBookById(testBook.getId());
+
+		bookService.deleteBook(testBook.getId());
+
+		assertThat(bookService.getBookById(testBook.getId())).isEqualTo(Optional.empty());
+	}
+
+	private double cacheGets(String result) {
+		FunctionCounter counter = meterRegistry.find("cache.gets").tag("cache", CacheConfig.BOOKS).tag("result", result).functionCounter();
+		assertThat(counter).isNotNull();
+		return counter.count();
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.library.integration;
+
+import com.example.library.actuator.HibernateCacheEndpoint;
+import com.example.library.entity.Book;
+import com.example.library.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Tag("integration")
+@DisplayName("Hibernate Second-Level Cache Tests")
+public class HibernateCacheTest {
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private HibernateCacheEndpoint hibernateCacheEndpoint;
+
+	@AfterEach
+	void tearDown() {
+		bookRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("should answer repeated lookups by id from the book region")
+	void shouldAnswerLookupsFromCache() {
+		Book book = bookRepository.save(new Book(null, "Cached Book", "Test Author", "1234567890", LocalDate.of(2000, 1, 1)));
+		long hits = hibernateCacheEndpoint.regions().get("book").hits();
+
+		// Each lookup runs in its own transaction and persistence context.
+		assertThat(bookRepository.findById(book.getId())).isPresent();
+		assertThat(bookRepository.findById(book.getId())).isPresent();
+
+		HibernateCacheEndpoint.RegionStatistics region = hibernateCacheEndpoint.regions().get("book");
+		assertThat(region.hits()).isGreaterThanOrEqualTo(hits + 1);
+		assertThat(region.hitRatio()).isPositive();
+	}
+
+	@Test
+	@DisplayName("should reuse the query cache for lookups by ISBN")
+	void shouldReuseQueryCacheForIsbn() {
+		bookRepository.save(new Book(null, "Cached Book", "Test Author", "1234567890", LocalDate.of(2000, 1, 1)));
+		long hits = hibernateCacheEndpoint.regions().get("default-query-results-region").hits();
+
+		assertThat(bookRepository.findByIsbn("1234567890")).isPresent();
+		assertThat(bookRepository.findByIsbn("1234567890")).isPresent();
+
+		assertThat(hibernateCacheEndpoint.regions().get("default-query-results-region").hits()).isEqualTo(hits + 1);
+	}
+}
@@ -2,6 +2,7 @@ package com.example.library.integration;
 
 import com.example.library.dto.LocationDTO;
 import com.example.library.entity.Location;
+import com.example.library.lib.KeysetCursor;
 import com.example.library.repository.LocationRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
@@ -49,13 +50,50 @@ public class LocationIntegrationTest {
 	void testGetAllLocations() throws Exception {
 		mockMvc.perform(get("/api/locations"))
 				.andExpect(status().isOk())
+				// The page and its count.
+				.andExpect(QueryBudget.atMost(2))
 				.andExpect(jsonPath("$.content[0].name").value("Test Location"));
 	}
 
+	@Test
+	void testScrollLocationsWithCursor() throws Exception {
+		locationRepository.save(new Location(null, "A Location", "First Address"));
+		locationRepository.save(new Location(null, "B Location", "Second Address"));
+
+		String firstPage = mockMvc.perform(get("/api/locations").param("cursor", "").param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].name").value("A Location"))
+				.andExpect(jsonPath("$.nextCursor").isNotEmpty())
+				.andReturn().getResponse().getContentAsString();
+
+		String nextPage = mockMvc.perform(get("/api/locations").param("cursor", nextCursor(firstPage)).param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].name").value("B Location"))
+				.andExpect(jsonPath("$.nextCursor").isNotEmpty())
+				.andReturn().getResponse().getContentAsString();
+
+		mockMvc.perform(get("/api/locations").param("cursor", nextCursor(nextPage)).param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].name").value("Test Location"))
+				.andExpect(jsonPath("$.nextCursor").doesNotExist());
+	}
+
+	@Test
+	void testScrollLocationsWithInvalidCursor() throws Exception {
+		mockMvc.perform(get("/api/locations").param("cursor", "not-a-cursor"))
+				.andExpect(status().isBadRequest());
+
+		// A cursor whose id was replaced.
+		String tampered = new KeysetCursor("Test Location", "not-an-id").encode();
+		mockMvc.perform(get("/api/locations").param("cursor", tampered))
+				.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	void testGetLocationById() throws Exception {
 		mockMvc.perform(get("/api/locations/" + testLocation.getId()))
 				.andExpect(status().isOk())
+				.andExpect(QueryBudget.atMost(1))
 				.andExpect(jsonPath("$.name").value("Test Location"));
 	}
 
@@ -67,6 +105,7 @@ public class LocationIntegrationTest {
 						.contentType(MediaType.APPLICATION_JSON)
 						.content(objectMapper.writeValueAsString(newLocation)))
 				.andExpect(status().isOk())
+				.andExpect(QueryBudget.atMost(3))
 				.andExpect(jsonPath("$.name").value("New Location"));
 	}
 
@@ -78,15 +117,22 @@ public class LocationIntegrationTest {
 						.contentType(MediaType.APPLICATION_JSON)
 						.content(objectMapper.writeValueAsString(updatedLocation)))
 				.andExpect(status().isOk())
+				.andExpect(QueryBudget.atMost(3))
 				.andExpect(jsonPath("$.name").value("Updated Location"));
 	}
 
 	@Test
 	void testDeleteLocation() throws Exception {
 		mockMvc.perform(delete("/api/locations/" + testLocation.getId()))
-				.andExpect(status().isNoContent());
+				.andExpect(status().isNoContent())
+				// The location, its copies and the deletion.
+				.andExpect(QueryBudget.atMost(4));
 
 		mockMvc.perform(get("/api/locations/" + testLocation.getId()))
 				.andExpect(status().isNotFound());
 	}
-}
\ No newline at end of file
+
+	private String nextCursor(String body) throws Exception {
+		return objectMapper.readTree(body).get("nextCursor").asText();
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.library.integration;
+
+import com.example.library.dto.TokenDTO;
+import com.example.library.entity.User;
+import com.example.library.repository.UserRepository;
+import com.example.library.security.JwtTokenProvider;
+import com.example.library.service.AuthService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Tag("integration")
+@DisplayName("Password Rehash Tests")
+public class PasswordRehashTest {
+
+	private static final String USERNAME = "legacy-user";
+	private static final String PASSWORD = "legacy-password";
+
+	@Autowired
+	private AuthService authService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private JwtTokenProvider tokenProvider;
+
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		// A hash from before the strength was raised.
+		user = new User();
+		user.setUsername(USERNAME);
+		user.setPassword("{bcrypt}" + new BCryptPasswordEncoder(4).encode(PASSWORD));
+		user.setRoles(Set.of("USER"));
+		user = userRepository.saveAndFlush(user);
+	}
+
+	@AfterEach
+	void tearDown() {
+		userRepository.findByUsername(USERNAME).ifPresent(userRepository::delete);
+	}
+
+	@Test
+	@DisplayName("should replace a weaker hash after a successful login")
+	void shouldRehashLegacyPassword() throws Exception {
+		TokenDTO token = authService.login(USERNAME, PASSWORD).get(10, TimeUnit.SECONDS);
+
+		User rehashed = userRepository.findByUsername(USERNAME).orElseThrow();
+		assertThat(rehashed.getPassword()).startsWith("{bcrypt}").isNotEqualTo(user.getPassword());
+		assertThat(passwordEncoder.matches(PASSWORD, rehashed.getPassword())).isTrue();
+		assertThat(passwordEncoder.upgradeEncoding(rehashed.getPassword())).isFalse();
+		// The token of the login carries the version of the rehashed user, so it stays valid.
+		assertThat(rehashed.getVersion()).isGreaterThan(user.getVersion());
+		assertThat(tokenProvider.parseToken(token.getAccessToken()))
+				.hasValueSatisfying(claims -> assertThat(claims.version()).isEqualTo(rehashed.getVersion()));
+	}
+
+	@Test
+	@DisplayName("should keep the hash after a failed login")
+	void shouldKeepHashAfterFailedLogin() {
+		assertThat(authService.login(USERNAME, "wrong-password")).failsWithin(10, TimeUnit.SECONDS);
+
+		assertThat(userRepository.findByUsername(USERNAME).orElseThrow().getPassword()).isEqualTo(user.getPassword());
+	}
+}
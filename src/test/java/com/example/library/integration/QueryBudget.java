@@ -0,0 +1,30 @@
+package com.example.library.integration;
+
+import com.example.library.metrics.SqlStatementFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Asserts the number of SQL statements executed by a request, as counted by {@link SqlStatementFilter}.
+ */
+final class QueryBudget {
+
+	private QueryBudget() {
+	}
+
+	/**
+	 * Expect a request to execute at most the given number of SQL statements.
+	 *
+	 * @param statements the budget of the request
+	 * @return the matcher of the response
+	 */
+	static ResultMatcher atMost(int statements) {
+		return result -> {
+			String count = result.getResponse().getHeader(SqlStatementFilter.STATEMENT_COUNT_HEADER);
+			assertThat(count).as("SQL statement count header").isNotNull();
+			assertThat(Integer.parseInt(count)).as("SQL statements of %s %s", result.getRequest().getMethod(),
+					result.getRequest().getRequestURI()).isLessThanOrEqualTo(statements);
+		};
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.library.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PerformanceMetrics Tests")
+class PerformanceMetricsTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private PerformanceMetrics metrics;
+	private Method method;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		meterRegistry = new SimpleMeterRegistry();
+		metrics = new PerformanceMetrics(meterRegistry, true, new Duration[]{Duration.ofMillis(100), Duration.ofSeconds(1)});
+		method = Object.class.getMethod("toString");
+	}
+
+	@Test
+	@DisplayName("should reuse the timer of a method")
+	void shouldReuseTimer() {
+		metrics.recordMethodExecutionTime(method, "TestController", TimeUnit.MILLISECONDS.toNanos(20), null);
+		metrics.recordMethodExecutionTime(method, "TestController", TimeUnit.MILLISECONDS.toNanos(200), null);
+
+		Timer timer = meterRegistry.get("library.method.execution.time").tag("outcome", "success").timer();
+		assertThat(timer.count()).isEqualTo(2);
+		assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(220);
+		assertThat(meterRegistry.find("library.method.execution.time").timers()).hasSize(1);
+	}
+
+	@Test
+	@DisplayName("should tag the executions by outcome and exception class")
+	void shouldTagByOutcome() {
+		metrics.recordMethodExecutionTime(method, "TestController", 1000, null);
+		metrics.recordMethodExecutionTime(method, "TestController", 1000, new IllegalStateException());
+		metrics.recordMethodExecutionTime(method, "TestController", 1000, new IllegalStateException());
+
+		Timer failures = meterRegistry.get("library.method.execution.time")
+				.tag("class", "TestController")
+				.tag("method", "toString")
+				.tag("outcome", "exception")
+				.tag("exception", "IllegalStateException")
+				.timer();
+		assertThat(failures.count()).isEqualTo(2);
+		assertThat(meterRegistry.get("library.method.execution.time").tag("exception", "none").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("should publish the SLO buckets")
+	void shouldPublishSloBuckets() {
+		metrics.recordMethodExecutionTime(method, "TestController", TimeUnit.MILLISECONDS.toNanos(50), null);
+
+		Timer timer = meterRegistry.get("library.method.execution.time").timer();
+		assertThat(timer.takeSnapshot().histogramCounts())
+				.anySatisfy(bucket -> assertThat(bucket.bucket(TimeUnit.MILLISECONDS)).isEqualTo(100));
+	}
+}
@@ -0,0 +1,150 @@
+package com.example.library.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("ServerTimingFilter Tests")
+class ServerTimingFilterTest {
+
+	interface Repository {
+		String findTitle();
+	}
+
+	interface Controller {
+		String handleRequest();
+	}
+
+	private SimpleMeterRegistry meterRegistry;
+	private LayerTimingInterceptor interceptor;
+	private Controller controller;
+
+	@BeforeEach
+	void setUp() {
+		Map<String, String> pointcuts = new LinkedHashMap<>();
+		pointcuts.put("controller", "execution(* handle*(..))");
+		pointcuts.put("repository", "execution(* find*(..))");
+		meterRegistry = new SimpleMeterRegistry();
+		interceptor = new LayerTimingInterceptor(pointcuts);
+
+		Repository repository = proxy(Repository.class, () -> {
+			sleep(20);
+			return "Dune";
+		});
+		controller = proxy(Controller.class, () -> "Title: " + repository.findTitle());
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	private <T> T proxy(Class<T> type, T target) {
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.addInterface(type);
+		proxyFactory.addAdvisor(new DefaultPointcutAdvisor(interceptor.getPointcut(), interceptor));
+		return type.cast(proxyFactory.getProxy());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	@DisplayName("should report the time of each layer, excluding the nested layers")
+	void shouldReportLayerTimes() throws Exception {
+		ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, interceptor.getLayerNames(), 1.0, true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/books"), response,
+				(req, res) -> res.getWriter().write(controller.handleRequest()));
+
+		assertThat(response.getContentAsString()).isEqualTo("Title: Dune");
+		assertThat(response.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER))
+				.matches("controller;dur=[0-9.]+, repository;dur=[0-9.]+, total;dur=[0-9.]+");
+
+		Timer repositoryTimer = meterRegistry.get("library.request.layer.time").tag("layer", "repository").timer();
+		Timer controllerTimer = meterRegistry.get("library.request.layer.time").tag("layer", "controller").timer();
+		assertThat(repositoryTimer.count()).isEqualTo(1);
+		assertThat(repositoryTimer.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+		assertThat(controllerTimer.count()).isEqualTo(1);
+		assertThat(controllerTimer.totalTime(TimeUnit.MILLISECONDS)).isLessThan(repositoryTimer.totalTime(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	@DisplayName("should only report the layers that were called")
+	void shouldSkipLayersNotCalled() throws Exception {
+		ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, interceptor.getLayerNames(), 1.0, true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/books"), response, (req, res) -> res.getWriter().write("ok"));
+
+		assertThat(response.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER)).matches("total;dur=[0-9.]+");
+		assertThat(meterRegistry.get("library.request.layer.time").tag("layer", "repository").timer().count()).isZero();
+	}
+
+	@Test
+	@DisplayName("should not time the requests left out of the sample")
+	void shouldNotTimeUnsampledRequests() throws Exception {
+		ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, interceptor.getLayerNames(), 0.0, true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/books"), response,
+				(req, res) -> res.getWriter().write(controller.handleRequest()));
+
+		assertThat(response.getContentAsString()).isEqualTo("Title: Dune");
+		assertThat(response.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER)).isNull();
+		assertThat(meterRegistry.get("library.request.layer.time").tag("layer", "controller").timer().count()).isZero();
+		assertThat(RequestTimings.current()).isNull();
+	}
+
+	@Test
+	@DisplayName("should only send the header to the admins unless enabled for all")
+	void shouldOnlySendHeaderToAdmins() throws Exception {
+		ServerTimingFilter filter = new ServerTimingFilter(meterRegistry, interceptor.getLayerNames(), 1.0, false);
+
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, "ROLE_USER"));
+		MockHttpServletResponse userResponse = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/books"), userResponse,
+				(req, res) -> res.getWriter().write(controller.handleRequest()));
+
+		assertThat(userResponse.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER)).isNull();
+		assertThat(meterRegistry.get("library.request.layer.time").tag("layer", "controller").timer().count()).isEqualTo(1);
+
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", null, "ROLE_ADMIN"));
+		MockHttpServletResponse adminResponse = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/books"), adminResponse,
+				(req, res) -> res.getWriter().write(controller.handleRequest()));
+
+		assertThat(adminResponse.getHeader(ServerTimingFilter.SERVER_TIMING_HEADER))
+				.matches("controller;dur=[0-9.]+, repository;dur=[0-9.]+, total;dur=[0-9.]+");
+	}
+
+	@Test
+	@DisplayName("should require at least one layer")
+	void shouldRequireLayers() {
+		assertThatThrownBy(() -> new LayerTimingInterceptor(Map.of()))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("app.metrics.layers.pointcuts");
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.library.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SlowQueryLog Tests")
+class SlowQueryLogTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private SlowQueryLog slowQueryLog;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:slow-query-log;DB_CLOSE_DELAY=-1");
+		// Every statement is slow.
+		slowQueryLog = new SlowQueryLog(dataSource, meterRegistry, Duration.ZERO, 3, true);
+		jdbcTemplate = new JdbcTemplate(new InstrumentedDataSource(dataSource, () -> slowQueryLog));
+		new JdbcTemplate(dataSource).execute("CREATE TABLE IF NOT EXISTS shelves (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+	}
+
+	@AfterEach
+	void tearDown() {
+		slowQueryLog.shutdown();
+	}
+
+	@Test
+	@DisplayName("should keep the SQL text and parameter types of a slow statement, and explain it")
+	void shouldRecordAndExplain() throws Exception {
+		jdbcTemplate.queryForList("SELECT name FROM shelves WHERE id = ? AND name = ?", String.class, 1L, "A");
+
+		List<SlowQueryLog.SlowQuery> recent = slowQueryLog.recent();
+		assertThat(recent).hasSize(1);
+		assertThat(recent.get(0).sql()).isEqualTo("SELECT name FROM shelves WHERE id = ? AND name = ?");
+		assertThat(recent.get(0).parameterTypes()).containsExactly("Long", "String");
+		assertThat(meterRegistry.get("library.sql.slow").counter().count()).isEqualTo(1);
+
+		// The plan is captured in the background.
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (slowQueryLog.recent().get(0).plan() == null && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(slowQueryLog.recent().get(0).plan()).containsIgnoringCase("shelves");
+	}
+
+	@Test
+	@DisplayName("should only keep the most recent slow statements")
+	void shouldKeepMostRecent() {
+		for (int id = 1; id <= 5; id++) {
+			jdbcTemplate.queryForList("SELECT name FROM shelves WHERE id = " + id, String.class);
+		}
+
+		assertThat(slowQueryLog.recent())
+				.extracting(SlowQueryLog.SlowQuery::sql)
+				.containsExactly(
+						"SELECT name FROM shelves WHERE id = 5",
+						"SELECT name FROM shelves WHERE id = 4",
+						"SELECT name FROM shelves WHERE id = 3");
+	}
+
+	@Test
+	@DisplayName("should number the placeholders outside the string literals")
+	void shouldNumberPlaceholders() {
+		assertThat(SlowQueryLog.numberPlaceholders("SELECT * FROM books WHERE title = '?' AND id = ? OR isbn = ?"))
+				.isEqualTo("SELECT * FROM books WHERE title = '?' AND id = $1 OR isbn = $2");
+	}
+
+	@Test
+	@DisplayName("should redact the string literals of the slow statements")
+	void shouldRedactLiterals() {
+		jdbcTemplate.queryForList("SELECT name FROM shelves WHERE name = 'Jane''s shelf' AND id = ?", String.class, 1L);
+
+		assertThat(slowQueryLog.recent().get(0).sql()).isEqualTo("SELECT name FROM shelves WHERE name = '***' AND id = ?");
+		assertThat(SlowQueryLog.redactLiterals("SELECT 1")).isEqualTo("SELECT 1");
+	}
+}
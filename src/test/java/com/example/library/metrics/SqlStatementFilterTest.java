@@ -0,0 +1,94 @@
+package com.example.library.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("SqlStatementFilter Tests")
+class SqlStatementFilterTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:sql-statement-filter;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(new InstrumentedDataSource(dataSource, () -> null));
+		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS shelves (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+		jdbcTemplate.execute("DELETE FROM shelves");
+		jdbcTemplate.update("INSERT INTO shelves (id, name) VALUES (1, 'A'), (2, 'B'), (3, 'C')");
+	}
+
+	@Test
+	@DisplayName("should count the statements and rows of a request")
+	void shouldCountStatementsAndRows() throws Exception {
+		SqlStatementFilter filter = new SqlStatementFilter(meterRegistry, 10, true, true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/shelves"), response, (req, res) -> {
+			jdbcTemplate.queryForList("SELECT name FROM shelves", String.class);
+			jdbcTemplate.queryForObject("SELECT name FROM shelves WHERE id = ?", String.class, 1L);
+			res.getWriter().write("ok");
+		});
+
+		assertThat(response.getHeader(SqlStatementFilter.STATEMENT_COUNT_HEADER)).isEqualTo("2");
+		assertThat(response.getHeader(SqlStatementFilter.ROW_COUNT_HEADER)).isEqualTo("4");
+		assertThat(response.getHeader(SqlStatementFilter.TIME_HEADER)).isNotNull();
+
+		DistributionSummary statements = meterRegistry.get("library.request.sql.statements").tag("uri", "UNKNOWN").summary();
+		assertThat(statements.count()).isEqualTo(1);
+		assertThat(statements.totalAmount()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("should not count the statements executed outside a request")
+	void shouldNotCountOutsideRequest() {
+		jdbcTemplate.queryForList("SELECT name FROM shelves", String.class);
+
+		assertThat(RequestSqlStatements.current()).isNull();
+		assertThat(meterRegistry.find("library.request.sql.statements").summary()).isNull();
+	}
+
+	@Test
+	@DisplayName("should fail a request that repeats a statement when configured to")
+	void shouldFailOnRepeatedStatement() {
+		SqlStatementFilter filter = new SqlStatementFilter(meterRegistry, 2, false, true);
+
+		assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("GET", "/api/shelves"), new MockHttpServletResponse(),
+				(req, res) -> {
+					for (long id = 1; id <= 3; id++) {
+						jdbcTemplate.queryForObject("SELECT name FROM shelves WHERE id = ?", String.class, id);
+					}
+				}))
+				.isInstanceOf(SqlStatementFilter.RepeatedStatementException.class)
+				.hasMessageContaining("executed 3 times by GET /api/shelves")
+				.hasMessageContaining("SELECT name FROM shelves WHERE id = ?");
+		assertThat(meterRegistry.get("library.request.sql.repeated").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("should only log a repeated statement by default")
+	void shouldLogRepeatedStatement() throws Exception {
+		SqlStatementFilter filter = new SqlStatementFilter(meterRegistry, 2, false, false);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/shelves"), response, (req, res) -> {
+			for (long id = 1; id <= 3; id++) {
+				jdbcTemplate.queryForObject("SELECT name FROM shelves WHERE id = ?", String.class, id);
+			}
+		});
+
+		assertThat(response.getHeader(SqlStatementFilter.STATEMENT_COUNT_HEADER)).isNull();
+		assertThat(meterRegistry.get("library.request.sql.repeated").counter().count()).isEqualTo(1);
+	}
+}
@@ -1,6 +1,7 @@
 package com.example.library.repository;
 
 import com.example.library.entity.Book;
+import com.example.library.specification.BookSpecification;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -189,5 +190,15 @@ class BookRepositoryTest {
 			assertThat(bookPage.getContent().get(1).getAuthor()).isEqualTo("Author 8");
 			assertThat(bookPage.getContent().get(9).getAuthor()).isEqualTo("Author 19");
 		}
+
+		@Test
+		@DisplayName("Count books up to a limit")
+		void whenCountUpTo_thenStopAtLimit() {
+			assertThat(bookRepository.countUpTo(null, 10)).isEqualTo(10);
+			assertThat(bookRepository.countUpTo(null, 100)).isEqualTo(21);
+			// Author 1 and Author 10 to Author 19.
+			assertThat(bookRepository.countUpTo(BookSpecification.authorLike("Author 1"), 5)).isEqualTo(5);
+			assertThat(bookRepository.countUpTo(BookSpecification.authorLike("Author 1"), 100)).isEqualTo(11);
+		}
 	}
-}
\ No newline at end of file
+}
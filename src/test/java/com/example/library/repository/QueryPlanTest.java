@@ -0,0 +1,285 @@
+package com.example.library.repository;
+
+import com.example.library.metrics.RequestSqlStatements;
+import com.example.library.specification.BookSpecification;
+import com.example.library.specification.LocationSpecification;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every query of the repositories and specifications on a realistic dataset, explains the SQL it executes, and
+ * fails if a large table is scanned.
+ * <p>
+ * The plans are the ones of H2. The searches that only PostgreSQL can serve from an index (trigram and expression
+ * indexes) and the listings of whole tables declare the scans they are allowed.
+ */
+@SpringBootTest
+@Tag("integration")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Query Plan Tests")
+class QueryPlanTest {
+
+	private static final int BOOKS = 5000;
+	private static final int LOCATIONS = 500;
+	private static final int LOCATIONS_PER_BOOK = 4;
+
+	/**
+	 * The tables that grow with the catalog, which must not be scanned.
+	 */
+	private static final Set<String> LARGE_TABLES = Set.of("BOOKS", "LOCATIONS", "BOOK_COPIES");
+
+	/**
+	 * The H2 plan of a full table scan, such as {@code /* PUBLIC.BOOKS.tableScan *}{@code /}.
+	 */
+	private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.(\\w+)\\.tableScan");
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private BookCopyRepository bookCopyRepository;
+
+	@Autowired
+	private LocationRepository locationRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ApiKeyRepository apiKeyRepository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private JdbcTemplate jdbcTemplate;
+	private long firstBookId;
+	private long firstLocationId;
+
+	@BeforeAll
+	void seed() {
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		firstLocationId = reserveIds("locations_seq", LOCATIONS);
+		firstBookId = reserveIds("books_seq", BOOKS);
+		jdbcTemplate.batchUpdate("INSERT INTO locations (id, name, address) VALUES (?, ?, ?)",
+				IntStream.range(0, LOCATIONS)
+						.mapToObj(i -> new Object[]{firstLocationId + i, String.format("Location %04d", i), "Address " + i})
+						.toList());
+		jdbcTemplate.batchUpdate("INSERT INTO books (id, title, author, isbn, publication_date) VALUES (?, ?, ?, ?, ?)",
+				IntStream.range(0, BOOKS)
+						.mapToObj(i -> new Object[]{firstBookId + i, String.format("Title %05d", i), String.format("Author %03d", i % 200),
+								String.format("978%010d", i), LocalDate.of(2000, 1, 1).plusDays(i)})
+						.toList());
+
+		// Each book is stocked at a few locations spread over all of them.
+		List<Object[]> copies = new ArrayList<>();
+		for (int book = 0; book < BOOKS; book++) {
+			for (int copy = 0; copy < LOCATIONS_PER_BOOK; copy++) {
+				int location = (book + copy * LOCATIONS / LOCATIONS_PER_BOOK) % LOCATIONS;
+				copies.add(new Object[]{firstBookId + book, firstLocationId + location, book % 10 + 1});
+			}
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO book_copies (book_id, location_id, quantity) VALUES (?, ?, ?)", copies);
+
+		// Let the optimizer know the row counts and selectivities.
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	/**
+	 * Reserve a range of consecutive ids: the sequence restarts past them, and the blocks Hibernate already allocated
+	 * (pooled-lo) all end before the value taken.
+	 *
+	 * @return the first id of the range
+	 */
+	private long reserveIds(String sequence, int count) {
+		long first = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+		jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (first + count));
+		return first;
+	}
+
+	@AfterAll
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM book_copies WHERE book_id >= ?", firstBookId);
+		jdbcTemplate.update("DELETE FROM books WHERE id >= ?", firstBookId);
+		jdbcTemplate.update("DELETE FROM locations WHERE id >= ?", firstLocationId);
+	}
+
+	@TestFactory
+	Stream<DynamicTest> queryPlans() {
+		long locationId = firstLocationId + 42;
+		long bookId = firstBookId + 42;
+		return Stream.of(
+				// BookRepository
+				new QueryCase("BookRepository.findById", () -> bookRepository.findById(bookId)),
+				new QueryCase("BookRepository.findByIsbn", () -> bookRepository.findByIsbn("9780000000042")),
+				new QueryCase("BookRepository.findSearchDocuments", () -> bookRepository.findSearchDocuments(firstBookId, firstBookId + 99)),
+				new QueryCase("BookRepository.findWeightedTitles", () -> bookRepository.findWeightedTitles(firstBookId, firstBookId + 99)),
+				new QueryCase("BookRepository.findMinId", () -> bookRepository.findMinId()),
+				new QueryCase("BookRepository.findMaxId", () -> bookRepository.findMaxId()),
+				new QueryCase("BookRepository.findPageContent (all books, by title)",
+						() -> bookRepository.findPageContent(null, PageRequest.of(0, 20, Sort.by("title"))), "BOOKS"),
+				new QueryCase("BookRepository.count", () -> bookRepository.count(), "BOOKS"),
+				// BookSpecification
+				new QueryCase("BookSpecification.titleLike (trigram index on PostgreSQL)",
+						() -> bookRepository.findPageContent(BookSpecification.titleLike("itle 0004"), PageRequest.of(0, 20)), "BOOKS"),
+				new QueryCase("BookSpecification.authorLike (trigram index on PostgreSQL)",
+						() -> bookRepository.countUpTo(BookSpecification.authorLike("thor 01"), 1000), "BOOKS"),
+				new QueryCase("BookSpecification.titleLikeAny (trigram index on PostgreSQL)",
+						() -> bookRepository.findAll(BookSpecification.titleLikeAny(List.of("00041", "00042")), PageRequest.of(0, 20)), "BOOKS"),
+				new QueryCase("BookSpecification.authorLikeAny (trigram index on PostgreSQL)",
+						() -> bookRepository.findAll(BookSpecification.authorLikeAny(List.of("or 041", "or 042")), PageRequest.of(0, 20)), "BOOKS"),
+				new QueryCase("BookSpecification.titleStartsWith (expression index on PostgreSQL)",
+						() -> bookRepository.findAll(BookSpecification.titleStartsWith("title 0004"), PageRequest.of(0, 10)), "BOOKS"),
+				new QueryCase("BookSpecification.titleAfter",
+						() -> bookRepository.findPageContent(BookSpecification.titleAfter("Title 04990", firstBookId + 4990),
+								PageRequest.of(0, 20, Sort.by("title", "id")))),
+				// BookCopyRepository
+				new QueryCase("BookCopyRepository.getByLocationIdAndBookId", () -> bookCopyRepository.getByLocationIdAndBookId(locationId, bookId)),
+				new QueryCase("BookCopyRepository.findQuantity", () -> bookCopyRepository.findQuantity(locationId, bookId)),
+				new QueryCase("BookCopyRepository.addQuantity", () -> bookCopyRepository.addQuantity(locationId, bookId, 1)),
+				new QueryCase("BookCopyRepository.insertQuantityIfAbsent", () -> bookCopyRepository.insertQuantityIfAbsent(locationId, bookId, 1)),
+				new QueryCase("BookCopyRepository.findBooksWithQuantitiesByLocationId",
+						() -> bookCopyRepository.findBooksWithQuantitiesByLocationId(locationId, PageRequest.of(0, 5))),
+				new QueryCase("BookCopyRepository.findFirstBooksWithQuantitiesByLocationId",
+						() -> bookCopyRepository.findFirstBooksWithQuantitiesByLocationId(locationId, PageRequest.of(0, 20))),
+				new QueryCase("BookCopyRepository.findBooksWithQuantitiesByLocationIdAfter",
+						() -> bookCopyRepository.findBooksWithQuantitiesByLocationIdAfter(locationId, "Title 02500", "9780000002500", PageRequest.of(0, 20))),
+				// LocationRepository and LocationSpecification
+				new QueryCase("LocationRepository.findById", () -> locationRepository.findById(locationId)),
+				new QueryCase("LocationRepository.findWeightedNames", () -> locationRepository.findWeightedNames(firstLocationId, firstLocationId + 9)),
+				new QueryCase("LocationRepository.findAll (all locations, by name)",
+						() -> locationRepository.findAll(PageRequest.of(0, 20, Sort.by("name"))), "LOCATIONS"),
+				new QueryCase("LocationSpecification.nameLike (trigram index on PostgreSQL)",
+						() -> locationRepository.findAll(LocationSpecification.nameLike("tion 004"), PageRequest.of(0, 20)), "LOCATIONS"),
+				new QueryCase("LocationSpecification.nameStartsWith (expression index on PostgreSQL)",
+						() -> locationRepository.findAll(LocationSpecification.nameStartsWith("location 004"), PageRequest.of(0, 20)), "LOCATIONS"),
+				new QueryCase("LocationSpecification.nameAfter",
+						() -> locationRepository.findAll(LocationSpecification.nameAfter("Location 0490", firstLocationId + 490),
+								PageRequest.of(0, 20, Sort.by("name", "id")))),
+				// Small tables
+				new QueryCase("UserRepository.findByUsername", () -> userRepository.findByUsername("admin")),
+				new QueryCase("ApiKeyRepository.findByEnabledTrue", () -> apiKeyRepository.findByEnabledTrue())
+		).map(queryCase -> DynamicTest.dynamicTest(queryCase.name(), () -> this.assertNoLargeTableScan(queryCase)));
+	}
+
+	private void assertNoLargeTableScan(QueryCase queryCase) {
+		Set<String> sqlTexts = this.execute(queryCase.query());
+		assertThat(sqlTexts).as("SQL executed by %s", queryCase.name()).isNotEmpty();
+
+		for (String sql : sqlTexts) {
+			if (!isExplainable(sql)) {
+				continue;
+			}
+			String plan = this.explain(sql);
+			Set<String> scannedTables = new HashSet<>();
+			Matcher matcher = TABLE_SCAN.matcher(plan);
+			while (matcher.find()) {
+				scannedTables.add(matcher.group(2).toUpperCase(Locale.ROOT));
+			}
+			// An aggregate answered from the table metadata or an index end does not read the rows.
+			if (plan.contains("direct lookup")) {
+				continue;
+			}
+			scannedTables.retainAll(LARGE_TABLES);
+			scannedTables.removeAll(queryCase.allowedScans());
+			assertThat(scannedTables).as("Tables scanned by %s:%n%s%nPlan:%n%s", queryCase.name(), sql, plan).isEmpty();
+		}
+	}
+
+	/**
+	 * Run a query in a transaction that is rolled back, from cold caches, and collect the SQL it executes.
+	 */
+	private Set<String> execute(Runnable query) {
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+		RequestSqlStatements statements = RequestSqlStatements.start(Integer.MAX_VALUE);
+		try {
+			new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+				query.run();
+				status.setRollbackOnly();
+			});
+		} finally {
+			RequestSqlStatements.stop();
+		}
+		return statements.getExecutions().keySet();
+	}
+
+	/**
+	 * Only the queries have a plan: H2 does not explain MERGE, and plain inserts read nothing.
+	 */
+	private static boolean isExplainable(String sql) {
+		String keyword = sql.stripLeading().split("\\s", 2)[0].toLowerCase(Locale.ROOT);
+		return keyword.equals("select") || keyword.equals("with") || keyword.equals("update") || keyword.equals("delete");
+	}
+
+	/**
+	 * Explain a statement, its plan does not depend on the bind values.
+	 */
+	private String explain(String sql) {
+		return jdbcTemplate.query("EXPLAIN " + sql, QueryPlanTest::bindNulls, QueryPlanTest::joinRows);
+	}
+
+	private static void bindNulls(PreparedStatement statement) throws SQLException {
+		int parameters = statement.getParameterMetaData().getParameterCount();
+		for (int index = 1; index <= parameters; index++) {
+			statement.setObject(index, null);
+		}
+	}
+
+	private static String joinRows(ResultSet resultSet) throws SQLException {
+		StringBuilder plan = new StringBuilder();
+		while (resultSet.next()) {
+			plan.append(resultSet.getString(1)).append('\n');
+		}
+		return plan.toString();
+	}
+
+	/**
+	 * A query of a repository or a specification.
+	 *
+	 * @param name         the name of the query
+	 * @param query        runs the query
+	 * @param allowedScans the large tables the query may scan on H2, because it reads them whole or PostgreSQL serves
+	 *                     it from an index H2 does not have
+	 */
+	private record QueryCase(String name, Runnable query, Set<String> allowedScans) {
+		QueryCase(String name, Runnable query, String... allowedScans) {
+			this(name, query, Set.of(allowedScans));
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.library.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CompletionTrie Tests")
+class CompletionTrieTest {
+
+	private CompletionTrie trie;
+
+	@BeforeEach
+	void setUp() {
+		trie = new CompletionTrie(2);
+		trie.putAll(List.of(
+				new CompletionTrie.Entry(1L, "The Hobbit", 5),
+				new CompletionTrie.Entry(2L, "The Hunger Games", 9),
+				new CompletionTrie.Entry(3L, "The Help", 1),
+				new CompletionTrie.Entry(4L, "Dune", 7)
+		));
+	}
+
+	@Test
+	@DisplayName("should complete a prefix with the heaviest texts first, ignoring case")
+	void shouldCompleteHeaviestFirst() {
+		assertThat(ids(trie.complete("the h", 10))).containsExactly(2L, 1L);
+		assertThat(ids(trie.complete("THE HO", 10))).containsExactly(1L);
+		assertThat(ids(trie.complete("", 10))).containsExactly(2L, 4L);
+	}
+
+	@Test
+	@DisplayName("should complete a prefix ending inside an edge")
+	void shouldCompleteInsideEdge() {
+		assertThat(ids(trie.complete("the hung", 10))).containsExactly(2L);
+		assertThat(ids(trie.complete("du", 10))).containsExactly(4L);
+	}
+
+	@Test
+	@DisplayName("should return nothing for an unknown prefix")
+	void shouldReturnNothingForUnknownPrefix() {
+		assertThat(trie.complete("the x", 10)).isEmpty();
+		assertThat(trie.complete("dunes", 10)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should limit the number of completions")
+	void shouldLimitCompletions() {
+		assertThat(ids(trie.complete("the", 1))).containsExactly(2L);
+	}
+
+	@Test
+	@DisplayName("should update the completions when a text is removed")
+	void shouldRemoveText() {
+		assertThat(trie.remove(2L)).isTrue();
+		assertThat(trie.remove(2L)).isFalse();
+
+		assertThat(ids(trie.complete("the h", 10))).containsExactly(1L, 3L);
+		assertThat(trie.complete("the hu", 10)).isEmpty();
+		assertThat(trie.size()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("should replace the text of an existing id")
+	void shouldReplaceText() {
+		trie.put(1L, "Dune Messiah", 3);
+
+		assertThat(ids(trie.complete("dune", 10))).containsExactly(4L, 1L);
+		assertThat(ids(trie.complete("the h", 10))).containsExactly(2L, 3L);
+		assertThat(trie.size()).isEqualTo(4);
+	}
+
+	@Test
+	@DisplayName("should keep equal texts of different ids")
+	void shouldKeepEqualTexts() {
+		trie.put(5L, "Dune", 8);
+
+		assertThat(ids(trie.complete("dune", 10))).containsExactly(5L, 4L);
+	}
+
+	private static List<Long> ids(List<CompletionTrie.Entry> entries) {
+		return entries.stream().map(CompletionTrie.Entry::id).toList();
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.library.search;
+
+import com.example.library.repository.BookRepository;
+import com.example.library.specification.BookFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("FuzzyTermIndex Tests")
+class FuzzyTermIndexTest {
+
+	private FuzzyTermIndex index;
+
+	@BeforeEach
+	void setUp() {
+		BookRepository bookRepository = mock(BookRepository.class);
+		when(bookRepository.findMinId()).thenReturn(Optional.of(1L));
+		when(bookRepository.findMaxId()).thenReturn(Optional.of(3L));
+		when(bookRepository.findSearchDocuments(anyLong(), anyLong())).thenReturn(List.of(
+				new SearchDocument(1L, "The Hobbit", "J.R.R. Tolkien"),
+				new SearchDocument(2L, "Les Misérables", "Victor Hugo"),
+				new SearchDocument(3L, "Harry Potter", "Jane Smith")));
+		index = new FuzzyTermIndex(bookRepository, 32);
+	}
+
+	@Test
+	@DisplayName("should not expand filters until built")
+	void shouldWaitForBuild() {
+		assertThat(index.toSpecification(new BookFilter("hobit", null, true))).isEmpty();
+
+		index.build();
+
+		assertThat(index.toSpecification(new BookFilter("hobit", null, true))).isPresent();
+	}
+
+	@Test
+	@DisplayName("should expand misspelled words to the known terms")
+	void shouldExpandTypos() {
+		index.build();
+
+		assertThat(index.spellings("hobit", false)).containsExactly("hobit", "hobbit");
+		assertThat(index.spellings("tolkein", false)).contains("tolkien");
+		// Schmidt and Smith share a Double Metaphone code.
+		assertThat(index.spellings("schmidt", false)).doesNotContain("smith");
+		assertThat(index.spellings("schmidt", true)).contains("smith");
+	}
+
+	@Test
+	@DisplayName("should look for the terms with the diacritics of the titles")
+	void shouldKeepDiacritics() {
+		index.build();
+
+		assertThat(index.spellings("miserables", false)).containsExactly("miserables", "misérables");
+		assertThat(index.spellings("miserbles", false)).contains("misérables");
+		assertThat(index.spellings("misérables", false)).contains("misérables");
+	}
+}
@@ -0,0 +1,141 @@
+package com.example.library.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("InvertedIndex Tests")
+class InvertedIndexTest {
+
+	private static List<String> terms(String query) {
+		return Tokenizer.tokenize(query);
+	}
+
+	@Test
+	@DisplayName("should match books containing all the terms")
+	void shouldMatchAllTerms() {
+		InvertedIndex index = new InvertedIndex(4);
+		index.add(new SearchDocument(1L, "Java Programming", "John Doe"));
+		index.add(new SearchDocument(2L, "Python Programming", "Jane Smith"));
+		index.add(new SearchDocument(3L, "Effective Java", "Joshua Bloch"));
+
+		assertThat(index.search(terms("java"), 0, 10).bookIds()).containsExactlyInAnyOrder(1L, 3L);
+		assertThat(index.search(terms("programming java"), 0, 10).bookIds()).containsExactly(1L);
+		assertThat(index.search(terms("java rust"), 0, 10).total()).isZero();
+	}
+
+	@Test
+	@DisplayName("should rank rarer and more frequent terms first")
+	void shouldRankByBm25() {
+		InvertedIndex index = new InvertedIndex(4);
+		index.add(new SearchDocument(1L, "Programming in Java", "Jane Doe"));
+		index.add(new SearchDocument(2L, "Java, Java, Java", "John Doe"));
+		index.add(new SearchDocument(3L, "Programming Python", "John Doe"));
+
+		assertThat(index.search(terms("java"), 0, 10).bookIds()).containsExactly(2L, 1L);
+	}
+
+	@Test
+	@DisplayName("should page through the ranked books")
+	void shouldPage() {
+		InvertedIndex index = new InvertedIndex(16);
+		for (long id = 1; id <= 10; id++) {
+			index.add(new SearchDocument(id, "Book " + id, "Author"));
+		}
+
+		SearchHits hits = index.search(terms("author"), 4, 4);
+
+		// Equal scores keep the indexing order.
+		assertThat(hits.bookIds()).containsExactly(5L, 6L, 7L, 8L);
+		assertThat(hits.total()).isEqualTo(10);
+		assertThat(index.search(terms("author"), 12, 4).bookIds()).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should ignore case and diacritics")
+	void shouldNormalizeTerms() {
+		InvertedIndex index = new InvertedIndex(4);
+		index.add(new SearchDocument(1L, "Les Misérables", "Victor Hugo"));
+
+		assertThat(index.search(terms("MISERABLES hugo"), 0, 10).bookIds()).containsExactly(1L);
+	}
+
+	@Test
+	@DisplayName("should replace updated books and skip deleted books")
+	void shouldUpdateAndDelete() {
+		InvertedIndex index = new InvertedIndex(4);
+		index.add(new SearchDocument(1L, "Java Programming", "John Doe"));
+		index.add(new SearchDocument(2L, "Python Programming", "Jane Smith"));
+
+		index.remove(1L);
+		index.add(new SearchDocument(1L, "Rust Programming", "John Doe"));
+		index.remove(2L);
+
+		assertThat(index.search(terms("java"), 0, 10).total()).isZero();
+		assertThat(index.search(terms("programming"), 0, 10).bookIds()).containsExactly(1L);
+		assertThat(index.documentCount()).isEqualTo(1);
+
+		index.compact();
+
+		assertThat(index.deletedCount()).isZero();
+		assertThat(index.search(terms("programming"), 0, 10).bookIds()).containsExactly(1L);
+		assertThat(index.search(terms("python"), 0, 10).total()).isZero();
+	}
+
+	@Test
+	@DisplayName("should count and rank compacted indexes like freshly built ones")
+	void shouldCompactLikeFreshIndex() {
+		List<SearchDocument> kept = List.of(
+				new SearchDocument(2L, "Java", "Jane Doe"),
+				new SearchDocument(4L, "Java Java Programming Concurrency in Practice", "Brian Goetz"),
+				new SearchDocument(6L, "Java Java", "John Doe"));
+		InvertedIndex index = new InvertedIndex(4);
+		index.add(new SearchDocument(1L, "Java Programming", "John Doe"));
+		index.add(kept.get(0));
+		index.add(new SearchDocument(3L, "Python Programming in Depth", "Jane Smith"));
+		index.add(kept.get(1));
+		index.add(new SearchDocument(5L, "Programming Rust", "Steve Klabnik"));
+		index.add(kept.get(2));
+		index.remove(1L);
+		index.remove(3L);
+		index.remove(5L);
+
+		index.compact();
+
+		InvertedIndex fresh = new InvertedIndex(4);
+		kept.forEach(fresh::add);
+		assertThat(index.documentCount()).isEqualTo(3);
+		assertThat(index.deletedCount()).isZero();
+		for (String query : List.of("java", "programming", "doe", "java doe")) {
+			assertThat(index.search(terms(query), 0, 10)).as(query).isEqualTo(fresh.search(terms(query), 0, 10));
+		}
+
+		// The renumbered documents keep their order, ahead of the new ones.
+		index.add(new SearchDocument(7L, "Java", "Jane Doe"));
+		assertThat(index.documentCount()).isEqualTo(4);
+		assertThat(index.search(terms("jane doe"), 0, 10).bookIds()).containsExactly(2L, 7L);
+	}
+
+	@Test
+	@DisplayName("should append segments built separately")
+	void shouldAppendSegments() {
+		InvertedIndex first = new InvertedIndex(4);
+		first.add(new SearchDocument(1L, "Java Programming", "John Doe"));
+		InvertedIndex second = new InvertedIndex(4);
+		second.add(new SearchDocument(200L, "More Java", "Jane Doe"));
+		second.add(new SearchDocument(300L, "Python", "Jane Doe"));
+
+		InvertedIndex index = new InvertedIndex(4);
+		index.addAll(first);
+		index.addAll(second);
+
+		assertThat(index.search(terms("java"), 0, 10).bookIds()).containsExactlyInAnyOrder(1L, 200L);
+		// The shorter document ranks first.
+		assertThat(index.search(terms("jane doe"), 0, 10).bookIds()).containsExactly(300L, 200L);
+		assertThat(index.remove(300L)).isTrue();
+		assertThat(index.documentCount()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.library.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TermTrie Tests")
+class TermTrieTest {
+
+	private TermTrie trie;
+
+	@BeforeEach
+	void setUp() {
+		trie = new TermTrie();
+		for (String term : new String[]{"tolkien", "tolstoy", "toll", "rowling", "rowing", "king", "kong", "kingsolver"}) {
+			trie.add(term);
+		}
+	}
+
+	@Test
+	@DisplayName("should count distinct terms")
+	void shouldCountDistinctTerms() {
+		assertThat(trie.add("tolkien")).isFalse();
+		assertThat(trie.add("tolkie")).isTrue();
+		assertThat(trie.termCount()).isEqualTo(9);
+	}
+
+	@Test
+	@DisplayName("should find the terms within the distance, closest first")
+	void shouldFindCloseTerms() {
+		assertThat(trie.search("rowlng", 1, 10))
+				.containsExactly(new TermTrie.Match("rowing", 1), new TermTrie.Match("rowling", 1));
+		assertThat(trie.search("king", 1, 10))
+				.containsExactly(new TermTrie.Match("king", 0), new TermTrie.Match("kong", 1));
+	}
+
+	@Test
+	@DisplayName("should count a transposition as a single edit")
+	void shouldCountTranspositionAsOneEdit() {
+		assertThat(trie.search("tolkein", 1, 10)).containsExactly(new TermTrie.Match("tolkien", 1));
+	}
+
+	@Test
+	@DisplayName("should return nothing beyond the distance")
+	void shouldReturnNothingBeyondDistance() {
+		assertThat(trie.search("hemingway", 2, 10)).isEmpty();
+		assertThat(trie.search("kng", 0, 10)).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should limit the number of terms")
+	void shouldLimitTerms() {
+		assertThat(trie.search("tol", 4, 2)).hasSize(2);
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.library.security;
+
+import com.example.library.service.ApiKeyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ApiKeyAuthenticationFilter Tests")
+class ApiKeyAuthenticationFilterTest {
+
+	private static final String KEY = "lib_prefix_secret";
+
+	@Mock
+	private ApiKeyService apiKeyService;
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	@DisplayName("should authenticate a valid key with its scopes")
+	void shouldAuthenticateKey() throws Exception {
+		when(apiKeyService.authenticate(KEY)).thenReturn(Optional.of(
+				new ApiKeyService.AuthenticatedKey(1L, "warehouse", Set.of(new SimpleGrantedAuthority("ROLE_INVENTORY")))));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader(ApiKeyAuthenticationFilter.API_KEY_HEADER, KEY);
+		MockFilterChain chain = new MockFilterChain();
+
+		new ApiKeyAuthenticationFilter(apiKeyService).doFilter(request, new MockHttpServletResponse(), chain);
+
+		assertThat(chain.getRequest()).isNotNull();
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).satisfies(authentication -> {
+			assertThat(authentication.getName()).isEqualTo("api-key:warehouse");
+			assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_INVENTORY");
+		});
+	}
+
+	@Test
+	@DisplayName("should reject a request with both an API key and a bearer token")
+	void shouldRejectBothCredentials() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader(ApiKeyAuthenticationFilter.API_KEY_HEADER, KEY);
+		request.addHeader("Authorization", "Bearer token");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+
+		new ApiKeyAuthenticationFilter(apiKeyService).doFilter(request, response, chain);
+
+		assertThat(response.getStatus()).isEqualTo(400);
+		assertThat(chain.getRequest()).isNull();
+		assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+		verifyNoInteractions(apiKeyService);
+	}
+}
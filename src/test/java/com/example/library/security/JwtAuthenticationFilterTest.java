@@ -0,0 +1,107 @@
+package com.example.library.security;
+
+import com.example.library.event.UserChangedEvent;
+import com.example.library.service.CustomUserDetailsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("JwtAuthenticationFilter Tests")
+class JwtAuthenticationFilterTest {
+
+	private static final String SECRET = "a-test-secret-that-is-long-enough-for-hmac-sha-256";
+
+	@Mock
+	private CustomUserDetailsService userDetailsService;
+
+	private JwtTokenProvider tokenProvider;
+	private UserDetailsCache userDetailsCache;
+	private JwtAuthenticationFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		tokenProvider = new JwtTokenProvider(SECRET, 3600000, 100);
+		userDetailsCache = new UserDetailsCache(userDetailsService, 100, Duration.ofMinutes(5));
+		filter = new JwtAuthenticationFilter(tokenProvider, userDetailsCache);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	@DisplayName("should authenticate repeated requests with a single user lookup")
+	void shouldAuthenticateFromCache() throws Exception {
+		UserPrincipal user = user(0);
+		when(userDetailsService.loadUserByUsername("alice")).thenReturn(user);
+		String token = issue(user);
+
+		for (int i = 0; i < 3; i++) {
+			Authentication authentication = authenticate(token);
+			assertThat(authentication).isNotNull();
+			assertThat(authentication.getName()).isEqualTo("alice");
+			assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+		}
+		verify(userDetailsService, times(1)).loadUserByUsername("alice");
+	}
+
+	@Test
+	@DisplayName("should reject the tokens issued before the user changed")
+	void shouldRejectTokensOfOlderVersion() throws Exception {
+		UserPrincipal user = user(0);
+		String token = issue(user);
+		when(userDetailsService.loadUserByUsername("alice")).thenReturn(user);
+		assertThat(authenticate(token)).isNotNull();
+
+		// The roles of the user change, which increments their version.
+		UserPrincipal changed = user(1);
+		when(userDetailsService.loadUserByUsername("alice")).thenReturn(changed);
+		userDetailsCache.onUserChanged(new UserChangedEvent(1L));
+
+		assertThat(authenticate(token)).isNull();
+		assertThat(authenticate(issue(changed))).isNotNull();
+	}
+
+	@Test
+	@DisplayName("should reject invalid tokens without looking up the user")
+	void shouldRejectInvalidToken() throws Exception {
+		assertThat(authenticate("not-a-token")).isNull();
+		verifyNoInteractions(userDetailsService);
+	}
+
+	private Authentication authenticate(String token) throws Exception {
+		SecurityContextHolder.clearContext();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Authorization", "Bearer " + token);
+		filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+		return SecurityContextHolder.getContext().getAuthentication();
+	}
+
+	private String issue(UserPrincipal user) {
+		return tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+	}
+
+	private static UserPrincipal user(long version) {
+		return new UserPrincipal(1L, "alice", "{bcrypt}hash", version, Set.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+	}
+}
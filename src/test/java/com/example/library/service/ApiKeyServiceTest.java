@@ -0,0 +1,102 @@
+package com.example.library.service;
+
+import com.example.library.dto.ApiKeyDTO;
+import com.example.library.entity.ApiKey;
+import com.example.library.repository.ApiKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ApiKeyService Tests")
+class ApiKeyServiceTest {
+
+	@Mock
+	private ApiKeyRepository apiKeyRepository;
+
+	private ApiKeyService apiKeyService;
+
+	@BeforeEach
+	void setUp() {
+		apiKeyService = new ApiKeyService(apiKeyRepository, "a-test-pepper", Duration.ofMinutes(1));
+	}
+
+	@Test
+	@DisplayName("should authenticate a created key with its scopes as roles")
+	void shouldAuthenticateCreatedKey() {
+		ApiKeyDTO created = createKey("warehouse", Set.of("INVENTORY"));
+
+		assertThat(created.getKey()).startsWith("lib_");
+		assertThat(apiKeyService.authenticate(created.getKey())).hasValueSatisfying(key -> {
+			assertThat(key.name()).isEqualTo("warehouse");
+			assertThat(key.authorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_INVENTORY");
+		});
+	}
+
+	@Test
+	@DisplayName("should reject unknown, tampered and malformed keys")
+	void shouldRejectInvalidKeys() {
+		ApiKeyDTO created = createKey("warehouse", Set.of("INVENTORY"));
+		String key = created.getKey();
+		String tampered = key.substring(0, key.length() - 1) + (key.endsWith("A") ? "B" : "A");
+
+		assertThat(apiKeyService.authenticate(tampered)).isEmpty();
+		assertThat(apiKeyService.authenticate("lib_unknown_secret")).isEmpty();
+		assertThat(apiKeyService.authenticate("not-a-key")).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should reject a key once it is no longer enabled")
+	void shouldRejectRevokedKey() {
+		ApiKeyDTO created = createKey("warehouse", Set.of("INVENTORY"));
+		when(apiKeyRepository.findByEnabledTrue()).thenReturn(List.of());
+		apiKeyService.refresh();
+
+		assertThat(apiKeyService.authenticate(created.getKey())).isEmpty();
+	}
+
+	@Test
+	@DisplayName("should require a pepper")
+	void shouldRequirePepper() {
+		assertThatThrownBy(() -> new ApiKeyService(apiKeyRepository, "", Duration.ofMinutes(1)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("app.api-keys.pepper");
+	}
+
+	/**
+	 * Create a key, then reload the keys as the commit would.
+	 */
+	private ApiKeyDTO createKey(String name, Set<String> scopes) {
+		when(apiKeyRepository.save(any(ApiKey.class))).thenAnswer(invocation -> {
+			ApiKey apiKey = invocation.getArgument(0);
+			apiKey.setId(1L);
+			return apiKey;
+		});
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			ApiKeyDTO created = apiKeyService.createKey(name, scopes);
+			ArgumentCaptor<ApiKey> saved = ArgumentCaptor.forClass(ApiKey.class);
+			verify(apiKeyRepository).save(saved.capture());
+			when(apiKeyRepository.findByEnabledTrue()).thenReturn(List.of(saved.getValue()));
+			apiKeyService.refresh();
+			return created;
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.example.library.service;
+
+import com.example.library.dto.TokenDTO;
+import com.example.library.lib.RepositoryException;
+import com.example.library.security.JwtTokenProvider;
+import com.example.library.security.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AuthService Tests")
+class AuthServiceTest {
+
+	private static final String SECRET = "a-test-secret-that-is-long-enough-for-hmac-sha-256";
+
+	@Mock
+	private AuthenticationManager authenticationManager;
+
+	private final JwtTokenProvider tokenProvider = new JwtTokenProvider(SECRET, 3600000, 100);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private AuthService authService;
+
+	@AfterEach
+	void tearDown() {
+		authService.shutdown();
+	}
+
+	@Test
+	@DisplayName("should issue a token for valid credentials")
+	void shouldIssueToken() throws Exception {
+		authService = new AuthService(authenticationManager, tokenProvider, meterRegistry, 3600000, 1, 1);
+		UserPrincipal user = new UserPrincipal(1L, "alice", "{bcrypt}hash", 0, Set.of(new SimpleGrantedAuthority("ROLE_USER")));
+		when(authenticationManager.authenticate(any())).thenReturn(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+		TokenDTO token = authService.login("alice", "secret").get(5, TimeUnit.SECONDS);
+
+		assertThat(token.getTokenType()).isEqualTo("Bearer");
+		assertThat(token.getExpiresIn()).isEqualTo(3600);
+		assertThat(tokenProvider.parseToken(token.getAccessToken())).hasValueSatisfying(claims -> {
+			assertThat(claims.username()).isEqualTo("alice");
+			assertThat(claims.authorities()).containsExactly("ROLE_USER");
+		});
+	}
+
+	@Test
+	@DisplayName("should reject invalid credentials with a 401")
+	void shouldRejectInvalidCredentials() {
+		authService = new AuthService(authenticationManager, tokenProvider, meterRegistry, 3600000, 1, 1);
+		when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+		assertThatThrownBy(() -> authService.login("alice", "wrong").get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(RepositoryException.Unauthorized.class);
+	}
+
+	@Test
+	@DisplayName("should reject logins with a 503 once the queue is full")
+	void shouldRejectWhenSaturated() throws Exception {
+		authService = new AuthService(authenticationManager, tokenProvider, meterRegistry, 3600000, 1, 1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			throw new BadCredentialsException("Bad credentials");
+		});
+
+		// One login verifying, one waiting in the queue.
+		CompletableFuture<TokenDTO> running = authService.login("alice", "secret");
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<TokenDTO> queued = authService.login("bob", "secret");
+		assertThat(meterRegistry.get("library.auth.login.queue").gauge().value()).isEqualTo(1);
+
+		assertThatThrownBy(() -> authService.login("carol", "secret").get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(RepositoryException.ServiceUnavailable.class);
+		assertThat(meterRegistry.get("library.auth.login.rejected").counter().count()).isEqualTo(1);
+
+		release.countDown();
+		assertThatThrownBy(() -> running.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RepositoryException.Unauthorized.class);
+		assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RepositoryException.Unauthorized.class);
+	}
+}
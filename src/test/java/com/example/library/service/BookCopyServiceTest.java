@@ -4,6 +4,7 @@ import com.example.library.dto.BookWithQuantityDTO;
 import com.example.library.entity.Book;
 import com.example.library.entity.BookCopy;
 import com.example.library.entity.Location;
+import com.example.library.metrics.LibraryMetrics;
 import com.example.library.repository.BookCopyRepository;
 import com.example.library.repository.BookRepository;
 import com.example.library.repository.LocationRepository;
@@ -40,6 +41,9 @@ class BookCopyServiceTest {
 	@Mock
 	private BookRepository bookRepository;
 
+	@Mock
+	private LibraryMetrics metrics;
+
 	private BookCopyService bookCopyService;
 
 	private Book testBook;
@@ -48,7 +52,7 @@ class BookCopyServiceTest {
 
 	@BeforeEach
 	void setUp() {
-		bookCopyService = new BookCopyService(bookCopyRepository, locationRepository, bookRepository);
+		bookCopyService = new BookCopyService(bookCopyRepository, locationRepository, bookRepository, metrics);
 
 		testBook = new Book(1L, "Test Book", "Test Author", "1234567890", LocalDate.of(2023, 1, 1));
 		testLocation = new Location(1L, "Test Location", "Test Address");
@@ -62,44 +66,85 @@ class BookCopyServiceTest {
 		@Test
 		@DisplayName("should update quantity when book copy exists")
 		void shouldUpdateQuantityWhenBookCopyExists() throws Exception {
-			when(bookCopyRepository.findById(any(BookCopy.BookCopyId.class))).thenReturn(Optional.of(testBookCopy));
-			when(bookCopyRepository.save(any(BookCopy.class))).thenReturn(testBookCopy);
+			when(bookCopyRepository.addQuantity(1L, 1L, 3)).thenReturn(1);
+			when(bookCopyRepository.findQuantity(1L, 1L)).thenReturn(Optional.of(8));
 
 			Integer result = bookCopyService.updateBookCopyQuantity(1L, 1L, 3);
 
 			assertThat(result).isEqualTo(8);
-			verify(bookCopyRepository).findById(any(BookCopy.BookCopyId.class));
-			verify(bookCopyRepository).save(any(BookCopy.class));
+			verify(bookCopyRepository).addQuantity(1L, 1L, 3);
+			verify(bookCopyRepository, never()).insertQuantityIfAbsent(any(), any(), anyInt());
+			verifyNoInteractions(locationRepository, bookRepository);
+			verify(metrics).recordBookAdded();
 		}
 
 		@Test
 		@DisplayName("should create new book copy when it doesn't exist")
 		void shouldCreateNewBookCopyWhenItDoesntExist() throws Exception {
-			when(bookCopyRepository.findById(any(BookCopy.BookCopyId.class))).thenReturn(Optional.empty());
-			when(locationRepository.findById(1L)).thenReturn(Optional.of(testLocation));
-			when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
-			when(bookCopyRepository.save(any(BookCopy.class))).thenReturn(new BookCopy(testBook, testLocation, 3));
+			when(bookCopyRepository.addQuantity(1L, 1L, 3)).thenReturn(0);
+			when(bookCopyRepository.insertQuantityIfAbsent(1L, 1L, 3)).thenReturn(1);
+			when(bookCopyRepository.findQuantity(1L, 1L)).thenReturn(Optional.of(3));
 
 			Integer result = bookCopyService.updateBookCopyQuantity(1L, 1L, 3);
 
 			assertThat(result).isEqualTo(3);
-			verify(bookCopyRepository).findById(any(BookCopy.BookCopyId.class));
-			verify(locationRepository).findById(1L);
-			verify(bookRepository).findById(1L);
-			verify(bookCopyRepository).save(any(BookCopy.class));
+			verify(bookCopyRepository).addQuantity(1L, 1L, 3);
+			verify(bookCopyRepository).insertQuantityIfAbsent(1L, 1L, 3);
+			verifyNoInteractions(locationRepository, bookRepository);
+		}
+
+		@Test
+		@DisplayName("should retry the update when a concurrent request created the book copy")
+		void shouldRetryUpdateWhenConcurrentRequestCreatedBookCopy() throws Exception {
+			when(bookCopyRepository.addQuantity(1L, 1L, 3)).thenReturn(0, 1);
+			when(bookCopyRepository.insertQuantityIfAbsent(1L, 1L, 3)).thenReturn(0);
+			when(bookCopyRepository.findQuantity(1L, 1L)).thenReturn(Optional.of(6));
+
+			Integer result = bookCopyService.updateBookCopyQuantity(1L, 1L, 3);
+
+			assertThat(result).isEqualTo(6);
+			verify(bookCopyRepository, times(2)).addQuantity(1L, 1L, 3);
 		}
 
 		@Test
 		@DisplayName("should throw exception when trying to remove more copies than available")
 		void shouldThrowExceptionWhenTryingToRemoveMoreCopiesThanAvailable() {
-			when(bookCopyRepository.findById(any(BookCopy.BookCopyId.class))).thenReturn(Optional.of(testBookCopy));
+			when(bookCopyRepository.addQuantity(1L, 1L, -6)).thenReturn(0);
+			when(bookCopyRepository.findQuantity(1L, 1L)).thenReturn(Optional.of(5));
 
 			assertThatThrownBy(() -> bookCopyService.updateBookCopyQuantity(1L, 1L, -6))
 					.isInstanceOf(BookCopyService.InsufficientCopiesException.class)
 					.hasMessageContaining("Insufficient copies of book 1 at location 1. Found 5, requested 6");
 
-			verify(bookCopyRepository).findById(any(BookCopy.BookCopyId.class));
-			verifyNoMoreInteractions(bookCopyRepository);
+			verify(bookCopyRepository, never()).insertQuantityIfAbsent(any(), any(), anyInt());
+			verifyNoInteractions(metrics);
+		}
+
+		@Test
+		@DisplayName("should throw exception when location not found")
+		void shouldThrowExceptionWhenLocationNotFound() {
+			when(bookCopyRepository.addQuantity(1L, 1L, 3)).thenReturn(0);
+			when(bookCopyRepository.insertQuantityIfAbsent(1L, 1L, 3)).thenReturn(0);
+			when(bookCopyRepository.findQuantity(1L, 1L)).thenReturn(Optional.empty());
+			when(locationRepository.findById(1L)).thenReturn(Optional.empty());
+
+			assertThatThrownBy(() -> bookCopyService.updateBookCopyQuantity(1L, 1L, 3))
+					.isInstanceOf(LocationService.LocationNotFoundException.class)
+					.hasMessageContaining("Location not found with id: 1");
+		}
+
+		@Test
+		@DisplayName("should throw exception when book not found")
+		void shouldThrowExceptionWhenBookNotFound() {
+			when(bookCopyRepository.addQuantity(1L, 1L, 3)).thenReturn(0);
+			when(bookCopyRepository.insertQuantityIfAbsent(1L, 1L, 3)).thenReturn(0);
+			when(bookCopyRepository.findQuantity(1L, 1L)).thenReturn(Optional.empty());
+			when(locationRepository.findById(1L)).thenReturn(Optional.of(testLocation));
+			when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+
+			assertThatThrownBy(() -> bookCopyService.updateBookCopyQuantity(1L, 1L, 3))
+					.isInstanceOf(BookService.BookNotFoundException.class)
+					.hasMessageContaining("Book not found with id: 1");
 		}
 	}
 
@@ -110,43 +155,43 @@ class BookCopyServiceTest {
 		@Test
 		@DisplayName("should return quantity when book copy exists")
 		void shouldReturnQuantityWhenBookCopyExists() throws Exception {
-			when(locationRepository.existsById(1L)).thenReturn(true);
-			when(bookRepository.existsById(1L)).thenReturn(true);
-			when(bookCopyRepository.getByLocationIdAndBookId(1L, 1L)).thenReturn(new BookCopy(testBook, testLocation, 5));
+			when(locationRepository.findById(1L)).thenReturn(Optional.of(testLocation));
+			when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+			when(bookCopyRepository.findById(new BookCopy.BookCopyId(1L, 1L))).thenReturn(Optional.of(new BookCopy(testBook, testLocation, 5)));
 
 			Integer result = bookCopyService.getBookCopyQuantity(1L, 1L);
 
 			assertThat(result).isEqualTo(5);
-			verify(locationRepository).existsById(1L);
-			verify(bookRepository).existsById(1L);
-			verify(bookCopyRepository).getByLocationIdAndBookId(1L, 1L);
+			verify(locationRepository).findById(1L);
+			verify(bookRepository).findById(1L);
+			verify(bookCopyRepository).findById(new BookCopy.BookCopyId(1L, 1L));
 		}
 
 		@Test
 		@DisplayName("should throw exception when location not found")
 		void shouldThrowExceptionWhenLocationNotFound() {
-			when(locationRepository.existsById(1L)).thenReturn(false);
+			when(locationRepository.findById(1L)).thenReturn(Optional.empty());
 
 			assertThatThrownBy(() -> bookCopyService.getBookCopyQuantity(1L, 1L))
 					.isInstanceOf(LocationService.LocationNotFoundException.class)
 					.hasMessageContaining("Location not found with id: 1");
 
-			verify(locationRepository).existsById(1L);
+			verify(locationRepository).findById(1L);
 			verifyNoInteractions(bookRepository, bookCopyRepository);
 		}
 
 		@Test
 		@DisplayName("should throw exception when book not found")
 		void shouldThrowExceptionWhenBookNotFound() {
-			when(locationRepository.existsById(1L)).thenReturn(true);
-			when(bookRepository.existsById(1L)).thenReturn(false);
+			when(locationRepository.findById(1L)).thenReturn(Optional.of(testLocation));
+			when(bookRepository.findById(1L)).thenReturn(Optional.empty());
 
 			assertThatThrownBy(() -> bookCopyService.getBookCopyQuantity(1L, 1L))
 					.isInstanceOf(BookService.BookNotFoundException.class)
 					.hasMessageContaining("Book not found with id: 1");
 
-			verify(locationRepository).existsById(1L);
-			verify(bookRepository).existsById(1L);
+			verify(locationRepository).findById(1L);
+			verify(bookRepository).findById(1L);
 			verifyNoInteractions(bookCopyRepository);
 		}
 	}
@@ -162,7 +207,7 @@ class BookCopyServiceTest {
 			BookWithQuantityDTO bookWithQuantityDTO = new BookWithQuantityDTO("Test Book", "Test Author", "1234567890", 5);
 			Page<BookWithQuantityDTO> expectedPage = new PageImpl<>(List.of(bookWithQuantityDTO), pageable, 1);
 
-			when(locationRepository.existsById(1L)).thenReturn(true);
+			when(locationRepository.findById(1L)).thenReturn(Optional.of(testLocation));
 			when(bookCopyRepository.findBooksWithQuantitiesByLocationId(1L, pageable)).thenReturn(expectedPage);
 
 			Page<BookWithQuantityDTO> result = bookCopyService.getBooksWithQuantitiesAtLocation(1L, pageable);
@@ -170,7 +215,7 @@ class BookCopyServiceTest {
 			assertThat(result).isEqualTo(expectedPage);
 			assertThat(result.getContent()).hasSize(1);
 			assertThat(result.getContent().get(0)).isEqualTo(bookWithQuantityDTO);
-			verify(locationRepository).existsById(1L);
+			verify(locationRepository).findById(1L);
 			verify(bookCopyRepository).findBooksWithQuantitiesByLocationId(1L, pageable);
 		}
 
@@ -178,13 +223,13 @@ class BookCopyServiceTest {
 		@DisplayName("should throw exception when location not found")
 		void shouldThrowExceptionWhenLocationNotFound() {
 			Pageable pageable = PageRequest.of(0, 10);
-			when(locationRepository.existsById(1L)).thenReturn(false);
+			when(locationRepository.findById(1L)).thenReturn(Optional.empty());
 
 			assertThatThrownBy(() -> bookCopyService.getBooksWithQuantitiesAtLocation(1L, pageable))
 					.isInstanceOf(LocationService.LocationNotFoundException.class)
 					.hasMessageContaining("Location not found with id: 1");
 
-			verify(locationRepository).existsById(1L);
+			verify(locationRepository).findById(1L);
 			verifyNoInteractions(bookCopyRepository);
 		}
 	}
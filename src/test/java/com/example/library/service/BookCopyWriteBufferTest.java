@@ -0,0 +1,207 @@
+package com.example.library.service;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.Location;
+import com.example.library.lib.SafeRuntimeException;
+import com.example.library.metrics.LibraryMetrics;
+import com.example.library.repository.BookCopyRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LocationRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@Tag("integration")
+@DisplayName("BookCopy Write Buffer Tests")
+class BookCopyWriteBufferTest {
+
+	private static final long UNKNOWN_ID = 999_999L;
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private BookCopyService bookCopyService;
+
+	@Autowired
+	private LibraryMetrics metrics;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private LocationRepository locationRepository;
+
+	@Autowired
+	private BookCopyRepository bookCopyRepository;
+
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+
+	private BookCopyWriteBuffer writeBuffer;
+	private Location location;
+	private Book stockedBook;
+	private Book newBook;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		location = locationRepository.save(new Location(null, "Buffered Location", "Buffered Address"));
+		stockedBook = bookRepository.save(new Book(null, "Stocked Book", "Test Author", "1111111111", LocalDate.of(2000, 1, 1)));
+		newBook = bookRepository.save(new Book(null, "New Book", "Test Author", "2222222222", LocalDate.of(2000, 1, 1)));
+		bookCopyService.updateBookCopyQuantity(location.getId(), stockedBook.getId(), 2);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		if (writeBuffer != null) {
+			writeBuffer.shutdown();
+		}
+		callers.shutdownNow();
+		bookCopyRepository.deleteAll();
+		bookRepository.deleteAll();
+		locationRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("should give each change of a batch its own outcome")
+	void shouldReportEachOutcome() throws Exception {
+		// Only a full batch is flushed.
+		writeBuffer = writeBuffer(jdbcTemplate, metrics, 4, Duration.ofSeconds(10));
+
+		Future<Integer> added = update(location.getId(), stockedBook.getId(), 3);
+		Future<Integer> insufficient = update(location.getId(), newBook.getId(), -1);
+		Future<Integer> unknownBook = update(location.getId(), UNKNOWN_ID, 1);
+		Future<Integer> unknownLocation = update(UNKNOWN_ID, stockedBook.getId(), 1);
+
+		assertThat(added.get(10, TimeUnit.SECONDS)).isEqualTo(5);
+		assertThatThrownBy(() -> insufficient.get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(BookCopyService.InsufficientCopiesException.class);
+		assertThatThrownBy(() -> unknownBook.get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(BookService.BookNotFoundException.class);
+		assertThatThrownBy(() -> unknownLocation.get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(LocationService.LocationNotFoundException.class);
+		assertThat(bookCopyService.getBookCopyQuantity(location.getId(), stockedBook.getId())).isEqualTo(5);
+	}
+
+	@Test
+	@DisplayName("should apply the changes one by one when the group commit fails")
+	void shouldFallBackWhenGroupCommitFails() throws Exception {
+		// A concurrent first insert of the same book copy fails the batch.
+		NamedParameterJdbcTemplate conflictingTemplate = spy(jdbcTemplate);
+		doThrow(new DuplicateKeyException("Concurrent insert"))
+				.when(conflictingTemplate).batchUpdate(startsWith("INSERT"), any(SqlParameterSource[].class));
+		writeBuffer = writeBuffer(conflictingTemplate, metrics, 2, Duration.ofSeconds(10));
+
+		Future<Integer> inserted = update(location.getId(), newBook.getId(), 2);
+		Future<Integer> insufficient = update(location.getId(), stockedBook.getId(), -5);
+
+		assertThat(inserted.get(10, TimeUnit.SECONDS)).isEqualTo(2);
+		assertThatThrownBy(() -> insufficient.get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(BookCopyService.InsufficientCopiesException.class);
+		verify(conflictingTemplate).batchUpdate(startsWith("INSERT"), any(SqlParameterSource[].class));
+		assertThat(bookCopyService.getBookCopyQuantity(location.getId(), newBook.getId())).isEqualTo(2);
+		assertThat(bookCopyService.getBookCopyQuantity(location.getId(), stockedBook.getId())).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("should drain the pending changes on shutdown")
+	void shouldDrainOnShutdown() throws Exception {
+		writeBuffer = writeBuffer(jdbcTemplate, metrics, 100, Duration.ofSeconds(10));
+
+		Future<Integer> added = update(location.getId(), stockedBook.getId(), 1);
+		while (writeBuffer.getPendingCount() == 0) {
+			Thread.sleep(1);
+		}
+		assertThat(added.isDone()).isFalse();
+
+		writeBuffer.shutdown();
+		writeBuffer = null;
+
+		assertThat(added.get(10, TimeUnit.SECONDS)).isEqualTo(3);
+		assertThat(bookCopyService.getBookCopyQuantity(location.getId(), stockedBook.getId())).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("should fail the callers of a batch when the flush fails unexpectedly")
+	void shouldFailBatchWhenFlushFails() throws Exception {
+		// The first change fails while its outcome is reported, after the commit.
+		LibraryMetrics failingMetrics = mock(LibraryMetrics.class);
+		doThrow(new IllegalStateException("Metrics unavailable")).when(failingMetrics).recordBookAdded();
+		writeBuffer = writeBuffer(jdbcTemplate, failingMetrics, 2, Duration.ofSeconds(10));
+
+		Future<Integer> first = update(location.getId(), stockedBook.getId(), 1);
+		Future<Integer> second = update(location.getId(), newBook.getId(), 1);
+
+		assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> second.get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	@DisplayName("should stop waiting for a change after the completion timeout")
+	void shouldTimeOutWaitingCallers() throws Exception {
+		writeBuffer = writeBuffer(jdbcTemplate, metrics, 100, Duration.ofMillis(50));
+
+		Future<Integer> added = update(location.getId(), stockedBook.getId(), 1);
+
+		assertThatThrownBy(() -> added.get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(SafeRuntimeException.class);
+		// The change is still applied by the next flush.
+		writeBuffer.shutdown();
+		writeBuffer = null;
+		assertThat(bookCopyService.getBookCopyQuantity(location.getId(), stockedBook.getId())).isEqualTo(3);
+	}
+
+	/**
+	 * Create a buffer that only flushes full batches, and on shutdown.
+	 */
+	private BookCopyWriteBuffer writeBuffer(NamedParameterJdbcTemplate template, LibraryMetrics libraryMetrics,
+			int maxBatchSize, Duration completionTimeout) {
+		return new BookCopyWriteBuffer(template, transactionManager, bookCopyService, libraryMetrics, entityManagerFactory,
+				Duration.ofHours(1), maxBatchSize, completionTimeout);
+	}
+
+	private Future<Integer> update(Long locationId, Long bookId, int quantityChange) {
+		return callers.submit(() -> writeBuffer.updateBookCopyQuantity(locationId, bookId, quantityChange));
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.library.service;
+
+import com.example.library.dto.BookImportReportDTO;
+import com.example.library.entity.Book;
+import com.example.library.lib.CsvReader;
+import com.example.library.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+		// Several chunks with a few rows.
+		"app.import.chunk-size=2"
+})
+@Tag("integration")
+@DisplayName("Book Import Service Tests")
+class BookImportServiceTest {
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@AfterEach
+	void tearDown() {
+		bookRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("should import the valid CSV rows and report the others")
+	void shouldImportCsv() throws Exception {
+		bookRepository.save(new Book(null, "Existing Book", "Test Author", "9780000000009", LocalDate.of(2000, 1, 1)));
+
+		BookImportReportDTO report = bookImportService.importBooks(stream("""
+				isbn,title,author,publication_date,shelf
+				9780000000001,First Book,First Author,2001-02-03,A1
+				9780000000002,"Title, with ""quotes""",Second Author,2002-03-04,A2
+				abc,Invalid Book,Third Author,2003-04-05,A3
+				9780000000001,Same ISBN,Fourth Author,2004-05-06,A4
+				9780000000009,Existing ISBN,Fifth Author,2005-06-07,A5
+				9780000000010,Bad Date,Sixth Author,yesterday,A6
+				"""), BookImportService.Format.CSV, StandardCharsets.UTF_8);
+
+		assertThat(report.getReceived()).isEqualTo(6);
+		assertThat(report.getImported()).isEqualTo(2);
+		assertThat(report.getDuplicates()).isEqualTo(2);
+		assertThat(report.getRejected()).isEqualTo(2);
+		assertThat(report.getRejects()).extracting(BookImportReportDTO.Reject::getLine).containsExactlyInAnyOrder(4L, 5L, 6L, 7L);
+
+		assertThat(bookRepository.findByIsbn("9780000000001")).map(Book::getTitle).contains("First Book");
+		assertThat(bookRepository.findByIsbn("9780000000002")).map(Book::getTitle).contains("Title, with \"quotes\"");
+		assertThat(bookRepository.findByIsbn("9780000000009")).map(Book::getTitle).contains("Existing Book");
+		assertThat(bookRepository.count()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("should import the valid NDJSON lines and report the others")
+	void shouldImportNdjson() throws Exception {
+		BookImportReportDTO report = bookImportService.importBooks(stream("""
+				{"title":"First Book","author":"First Author","isbn":"9780000000001","publicationDate":"2001-02-03"}
+
+				{"title":"Broken Book",
+				{"title":"","author":"Second Author","isbn":"9780000000002","publicationDate":"2002-03-04"}
+				{"title":"Third Book","author":"Third Author","isbn":"9780000000003","publicationDate":"2003-04-05"}
+				"""), BookImportService.Format.NDJSON, StandardCharsets.UTF_8);
+
+		assertThat(report.getReceived()).isEqualTo(4);
+		assertThat(report.getImported()).isEqualTo(2);
+		assertThat(report.getDuplicates()).isZero();
+		assertThat(report.getRejected()).isEqualTo(2);
+		assertThat(report.getRejects()).extracting(BookImportReportDTO.Reject::getLine).containsExactlyInAnyOrder(3L, 4L);
+		assertThat(bookRepository.count()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("should reject a CSV stream without the required columns")
+	void shouldRejectIncompleteHeader() {
+		assertThatThrownBy(() -> bookImportService.importBooks(stream("""
+				title,author
+				First Book,First Author
+				"""), BookImportService.Format.CSV, StandardCharsets.UTF_8))
+				.isInstanceOf(BookImportService.InvalidImportException.class);
+		assertThat(bookRepository.count()).isZero();
+	}
+
+	@Test
+	@DisplayName("should reject a CSV stream with an unclosed quoted field")
+	void shouldRejectUnclosedQuote() {
+		assertThatThrownBy(() -> bookImportService.importBooks(stream("""
+				title,author,isbn,publication_date
+				"First Book,First Author,9780000000001,2001-02-03
+				"""), BookImportService.Format.CSV, StandardCharsets.UTF_8))
+				.isInstanceOf(CsvReader.MalformedCsvException.class);
+	}
+
+	@Test
+	@DisplayName("should report the progress after each chunk, listing each rejected row once")
+	void shouldReportProgress() throws Exception {
+		List<BookImportReportDTO> progress = new ArrayList<>();
+		BookImportReportDTO report = bookImportService.importBooks(stream("""
+				{"title":"First Book","author":"First Author","isbn":"9780000000001","publicationDate":"2001-02-03"}
+				{"title":"","author":"Second Author","isbn":"9780000000002","publicationDate":"2002-03-04"}
+				{"title":"Third Book","author":"Third Author","isbn":"9780000000003","publicationDate":"2003-04-05"}
+				{"title":"Fourth Book","author":"Fourth Author","isbn":"9780000000001","publicationDate":"2004-05-06"}
+				{"title":"Fifth Book","author":"Fifth Author","isbn":"9780000000005","publicationDate":"2005-06-07"}
+				"""), BookImportService.Format.NDJSON, StandardCharsets.UTF_8, progress::add);
+
+		// One line per chunk of 2 rows, then the final counts. The next chunk is read while a chunk is written.
+		assertThat(progress).extracting(BookImportReportDTO::getReceived).containsExactly(4L, 5L, 5L, 5L);
+		assertThat(progress).extracting(BookImportReportDTO::getImported).containsExactly(1L, 2L, 3L, 3L);
+		assertThat(progress).flatExtracting(BookImportReportDTO::getRejects)
+				.extracting(BookImportReportDTO.Reject::getLine)
+				.containsExactly(2L, 4L);
+		assertThat(progress.get(progress.size() - 1).getChunks()).isEqualTo(report.getChunks());
+		assertThat(report.getRejects()).extracting(BookImportReportDTO.Reject::getLine).containsExactly(2L, 4L);
+	}
+
+	@Test
+	@DisplayName("should refuse a chunk size above the bind parameter limit")
+	void shouldRefuseTooLargeChunks() {
+		// The chunk size is checked before any dependency is used.
+		assertThatThrownBy(() -> new BookImportService(null, null, null, null, null, null, null, null,
+				BookImportService.MAX_CHUNK_SIZE + 1, 1000, 1))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("app.import.chunk-size");
+	}
+
+	private static InputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,134 @@
+package com.example.library.service;
+
+import com.example.library.dto.BookDTO;
+import com.example.library.dto.CountedPage;
+import com.example.library.event.BookChangedEvent;
+import com.example.library.lib.CountMode;
+import com.example.library.specification.BookFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("BookPageCache Tests")
+class BookPageCacheTest {
+
+	private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by("title"));
+
+	private BookPageCache bookPageCache;
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		bookPageCache = new BookPageCache(new SimpleMeterRegistry(), 100, Duration.ofHours(1), Duration.ofHours(1), 1, 1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		bookPageCache.shutdown();
+	}
+
+	@Test
+	@DisplayName("should only cache the first pages")
+	void shouldOnlyCacheFirstPages() {
+		assertThat(bookPageCache.isCached(FIRST_PAGE)).isTrue();
+		assertThat(bookPageCache.isCached(PageRequest.of(1, 20))).isFalse();
+		assertThat(bookPageCache.isCached(Pageable.unpaged())).isFalse();
+	}
+
+	@Test
+	@DisplayName("should serve a fresh page without loading it")
+	void shouldServeFreshPage() {
+		BookPageCache.Key key = key("title");
+		assertThat(bookPageCache.get(key, loader("first")).getContent()).extracting(BookDTO::getTitle).containsExactly("first");
+		assertThat(bookPageCache.get(key("TITLE"), loader("second")).getContent()).extracting(BookDTO::getTitle).containsExactly("first");
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	@DisplayName("should serve a stale page and reload it in the background")
+	void shouldServeStalePageAndReload() throws Exception {
+		BookPageCache.Key key = key("title");
+		bookPageCache.get(key, loader("before"));
+		bookPageCache.onBookChanged(new BookChangedEvent(1L));
+
+		CountDownLatch reloaded = new CountDownLatch(1);
+		CountedPage<BookDTO> stale = bookPageCache.get(key, () -> {
+			CountedPage<BookDTO> page = loader("after").get();
+			reloaded.countDown();
+			return page;
+		});
+		assertThat(stale.getContent()).extracting(BookDTO::getTitle).containsExactly("before");
+
+		assertThat(reloaded.await(5, TimeUnit.SECONDS)).isTrue();
+		// The reloaded page is stored right after the loader returns.
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!bookPageCache.get(key, loader("unexpected")).getContent().get(0).getTitle().equals("after") && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(bookPageCache.get(key, loader("unexpected")).getContent()).extracting(BookDTO::getTitle).containsExactly("after");
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	@DisplayName("should load a missing page only once for concurrent requests")
+	void shouldLoadMissingPageOnce() throws Exception {
+		int threads = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<CountedPage<BookDTO>>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return bookPageCache.get(key("title"), () -> {
+						try {
+							Thread.sleep(50);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return loader("only").get();
+					});
+				}));
+			}
+			start.countDown();
+			for (Future<CountedPage<BookDTO>> future : futures) {
+				assertThat(future.get().getContent()).extracting(BookDTO::getTitle).containsExactly("only");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(loads).hasValue(1);
+	}
+
+	private static BookPageCache.Key key(String title) {
+		return new BookPageCache.Key(new BookFilter(title, null), FIRST_PAGE, CountMode.EXACT);
+	}
+
+	private Supplier<CountedPage<BookDTO>> loader(String title) {
+		return () -> {
+			loads.incrementAndGet();
+			BookDTO book = new BookDTO(1L, title, "Author", "1234567890", LocalDate.of(2000, 1, 1));
+			return new CountedPage<>(List.of(book), FIRST_PAGE, 1, true);
+		};
+	}
+}
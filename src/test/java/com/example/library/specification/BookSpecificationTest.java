@@ -63,4 +63,25 @@ class BookSpecificationTest {
 		assertThat(result).hasSize(1);
 		assertThat(result.get(0).getAuthor()).isEqualTo("Jane Smith");
 	}
-}
\ No newline at end of file
+
+	@Test
+	@DisplayName("titleLike should match wildcards literally")
+	void titleLikeShouldMatchWildcardsLiterally() {
+		Book book1 = new Book(null, "100% Java", "John Doe", "1234567890", LocalDate.now());
+		Book book2 = new Book(null, "100 Java Tips", "Jane Smith", "0987654321", LocalDate.now());
+		entityManager.persist(book1);
+		entityManager.persist(book2);
+		entityManager.flush();
+
+		CriteriaBuilder cb = entityManager.getEntityManager().getCriteriaBuilder();
+		CriteriaQuery<Book> query = cb.createQuery(Book.class);
+		Root<Book> root = query.from(Book.class);
+
+		query.where(BookSpecification.titleLike("0% j").toPredicate(root, query, cb));
+
+		List<Book> result = entityManager.getEntityManager().createQuery(query).getResultList();
+
+		assertThat(result).hasSize(1);
+		assertThat(result.get(0).getTitle()).isEqualTo("100% Java");
+	}
+}